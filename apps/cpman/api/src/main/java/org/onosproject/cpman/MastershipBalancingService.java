@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.cpman;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for balancing device mastership across the controller nodes by
+ * the control plane load of the devices, rather than by their number.
+ * <p>
+ * The load of a device is a weighted sum of its packet-in rate, flow rule
+ * modification rate, flow count and statistics traffic.
+ * </p>
+ */
+public interface MastershipBalancingService {
+
+    /**
+     * Returns the current load of the controller nodes, without migrating
+     * any device.
+     *
+     * @return load report with no migrations
+     */
+    MastershipLoadReport getLoadReport();
+
+    /**
+     * Migrates mastership of devices from the most to the least loaded
+     * nodes, one device at a time and at a bounded rate, until the load is
+     * balanced or the number of migrations per round is exhausted.
+     *
+     * @return future completed with the load report of the balancing round,
+     * once all of its migrations were attempted
+     */
+    CompletableFuture<MastershipLoadReport> balanceRoles();
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.cpman;
+
+import com.google.common.collect.ImmutableMap;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.DeviceId;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Control plane load of the controller nodes, weighted by the load of the
+ * devices they master, before and after a mastership balancing round.
+ */
+public final class MastershipLoadReport {
+
+    private final Map<NodeId, Double> loadsBefore;
+    private final Map<NodeId, Double> loadsAfter;
+    private final Map<DeviceId, NodeId> migrations;
+
+    /**
+     * Creates a new report.
+     *
+     * @param loadsBefore node loads before balancing
+     * @param loadsAfter  node loads after balancing
+     * @param migrations  devices which were given a new master, in the order
+     *                    they were migrated
+     */
+    public MastershipLoadReport(Map<NodeId, Double> loadsBefore,
+                                Map<NodeId, Double> loadsAfter,
+                                Map<DeviceId, NodeId> migrations) {
+        this.loadsBefore = ImmutableMap.copyOf(loadsBefore);
+        this.loadsAfter = ImmutableMap.copyOf(loadsAfter);
+        this.migrations = ImmutableMap.copyOf(migrations);
+    }
+
+    /**
+     * Returns the load of each node before balancing.
+     *
+     * @return node loads
+     */
+    public Map<NodeId, Double> loadsBefore() {
+        return loadsBefore;
+    }
+
+    /**
+     * Returns the load of each node after balancing, as projected from the
+     * device loads measured before balancing.
+     *
+     * @return node loads
+     */
+    public Map<NodeId, Double> loadsAfter() {
+        return loadsAfter;
+    }
+
+    /**
+     * Returns the devices which were given a new master, mapped to it.
+     *
+     * @return new masters keyed by device
+     */
+    public Map<DeviceId, NodeId> migrations() {
+        return migrations;
+    }
+
+    /**
+     * Returns the imbalance of the node loads before balancing.
+     *
+     * @return imbalance
+     * @see #imbalance(Map)
+     */
+    public double imbalanceBefore() {
+        return imbalance(loadsBefore);
+    }
+
+    /**
+     * Returns the imbalance of the node loads after balancing.
+     *
+     * @return imbalance
+     * @see #imbalance(Map)
+     */
+    public double imbalanceAfter() {
+        return imbalance(loadsAfter);
+    }
+
+    /**
+     * Returns the ratio of the highest node load to the mean node load; 1.0
+     * when the load is evenly spread or when there is no load at all.
+     *
+     * @param loads node loads
+     * @return imbalance
+     */
+    public static double imbalance(Map<NodeId, Double> loads) {
+        double total = 0;
+        double max = 0;
+        for (double load : loads.values()) {
+            total += load;
+            max = Math.max(max, load);
+        }
+        return total > 0 ? max * loads.size() / total : 1.0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(loadsBefore, loadsAfter, migrations);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof MastershipLoadReport) {
+            final MastershipLoadReport other = (MastershipLoadReport) obj;
+            return Objects.equals(this.loadsBefore, other.loadsBefore) &&
+                    Objects.equals(this.loadsAfter, other.loadsAfter) &&
+                    Objects.equals(this.migrations, other.migrations);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("imbalanceBefore", imbalanceBefore())
+                .add("imbalanceAfter", imbalanceAfter())
+                .add("migrations", migrations)
+                .toString();
+    }
+}
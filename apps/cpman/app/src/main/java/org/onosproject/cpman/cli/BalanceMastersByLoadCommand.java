@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.cpman.cli;
+
+import org.apache.karaf.shell.commands.Command;
+import org.apache.karaf.shell.commands.Option;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.cpman.MastershipBalancingService;
+import org.onosproject.cpman.MastershipLoadReport;
+
+/**
+ * Balances device mastership across the cluster by control plane load.
+ */
+@Command(scope = "onos", name = "cpman-balance-masters",
+        description = "Balances device mastership by the control plane load of the devices")
+public class BalanceMastersByLoadCommand extends AbstractShellCommand {
+
+    private static final String FMT_NODE = "node=%s, loadBefore=%.2f, loadAfter=%.2f";
+    private static final String FMT_MIGRATION = "device=%s, newMaster=%s";
+    private static final String FMT_IMBALANCE = "imbalanceBefore=%.2f, imbalanceAfter=%.2f";
+
+    @Option(name = "-r", aliases = "--report-only",
+            description = "Only report the current load, without migrating devices",
+            required = false, multiValued = false)
+    private boolean reportOnly = false;
+
+    @Override
+    protected void execute() {
+        MastershipBalancingService service = get(MastershipBalancingService.class);
+        MastershipLoadReport report = reportOnly ? service.getLoadReport() : service.balanceRoles().join();
+
+        report.loadsBefore().keySet().stream()
+                .sorted((a, b) -> a.toString().compareTo(b.toString()))
+                .forEach(node -> print(FMT_NODE, node, report.loadsBefore().get(node),
+                                       loadAfter(report, node)));
+        report.migrations().forEach((deviceId, node) -> print(FMT_MIGRATION, deviceId, node));
+        print(FMT_IMBALANCE, report.imbalanceBefore(), report.imbalanceAfter());
+    }
+
+    private double loadAfter(MastershipLoadReport report, NodeId node) {
+        Double load = report.loadsAfter().get(node);
+        return load != null ? load : 0;
+    }
+}
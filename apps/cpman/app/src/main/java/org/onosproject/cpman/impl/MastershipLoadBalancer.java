@@ -0,0 +1,407 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.cpman.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.Service;
+import org.onlab.util.Tools;
+import org.onosproject.cfg.ComponentConfigService;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.cpman.ControlMetricType;
+import org.onosproject.cpman.ControlPlaneMonitorService;
+import org.onosproject.cpman.MastershipBalancingService;
+import org.onosproject.cpman.MastershipLoadReport;
+import org.onosproject.mastership.MastershipAdminService;
+import org.onosproject.mastership.MastershipService;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.FlowRuleService;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.onosproject.cpman.ControlMetricType.FLOW_MOD_PACKET;
+import static org.onosproject.cpman.ControlMetricType.FLOW_REMOVED_PACKET;
+import static org.onosproject.cpman.ControlMetricType.INBOUND_PACKET;
+import static org.onosproject.cpman.ControlMetricType.REPLY_PACKET;
+import static org.onosproject.cpman.ControlMetricType.REQUEST_PACKET;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.onosproject.net.MastershipRole.MASTER;
+
+/**
+ * Balances device mastership across the controller nodes by the control
+ * message load of the devices, as measured by the control plane monitor.
+ */
+@Component(immediate = true)
+@Service
+public class MastershipLoadBalancer implements MastershipBalancingService {
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final double DEFAULT_PACKET_IN_WEIGHT = 1.0;
+    private static final double DEFAULT_FLOW_MOD_WEIGHT = 1.0;
+    private static final double DEFAULT_FLOW_COUNT_WEIGHT = 0.01;
+    private static final double DEFAULT_STATS_WEIGHT = 0.5;
+    private static final int DEFAULT_MAX_MIGRATIONS = 10;
+    private static final int DEFAULT_MIGRATION_INTERVAL_MS = 1000;
+    private static final double DEFAULT_IMBALANCE_THRESHOLD = 1.1;
+
+    private static final long METRICS_TIMEOUT_MS = ControlPlaneMonitorService.TIMEOUT_MILLIS;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MastershipService mastershipService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MastershipAdminService mastershipAdminService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ControlPlaneMonitorService monitorService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    @Property(name = "packetInWeight", doubleValue = DEFAULT_PACKET_IN_WEIGHT,
+            label = "Weight of the packet-in rate of a device in its load")
+    private double packetInWeight = DEFAULT_PACKET_IN_WEIGHT;
+
+    @Property(name = "flowModWeight", doubleValue = DEFAULT_FLOW_MOD_WEIGHT,
+            label = "Weight of the flow-mod and flow-removed rates of a device in its load")
+    private double flowModWeight = DEFAULT_FLOW_MOD_WEIGHT;
+
+    @Property(name = "flowCountWeight", doubleValue = DEFAULT_FLOW_COUNT_WEIGHT,
+            label = "Weight of the number of flow entries of a device in its load")
+    private double flowCountWeight = DEFAULT_FLOW_COUNT_WEIGHT;
+
+    @Property(name = "statsWeight", doubleValue = DEFAULT_STATS_WEIGHT,
+            label = "Weight of the stats request and reply rates of a device in its load")
+    private double statsWeight = DEFAULT_STATS_WEIGHT;
+
+    @Property(name = "maxMigrations", intValue = DEFAULT_MAX_MIGRATIONS,
+            label = "Maximum number of devices migrated per balancing round")
+    private int maxMigrations = DEFAULT_MAX_MIGRATIONS;
+
+    @Property(name = "migrationIntervalMs", intValue = DEFAULT_MIGRATION_INTERVAL_MS,
+            label = "Delay in milliseconds between two consecutive device migrations")
+    private int migrationIntervalMs = DEFAULT_MIGRATION_INTERVAL_MS;
+
+    @Property(name = "imbalanceThreshold", doubleValue = DEFAULT_IMBALANCE_THRESHOLD,
+            label = "Ratio of the highest to the mean node load below which nodes are balanced")
+    private double imbalanceThreshold = DEFAULT_IMBALANCE_THRESHOLD;
+
+    private ScheduledExecutorService executor;
+
+    @Activate
+    public void activate(ComponentContext context) {
+        executor = newSingleThreadScheduledExecutor(groupedThreads("onos/cpman", "mastership-balancer", log));
+        cfgService.registerProperties(getClass());
+        modified(context);
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        cfgService.unregisterProperties(getClass(), false);
+        executor.shutdown();
+        log.info("Stopped");
+    }
+
+    @Modified
+    public void modified(ComponentContext context) {
+        Dictionary<?, ?> properties = context != null ? context.getProperties() : null;
+        if (properties == null) {
+            return;
+        }
+        packetInWeight = getDoubleProperty(properties, "packetInWeight", packetInWeight);
+        flowModWeight = getDoubleProperty(properties, "flowModWeight", flowModWeight);
+        flowCountWeight = getDoubleProperty(properties, "flowCountWeight", flowCountWeight);
+        statsWeight = getDoubleProperty(properties, "statsWeight", statsWeight);
+        maxMigrations = Tools.getIntegerProperty(properties, "maxMigrations", maxMigrations);
+        migrationIntervalMs = Tools.getIntegerProperty(properties, "migrationIntervalMs", migrationIntervalMs);
+        imbalanceThreshold = getDoubleProperty(properties, "imbalanceThreshold", imbalanceThreshold);
+        log.info("Configured. Weights: packetIn={}, flowMod={}, flowCount={}, stats={}; " +
+                         "maxMigrations={}, migrationIntervalMs={}, imbalanceThreshold={}",
+                 packetInWeight, flowModWeight, flowCountWeight, statsWeight,
+                 maxMigrations, migrationIntervalMs, imbalanceThreshold);
+    }
+
+    @Override
+    public MastershipLoadReport getLoadReport() {
+        Map<NodeId, Double> loads = nodeLoads(deviceLoads());
+        return new MastershipLoadReport(loads, loads, ImmutableMap.of());
+    }
+
+    @Override
+    public CompletableFuture<MastershipLoadReport> balanceRoles() {
+        Map<NodeId, Map<DeviceId, Double>> deviceLoads = deviceLoads();
+        Map<DeviceId, Collection<NodeId>> standbys = Maps.newHashMap();
+        deviceLoads.values().forEach(devices -> devices.keySet().forEach(
+                deviceId -> standbys.put(deviceId, mastershipService.getNodesFor(deviceId).backups())));
+
+        Map<NodeId, Double> loadsBefore = nodeLoads(deviceLoads);
+        Map<DeviceId, NodeId> plan =
+                planMigrations(deviceLoads, standbys, maxMigrations, imbalanceThreshold);
+        log.info("Mastership load imbalance is {}; migrating {} devices",
+                 MastershipLoadReport.imbalance(loadsBefore), plan.size());
+
+        BalancingRound round = new BalancingRound(deviceLoads, loadsBefore, plan);
+        executor.execute(round::migrateNext);
+        return round.result;
+    }
+
+    /**
+     * Sums up the loads of the devices by their current master.
+     *
+     * @param deviceLoads loads of the devices, keyed by the node which
+     *                    mastered them when they were measured
+     * @param masterOf    current master of a device; null if it has none
+     * @return node loads, for all the nodes of the measured and current
+     * masters
+     */
+    static Map<NodeId, Double> currentLoads(Map<NodeId, Map<DeviceId, Double>> deviceLoads,
+                                            Function<DeviceId, NodeId> masterOf) {
+        Map<NodeId, Double> loads = Maps.newHashMap();
+        deviceLoads.forEach((node, devices) -> {
+            loads.putIfAbsent(node, 0.0);
+            devices.forEach((deviceId, load) -> {
+                NodeId master = masterOf.apply(deviceId);
+                if (master != null) {
+                    loads.merge(master, load, Double::sum);
+                }
+            });
+        });
+        return loads;
+    }
+
+    /**
+     * Plans the migrations which balance the load of the nodes, each one
+     * moving a device from the most loaded node to a less loaded standby of
+     * the device such that the load of neither node exceeds the former load
+     * of the most loaded one.
+     *
+     * @param deviceLoads        loads of the devices, keyed by their master
+     * @param standbys           standby nodes of each device
+     * @param maxMigrations      maximum number of migrations
+     * @param imbalanceThreshold imbalance below which no migration is planned
+     * @return new masters keyed by device, in migration order
+     */
+    static Map<DeviceId, NodeId> planMigrations(Map<NodeId, Map<DeviceId, Double>> deviceLoads,
+                                                Map<DeviceId, Collection<NodeId>> standbys,
+                                                int maxMigrations, double imbalanceThreshold) {
+        Map<NodeId, Map<DeviceId, Double>> buckets = Maps.newHashMap();
+        deviceLoads.forEach((node, devices) -> buckets.put(node, Maps.newHashMap(devices)));
+        Map<NodeId, Double> loads = nodeLoads(buckets);
+
+        Map<DeviceId, NodeId> migrations = Maps.newLinkedHashMap();
+        while (migrations.size() < maxMigrations &&
+                MastershipLoadReport.imbalance(loads) > imbalanceThreshold) {
+            NodeId largest = loads.keySet().stream()
+                    .max((a, b) -> Double.compare(loads.get(a), loads.get(b))).get();
+            List<NodeId> targets = loads.keySet().stream()
+                    .sorted((a, b) -> Double.compare(loads.get(a), loads.get(b)))
+                    .collect(Collectors.toList());
+
+            // Pick the least loaded node which can take over a device, and
+            // the device whose load is the closest to half of the gap.
+            DeviceId device = null;
+            NodeId target = null;
+            for (NodeId node : targets) {
+                double gap = loads.get(largest) - loads.get(node);
+                double best = 0;
+                for (Map.Entry<DeviceId, Double> entry : buckets.get(largest).entrySet()) {
+                    double load = entry.getValue();
+                    double gain = Math.min(load, gap - load);
+                    Collection<NodeId> candidates = standbys.get(entry.getKey());
+                    if (gain > best && candidates != null && candidates.contains(node)) {
+                        best = gain;
+                        device = entry.getKey();
+                    }
+                }
+                if (device != null) {
+                    target = node;
+                    break;
+                }
+            }
+            if (device == null) {
+                break;
+            }
+
+            double load = buckets.get(largest).remove(device);
+            buckets.get(target).put(device, load);
+            loads.merge(largest, -load, Double::sum);
+            loads.merge(target, load, Double::sum);
+            migrations.put(device, target);
+        }
+        return migrations;
+    }
+
+    /**
+     * Sums up the loads of the devices mastered by each node.
+     *
+     * @param deviceLoads loads of the devices, keyed by their master
+     * @return node loads
+     */
+    static Map<NodeId, Double> nodeLoads(Map<NodeId, Map<DeviceId, Double>> deviceLoads) {
+        Map<NodeId, Double> loads = Maps.newHashMap();
+        deviceLoads.forEach((node, devices) -> loads.put(
+                node, devices.values().stream().mapToDouble(Double::doubleValue).sum()));
+        return loads;
+    }
+
+    // Measures the load of the devices mastered by each active node.
+    private Map<NodeId, Map<DeviceId, Double>> deviceLoads() {
+        Map<NodeId, Map<DeviceId, Double>> deviceLoads = Maps.newHashMap();
+        for (ControllerNode node : clusterService.getNodes()) {
+            if (!clusterService.getState(node.id()).isActive()) {
+                continue;
+            }
+            Map<DeviceId, CompletableFuture<Double>> futures = Maps.newHashMap();
+            for (DeviceId deviceId : mastershipService.getDevicesOf(node.id())) {
+                futures.put(deviceId, deviceLoad(node.id(), deviceId));
+            }
+            Map<DeviceId, Double> devices = Maps.newHashMap();
+            futures.forEach((deviceId, future) -> devices.put(
+                    deviceId, Tools.futureGetOrElse(future, METRICS_TIMEOUT_MS, TimeUnit.MILLISECONDS, 0.0)));
+            deviceLoads.put(node.id(), devices);
+        }
+        return deviceLoads;
+    }
+
+    // Control messages are accounted for by the master of the device, so
+    // that is where the metrics are fetched from.
+    private CompletableFuture<Double> deviceLoad(NodeId master, DeviceId deviceId) {
+        CompletableFuture<Double> packetIn = rate(master, INBOUND_PACKET, deviceId);
+        CompletableFuture<Double> flowMod = rate(master, FLOW_MOD_PACKET, deviceId)
+                .thenCombine(rate(master, FLOW_REMOVED_PACKET, deviceId), Double::sum);
+        CompletableFuture<Double> stats = rate(master, REQUEST_PACKET, deviceId)
+                .thenCombine(rate(master, REPLY_PACKET, deviceId), Double::sum);
+        double flowCount = Iterables.size(flowRuleService.getFlowEntries(deviceId));
+        return packetIn.thenCombine(flowMod, (p, f) -> packetInWeight * p + flowModWeight * f)
+                .thenCombine(stats, (l, s) -> l + statsWeight * s + flowCountWeight * flowCount);
+    }
+
+    private CompletableFuture<Double> rate(NodeId nodeId, ControlMetricType type, DeviceId deviceId) {
+        return monitorService.getLoad(nodeId, type, Optional.of(deviceId))
+                .thenApply(snapshot -> snapshot != null ? (double) snapshot.average() : 0.0)
+                .exceptionally(e -> 0.0);
+    }
+
+    /**
+     * Balancing round migrating the planned devices one at a time, so that
+     * the cluster never has to absorb more than one mastership hand-over at
+     * once.
+     */
+    private final class BalancingRound {
+        private final Map<NodeId, Map<DeviceId, Double>> deviceLoads;
+        private final Map<NodeId, Double> loadsBefore;
+        private final Map<DeviceId, NodeId> plan;
+        private final Iterator<Map.Entry<DeviceId, NodeId>> pending;
+        private final CompletableFuture<MastershipLoadReport> result = new CompletableFuture<>();
+
+        private BalancingRound(Map<NodeId, Map<DeviceId, Double>> deviceLoads,
+                               Map<NodeId, Double> loadsBefore, Map<DeviceId, NodeId> plan) {
+            this.deviceLoads = deviceLoads;
+            this.loadsBefore = loadsBefore;
+            this.plan = plan;
+            this.pending = plan.entrySet().iterator();
+        }
+
+        // Hands over the next device, and schedules the one after it once
+        // the hand-over completed.
+        private void migrateNext() {
+            if (!pending.hasNext()) {
+                finish();
+                return;
+            }
+            Map.Entry<DeviceId, NodeId> migration = pending.next();
+            log.info("Setting {} as the master for {}", migration.getValue(), migration.getKey());
+            mastershipAdminService.setRole(migration.getValue(), migration.getKey(), MASTER)
+                    .whenComplete((r, error) -> {
+                        if (error != null) {
+                            log.warn("Unable to set {} as the master for {}",
+                                     migration.getValue(), migration.getKey(), error);
+                        }
+                        try {
+                            if (pending.hasNext()) {
+                                executor.schedule(this::migrateNext, migrationIntervalMs, MILLISECONDS);
+                            } else {
+                                executor.execute(this::finish);
+                            }
+                        } catch (RejectedExecutionException e) {
+                            finish();
+                        }
+                    });
+        }
+
+        // Reports the loads by the current masters, which only account for
+        // the migrations that actually took place.
+        private void finish() {
+            Map<DeviceId, NodeId> migrations = Maps.newLinkedHashMap();
+            plan.forEach((deviceId, target) -> {
+                if (target.equals(mastershipService.getMasterFor(deviceId))) {
+                    migrations.put(deviceId, target);
+                } else {
+                    log.warn("Mastership of {} was not migrated to {}", deviceId, target);
+                }
+            });
+            MastershipLoadReport report = new MastershipLoadReport(
+                    loadsBefore, currentLoads(deviceLoads, mastershipService::getMasterFor), migrations);
+            log.info("Mastership load imbalance went from {} to {} after migrating {} devices",
+                     report.imbalanceBefore(), report.imbalanceAfter(), migrations.size());
+            result.complete(report);
+        }
+    }
+
+    private static double getDoubleProperty(Dictionary<?, ?> properties, String name, double defaultValue) {
+        String value = Tools.get(properties, name);
+        try {
+            return isNullOrEmpty(value) ? defaultValue : Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
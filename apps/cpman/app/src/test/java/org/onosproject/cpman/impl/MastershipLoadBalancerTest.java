@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.cpman.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.cpman.MastershipLoadReport;
+import org.onosproject.net.DeviceId;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.cpman.impl.MastershipLoadBalancer.currentLoads;
+import static org.onosproject.cpman.impl.MastershipLoadBalancer.nodeLoads;
+import static org.onosproject.cpman.impl.MastershipLoadBalancer.planMigrations;
+
+/**
+ * Unit test of the load-aware mastership balancing.
+ */
+public class MastershipLoadBalancerTest {
+
+    private static final NodeId NODE1 = NodeId.nodeId("node1");
+    private static final NodeId NODE2 = NodeId.nodeId("node2");
+    private static final NodeId NODE3 = NodeId.nodeId("node3");
+
+    private static final DeviceId AGG1 = DeviceId.deviceId("of:1");
+    private static final DeviceId AGG2 = DeviceId.deviceId("of:2");
+    private static final DeviceId EDGE1 = DeviceId.deviceId("of:3");
+    private static final DeviceId EDGE2 = DeviceId.deviceId("of:4");
+    private static final DeviceId EDGE3 = DeviceId.deviceId("of:5");
+    private static final DeviceId EDGE4 = DeviceId.deviceId("of:6");
+
+    private static final Collection<NodeId> ALL = ImmutableList.of(NODE1, NODE2, NODE3);
+
+    /**
+     * Tests that heavily loaded devices are spread across the nodes even
+     * when the nodes master as many devices each.
+     */
+    @Test
+    public void testBalanceByLoad() {
+        Map<NodeId, Map<DeviceId, Double>> loads = ImmutableMap.of(
+                NODE1, ImmutableMap.of(AGG1, 500.0, AGG2, 400.0),
+                NODE2, ImmutableMap.of(EDGE1, 10.0, EDGE2, 10.0),
+                NODE3, ImmutableMap.of(EDGE3, 10.0, EDGE4, 10.0));
+        Map<DeviceId, Collection<NodeId>> standbys = Maps.newHashMap();
+        loads.values().forEach(devices -> devices.keySet().forEach(d -> standbys.put(d, ALL)));
+
+        Map<DeviceId, NodeId> migrations = planMigrations(loads, standbys, 10, 1.1);
+
+        assertThat(migrations.size(), is(1));
+        assertThat(migrations.get(AGG2), is(NODE2));
+        assertTrue(MastershipLoadReport.imbalance(nodeLoads(loads)) > 2);
+    }
+
+    /**
+     * Tests that devices only migrate to their standby nodes.
+     */
+    @Test
+    public void testStandbysOnly() {
+        Map<NodeId, Map<DeviceId, Double>> loads = ImmutableMap.of(
+                NODE1, ImmutableMap.of(AGG1, 100.0, AGG2, 100.0),
+                NODE2, ImmutableMap.of(),
+                NODE3, ImmutableMap.of());
+        Map<DeviceId, Collection<NodeId>> standbys = ImmutableMap.of(
+                AGG1, ImmutableList.of(NODE3),
+                AGG2, ImmutableList.of());
+
+        Map<DeviceId, NodeId> migrations = planMigrations(loads, standbys, 10, 1.1);
+
+        assertThat(migrations, is(ImmutableMap.of(AGG1, NODE3)));
+    }
+
+    /**
+     * Tests that the number of migrations per round is bounded, and that
+     * no migration is planned for balanced nodes.
+     */
+    @Test
+    public void testBoundsAndThreshold() {
+        Map<NodeId, Map<DeviceId, Double>> loads = ImmutableMap.of(
+                NODE1, ImmutableMap.of(EDGE1, 10.0, EDGE2, 10.0, EDGE3, 10.0, EDGE4, 10.0),
+                NODE2, ImmutableMap.of(),
+                NODE3, ImmutableMap.of());
+        Map<DeviceId, Collection<NodeId>> standbys = Maps.newHashMap();
+        loads.values().forEach(devices -> devices.keySet().forEach(d -> standbys.put(d, ALL)));
+
+        assertThat(planMigrations(loads, standbys, 1, 1.1).size(), is(1));
+        assertThat(planMigrations(loads, standbys, 10, 1.1).size(), is(2));
+        assertThat(planMigrations(loads, standbys, 10, 3.0).size(), is(0));
+    }
+
+    /**
+     * Tests that the loads after a round follow the actual masters, so that
+     * a failed migration leaves the load where it was.
+     */
+    @Test
+    public void testCurrentLoads() {
+        Map<NodeId, Map<DeviceId, Double>> loads = ImmutableMap.of(
+                NODE1, ImmutableMap.of(AGG1, 500.0, AGG2, 400.0),
+                NODE2, ImmutableMap.of(EDGE1, 10.0),
+                NODE3, ImmutableMap.of());
+        // AGG2 migrated to NODE3, AGG1 failed to migrate, EDGE1 lost its master
+        Map<DeviceId, NodeId> masters = ImmutableMap.of(AGG1, NODE1, AGG2, NODE3);
+
+        assertThat(currentLoads(loads, masters::get),
+                   is(ImmutableMap.of(NODE1, 500.0, NODE2, 0.0, NODE3, 400.0)));
+    }
+
+    /**
+     * Tests the imbalance of node loads.
+     */
+    @Test
+    public void testImbalance() {
+        assertThat(MastershipLoadReport.imbalance(ImmutableMap.of(NODE1, 30.0, NODE2, 10.0)), is(1.5));
+        assertThat(MastershipLoadReport.imbalance(ImmutableMap.of(NODE1, 0.0, NODE2, 0.0)), is(1.0));
+    }
+}
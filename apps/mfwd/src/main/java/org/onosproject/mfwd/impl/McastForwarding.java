@@ -95,13 +95,13 @@ public class McastForwarding {
         mcastIntentManager = new McastIntentManager();
         mcastRouteManager.addListener(mcastIntentManager);
 
-        packetService.addProcessor(processor, PacketProcessor.director(2));
-
         // Build a traffic selector for all multicast traffic
         TrafficSelector.Builder selector = DefaultTrafficSelector.builder();
         selector.matchEthType(Ethernet.TYPE_IPV4);
         selector.matchIPDst(IpPrefix.IPV4_MULTICAST_PREFIX);
 
+        packetService.addProcessor(processor, PacketProcessor.director(2), selector.build());
+
         packetService.requestPackets(selector.build(), PacketPriority.REACTIVE, appId);
 
         log.info("Started");
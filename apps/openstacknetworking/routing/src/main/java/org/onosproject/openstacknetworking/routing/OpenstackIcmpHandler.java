@@ -106,7 +106,10 @@ public class OpenstackIcmpHandler {
     @Activate
     protected void activate() {
         appId = coreService.registerApplication(ROUTING_APP_ID);
-        packetService.addProcessor(packetProcessor, PacketProcessor.director(1));
+        packetService.addProcessor(packetProcessor, PacketProcessor.director(1),
+                                  DefaultTrafficSelector.builder()
+                                          .matchEthType(Ethernet.TYPE_IPV4)
+                                          .matchIPProtocol(IPv4.PROTOCOL_ICMP).build());
         nodeService.addListener(nodeListener);
         requestPacket(appId);
 
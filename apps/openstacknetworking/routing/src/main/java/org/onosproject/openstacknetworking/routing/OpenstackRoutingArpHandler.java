@@ -25,6 +25,7 @@ import org.onlab.packet.Ethernet;
 import org.onlab.packet.Ip4Address;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
+import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
 import org.onosproject.net.flow.TrafficTreatment;
 import org.onosproject.net.packet.DefaultOutboundPacket;
@@ -70,7 +71,9 @@ public class OpenstackRoutingArpHandler {
 
     @Activate
     protected void activate() {
-        packetService.addProcessor(packetProcessor, PacketProcessor.director(1));
+        packetService.addProcessor(packetProcessor, PacketProcessor.director(1),
+                                  DefaultTrafficSelector.builder()
+                                          .matchEthType(Ethernet.TYPE_ARP).build());
         log.info("Started");
     }
 
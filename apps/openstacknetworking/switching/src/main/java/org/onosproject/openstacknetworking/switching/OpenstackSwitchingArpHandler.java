@@ -31,6 +31,7 @@ import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
 import org.onlab.util.Tools;
 import org.onosproject.net.Host;
+import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
 import org.onosproject.net.flow.TrafficTreatment;
 import org.onosproject.net.packet.DefaultOutboundPacket;
@@ -76,7 +77,9 @@ public final class OpenstackSwitchingArpHandler extends AbstractVmHandler {
 
     @Activate
     protected void activate() {
-        packetService.addProcessor(packetProcessor, PacketProcessor.director(0));
+        packetService.addProcessor(packetProcessor, PacketProcessor.director(0),
+                                  DefaultTrafficSelector.builder()
+                                          .matchEthType(Ethernet.TYPE_ARP).build());
         super.activate();
     }
 
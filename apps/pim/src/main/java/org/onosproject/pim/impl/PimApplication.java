@@ -83,7 +83,7 @@ public class PimApplication {
         selector.matchIPProtocol(IPv4.PROTOCOL_PIM);
 
         // Use the traffic selector to tell the packet service which packets we want.
-        packetService.addProcessor(processor, PacketProcessor.director(5));
+        packetService.addProcessor(processor, PacketProcessor.director(5), selector.build());
 
         packetService.requestPackets(selector.build(), PacketPriority.CONTROL,
                 appId, Optional.empty());
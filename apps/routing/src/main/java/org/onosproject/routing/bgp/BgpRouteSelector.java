@@ -21,17 +21,38 @@ import org.onosproject.routing.RouteUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.util.Tools.groupedThreads;
 
 /**
  * Class to receive and process the BGP routes from each BGP Session/Peer.
+ * <p>
+ * Route selection is sharded by prefix: the updates of a prefix are always
+ * processed in order by the same shard, while different shards run in
+ * parallel. Each shard coalesces the resulting route updates per prefix
+ * across the batches it drains before pushing them to the route service.
+ * </p>
  */
 class BgpRouteSelector {
     private static final Logger log =
         LoggerFactory.getLogger(BgpRouteSelector.class);
 
+    private static final int NUM_SHARDS =
+        Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Maximum number of route entry batches a shard coalesces at once
+    private static final int MAX_BATCHES = 256;
+
     private BgpSessionManager bgpSessionManager;
+    private final Shard[] shards = new Shard[NUM_SHARDS];
 
     /**
      * Constructor.
@@ -42,39 +63,112 @@ class BgpRouteSelector {
         this.bgpSessionManager = bgpSessionManager;
     }
 
+    /**
+     * Starts the route selection shards.
+     */
+    synchronized void start() {
+        for (int i = 0; i < NUM_SHARDS; i++) {
+            shards[i] = new Shard(newSingleThreadExecutor(
+                    groupedThreads("onos/bgp", "route-selector-" + i, log)));
+        }
+    }
+
+    /**
+     * Stops the route selection shards. Pending route entries are dropped.
+     */
+    synchronized void stop() {
+        for (int i = 0; i < NUM_SHARDS; i++) {
+            if (shards[i] != null) {
+                shards[i].executor.shutdownNow();
+                shards[i] = null;
+            }
+        }
+    }
+
     /**
      * Processes route entry updates: added/updated and deleted route
-     * entries.
+     * entries. The entries are handed to the shards of their prefixes and
+     * processed asynchronously.
      *
      * @param addedBgpRouteEntries the added/updated route entries to process
      * @param deletedBgpRouteEntries the deleted route entries to process
      */
-    synchronized void routeUpdates(
-                        Collection<BgpRouteEntry> addedBgpRouteEntries,
-                        Collection<BgpRouteEntry> deletedBgpRouteEntries) {
+    void routeUpdates(Collection<BgpRouteEntry> addedBgpRouteEntries,
+                      Collection<BgpRouteEntry> deletedBgpRouteEntries) {
+        if (bgpSessionManager.isShutdown()) {
+            return;         // Ignore any leftover updates if shutdown
+        }
 
-        Collection<Route> updates = new LinkedList<>();
-        Collection<Route> withdraws = new LinkedList<>();
+        Batch[] batches = new Batch[NUM_SHARDS];
+        for (BgpRouteEntry bgpRouteEntry : deletedBgpRouteEntries) {
+            batch(batches, bgpRouteEntry).deleted.add(bgpRouteEntry);
+        }
+        for (BgpRouteEntry bgpRouteEntry : addedBgpRouteEntries) {
+            batch(batches, bgpRouteEntry).added.add(bgpRouteEntry);
+        }
 
-        RouteUpdate routeUpdate;
+        synchronized (this) {
+            for (int i = 0; i < NUM_SHARDS; i++) {
+                if (batches[i] != null && shards[i] != null) {
+                    shards[i].submit(batches[i]);
+                }
+            }
+        }
+    }
 
-        if (bgpSessionManager.isShutdown()) {
-            return;         // Ignore any leftover updates if shutdown
+    private static Batch batch(Batch[] batches, BgpRouteEntry bgpRouteEntry) {
+        int index = Math.floorMod(bgpRouteEntry.prefix().hashCode(), NUM_SHARDS);
+        if (batches[index] == null) {
+            batches[index] = new Batch();
         }
+        return batches[index];
+    }
+
+    /**
+     * Processes the route entries of a batch, and records the resulting
+     * route updates.
+     *
+     * @param batch the batch of route entries
+     * @param routeUpdates the route updates, by prefix
+     */
+    private void process(Batch batch, Map<IpPrefix, RouteUpdate> routeUpdates) {
         // Process the deleted route entries
-        for (BgpRouteEntry bgpRouteEntry : deletedBgpRouteEntries) {
-            routeUpdate = processDeletedRoute(bgpRouteEntry);
-            convertRouteUpdateToRoute(routeUpdate, updates, withdraws);
+        for (BgpRouteEntry bgpRouteEntry : batch.deleted) {
+            record(processDeletedRoute(bgpRouteEntry), routeUpdates);
         }
 
         // Process the added/updated route entries
-        for (BgpRouteEntry bgpRouteEntry : addedBgpRouteEntries) {
-            routeUpdate = processAddedRoute(bgpRouteEntry);
+        for (BgpRouteEntry bgpRouteEntry : batch.added) {
+            record(processAddedRoute(bgpRouteEntry), routeUpdates);
+        }
+    }
+
+    private void record(RouteUpdate routeUpdate,
+                        Map<IpPrefix, RouteUpdate> routeUpdates) {
+        if (routeUpdate != null) {
+            // The last update of a prefix supersedes the previous ones
+            routeUpdates.put(routeUpdate.routeEntry().prefix(), routeUpdate);
+        }
+    }
+
+    /**
+     * Pushes the route updates to the route service.
+     *
+     * @param routeUpdates the route updates, by prefix
+     */
+    private void flush(Map<IpPrefix, RouteUpdate> routeUpdates) {
+        Collection<Route> updates = new ArrayList<>(routeUpdates.size());
+        Collection<Route> withdraws = new ArrayList<>();
+        for (RouteUpdate routeUpdate : routeUpdates.values()) {
             convertRouteUpdateToRoute(routeUpdate, updates, withdraws);
         }
 
-        bgpSessionManager.withdraw(withdraws);
-        bgpSessionManager.update(updates);
+        if (!withdraws.isEmpty()) {
+            bgpSessionManager.withdraw(withdraws);
+        }
+        if (!updates.isEmpty()) {
+            bgpSessionManager.update(updates);
+        }
     }
 
     private void convertRouteUpdateToRoute(RouteUpdate routeUpdate,
@@ -209,4 +303,47 @@ class BgpRouteSelector {
         }
         return bestRoute;
     }
+
+    /**
+     * Route entries of a BGP UPDATE that belong to the same shard.
+     */
+    private static final class Batch {
+        private final List<BgpRouteEntry> added = new ArrayList<>();
+        private final List<BgpRouteEntry> deleted = new ArrayList<>();
+    }
+
+    /**
+     * Route selection shard, which processes its batches in order on a
+     * single thread.
+     */
+    private final class Shard {
+        private final ExecutorService executor;
+        private final Queue<Batch> batches = new ConcurrentLinkedQueue<>();
+
+        private Shard(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        private void submit(Batch batch) {
+            batches.add(batch);
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            Map<IpPrefix, RouteUpdate> routeUpdates = new LinkedHashMap<>();
+            for (int count = 0; count < MAX_BATCHES; count++) {
+                Batch batch = batches.poll();
+                if (batch == null) {
+                    break;
+                }
+                if (bgpSessionManager.isShutdown()) {
+                    return;
+                }
+                process(batch, routeUpdates);
+            }
+            if (!routeUpdates.isEmpty()) {
+                flush(routeUpdates);
+            }
+        }
+    }
 }
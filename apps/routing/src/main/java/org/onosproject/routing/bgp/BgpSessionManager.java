@@ -65,7 +65,7 @@ public class BgpSessionManager implements BgpInfoService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected RouteAdminService routeService;
 
-    boolean isShutdown = true;
+    volatile boolean isShutdown = true;
     private Channel serverChannel;     // Listener for incoming BGP connections
     private ServerBootstrap serverBootstrap;
     private ChannelGroup allChannels = new DefaultChannelGroup();
@@ -310,6 +310,7 @@ public class BgpSessionManager implements BgpInfoService {
     public void start() {
         log.debug("BGP Session Manager start.");
         isShutdown = false;
+        bgpRouteSelector.start();
 
         ChannelFactory channelFactory = new NioServerSocketChannelFactory(
                 newCachedThreadPool(groupedThreads("onos/bgp", "sm-boss-%d", log)),
@@ -348,5 +349,6 @@ public class BgpSessionManager implements BgpInfoService {
         isShutdown = true;
         allChannels.close().awaitUninterruptibly();
         serverBootstrap.releaseExternalResources();
+        bgpRouteSelector.stop();
     }
 }
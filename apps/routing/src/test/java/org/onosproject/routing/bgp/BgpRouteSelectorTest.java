@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.routing.bgp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.Ip4Prefix;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.incubator.net.routing.Route;
+import org.onosproject.incubator.net.routing.RouteServiceAdapter;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the BgpRouteSelector class.
+ */
+public class BgpRouteSelectorTest {
+
+    private static final Ip4Address NEXT_HOP1 = Ip4Address.valueOf("192.168.10.1");
+    private static final Ip4Address NEXT_HOP2 = Ip4Address.valueOf("192.168.20.1");
+
+    private final TestRouteService routeService = new TestRouteService();
+    private BgpSessionManager bgpSessionManager;
+    private BgpRouteSelector bgpRouteSelector;
+
+    @Before
+    public void setUp() {
+        bgpSessionManager = new BgpSessionManager();
+        bgpSessionManager.routeService = routeService;
+        bgpSessionManager.isShutdown = false;
+        bgpRouteSelector = bgpSessionManager.getBgpRouteSelector();
+        bgpRouteSelector.start();
+    }
+
+    @After
+    public void tearDown() {
+        bgpSessionManager.isShutdown = true;
+        bgpRouteSelector.stop();
+    }
+
+    /**
+     * Tests the selection of the best routes among the routes received
+     * concurrently from several peers, and their withdrawal.
+     *
+     * @throws InterruptedException interrupted
+     */
+    @Test
+    public void testConcurrentPeers() throws InterruptedException {
+        int prefixes = 1000;
+        BgpSession bgpSession1 = connect(1);
+        BgpSession bgpSession2 = connect(2);
+        List<BgpRouteEntry> routes1 = routes(bgpSession1, NEXT_HOP1, 100, prefixes);
+        List<BgpRouteEntry> routes2 = routes(bgpSession2, NEXT_HOP2, 200, prefixes);
+
+        Thread peer1 = new Thread(() -> advertise(bgpSession1, routes1));
+        Thread peer2 = new Thread(() -> advertise(bgpSession2, routes2));
+        peer1.start();
+        peer2.start();
+        peer1.join();
+        peer2.join();
+
+        // The routes of the peer with the higher local preference win
+        assertThat(waitForRoutes(prefixes, NEXT_HOP2), is(true));
+        for (BgpRouteEntry bgpRouteEntry : routes2) {
+            assertThat(bgpSessionManager.findBgpRoute(bgpRouteEntry.prefix()) == bgpRouteEntry, is(true));
+        }
+
+        // Withdraw the best routes, so that the other routes take over
+        withdraw(bgpSession2, routes2);
+        assertThat(waitForRoutes(prefixes, NEXT_HOP1), is(true));
+
+        withdraw(bgpSession1, routes1);
+        assertThat(waitForRoutes(0, null), is(true));
+        assertThat(bgpSessionManager.getBgpRoutes4().isEmpty(), is(true));
+    }
+
+    private BgpSession connect(int peer) {
+        BgpSession bgpSession = new BgpSession(bgpSessionManager);
+        bgpSession.remoteInfo().setAddress(new InetSocketAddress("127.0.0." + peer, 179));
+        bgpSession.remoteInfo().setIp4Address(Ip4Address.valueOf("127.0.0." + peer));
+        bgpSession.remoteInfo().setBgpId(Ip4Address.valueOf("10.0.0." + peer));
+        bgpSession.remoteInfo().setAsNumber(65000 + peer);
+        bgpSessionManager.peerConnected(bgpSession);
+        return bgpSession;
+    }
+
+    private static List<BgpRouteEntry> routes(BgpSession bgpSession, Ip4Address nextHop,
+                                              long localPref, int prefixes) {
+        ArrayList<BgpRouteEntry.PathSegment> pathSegments = new ArrayList<>();
+        ArrayList<Long> segmentAsNumbers = new ArrayList<>();
+        segmentAsNumbers.add(bgpSession.remoteInfo().asNumber());
+        pathSegments.add(new BgpRouteEntry.PathSegment(
+                (byte) BgpConstants.Update.AsPath.AS_SEQUENCE, segmentAsNumbers));
+        BgpRouteEntry.AsPath asPath = new BgpRouteEntry.AsPath(pathSegments);
+
+        List<BgpRouteEntry> routes = new ArrayList<>(prefixes);
+        for (int i = 0; i < prefixes; i++) {
+            Ip4Prefix prefix = Ip4Prefix.valueOf((1 << 24) + (i << 8), 24);
+            routes.add(new BgpRouteEntry(bgpSession, prefix, nextHop,
+                                         (byte) BgpConstants.Update.Origin.IGP, asPath, localPref));
+        }
+        return routes;
+    }
+
+    private void advertise(BgpSession bgpSession, List<BgpRouteEntry> routes) {
+        routes.forEach(bgpSession::addBgpRoute);
+        bgpRouteSelector.routeUpdates(routes, Collections.emptyList());
+    }
+
+    private void withdraw(BgpSession bgpSession, List<BgpRouteEntry> routes) {
+        routes.forEach(route -> bgpSession.removeBgpRoute(route.prefix()));
+        bgpRouteSelector.routeUpdates(Collections.emptyList(), routes);
+    }
+
+    /**
+     * Waits until the route service holds the given number of routes,
+     * all through the given next hop.
+     *
+     * @param expectedRoutes the expected number of routes
+     * @param nextHop the expected next hop of the routes
+     * @return true if the routes were received within the expected time
+     * @throws InterruptedException interrupted
+     */
+    private boolean waitForRoutes(int expectedRoutes, Ip4Address nextHop)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (System.currentTimeMillis() < deadline) {
+            if (routeService.installed.size() == expectedRoutes &&
+                    routeService.installed.values().stream().allMatch(r -> r.nextHop().equals(nextHop))) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static class TestRouteService extends RouteServiceAdapter {
+        private final Map<IpPrefix, Route> installed = new ConcurrentHashMap<>();
+
+        @Override
+        public void update(Collection<Route> updates) {
+            updates.forEach(route -> installed.put(route.prefix(), route));
+        }
+
+        @Override
+        public void withdraw(Collection<Route> withdraws) {
+            withdraws.forEach(route -> installed.remove(route.prefix(), route));
+        }
+    }
+}
@@ -17,7 +17,6 @@
 package org.onosproject.sdnip;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -51,13 +50,24 @@ import org.onosproject.routing.IntentSynchronizationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * FIB component of SDN-IP.
+ * <p>
+ * Routes are grouped by next hop, and the forwarding state of a next hop
+ * is computed once for all its prefixes. Each prefix is still installed as
+ * its own intent, since an intent selector matches a single destination
+ * prefix and the intent framework offers no way to point several intents
+ * at a shared next hop object. A next hop change therefore resubmits one
+ * intent per prefix through that next hop.
+ * </p>
  */
 @Component(immediate = true, enabled = false)
 public class SdnIpFib {
@@ -86,6 +96,10 @@ public class SdnIpFib {
     private final Map<IpPrefix, MultiPointToSinglePointIntent> routeIntents
             = new ConcurrentHashMap<>();
 
+    // Routes grouped by next hop; guarded by this
+    private final Map<IpAddress, NextHopGroup> nextHops = new HashMap<>();
+    private final Map<IpPrefix, IpAddress> routeNextHops = new HashMap<>();
+
     private ApplicationId appId;
 
     @Activate
@@ -106,16 +120,46 @@ public class SdnIpFib {
     private void update(ResolvedRoute route) {
         synchronized (this) {
             IpPrefix prefix = route.prefix();
-            MultiPointToSinglePointIntent intent =
-                    generateRouteIntent(prefix, route.nextHop(), route.nextHopMac());
-
-            if (intent == null) {
-                log.debug("SDN-IP no interface found for route {}", route);
+            NextHopGroup group = nextHops.get(route.nextHop());
+            if (group != null && group.prefixes.contains(prefix)
+                    && Objects.equals(group.mac, route.nextHopMac())) {
+                // The route already forwards through the current state of
+                // its next hop, which was applied to the whole group
+                log.trace("SDN-IP route {} is up to date", route);
                 return;
             }
 
-            routeIntents.put(prefix, intent);
-            intentSynchronizer.submit(intent);
+            boolean refreshed = false;
+            if (group == null || !Objects.equals(group.mac, route.nextHopMac())) {
+                NextHopGroup newGroup = createNextHopGroup(route.nextHop(), route.nextHopMac());
+                if (newGroup == null) {
+                    log.debug("SDN-IP no interface found for route {}", route);
+                    return;
+                }
+                if (group != null) {
+                    newGroup.prefixes.addAll(group.prefixes);
+                    refreshed = true;
+                }
+                group = newGroup;
+                nextHops.put(group.ip, group);
+            }
+
+            IpAddress oldNextHop = routeNextHops.put(prefix, group.ip);
+            if (oldNextHop != null && !oldNextHop.equals(group.ip)) {
+                removeFromGroup(oldNextHop, prefix);
+            }
+            group.prefixes.add(prefix);
+
+            if (refreshed) {
+                // A single next hop change updates all its prefixes at once
+                log.debug("SDN-IP next hop {} changed, updating {} prefixes",
+                        group.ip, group.prefixes.size());
+                for (IpPrefix p : group.prefixes) {
+                    submit(p, group);
+                }
+            } else {
+                submit(prefix, group);
+            }
         }
     }
 
@@ -123,6 +167,10 @@ public class SdnIpFib {
         synchronized (this) {
             IpPrefix prefix = route.prefix();
             MultiPointToSinglePointIntent intent = routeIntents.remove(prefix);
+            IpAddress nextHop = routeNextHops.remove(prefix);
+            if (nextHop != null) {
+                removeFromGroup(nextHop, prefix);
+            }
             if (intent == null) {
                 log.trace("SDN-IP no intent in routeIntents to delete " +
                         "for prefix: {}", prefix);
@@ -132,21 +180,33 @@ public class SdnIpFib {
         }
     }
 
+    private void removeFromGroup(IpAddress nextHop, IpPrefix prefix) {
+        NextHopGroup group = nextHops.get(nextHop);
+        if (group != null && group.prefixes.remove(prefix) && group.prefixes.isEmpty()) {
+            nextHops.remove(nextHop);
+        }
+    }
+
+    private void submit(IpPrefix prefix, NextHopGroup group) {
+        MultiPointToSinglePointIntent intent = generateRouteIntent(prefix, group);
+        routeIntents.put(prefix, intent);
+        intentSynchronizer.submit(intent);
+    }
+
     /**
-     * Generates a route intent for a prefix, the next hop IP address, and
-     * the next hop MAC address.
+     * Generates the forwarding state shared by the routes through a next
+     * hop, given the next hop IP address and the next hop MAC address.
      * <p/>
-     * This method will find the egress interface for the intent.
-     * Intent will match dst IP prefix and rewrite dst MAC address at all other
-     * border switches, then forward packets according to dst MAC address.
+     * This method will find the egress interface for the next hop.
+     * Intents will match dst IP prefix and rewrite dst MAC address at all
+     * other border switches, then forward packets according to dst MAC
+     * address.
      *
-     * @param prefix            IP prefix of the route to add
      * @param nextHopIpAddress  IP address of the next hop
      * @param nextHopMacAddress MAC address of the next hop
-     * @return the generated intent, or null if no intent should be submitted
+     * @return the next hop group, or null if no intent should be submitted
      */
-    private MultiPointToSinglePointIntent generateRouteIntent(
-            IpPrefix prefix,
+    private NextHopGroup createNextHopGroup(
             IpAddress nextHopIpAddress,
             MacAddress nextHopMacAddress) {
 
@@ -162,10 +222,8 @@ public class SdnIpFib {
 
         Set<Interface> ingressInterfaces = new HashSet<>();
         Set<ConnectPoint> ingressPorts = new HashSet<>();
-        log.debug("Generating intent for prefix {}, next hop mac {}",
-                prefix, nextHopMacAddress);
-
-        TrafficSelector.Builder selector = DefaultTrafficSelector.builder();
+        log.debug("Generating next hop group for {}, next hop mac {}",
+                nextHopIpAddress, nextHopMacAddress);
 
         // Get ingress interfaces and ports
         // TODO this should be only peering interfaces
@@ -183,13 +241,50 @@ public class SdnIpFib {
 
         // Match VLAN Id ANY if the source VLAN Id is not null
         // TODO need to be able to set a different VLAN Id per ingress interface
+        boolean matchAnyVlan = false;
         for (Interface intf : ingressInterfaces) {
             if (!intf.vlan().equals(VlanId.NONE)) {
-                selector.matchVlanId(VlanId.ANY);
+                matchAnyVlan = true;
                 ingressVlanId = intf.vlan();
             }
         }
 
+        // Rewrite the destination MAC address
+        TrafficTreatment.Builder treatment = DefaultTrafficTreatment.builder()
+                .setEthDst(nextHopMacAddress);
+
+        // Set egress VLAN Id
+        // TODO need to make the comparison with different ingress VLAN Ids
+        if (!ingressVlanId.equals(egressInterface.vlan())) {
+            if (egressInterface.vlan().equals(VlanId.NONE)) {
+                treatment.popVlan();
+            } else {
+                treatment.setVlanId(egressInterface.vlan());
+            }
+        }
+
+        return new NextHopGroup(nextHopIpAddress, nextHopMacAddress, egressPort,
+                ingressPorts, matchAnyVlan, treatment.build());
+    }
+
+    /**
+     * Generates a route intent for a prefix forwarded through a next hop
+     * group.
+     *
+     * @param prefix IP prefix of the route to add
+     * @param group  next hop group of the route
+     * @return the generated intent
+     */
+    private MultiPointToSinglePointIntent generateRouteIntent(
+            IpPrefix prefix,
+            NextHopGroup group) {
+
+        TrafficSelector.Builder selector = DefaultTrafficSelector.builder();
+
+        if (group.matchAnyVlan) {
+            selector.matchVlanId(VlanId.ANY);
+        }
+
         // Match the destination IP prefix at the first hop
         if (prefix.isIp4()) {
             selector.matchEthType(Ethernet.TYPE_IPV4);
@@ -207,20 +302,6 @@ public class SdnIpFib {
             }
         }
 
-        // Rewrite the destination MAC address
-        TrafficTreatment.Builder treatment = DefaultTrafficTreatment.builder()
-                .setEthDst(nextHopMacAddress);
-
-        // Set egress VLAN Id
-        // TODO need to make the comparison with different ingress VLAN Ids
-        if (!ingressVlanId.equals(egressInterface.vlan())) {
-            if (egressInterface.vlan().equals(VlanId.NONE)) {
-                treatment.popVlan();
-            } else {
-                treatment.setVlanId(egressInterface.vlan());
-            }
-        }
-
         // Set priority
         int priority =
                 prefix.prefixLength() * PRIORITY_MULTIPLIER + PRIORITY_OFFSET;
@@ -232,9 +313,9 @@ public class SdnIpFib {
                 .appId(appId)
                 .key(key)
                 .selector(selector.build())
-                .treatment(treatment.build())
-                .ingressPoints(ingressPorts)
-                .egressPoint(egressPort)
+                .treatment(group.treatment)
+                .ingressPoints(group.ingressPorts)
+                .egressPoint(group.egressPort)
                 .priority(priority)
                 .constraints(CONSTRAINTS)
                 .build();
@@ -242,49 +323,63 @@ public class SdnIpFib {
 
     private void updateInterface(Interface intf) {
         synchronized (this) {
-            for (Map.Entry<IpPrefix, MultiPointToSinglePointIntent> entry : routeIntents.entrySet()) {
-                MultiPointToSinglePointIntent intent = entry.getValue();
-                Set<ConnectPoint> ingress = Sets.newHashSet(intent.ingressPoints());
-                ingress.add(intf.connectPoint());
-
-                MultiPointToSinglePointIntent newIntent =
-                        MultiPointToSinglePointIntent.builder(intent)
-                                .ingressPoints(ingress)
-                                .build();
-
-                routeIntents.put(entry.getKey(), newIntent);
-                intentSynchronizer.submit(newIntent);
+            for (NextHopGroup group : nextHops.values()) {
+                group.ingressPorts.add(intf.connectPoint());
+                group.prefixes.forEach(prefix -> submit(prefix, group));
             }
         }
     }
 
     private void removeInterface(Interface intf) {
         synchronized (this) {
-            for (Map.Entry<IpPrefix, MultiPointToSinglePointIntent> entry : routeIntents.entrySet()) {
-                MultiPointToSinglePointIntent intent = entry.getValue();
-                if (intent.egressPoint().equals(intf.connectPoint())) {
-                    // This intent just lost its head. Remove it and let
-                    // higher layer routing reroute.
-                    intentSynchronizer.withdraw(routeIntents.remove(entry.getKey()));
-                } else {
-                    if (intent.ingressPoints().contains(intf.connectPoint())) {
-
-                        Set<ConnectPoint> ingress = Sets.newHashSet(intent.ingressPoints());
-                        ingress.remove(intf.connectPoint());
-
-                        MultiPointToSinglePointIntent newIntent =
-                                MultiPointToSinglePointIntent.builder(intent)
-                                .ingressPoints(ingress)
-                                .build();
-
-                        routeIntents.put(entry.getKey(), newIntent);
-                        intentSynchronizer.submit(newIntent);
-                    }
+            Iterator<NextHopGroup> groups = nextHops.values().iterator();
+            while (groups.hasNext()) {
+                NextHopGroup group = groups.next();
+                if (group.egressPort.equals(intf.connectPoint())) {
+                    // The intents of this next hop just lost their head.
+                    // Remove them and let higher layer routing reroute.
+                    groups.remove();
+                    group.prefixes.forEach(prefix -> {
+                        routeNextHops.remove(prefix);
+                        intentSynchronizer.withdraw(routeIntents.remove(prefix));
+                    });
+                } else if (group.ingressPorts.remove(intf.connectPoint())) {
+                    group.prefixes.forEach(prefix -> submit(prefix, group));
                 }
             }
         }
     }
 
+    /**
+     * Forwarding state shared by the prefixes routed through a next hop.
+     * <p>
+     * Route intents are derived from the state of their next hop, so that
+     * a change of the next hop is resolved once and applied to all its
+     * prefixes, while adding or removing a prefix only generates the
+     * destination IP match of its own intent.
+     * </p>
+     */
+    private static final class NextHopGroup {
+        private final IpAddress ip;
+        private final MacAddress mac;
+        private final ConnectPoint egressPort;
+        private final Set<ConnectPoint> ingressPorts;
+        private final boolean matchAnyVlan;
+        private final TrafficTreatment treatment;
+        private final Set<IpPrefix> prefixes = new HashSet<>();
+
+        private NextHopGroup(IpAddress ip, MacAddress mac, ConnectPoint egressPort,
+                             Set<ConnectPoint> ingressPorts, boolean matchAnyVlan,
+                             TrafficTreatment treatment) {
+            this.ip = ip;
+            this.mac = mac;
+            this.egressPort = egressPort;
+            this.ingressPorts = ingressPorts;
+            this.matchAnyVlan = matchAnyVlan;
+            this.treatment = treatment;
+        }
+    }
+
     private class InternalRouteListener implements RouteListener {
         @Override
         public void event(RouteEvent event) {
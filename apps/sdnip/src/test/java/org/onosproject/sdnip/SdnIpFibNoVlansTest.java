@@ -89,6 +89,7 @@ public class SdnIpFibNoVlansTest extends AbstractIntentTest {
             PortNumber.portNumber(1));
 
     private static final IpPrefix PREFIX1 = Ip4Prefix.valueOf("1.1.1.0/24");
+    private static final IpPrefix PREFIX2 = Ip4Prefix.valueOf("2.2.2.0/24");
 
     private SdnIpFib sdnipFib;
     private IntentSynchronizationService intentSynchronizer;
@@ -403,6 +404,66 @@ public class SdnIpFibNoVlansTest extends AbstractIntentTest {
         verify(intentSynchronizer);
     }
 
+    /**
+     * Tests a change of the MAC address of a next hop shared by several
+     * routes.
+     *
+     * We verify that the intents of all the routes through the next hop are
+     * updated on the first route event, and that the route events which
+     * follow for the same change are no-ops.
+     */
+    @Test
+    public void testNextHopUpdate() {
+        // Add two routes through the same next hop
+        testRouteAddNoVlans();
+        ResolvedRoute route2 = new ResolvedRoute(PREFIX2,
+                Ip4Address.valueOf("192.168.30.1"),
+                MacAddress.valueOf("00:00:00:00:00:03"));
+        reset(intentSynchronizer);
+        intentSynchronizer.submit(eqExceptId(routeIntent(PREFIX2, MacAddress.valueOf("00:00:00:00:00:03"))));
+        replay(intentSynchronizer);
+        routeListener.event(new RouteEvent(RouteEvent.Type.ROUTE_ADDED, route2));
+        verify(intentSynchronizer);
+
+        // The next hop changes its MAC address
+        MacAddress newMac = MacAddress.valueOf("00:00:00:00:00:33");
+        reset(intentSynchronizer);
+        intentSynchronizer.submit(eqExceptId(routeIntent(PREFIX1, newMac)));
+        intentSynchronizer.submit(eqExceptId(routeIntent(PREFIX2, newMac)));
+        replay(intentSynchronizer);
+
+        routeListener.event(new RouteEvent(RouteEvent.Type.ROUTE_UPDATED,
+                new ResolvedRoute(PREFIX1, Ip4Address.valueOf("192.168.30.1"), newMac)));
+        routeListener.event(new RouteEvent(RouteEvent.Type.ROUTE_UPDATED,
+                new ResolvedRoute(PREFIX2, Ip4Address.valueOf("192.168.30.1"), newMac)));
+
+        verify(intentSynchronizer);
+    }
+
+    private MultiPointToSinglePointIntent routeIntent(IpPrefix prefix, MacAddress nextHopMac) {
+        TrafficSelector.Builder selectorBuilder =
+                DefaultTrafficSelector.builder();
+        selectorBuilder.matchEthType(Ethernet.TYPE_IPV4).matchIPDst(prefix);
+
+        TrafficTreatment.Builder treatmentBuilder =
+                DefaultTrafficTreatment.builder();
+        treatmentBuilder.setEthDst(nextHopMac);
+
+        Set<ConnectPoint> ingressPoints = new HashSet<>();
+        ingressPoints.add(SW1_ETH1);
+        ingressPoints.add(SW2_ETH1);
+
+        return MultiPointToSinglePointIntent.builder()
+                .appId(APPID)
+                .key(Key.of(prefix.toString(), APPID))
+                .selector(selectorBuilder.build())
+                .treatment(treatmentBuilder.build())
+                .ingressPoints(ingressPoints)
+                .egressPoint(SW3_ETH1)
+                .constraints(SdnIpFib.CONSTRAINTS)
+                .build();
+    }
+
     private class TestCoreService extends CoreServiceAdapter {
         @Override
         public ApplicationId getAppId(String name) {
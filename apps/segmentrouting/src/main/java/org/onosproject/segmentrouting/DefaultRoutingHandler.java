@@ -30,13 +30,20 @@ import org.onosproject.segmentrouting.config.DeviceConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static org.onlab.util.Tools.groupedThreads;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -62,6 +69,9 @@ public class DefaultRoutingHandler {
     private volatile Status populationStatus;
     private ScheduledExecutorService executorService
         = newScheduledThreadPool(1, groupedThreads("RoutingHandler", "retry-%d", log));
+    private ExecutorService ecmpSpgExecutor
+        = newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                             groupedThreads("RoutingHandler", "ecmp-spg-%d", log));
 
     /**
      * Represents the default routing population status.
@@ -109,21 +119,26 @@ public class DefaultRoutingHandler {
             log.info("Starting to populate segment-routing rules");
             log.debug("populateAllRoutingRules: populationStatus is STARTED");
 
+            List<DeviceId> roots = new ArrayList<>();
             for (Device sw : srManager.deviceService.getDevices()) {
                 if (!srManager.mastershipService.isLocalMaster(sw.id())) {
                     log.debug("populateAllRoutingRules: skipping device {}...we are not master",
                               sw.id());
                     continue;
                 }
+                roots.add(sw.id());
+            }
 
-                EcmpShortestPathGraph ecmpSpg = new EcmpShortestPathGraph(sw.id(), srManager);
-                if (!populateEcmpRoutingRules(sw.id(), ecmpSpg, ImmutableSet.of())) {
+            Map<DeviceId, EcmpShortestPathGraph> ecmpSpgs = computeEcmpSpgs(roots);
+            for (DeviceId root : roots) {
+                EcmpShortestPathGraph ecmpSpg = ecmpSpgs.get(root);
+                if (!populateEcmpRoutingRules(root, ecmpSpg, ImmutableSet.of())) {
                     log.debug("populateAllRoutingRules: populationStatus is ABORTED");
                     populationStatus = Status.ABORTED;
                     log.debug("Abort routing rule population");
                     return false;
                 }
-                currentEcmpSpgMap.put(sw.id(), ecmpSpg);
+                currentEcmpSpgMap.put(root, ecmpSpg);
 
                 // TODO: Set adjacency routing rule for all switches
             }
@@ -147,6 +162,22 @@ public class DefaultRoutingHandler {
      * @return true if it succeeds to populate all rules, false otherwise
      */
     public boolean populateRoutingRulesForLinkStatusChange(Link linkFail) {
+        return populateRoutingRulesForLinkStatusChange(null, linkFail);
+    }
+
+    /**
+     * Populates the routing rules according to the route changes due to the
+     * given link being added. Only the ECMP shortest path graphs the link may
+     * shorten are recomputed.
+     *
+     * @param linkAdded link added
+     * @return true if it succeeds to populate all rules, false otherwise
+     */
+    public boolean populateRoutingRulesForLinkAdded(Link linkAdded) {
+        return populateRoutingRulesForLinkStatusChange(checkNotNull(linkAdded), null);
+    }
+
+    private boolean populateRoutingRulesForLinkStatusChange(Link linkAdded, Link linkFail) {
 
         statusLock.lock();
         try {
@@ -156,16 +187,26 @@ public class DefaultRoutingHandler {
                 return true;
             }
 
-            // Take the snapshots of the links
+            // Take the snapshots of the links, reusing the graphs which the
+            // link change cannot affect.
             updatedEcmpSpgMap = new HashMap<>();
+            List<DeviceId> roots = new ArrayList<>();
             for (Device sw : srManager.deviceService.getDevices()) {
                 if (!srManager.mastershipService.isLocalMaster(sw.id())) {
                     continue;
                 }
-                EcmpShortestPathGraph ecmpSpgUpdated =
-                        new EcmpShortestPathGraph(sw.id(), srManager);
-                updatedEcmpSpgMap.put(sw.id(), ecmpSpgUpdated);
+                EcmpShortestPathGraph ecmpSpg = currentEcmpSpgMap.get(sw.id());
+                if (ecmpSpg != null &&
+                        ((linkFail != null && !ecmpSpg.containsLink(linkFail)) ||
+                        (linkAdded != null && !ecmpSpg.isShortenedBy(linkAdded)))) {
+                    updatedEcmpSpgMap.put(sw.id(), ecmpSpg);
+                } else {
+                    roots.add(sw.id());
+                }
             }
+            log.debug("Recomputing {} of {} ECMP shortest path graphs",
+                      roots.size(), roots.size() + updatedEcmpSpgMap.size());
+            updatedEcmpSpgMap.putAll(computeEcmpSpgs(roots));
 
             log.info("Starts rule population from link change");
 
@@ -219,7 +260,10 @@ public class DefaultRoutingHandler {
             // When only the source device is defined, reinstall routes to all other devices
             if (link.size() == 1) {
                 log.trace("repopulateRoutingRulesForRoutes: running ECMP graph for device {}", link.get(0));
-                EcmpShortestPathGraph ecmpSpg = new EcmpShortestPathGraph(link.get(0), srManager);
+                EcmpShortestPathGraph ecmpSpg = updatedEcmpSpgMap.get(link.get(0));
+                if (ecmpSpg == null) {
+                    ecmpSpg = new EcmpShortestPathGraph(link.get(0), srManager);
+                }
                 if (populateEcmpRoutingRules(link.get(0), ecmpSpg, ImmutableSet.of())) {
                     log.debug("Populating flow rules from all to dest:{} is successful",
                               link.get(0));
@@ -248,31 +292,23 @@ public class DefaultRoutingHandler {
                 DeviceId src = link.get(0);
                 DeviceId dst = link.get(1);
                 EcmpShortestPathGraph ecmpSpg = updatedEcmpSpgMap.get(dst);
-                HashMap<Integer, HashMap<DeviceId, ArrayList<ArrayList<DeviceId>>>> switchVia =
-                        ecmpSpg.getAllLearnedSwitchesAndVia();
-                for (Integer itrIdx : switchVia.keySet()) {
-                    HashMap<DeviceId, ArrayList<ArrayList<DeviceId>>> swViaMap =
-                            switchVia.get(itrIdx);
-                    for (DeviceId targetSw : swViaMap.keySet()) {
-                        if (!targetSw.equals(src)) {
-                            continue;
-                        }
-                        Set<DeviceId> nextHops = new HashSet<>();
-                        for (ArrayList<DeviceId> via : swViaMap.get(targetSw)) {
-                            if (via.isEmpty()) {
-                                nextHops.add(dst);
-                            } else {
-                                nextHops.add(via.get(0));
-                            }
-                        }
-                        if (!populateEcmpRoutingRulePartial(targetSw, dst,
-                                nextHops, ImmutableSet.of())) {
-                            return false;
-                        }
-                        log.debug("Populating flow rules from {} to {} is successful",
-                                  targetSw, dst);
-                    }
+                Set<DeviceId> nextHops = ecmpSpg.getNextHops(src);
+                if (nextHops.isEmpty()) {
+                    continue;
+                }
+                // Only reprogram the rules whose next hops actually changed
+                EcmpShortestPathGraph currentEcmpSpg = currentEcmpSpgMap.get(dst);
+                if (currentEcmpSpg != null && currentEcmpSpg != ecmpSpg &&
+                        Objects.equals(currentEcmpSpg.getNextHops(src), nextHops)) {
+                    log.debug("Next hops from {} to {} are unchanged", src, dst);
+                    continue;
+                }
+                if (!populateEcmpRoutingRulePartial(src, dst,
+                        new HashSet<>(nextHops), ImmutableSet.of())) {
+                    return false;
                 }
+                log.debug("Populating flow rules from {} to {} is successful",
+                          src, dst);
                 //currentEcmpSpgMap.put(dst, ecmpSpg);
             }
             //Only if all the flows for all impacted routes to a
@@ -285,6 +321,19 @@ public class DefaultRoutingHandler {
         return true;
     }
 
+    // Computes the ECMP shortest path graphs rooted at the given devices,
+    // in parallel.
+    private Map<DeviceId, EcmpShortestPathGraph> computeEcmpSpgs(Collection<DeviceId> roots) {
+        Map<DeviceId, CompletableFuture<EcmpShortestPathGraph>> futures = new HashMap<>();
+        for (DeviceId root : roots) {
+            futures.put(root, CompletableFuture.supplyAsync(
+                    () -> new EcmpShortestPathGraph(root, srManager), ecmpSpgExecutor));
+        }
+        Map<DeviceId, EcmpShortestPathGraph> ecmpSpgs = new HashMap<>();
+        futures.forEach((root, future) -> ecmpSpgs.put(root, future.join()));
+        return ecmpSpgs;
+    }
+
     /**
      * Computes set of affected ECMP routes due to failed link. Assumes
      * previous ecmp shortest-path graph exists for a switch in order to compute
@@ -601,6 +650,15 @@ public class DefaultRoutingHandler {
         }
     }
 
+    /**
+     * Stops the threads used to compute routes and retry rule population.
+     * The handler cannot be used afterwards.
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+        ecmpSpgExecutor.shutdownNow();
+    }
+
     /**
      * Resume the flow rule population process if it was aborted for any reason.
      * Mostly the process is aborted when the groups required are not set yet.
@@ -15,7 +15,7 @@
  */
 package org.onosproject.segmentrouting;
 
-import org.onosproject.net.DefaultLink;
+import com.google.common.collect.ImmutableSet;
 import org.onosproject.net.DefaultPath;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This class creates bandwidth constrained breadth first tree and returns paths
@@ -121,12 +122,11 @@ public class EcmpShortestPathGraph {
                         upstreamLinks.get(reachedDevice);
                 if (upstreamLinkArray == null) {
                     upstreamLinkArray = new ArrayList<>();
-                    upstreamLinkArray.add(copyDefaultLink(link));
-                    //upstreamLinkArray.add(link);
+                    upstreamLinkArray.add(link);
                     upstreamLinks.put(reachedDevice, upstreamLinkArray);
                 } else {
                     /* ECMP links */
-                    upstreamLinkArray.add(copyDefaultLink(link));
+                    upstreamLinkArray.add(link);
                 }
             }
         }
@@ -195,11 +195,11 @@ public class EcmpShortestPathGraph {
                         upstreamLinks.get(reachedDevice);
                 if (upstreamLinkArray == null) {
                     upstreamLinkArray = new ArrayList<>();
-                    upstreamLinkArray.add(copyDefaultLink(link));
+                    upstreamLinkArray.add(link);
                     upstreamLinks.put(reachedDevice, upstreamLinkArray);
                 } else {
                     /* ECMP links */
-                    upstreamLinkArray.add(copyDefaultLink(link));
+                    upstreamLinkArray.add(link);
                 }
             }
         }
@@ -339,18 +339,68 @@ public class EcmpShortestPathGraph {
         return deviceViaMap;
     }
 
+    /**
+     * Returns the next hops from the given device towards the root Device,
+     * i.e. its upstream neighbours in the graph.
+     *
+     * @param targetDevice the target Device
+     * @return set of next hop Devices; empty if the Device was not reached
+     */
+    public Set<DeviceId> getNextHops(DeviceId targetDevice) {
+        ArrayList<Link> upstreamLinkArray = upstreamLinks.get(targetDevice);
+        if (upstreamLinkArray == null) {
+            return ImmutableSet.of();
+        }
+        ImmutableSet.Builder<DeviceId> nextHops = ImmutableSet.builder();
+        upstreamLinkArray.forEach(link -> nextHops.add(link.src().deviceId()));
+        return nextHops.build();
+    }
+
+    /**
+     * Indicates whether the graph has a link between the end-point Devices
+     * of the given link, in either direction. Removing a link for which this
+     * is not the case leaves the graph unchanged.
+     *
+     * @param link the link
+     * @return true if the graph has a link between the same Devices
+     */
+    public boolean containsLink(Link link) {
+        DeviceId src = link.src().deviceId();
+        DeviceId dst = link.dst().deviceId();
+        return hasUpstreamLink(dst, src) || hasUpstreamLink(src, dst);
+    }
 
-    private Link copyDefaultLink(Link link) {
-        DefaultLink src = (DefaultLink) link;
-        DefaultLink defaultLink = DefaultLink.builder()
-                .providerId(src.providerId())
-                .src(src.src())
-                .dst(src.dst())
-                .type(src.type())
-                .annotations(src.annotations())
-                .build();
+    private boolean hasUpstreamLink(DeviceId device, DeviceId neighbour) {
+        ArrayList<Link> upstreamLinkArray = upstreamLinks.get(device);
+        if (upstreamLinkArray != null) {
+            for (Link upstreamLink : upstreamLinkArray) {
+                if (upstreamLink.src().deviceId().equals(neighbour)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indicates whether adding the given link, in either direction, could
+     * yield new shortest paths from the root Device. Adding a link for which
+     * this is not the case leaves the graph unchanged.
+     *
+     * @param link the link
+     * @return true if the link could shorten or add paths in the graph
+     */
+    public boolean isShortenedBy(Link link) {
+        DeviceId src = link.src().deviceId();
+        DeviceId dst = link.dst().deviceId();
+        return isShortenedBy(src, dst) || isShortenedBy(dst, src);
+    }
 
-        return defaultLink;
+    private boolean isShortenedBy(DeviceId src, DeviceId dst) {
+        Integer srcDistance = deviceSearched.get(src);
+        Integer dstDistance = deviceSearched.get(dst);
+        return srcDistance != null &&
+                (dstDistance == null || srcDistance + 1 <= dstDistance);
     }
 
     @Override
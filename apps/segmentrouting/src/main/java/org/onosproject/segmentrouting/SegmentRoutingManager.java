@@ -403,6 +403,10 @@ public class SegmentRoutingManager implements SegmentRoutingService {
         tunnelStore.destroy();
         policyStore.destroy();
         subnetVidStore.destroy();
+
+        if (defaultRoutingHandler != null) {
+            defaultRoutingHandler.shutdown();
+        }
         log.info("Stopped");
     }
 
@@ -762,7 +766,7 @@ public class SegmentRoutingManager implements SegmentRoutingService {
         }
 
         log.trace("Starting optimized route population process");
-        defaultRoutingHandler.populateRoutingRulesForLinkStatusChange(null);
+        defaultRoutingHandler.populateRoutingRulesForLinkAdded(link);
         //log.trace("processLinkAdded: re-starting route population process");
         //defaultRoutingHandler.startPopulationProcess();
 
@@ -897,6 +901,9 @@ public class SegmentRoutingManager implements SegmentRoutingService {
             icmpHandler = new IcmpHandler(segmentRoutingManager);
             ipHandler = new IpHandler(segmentRoutingManager);
             routingRulePopulator = new RoutingRulePopulator(segmentRoutingManager);
+            if (defaultRoutingHandler != null) {
+                defaultRoutingHandler.shutdown();
+            }
             defaultRoutingHandler = new DefaultRoutingHandler(segmentRoutingManager);
 
             tunnelHandler = new TunnelHandler(linkService, deviceConfiguration,
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.segmentrouting;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.link.LinkServiceAdapter;
+import org.onosproject.net.provider.ProviderId;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for class {@link EcmpShortestPathGraph}.
+ */
+public class EcmpShortestPathGraphTest {
+    private static final ProviderId PID = new ProviderId("of", "foo");
+    private static final DeviceId DEV1 = DeviceId.deviceId("of:0000000000000001");
+    private static final DeviceId DEV2 = DeviceId.deviceId("of:0000000000000002");
+    private static final DeviceId DEV3 = DeviceId.deviceId("of:0000000000000003");
+    private static final DeviceId DEV4 = DeviceId.deviceId("of:0000000000000004");
+    private static final DeviceId DEV5 = DeviceId.deviceId("of:0000000000000005");
+
+    private EcmpShortestPathGraph graph;
+
+    @Before
+    public void setUp() {
+        // Square topology, DEV3 being two equal cost hops away from DEV1
+        Set<Link> links = Stream.of(link(DEV1, DEV2), link(DEV2, DEV1),
+                                    link(DEV2, DEV3), link(DEV3, DEV2),
+                                    link(DEV1, DEV4), link(DEV4, DEV1),
+                                    link(DEV4, DEV3), link(DEV3, DEV4))
+                .collect(Collectors.toSet());
+        SegmentRoutingManager srManager = new SegmentRoutingManager();
+        srManager.linkService = new LinkServiceAdapter() {
+            @Override
+            public Set<Link> getDeviceEgressLinks(DeviceId deviceId) {
+                return links.stream()
+                        .filter(link -> link.src().deviceId().equals(deviceId))
+                        .collect(Collectors.toSet());
+            }
+        };
+        graph = new EcmpShortestPathGraph(DEV1, srManager);
+    }
+
+    private static Link link(DeviceId src, DeviceId dst) {
+        return DefaultLink.builder()
+                .providerId(PID)
+                .src(new ConnectPoint(src, PortNumber.portNumber(dst.toString().hashCode() & 0xff)))
+                .dst(new ConnectPoint(dst, PortNumber.portNumber(src.toString().hashCode() & 0xff)))
+                .type(Link.Type.DIRECT)
+                .state(Link.State.ACTIVE)
+                .build();
+    }
+
+    /**
+     * Tests the next hops of the devices towards the root.
+     */
+    @Test
+    public void testGetNextHops() {
+        assertThat(graph.getNextHops(DEV2), is(ImmutableSet.of(DEV1)));
+        assertThat(graph.getNextHops(DEV4), is(ImmutableSet.of(DEV1)));
+        assertThat(graph.getNextHops(DEV3), is(ImmutableSet.of(DEV2, DEV4)));
+        assertThat(graph.getNextHops(DEV1), is(empty()));
+        assertThat(graph.getNextHops(DEV5), is(empty()));
+    }
+
+    /**
+     * Tests which links the graph is made of.
+     */
+    @Test
+    public void testContainsLink() {
+        assertTrue(graph.containsLink(link(DEV1, DEV2)));
+        assertTrue(graph.containsLink(link(DEV2, DEV1)));
+        assertTrue(graph.containsLink(link(DEV3, DEV4)));
+        assertFalse(graph.containsLink(link(DEV2, DEV4)));
+        assertFalse(graph.containsLink(link(DEV3, DEV5)));
+    }
+
+    /**
+     * Tests which new links could change the shortest paths of the graph.
+     */
+    @Test
+    public void testIsShortenedBy() {
+        // DEV3 becomes a single hop away
+        assertTrue(graph.isShortenedBy(link(DEV1, DEV3)));
+        assertTrue(graph.isShortenedBy(link(DEV3, DEV1)));
+        // another equal cost path to DEV3
+        assertTrue(graph.isShortenedBy(link(DEV2, DEV3)));
+        // DEV5 becomes reachable
+        assertTrue(graph.isShortenedBy(link(DEV3, DEV5)));
+        // a link between devices at the same distance is never used
+        assertFalse(graph.isShortenedBy(link(DEV2, DEV4)));
+        // a link between unreachable devices
+        assertFalse(graph.isShortenedBy(link(DEV5, DeviceId.deviceId("of:0000000000000006"))));
+    }
+}
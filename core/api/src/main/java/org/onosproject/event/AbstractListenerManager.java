@@ -19,6 +19,8 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 
+import java.util.List;
+
 /**
  * Basis for components which need to export listener mechanism.
  */
@@ -55,4 +57,17 @@ public abstract class AbstractListenerManager<E extends Event, L extends EventLi
         }
     }
 
+    /**
+     * Safely posts the specified events, in order, to the local event
+     * dispatcher. If there is no event dispatcher or if there are no events,
+     * this method is a noop.
+     *
+     * @param events events to be posted
+     */
+    protected void postAll(List<E> events) {
+        if (!events.isEmpty() && eventDispatcher != null) {
+            eventDispatcher.postAll(events);
+        }
+    }
+
 }
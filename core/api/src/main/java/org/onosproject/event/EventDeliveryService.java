@@ -35,4 +35,20 @@ public interface EventDeliveryService extends EventDispatcher, EventSinkRegistry
      */
     long getDispatchTimeLimit();
 
+    /**
+     * Sets whether events of the given class may be dispatched concurrently
+     * with one another, with only the events pertaining to the same subject
+     * being dispatched in order. This should only be enabled for event
+     * classes whose sinks are safe for concurrent use.
+     * <p>
+     * By default, events of the same class are dispatched one at a time and
+     * dispatchers which do not support partitioning ignore this setting.
+     * </p>
+     *
+     * @param eventClass  event class
+     * @param partitioned true to partition events of the class by subject
+     */
+    default void setPartitionedBySubject(Class<? extends Event> eventClass, boolean partitioned) {
+    }
+
 }
@@ -15,6 +15,8 @@
  */
 package org.onosproject.event;
 
+import java.util.List;
+
 /**
  * Abstraction of a mechanism capable of accepting and dispatching events to
  * appropriate event sinks. Where the event sinks are obtained is unspecified.
@@ -30,4 +32,14 @@ public interface EventDispatcher {
      */
     void post(Event event);
 
+    /**
+     * Posts the specified events for dispatching, in the given order.
+     * Implementations may hand them over at once rather than one by one.
+     *
+     * @param events events to be posted
+     */
+    default void postAll(List<? extends Event> events) {
+        events.forEach(this::post);
+    }
+
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of reconciling the flow entries stored for a device with the flow
+ * entries reported by the device in a statistics reply.
+ *
+ * @see FlowRuleStore#reconcileFlowEntries
+ */
+public final class FlowEntryReconciliation {
+
+    private final List<FlowRuleEvent> events;
+    private final List<FlowEntry> expiredEntries;
+    private final List<FlowEntry> extraneousEntries;
+    private final Map<FlowEntry, FlowEntry> mismatchedEntries;
+    private final List<FlowEntry> missingEntries;
+
+    private FlowEntryReconciliation(List<FlowRuleEvent> events,
+                                    List<FlowEntry> expiredEntries,
+                                    List<FlowEntry> extraneousEntries,
+                                    Map<FlowEntry, FlowEntry> mismatchedEntries,
+                                    List<FlowEntry> missingEntries) {
+        this.events = events;
+        this.expiredEntries = expiredEntries;
+        this.extraneousEntries = extraneousEntries;
+        this.mismatchedEntries = mismatchedEntries;
+        this.missingEntries = missingEntries;
+    }
+
+    /**
+     * Returns the events describing the stored entries whose state or
+     * statistics were changed by the reconciliation.
+     *
+     * @return flow rule events
+     */
+    public List<FlowRuleEvent> events() {
+        return events;
+    }
+
+    /**
+     * Returns the reported entries which match stored entries that are no
+     * longer live, and which were hence left untouched.
+     *
+     * @return reported flow entries
+     */
+    public List<FlowEntry> expiredEntries() {
+        return expiredEntries;
+    }
+
+    /**
+     * Returns the reported entries which are not in the store.
+     *
+     * @return reported flow entries
+     */
+    public List<FlowEntry> extraneousEntries() {
+        return extraneousEntries;
+    }
+
+    /**
+     * Returns the reported entries which are not an exact match of the
+     * stored entries they correspond to, mapped to the latter.
+     *
+     * @return stored flow entries keyed by the reported ones
+     */
+    public Map<FlowEntry, FlowEntry> mismatchedEntries() {
+        return mismatchedEntries;
+    }
+
+    /**
+     * Returns the stored entries which are not present on the device.
+     *
+     * @return stored flow entries
+     */
+    public List<FlowEntry> missingEntries() {
+        return missingEntries;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("events", events)
+                .add("expiredEntries", expiredEntries)
+                .add("extraneousEntries", extraneousEntries)
+                .add("mismatchedEntries", mismatchedEntries)
+                .add("missingEntries", missingEntries)
+                .toString();
+    }
+
+    /**
+     * Returns a new builder of reconciliation outcomes.
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder of reconciliation outcomes.
+     */
+    public static final class Builder {
+
+        private final ImmutableList.Builder<FlowRuleEvent> events = ImmutableList.builder();
+        private final ImmutableList.Builder<FlowEntry> expiredEntries = ImmutableList.builder();
+        private final ImmutableList.Builder<FlowEntry> extraneousEntries = ImmutableList.builder();
+        private final Map<FlowEntry, FlowEntry> mismatchedEntries = Maps.newLinkedHashMap();
+        private final ImmutableList.Builder<FlowEntry> missingEntries = ImmutableList.builder();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds an event for a stored entry changed by the reconciliation.
+         *
+         * @param event flow rule event
+         * @return this builder
+         */
+        public Builder addEvent(FlowRuleEvent event) {
+            events.add(event);
+            return this;
+        }
+
+        /**
+         * Adds a reported entry matching a stored entry which is no longer live.
+         *
+         * @param entry reported flow entry
+         * @return this builder
+         */
+        public Builder addExpiredEntry(FlowEntry entry) {
+            expiredEntries.add(entry);
+            return this;
+        }
+
+        /**
+         * Adds a reported entry which is not in the store.
+         *
+         * @param entry reported flow entry
+         * @return this builder
+         */
+        public Builder addExtraneousEntry(FlowEntry entry) {
+            extraneousEntries.add(entry);
+            return this;
+        }
+
+        /**
+         * Adds a reported entry which is not an exact match of the stored
+         * entry it corresponds to.
+         *
+         * @param entry  reported flow entry
+         * @param stored stored flow entry
+         * @return this builder
+         */
+        public Builder addMismatchedEntry(FlowEntry entry, FlowEntry stored) {
+            mismatchedEntries.put(entry, stored);
+            return this;
+        }
+
+        /**
+         * Adds a stored entry which is not present on the device.
+         *
+         * @param entry stored flow entry
+         * @return this builder
+         */
+        public Builder addMissingEntry(FlowEntry entry) {
+            missingEntries.add(entry);
+            return this;
+        }
+
+        /**
+         * Builds the reconciliation outcome.
+         *
+         * @return reconciliation outcome
+         */
+        public FlowEntryReconciliation build() {
+            return new FlowEntryReconciliation(events.build(), expiredEntries.build(),
+                                               extraneousEntries.build(),
+                                               Collections.unmodifiableMap(Maps.newLinkedHashMap(mismatchedEntries)),
+                                               missingEntries.build());
+        }
+    }
+}
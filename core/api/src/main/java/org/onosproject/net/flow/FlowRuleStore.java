@@ -16,7 +16,10 @@
 package org.onosproject.net.flow;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
 
+import com.google.common.collect.Maps;
 import org.onosproject.net.DeviceId;
 import org.onosproject.store.Store;
 
@@ -90,6 +93,53 @@ public interface FlowRuleStore extends Store<FlowRuleBatchEvent, FlowRuleStoreDe
      */
     FlowRuleEvent addOrUpdateFlowRule(FlowEntry rule);
 
+    /**
+     * Reconciles the flow entries stored for a device with the flow entries
+     * reported by the device, in a single pass.
+     * <p>
+     * The statistics of every reported entry exactly matching a stored entry
+     * that the liveness predicate accepts are merged into the stored entry.
+     * Events are generated only for the stored entries whose state or
+     * statistics actually changed. All other reported and stored entries are
+     * left as they are, and returned for the caller to act upon.
+     * </p>
+     *
+     * @param deviceId    device identifier
+     * @param flowEntries flow entries reported by the device
+     * @param liveness    predicate on a reported entry and the stored entry
+     *                    it matches, indicating whether the latter is live
+     * @return reconciliation outcome
+     */
+    default FlowEntryReconciliation reconcileFlowEntries(DeviceId deviceId,
+                                                         Iterable<FlowEntry> flowEntries,
+                                                         BiPredicate<FlowEntry, FlowEntry> liveness) {
+        Map<FlowEntry, FlowEntry> storedRules = Maps.newHashMap();
+        getFlowEntries(deviceId).forEach(f -> storedRules.put(f, f));
+
+        FlowEntryReconciliation.Builder builder = FlowEntryReconciliation.builder();
+        for (FlowEntry rule : flowEntries) {
+            FlowEntry stored = storedRules.remove(rule);
+            if (stored == null) {
+                builder.addExtraneousEntry(rule);
+            } else if (!stored.exactMatch(rule)) {
+                builder.addMismatchedEntry(rule, stored);
+            } else if (!liveness.test(rule, stored)) {
+                builder.addExpiredEntry(rule);
+            } else {
+                // the life of a rule grows with every poll, so it is updated
+                // without making the rule count as changed
+                boolean changed = stored.bytes() != rule.bytes() ||
+                        stored.packets() != rule.packets();
+                FlowRuleEvent event = addOrUpdateFlowRule(rule);
+                if (event != null && (changed || event.type() != FlowRuleEvent.Type.RULE_UPDATED)) {
+                    builder.addEvent(event);
+                }
+            }
+        }
+        storedRules.keySet().forEach(builder::addMissingEntry);
+        return builder.build();
+    }
+
     /**
      * @param rule the flow entry to remove
      * @return flow_removed event, or null if nothing removed
@@ -43,7 +43,25 @@ public interface PacketService {
      */
     void addProcessor(PacketProcessor processor, int priority);
 
-    // TODO allow processors to register for particular types of packets
+    /**
+     * Adds the specified processor to the list of packet processors, to be
+     * given only inbound packets matching the specified selector.
+     * <p>
+     * The ethernet type, IP protocol and TCP/UDP port criteria of the
+     * selector are used to skip the processor for packets it cannot be
+     * interested in; other criteria are ignored, so the processor must still
+     * validate the packets it receives. The default implementation ignores
+     * the selector altogether.
+     * </p>
+     *
+     * @param processor processor to be added
+     * @param priority  priority in the reverse natural order
+     * @param selector  selector of the packets the processor is interested in
+     */
+    default void addProcessor(PacketProcessor processor, int priority,
+                              TrafficSelector selector) {
+        addProcessor(processor, priority);
+    }
 
     /**
      * Removes the specified processor from the processing pipeline.
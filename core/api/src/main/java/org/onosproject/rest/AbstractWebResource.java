@@ -15,19 +15,34 @@
  */
 package org.onosproject.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Ordering;
 import org.onlab.rest.BaseResource;
 import org.onosproject.codec.CodecContext;
 import org.onosproject.codec.CodecService;
 import org.onosproject.codec.JsonCodec;
 
+import javax.ws.rs.core.StreamingOutput;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 /**
  * Abstract REST resource.
  */
 public class AbstractWebResource extends BaseResource implements CodecContext {
 
+    /**
+     * Field holding the cursor of the next page of a paginated collection.
+     */
+    public static final String NEXT = "next";
+
     private final ObjectMapper mapper = new ObjectMapper();
 
     @Override
@@ -63,6 +78,80 @@ public class AbstractWebResource extends BaseResource implements CodecContext {
         return result;
     }
 
+    /**
+     * Returns a streaming entity which writes a JSON object wrapping the array
+     * encoding of the specified items. Items are encoded and written one at a
+     * time, so the encoding of the whole collection is never held in memory.
+     *
+     * @param codecClass codec item class
+     * @param field      field holding the array
+     * @param items      items to be encoded into array
+     * @param <T>        item type
+     * @return streaming JSON object
+     */
+    protected <T> StreamingOutput encodeArrayStream(Class<T> codecClass, String field,
+                                                    Iterator<T> items) {
+        return encodeArrayStream(codecClass, field, items, 0, null);
+    }
+
+    /**
+     * Returns a streaming entity which writes a JSON object wrapping the array
+     * encoding of up to the given number of items. If there are more items,
+     * the object also holds the cursor of the last item written, under the
+     * {@value #NEXT} field, from which the next page is to be requested.
+     *
+     * @param codecClass codec item class
+     * @param field      field holding the array
+     * @param items      items to be encoded into array
+     * @param limit      maximum number of items to write; 0 for no limit
+     * @param cursor     function giving the cursor of an item
+     * @param <T>        item type
+     * @return streaming JSON object
+     */
+    protected <T> StreamingOutput encodeArrayStream(Class<T> codecClass, String field,
+                                                    Iterator<T> items, int limit,
+                                                    Function<T, String> cursor) {
+        JsonCodec<T> codec = codec(codecClass);
+        return output -> {
+            JsonGenerator generator = mapper.getFactory().createGenerator(output);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(field);
+            T last = null;
+            int count = 0;
+            while (items.hasNext() && (limit <= 0 || count < limit)) {
+                last = items.next();
+                mapper.writeTree(generator, codec.encode(last, this));
+                count++;
+            }
+            generator.writeEndArray();
+            if (last != null && items.hasNext()) {
+                generator.writeStringField(NEXT, cursor.apply(last));
+            }
+            generator.writeEndObject();
+            generator.flush();
+        };
+    }
+
+    /**
+     * Returns the items of a page in the given order, followed by the next
+     * item if any, so that {@link #encodeArrayStream} can tell whether there
+     * is a next page. With a limit, only the leading items are retained while
+     * the collection is scanned; without one, the whole collection is sorted
+     * in memory.
+     *
+     * @param items items of the page and of the following ones
+     * @param order order of the items across pages
+     * @param limit maximum number of items of the page; 0 for no limit
+     * @param <T>   item type
+     * @return ordered items of the page
+     */
+    protected static <T> List<T> page(Stream<T> items, Comparator<? super T> order, int limit) {
+        if (limit <= 0) {
+            return items.sorted(order).collect(Collectors.toList());
+        }
+        return Ordering.from(order).<T>leastOf(items.iterator(), limit + 1);
+    }
+
     @Override
     public <T> T getService(Class<T> serviceClass) {
         return get(serviceClass);
@@ -163,4 +163,15 @@ public interface ClusterCommunicationService {
      * @param subject message subject
      */
     void removeSubscriber(MessageSubject subject);
+
+    /**
+     * Marks messages of the specified subject as bulk transfers, such as
+     * anti-entropy advertisements or backups, which may be sent apart from
+     * latency-sensitive messages.
+     *
+     * @param subject message subject
+     * @param bulk    whether messages of the subject are bulk transfers
+     */
+    default void setBulkSubject(MessageSubject subject, boolean bulk) {
+    }
 }
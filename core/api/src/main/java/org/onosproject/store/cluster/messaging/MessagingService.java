@@ -82,4 +82,14 @@ public interface MessagingService {
      * @param type message type
      */
     void unregisterHandler(String type);
+
+    /**
+     * Marks messages of a type as bulk transfers, such as anti-entropy
+     * advertisements or backups. Implementations may send them apart from
+     * other messages, so they do not hold up latency-sensitive traffic.
+     * @param type message type
+     * @param bulk whether messages of the type are bulk transfers
+     */
+    default void setBulkType(String type, boolean bulk) {
+    }
 }
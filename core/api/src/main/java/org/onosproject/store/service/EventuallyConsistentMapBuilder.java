@@ -180,6 +180,21 @@ public interface EventuallyConsistentMapBuilder<K, V> {
      */
     EventuallyConsistentMapBuilder<K, V> withFasterConvergence();
 
+    /**
+     * Configure anti-entropy to exchange a hierarchical digest of the map
+     * instead of a digest of every entry. Peers first compare the hashes of
+     * ranges of keys and only exchange per-entry digests for the ranges that
+     * differ, so the cost of an anti-entropy cycle is proportional to the
+     * divergence between replicas rather than to the size of the map.
+     * Suited to large maps. All instances of the map must be configured alike.
+     * <p>
+     * The default behavior is to advertise a digest of every entry.
+     * </p>
+     *
+     * @return this EventuallyConsistentMapBuilder
+     */
+    EventuallyConsistentMapBuilder<K, V> withDigestTreeAntiEntropy();
+
     /**
      * Configure the map to persist data to disk.
      * <p>
@@ -17,6 +17,7 @@ package org.onosproject.net.packet;
 
 import java.nio.ByteBuffer;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.onlab.packet.Ethernet;
@@ -87,4 +88,25 @@ public class DefaultInboundPacketTest {
         assertThat(packet1.unparsed(), notNullValue());
         assertThat(packet1.cookie(), equalTo(Optional.of(1L)));
     }
+
+    /**
+     * Tests that a lazily parsed packet is only parsed once, on demand.
+     */
+    @Test
+    public void testLazyParsing() {
+        AtomicInteger parses = new AtomicInteger();
+        DefaultInboundPacket packet =
+                new DefaultInboundPacket(connectPoint("d1", 1),
+                        () -> {
+                            parses.incrementAndGet();
+                            return eth;
+                        },
+                        byteBuffer,
+                        Optional.of(1L));
+        assertThat(parses.get(), equalTo(0));
+        assertThat(packet.parsed(), equalTo(eth));
+        assertThat(packet.parsed(), equalTo(eth));
+        assertThat(parses.get(), equalTo(1));
+        assertThat(packet, equalTo(packet1));
+    }
 }
@@ -18,18 +18,16 @@ package org.onosproject.common;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.ImmutableSetMultimap.Builder;
-import org.onlab.graph.DijkstraGraphSearch;
+import org.onlab.graph.CompactDijkstraGraphSearch;
 import org.onlab.graph.DisjointPathPair;
 import org.onlab.graph.GraphPathSearch;
-import org.onlab.graph.GraphPathSearch.Result;
 import org.onlab.graph.SrlgGraphSearch;
 import org.onlab.graph.SuurballeGraphSearch;
-import org.onlab.graph.TarjanGraphSearch;
-import org.onlab.graph.TarjanGraphSearch.SccResult;
 import org.onosproject.net.AbstractModel;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultDisjointPath;
@@ -65,8 +63,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
 import static org.onlab.util.Tools.isNullOrEmpty;
 import static org.onosproject.core.CoreService.CORE_PROVIDER_ID;
-import static org.onosproject.net.Link.State.INACTIVE;
-import static org.onosproject.net.Link.Type.INDIRECT;
 
 /**
  * Default implementation of the topology descriptor. This carries the backing
@@ -76,8 +72,9 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultTopology.class);
 
-    private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA = new DijkstraGraphSearch<>();
-    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN = new TarjanGraphSearch<>();
+    // The topology graph is compact, so its searches need not hash vertexes
+    private static final CompactDijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA =
+            new CompactDijkstraGraphSearch<>();
     private static final SuurballeGraphSearch<TopologyVertex, TopologyEdge> SUURBALLE = new SuurballeGraphSearch<>();
 
     private static LinkWeight defaultLinkWeight = null;
@@ -90,12 +87,14 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     private final LinkWeight hopCountWeight;
 
-    private final Supplier<SccResult<TopologyVertex, TopologyEdge>> clusterResults;
+    private final Supplier<TopologyClusters> clusterResults;
     private final Supplier<ImmutableMap<ClusterId, TopologyCluster>> clusters;
     private final Supplier<ImmutableSet<ConnectPoint>> infrastructurePoints;
     private final Supplier<ImmutableSetMultimap<ClusterId, ConnectPoint>> broadcastSets;
     private final Function<ConnectPoint, Boolean> broadcastFunction;
     private final Supplier<ClusterIndexes> clusterIndexes;
+    private final Supplier<GraphDelta> graphDelta;
+    private final Supplier<PathCache> pathCache;
 
     /**
      * Sets the default link-weight to be used when computing paths. If null is
@@ -111,7 +110,8 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     /**
      * Sets the default lpath search algorighm to be used when computing paths.
-     * If null is specified, the builtin default Dijkstra will be used.
+     * If null is specified, the builtin default Dijkstra will be used, with
+     * its results cached for the lifetime of each topology.
      *
      * @param graphPathSearch new default algorithm
      */
@@ -121,6 +121,14 @@ public class DefaultTopology extends AbstractModel implements Topology {
     }
 
 
+    // Previous graph along with its clusters and path cache, if any, from
+    // which to derive clusters and cached paths
+    private TopologyGraph previousGraph;
+    private TopologyClusters previousClusters;
+    private PathCache previousPaths;
+    private volatile TopologyClusters computedClusters;
+    private volatile PathCache computedPaths;
+
     /**
      * Creates a topology descriptor attributed to the specified provider.
      *
@@ -130,6 +138,23 @@ public class DefaultTopology extends AbstractModel implements Topology {
      */
     public DefaultTopology(ProviderId providerId, GraphDescription description,
                            Function<ConnectPoint, Boolean> broadcastFunction) {
+        this(providerId, description, broadcastFunction, null);
+    }
+
+    /**
+     * Creates a topology descriptor attributed to the specified provider,
+     * deriving its clusters, broadcast sets and cached shortest paths from
+     * those of the previous topology rather than computing them from
+     * scratch, where possible.
+     *
+     * @param providerId        identity of the provider
+     * @param description       data describing the new topology
+     * @param broadcastFunction broadcast point function
+     * @param previous          previous topology; null if none
+     */
+    public DefaultTopology(ProviderId providerId, GraphDescription description,
+                           Function<ConnectPoint, Boolean> broadcastFunction,
+                           DefaultTopology previous) {
         super(providerId);
         this.broadcastFunction = broadcastFunction;
         this.time = description.timestamp();
@@ -139,12 +164,31 @@ public class DefaultTopology extends AbstractModel implements Topology {
         this.graph = new DefaultTopologyGraph(description.vertexes(),
                                               description.edges());
 
+        // Only hang on to what was already computed for the previous
+        // topology so as not to hold on to a chain of topologies.
+        if (previous != null && (previous.computedClusters != null || previous.computedPaths != null)) {
+            this.previousGraph = previous.graph;
+            this.previousClusters = previous.computedClusters;
+            this.previousPaths = previous.computedPaths;
+        }
+        this.graphDelta = Suppliers.memoize(() -> computeGraphDelta());
+
         this.clusterResults = Suppliers.memoize(() -> searchForClusters());
         this.clusters = Suppliers.memoize(() -> buildTopologyClusters());
 
         this.clusterIndexes = Suppliers.memoize(() -> buildIndexes());
 
-        this.hopCountWeight = new HopCountLinkWeight(graph.getVertexes().size());
+        // Keep the hop-count weight of the previous topology, if equivalent,
+        // so that the cached paths computed with it may be carried over;
+        // otherwise none of them are.
+        int vertexCount = graph.getVertexes().size();
+        if (previous != null && previous.graph.getVertexes().size() == vertexCount) {
+            this.hopCountWeight = previous.hopCountWeight;
+        } else {
+            this.hopCountWeight = new HopCountLinkWeight(vertexCount);
+            this.previousPaths = null;
+        }
+        this.pathCache = Suppliers.memoize(() -> buildPathCache());
         this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
         this.infrastructurePoints = Suppliers.memoize(() -> findInfrastructurePoints());
         this.computeCost = Math.max(0, System.nanoTime() - time);
@@ -346,8 +390,20 @@ public class DefaultTopology extends AbstractModel implements Topology {
             return ImmutableSet.of();
         }
 
+        // Serve the builtin Dijkstra search with the builtin hop-count weight
+        // out of the shortest-path cache; other weights are supplied by the
+        // callers, often anew with every call, and may depend on more than
+        // the graph, so their paths are computed afresh.
+        GraphPathSearch<TopologyVertex, TopologyEdge> search = defaultGraphPathSearch;
+        if (search == null && weight == hopCountWeight) {
+            return pathCache.get().paths(srcV, dstV);
+        }
+        if (search == null) {
+            search = DIJKSTRA;
+        }
+
         GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
-                graphPathSearch().search(graph, srcV, dstV, weight, ALL_PATHS);
+                search.search(graph, srcV, dstV, weight, ALL_PATHS);
         ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
         for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
             builder.add(networkPath(path));
@@ -501,87 +557,79 @@ public class DefaultTopology extends AbstractModel implements Topology {
                                        (DefaultPath) networkPath(path.secondary()));
     }
 
-    // Searches for SCC clusters in the network topology graph using Tarjan
-    // algorithm.
-    private SccResult<TopologyVertex, TopologyEdge> searchForClusters() {
-        return TARJAN.search(graph, new NoIndirectLinksWeight());
+    /**
+     * Returns the hit and miss statistics of the shortest-path cache of this
+     * topology.
+     *
+     * @return path cache statistics
+     */
+    public CacheStats pathCacheStats() {
+        return pathCache.get().stats();
+    }
+
+    // Tallies the differences from the previous topology graph.
+    private GraphDelta computeGraphDelta() {
+        GraphDelta delta = GraphDelta.between(previousGraph, graph);
+        previousGraph = null;
+        return delta;
+    }
+
+    // Searches for SCC clusters in the network topology graph, deriving them
+    // from the previous topology clusters if possible.
+    private TopologyClusters searchForClusters() {
+        TopologyClusters results = previousClusters != null ?
+                previousClusters.update(graphDelta.get(), graph) :
+                TopologyClusters.compute(graph);
+        previousClusters = null;
+        computedClusters = results;
+        return results;
+    }
+
+    // Creates the shortest-path cache, carrying over the trees of the
+    // previous topology left unaffected by the changes.
+    private PathCache buildPathCache() {
+        PathCache cache;
+        if (previousPaths != null) {
+            cache = previousPaths.update(graphDelta.get(), graph);
+            log.debug("Carried over {} of {} shortest-path trees", cache.size(), previousPaths.size());
+        } else {
+            cache = new PathCache(graph, hopCountWeight);
+        }
+        previousPaths = null;
+        computedPaths = cache;
+        return cache;
     }
 
     // Builds the topology clusters and returns the id-cluster bindings.
     private ImmutableMap<ClusterId, TopologyCluster> buildTopologyClusters() {
         ImmutableMap.Builder<ClusterId, TopologyCluster> clusterBuilder = ImmutableMap.builder();
-        SccResult<TopologyVertex, TopologyEdge> results = clusterResults.get();
-
-        // Extract both vertexes and edges from the results; the lists form
-        // pairs along the same index.
-        List<Set<TopologyVertex>> clusterVertexes = results.clusterVertexes();
-        List<Set<TopologyEdge>> clusterEdges = results.clusterEdges();
-
-        // Scan over the lists and create a cluster from the results.
-        for (int i = 0, n = results.clusterCount(); i < n; i++) {
-            Set<TopologyVertex> vertexSet = clusterVertexes.get(i);
-            Set<TopologyEdge> edgeSet = clusterEdges.get(i);
+        List<TopologyClusters.Cluster> results = clusterResults.get().clusters();
 
+        // Scan over the results and create a cluster from each.
+        for (int i = 0, n = results.size(); i < n; i++) {
+            TopologyClusters.Cluster result = results.get(i);
             ClusterId cid = ClusterId.clusterId(i);
             DefaultTopologyCluster cluster = new DefaultTopologyCluster(cid,
-                                                                        vertexSet.size(),
-                                                                        edgeSet.size(),
-                                                                        findRoot(vertexSet));
+                                                                        result.vertexes().size(),
+                                                                        result.edgeCount(),
+                                                                        result.root());
             clusterBuilder.put(cid, cluster);
         }
         return clusterBuilder.build();
     }
 
-    // Finds the vertex whose device id is the lexicographical minimum in the
-    // specified set.
-    private TopologyVertex findRoot(Set<TopologyVertex> vertexSet) {
-        TopologyVertex minVertex = null;
-        for (TopologyVertex vertex : vertexSet) {
-            if ((minVertex == null) || (vertex.deviceId()
-                    .toString().compareTo(minVertex.deviceId().toString()) < 0)) {
-                minVertex = vertex;
-            }
-        }
-        return minVertex;
-    }
-
-    // Processes a map of broadcast sets for each cluster.
+    // Processes a map of broadcast sets for each cluster. These are those
+    // connection points which lie along the shortest paths between the
+    // cluster root and all other devices within the cluster.
     private ImmutableSetMultimap<ClusterId, ConnectPoint> buildBroadcastSets() {
         Builder<ClusterId, ConnectPoint> builder = ImmutableSetMultimap.builder();
+        List<TopologyClusters.Cluster> results = clusterResults.get().clusters();
         for (TopologyCluster cluster : clusters.get().values()) {
-            addClusterBroadcastSet(cluster, builder);
+            builder.putAll(cluster.id(), results.get(cluster.id().index()).broadcastPoints(graph));
         }
         return builder.build();
     }
 
-    // Finds all broadcast points for the cluster. These are those connection
-    // points which lie along the shortest paths between the cluster root and
-    // all other devices within the cluster.
-    private void addClusterBroadcastSet(TopologyCluster cluster, Builder<ClusterId, ConnectPoint> builder) {
-        // Use the graph root search results to build the broadcast set.
-        Result<TopologyVertex, TopologyEdge> result = DIJKSTRA.search(graph, cluster.root(), null, hopCountWeight, 1);
-        for (Map.Entry<TopologyVertex, Set<TopologyEdge>> entry : result.parents().entrySet()) {
-            TopologyVertex vertex = entry.getKey();
-
-            // Ignore any parents that lead outside the cluster.
-            if (clustersByDevice().get(vertex.deviceId()) != cluster) {
-                continue;
-            }
-
-            // Ignore any back-link sets that are empty.
-            Set<TopologyEdge> parents = entry.getValue();
-            if (parents.isEmpty()) {
-                continue;
-            }
-
-            // Use the first back-link source and destinations to add to the
-            // broadcast set.
-            Link link = parents.iterator().next().link();
-            builder.put(cluster.id(), link.src());
-            builder.put(cluster.id(), link.dst());
-        }
-    }
-
     // Collects and returns an set of all infrastructure link end-points.
     private ImmutableSet<ConnectPoint> findInfrastructurePoints() {
         ImmutableSet.Builder<ConnectPoint> builder = ImmutableSet.builder();
@@ -613,13 +661,13 @@ public class DefaultTopology extends AbstractModel implements Topology {
             int i = cluster.id().index();
 
             // Scan through all the cluster vertexes.
-            for (TopologyVertex vertex : clusterResults.get().clusterVertexes().get(i)) {
+            for (TopologyVertex vertex : clusterResults.get().clusters().get(i).vertexes()) {
                 devicesBuilder.put(cluster, vertex.deviceId());
                 clusterBuilder.put(vertex.deviceId(), cluster);
             }
 
             // Scan through all the cluster edges.
-            for (TopologyEdge edge : clusterResults.get().clusterEdges().get(i)) {
+            for (TopologyEdge edge : clusterResults.get().clusters().get(i).edges(graph)) {
                 linksBuilder.put(cluster, edge.link());
             }
         }
@@ -630,23 +678,10 @@ public class DefaultTopology extends AbstractModel implements Topology {
                                   linksBuilder.build());
     }
 
-    private GraphPathSearch<TopologyVertex, TopologyEdge> graphPathSearch() {
-        return defaultGraphPathSearch != null ? defaultGraphPathSearch : DIJKSTRA;
-    }
-
     private LinkWeight linkWeight() {
         return defaultLinkWeight != null ? defaultLinkWeight : hopCountWeight;
     }
 
-    // Link weight for preventing traversal over indirect links.
-    private static class NoIndirectLinksWeight implements LinkWeight {
-        @Override
-        public double weight(TopologyEdge edge) {
-            return (edge.link().state() == INACTIVE)
-                    || (edge.link().type() == INDIRECT) ? -1 : 1;
-        }
-    }
-
     static final class ClusterIndexes {
         final ImmutableMap<DeviceId, TopologyCluster> clustersByDevice;
         final ImmutableSetMultimap<TopologyCluster, DeviceId> devicesByCluster;
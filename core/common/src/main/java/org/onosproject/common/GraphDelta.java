@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.onosproject.net.Link;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Differences between two snapshots of a topology graph.
+ */
+final class GraphDelta {
+
+    private final Set<TopologyVertex> removedVertexes;
+    private final Set<TopologyVertex> addedVertexes;
+    private final ImmutableList<TopologyEdge> removedEdges;
+    private final ImmutableList<TopologyEdge> addedEdges;
+    private final ImmutableMap<TopologyEdge, TopologyEdge> updatedEdges;
+
+    private GraphDelta(Set<TopologyVertex> removedVertexes,
+                       Set<TopologyVertex> addedVertexes,
+                       ImmutableList<TopologyEdge> removedEdges,
+                       ImmutableList<TopologyEdge> addedEdges,
+                       ImmutableMap<TopologyEdge, TopologyEdge> updatedEdges) {
+        this.removedVertexes = removedVertexes;
+        this.addedVertexes = addedVertexes;
+        this.removedEdges = removedEdges;
+        this.addedEdges = addedEdges;
+        this.updatedEdges = updatedEdges;
+    }
+
+    /**
+     * Tallies the vertexes and edges that came, went or changed between the
+     * two graphs.
+     *
+     * @param oldGraph previous graph
+     * @param newGraph new graph
+     * @return graph differences
+     */
+    static GraphDelta between(TopologyGraph oldGraph, TopologyGraph newGraph) {
+        Set<TopologyVertex> removedVertexes =
+                ImmutableSet.copyOf(Sets.difference(oldGraph.getVertexes(), newGraph.getVertexes()));
+        Set<TopologyVertex> addedVertexes =
+                ImmutableSet.copyOf(Sets.difference(newGraph.getVertexes(), oldGraph.getVertexes()));
+
+        // Unchanged links are normally the very same instances, so weed
+        // those out by identity first as link equality is costly.
+        Set<Link> oldLinks = Sets.newIdentityHashSet();
+        oldGraph.getEdges().forEach(e -> oldLinks.add(e.link()));
+        Set<Link> sameLinks = Sets.newIdentityHashSet();
+
+        ImmutableList.Builder<TopologyEdge> added = ImmutableList.builder();
+        ImmutableList.Builder<TopologyEdge> removed = ImmutableList.builder();
+        ImmutableMap.Builder<TopologyEdge, TopologyEdge> updated = ImmutableMap.builder();
+        for (TopologyEdge edge : newGraph.getEdges()) {
+            if (oldLinks.contains(edge.link())) {
+                sameLinks.add(edge.link());
+            } else if (!oldGraph.getEdges().contains(edge)) {
+                added.add(edge);
+            } else {
+                // Edge equality ignores link state and annotations, so
+                // compare those with the previous instance of the link.
+                TopologyEdge oldEdge = find(oldGraph, edge);
+                sameLinks.add(oldEdge.link());
+                if (oldEdge.link().state() != edge.link().state() ||
+                        !Objects.equals(oldEdge.link().annotations(), edge.link().annotations())) {
+                    updated.put(oldEdge, edge);
+                }
+            }
+        }
+        for (TopologyEdge edge : oldGraph.getEdges()) {
+            if (!sameLinks.contains(edge.link())) {
+                removed.add(edge);
+            }
+        }
+        return new GraphDelta(removedVertexes, addedVertexes,
+                              removed.build(), added.build(), updated.build());
+    }
+
+    // Finds the instance of the given edge held by the graph.
+    private static TopologyEdge find(TopologyGraph graph, TopologyEdge edge) {
+        return graph.getEdgesFrom(edge.src()).stream()
+                .filter(edge::equals)
+                .findFirst().orElse(edge);
+    }
+
+    /**
+     * Indicates whether the two graphs are alike.
+     *
+     * @return true if nothing changed
+     */
+    boolean isEmpty() {
+        return removedVertexes.isEmpty() && addedVertexes.isEmpty() &&
+                removedEdges.isEmpty() && addedEdges.isEmpty() && updatedEdges.isEmpty();
+    }
+
+    /**
+     * Returns the vertexes only found in the previous graph.
+     *
+     * @return removed vertexes
+     */
+    Set<TopologyVertex> removedVertexes() {
+        return removedVertexes;
+    }
+
+    /**
+     * Returns the vertexes only found in the new graph.
+     *
+     * @return added vertexes
+     */
+    Set<TopologyVertex> addedVertexes() {
+        return addedVertexes;
+    }
+
+    /**
+     * Returns the edges only found in the previous graph.
+     *
+     * @return removed edges
+     */
+    ImmutableList<TopologyEdge> removedEdges() {
+        return removedEdges;
+    }
+
+    /**
+     * Returns the edges only found in the new graph.
+     *
+     * @return added edges
+     */
+    ImmutableList<TopologyEdge> addedEdges() {
+        return addedEdges;
+    }
+
+    /**
+     * Returns the edges found in both graphs whose link state or annotations
+     * changed, keyed by their previous instance.
+     *
+     * @return previous to new edge bindings
+     */
+    Map<TopologyEdge, TopologyEdge> updatedEdges() {
+        return updatedEdges;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.net.DefaultPath;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static org.onosproject.core.CoreService.CORE_PROVIDER_ID;
+
+/**
+ * Bounded cache of the shortest-path trees of a topology graph, under a
+ * single link-weight function.
+ * <p>
+ * Paths are served out of single-source shortest-path trees keyed by their
+ * source, so a single Dijkstra search serves every destination reachable
+ * from a source. The capacity of the cache bounds the number of vertexes
+ * held across all of its trees, that is their costs and parent edges; the
+ * paths themselves are not retained, but built from the parent edges on
+ * each request, as with equal-cost multipath they may far outnumber the
+ * vertexes. The link-weight function must yield the same weight for a
+ * given edge for as long as the cache and those derived from it are in use,
+ * which is why only the builtin hop-count weight is cached, rather than the
+ * functions supplied by callers.
+ * </p>
+ * <p>
+ * The cache of a new graph may be derived from that of a previous graph, in
+ * which case the trees left unaffected by the differences between the two
+ * graphs are carried over.
+ * </p>
+ */
+final class PathCache {
+
+    /**
+     * Default bound on the number of vertexes held across all cached trees.
+     */
+    static final long DEFAULT_CAPACITY = 1_000_000;
+
+    private final LinkWeight weight;
+    private final long capacity;
+    private final LoadingCache<TopologyVertex, ShortestPathTree> trees;
+
+    /**
+     * Creates an empty cache of the shortest paths of the specified graph.
+     *
+     * @param graph  topology graph
+     * @param weight link weight function
+     */
+    PathCache(TopologyGraph graph, LinkWeight weight) {
+        this(graph, weight, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty cache of the shortest paths of the specified graph.
+     *
+     * @param graph    topology graph
+     * @param weight   link weight function
+     * @param capacity bound on the number of vertexes held across all
+     *                 cached trees
+     */
+    PathCache(TopologyGraph graph, LinkWeight weight, long capacity) {
+        this.weight = weight;
+        this.capacity = capacity;
+        this.trees = CacheBuilder.newBuilder()
+                .maximumWeight(capacity)
+                .weigher((TopologyVertex src, ShortestPathTree tree) -> tree.size())
+                .recordStats()
+                .build(CacheLoader.from(src -> ShortestPathTree.compute(graph, src, weight)));
+    }
+
+    /**
+     * Returns the link weight function of the cached paths.
+     *
+     * @return link weight function
+     */
+    LinkWeight weight() {
+        return weight;
+    }
+
+    /**
+     * Returns the set of shortest paths between the source and destination
+     * vertexes, which must both be part of the graph.
+     *
+     * @param src source vertex
+     * @param dst destination vertex
+     * @return set of shortest paths
+     */
+    Set<Path> paths(TopologyVertex src, TopologyVertex dst) {
+        return trees.getUnchecked(src).paths(dst);
+    }
+
+    /**
+     * Returns the hit and miss statistics of the shortest-path tree lookups.
+     *
+     * @return cache statistics
+     */
+    CacheStats stats() {
+        return trees.stats();
+    }
+
+    /**
+     * Returns the number of shortest-path trees held by the cache.
+     *
+     * @return number of trees
+     */
+    long size() {
+        return trees.size();
+    }
+
+    /**
+     * Derives the path cache of a new graph from this cache of the previous
+     * graph, carrying over the trees which neither use a removed or changed
+     * edge nor could be shortened by an added or changed edge.
+     *
+     * @param delta    differences from the graph of this cache
+     * @param newGraph graph whose path cache is to be derived
+     * @return path cache of the new graph
+     */
+    PathCache update(GraphDelta delta, TopologyGraph newGraph) {
+        List<TopologyEdge> removedEdges = Lists.newArrayList(delta.removedEdges());
+        List<TopologyEdge> addedEdges = Lists.newArrayList(delta.addedEdges());
+        removedEdges.addAll(delta.updatedEdges().keySet());
+        addedEdges.addAll(delta.updatedEdges().values());
+
+        PathCache cache = new PathCache(newGraph, weight, capacity);
+        for (Map.Entry<TopologyVertex, ShortestPathTree> entry : trees.asMap().entrySet()) {
+            TopologyVertex src = entry.getKey();
+            ShortestPathTree tree = entry.getValue();
+            if (!delta.removedVertexes().contains(src) &&
+                    !tree.isAffected(removedEdges, addedEdges, weight)) {
+                cache.trees.put(src, tree);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Shortest paths from a source vertex to every vertex reachable from it,
+     * including all equal-cost alternatives.
+     */
+    private static final class ShortestPathTree {
+
+        private final TopologyVertex src;
+        private final Map<TopologyVertex, Double> costs;
+        private final Map<TopologyVertex, Set<TopologyEdge>> parents;
+
+        private ShortestPathTree(TopologyVertex src, Map<TopologyVertex, Double> costs,
+                                 Map<TopologyVertex, Set<TopologyEdge>> parents) {
+            this.src = src;
+            this.costs = costs;
+            this.parents = parents;
+        }
+
+        /**
+         * Computes the shortest-path tree rooted at the specified source,
+         * ignoring edges with negative weight.
+         *
+         * @param graph  topology graph
+         * @param src    source vertex
+         * @param weight link weight function
+         * @return shortest-path tree
+         */
+        static ShortestPathTree compute(TopologyGraph graph, TopologyVertex src, LinkWeight weight) {
+            Map<TopologyVertex, Double> costs = Maps.newHashMap();
+            Map<TopologyVertex, Set<TopologyEdge>> parents = Maps.newHashMap();
+            PriorityQueue<Reached> queue = new PriorityQueue<>();
+            costs.put(src, 0.0);
+            queue.add(new Reached(src, 0.0));
+
+            // Stale queue entries are skipped rather than re-prioritized.
+            while (!queue.isEmpty()) {
+                Reached nearest = queue.poll();
+                if (nearest.cost > costs.get(nearest.vertex)) {
+                    continue;
+                }
+                for (TopologyEdge edge : graph.getEdgesFrom(nearest.vertex)) {
+                    double hopCost = weight.weight(edge);
+                    if (hopCost < 0 || edge.dst().equals(src)) {
+                        continue;
+                    }
+                    double cost = nearest.cost + hopCost;
+                    Double oldCost = costs.get(edge.dst());
+                    if (oldCost == null || cost < oldCost) {
+                        costs.put(edge.dst(), cost);
+                        parents.put(edge.dst(), Sets.newHashSet(edge));
+                        queue.add(new Reached(edge.dst(), cost));
+                    } else if (cost == oldCost) {
+                        parents.get(edge.dst()).add(edge);
+                    }
+                }
+            }
+            return new ShortestPathTree(src, costs, parents);
+        }
+
+        /**
+         * Returns the set of shortest paths to the specified destination.
+         *
+         * @param dst destination vertex
+         * @return set of shortest paths; empty if the destination is the
+         * source or is not reachable
+         */
+        Set<Path> paths(TopologyVertex dst) {
+            if (!parents.containsKey(dst)) {
+                return ImmutableSet.of();
+            }
+            return buildPaths(dst);
+        }
+
+        /**
+         * Returns the number of vertexes reachable from the source.
+         *
+         * @return tree size
+         */
+        int size() {
+            return costs.size();
+        }
+
+        /**
+         * Indicates whether the tree may no longer hold for a graph from
+         * which the given edges were removed and to which the others were
+         * added.
+         *
+         * @param removedEdges edges removed from the graph
+         * @param addedEdges   edges added to the graph
+         * @param weight       link weight function of the tree
+         * @return true if the tree has to be recomputed
+         */
+        boolean isAffected(Collection<TopologyEdge> removedEdges,
+                           Collection<TopologyEdge> addedEdges, LinkWeight weight) {
+            for (TopologyEdge edge : removedEdges) {
+                Set<TopologyEdge> edges = parents.get(edge.dst());
+                if (edges != null && edges.contains(edge)) {
+                    return true;
+                }
+            }
+            for (TopologyEdge edge : addedEdges) {
+                // A new edge matters if it yields a path at least as short.
+                Double srcCost = costs.get(edge.src());
+                double hopCost = weight.weight(edge);
+                if (srcCost != null && hopCost >= 0) {
+                    Double dstCost = costs.get(edge.dst());
+                    if (dstCost == null || srcCost + hopCost <= dstCost) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Builds every path to the destination by walking back through the
+        // parent edges, skipping any which would loop.
+        private Set<Path> buildPaths(TopologyVertex dst) {
+            ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
+            Set<TopologyVertex> visited = Sets.newHashSet(dst);
+            walk(dst, costs.get(dst), new ArrayDeque<>(), visited, builder);
+            return builder.build();
+        }
+
+        private void walk(TopologyVertex vertex, double cost, Deque<Link> links,
+                          Set<TopologyVertex> visited, ImmutableSet.Builder<Path> builder) {
+            if (vertex.equals(src)) {
+                builder.add(new DefaultPath(CORE_PROVIDER_ID, Lists.newArrayList(links), cost));
+                return;
+            }
+            for (TopologyEdge edge : parents.get(vertex)) {
+                if (visited.add(edge.src())) {
+                    links.push(edge.link());
+                    walk(edge.src(), cost, links, visited, builder);
+                    links.pop();
+                    visited.remove(edge.src());
+                }
+            }
+        }
+    }
+
+    // Vertex reached by the search at the given cost.
+    private static final class Reached implements Comparable<Reached> {
+        private final TopologyVertex vertex;
+        private final double cost;
+
+        private Reached(TopologyVertex vertex, double cost) {
+            this.vertex = vertex;
+            this.cost = cost;
+        }
+
+        @Override
+        public int compareTo(Reached other) {
+            return Double.compare(cost, other.cost);
+        }
+    }
+}
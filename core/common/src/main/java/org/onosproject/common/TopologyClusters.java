@@ -0,0 +1,606 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import org.onlab.graph.CompactGraph;
+import org.onlab.graph.CompactTarjanGraphSearch;
+import org.onlab.graph.Graph;
+import org.onlab.graph.TarjanGraphSearch.SccResult;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.onosproject.net.Link.State.INACTIVE;
+import static org.onosproject.net.Link.Type.INDIRECT;
+
+/**
+ * Strongly connected clusters of a topology graph along with their broadcast
+ * trees.
+ * <p>
+ * Clusters are either computed from scratch or derived from the clusters of
+ * a previous graph, in which case only the clusters touched by the
+ * differences between the two graphs are re-examined and the others, along
+ * with their broadcast trees, are carried over. Carried over clusters holding
+ * links whose annotations changed are bound to the links of the new graph.
+ * The derivation falls back to a full computation whenever a change may
+ * merge existing clusters.
+ * </p>
+ */
+final class TopologyClusters {
+
+    private static final CompactTarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN =
+            new CompactTarjanGraphSearch<>();
+
+    private static final LinkWeight NO_INDIRECT_LINKS = new NoIndirectLinksWeight();
+
+    private final List<Cluster> clusters;
+    private final Map<TopologyVertex, Cluster> clustersByVertex;
+    private final boolean incremental;
+
+    private TopologyClusters(List<Cluster> clusters, boolean incremental) {
+        this.clusters = ImmutableList.copyOf(clusters);
+        this.incremental = incremental;
+        ImmutableMap.Builder<TopologyVertex, Cluster> builder = ImmutableMap.builder();
+        for (Cluster cluster : clusters) {
+            cluster.vertexes.forEach(v -> builder.put(v, cluster));
+        }
+        this.clustersByVertex = builder.build();
+    }
+
+    /**
+     * Computes the clusters of the specified graph from scratch.
+     *
+     * @param graph topology graph
+     * @return graph clusters
+     */
+    static TopologyClusters compute(TopologyGraph graph) {
+        return new TopologyClusters(search(graph), false);
+    }
+
+    /**
+     * Derives the clusters of a new graph from these clusters of the
+     * previous graph.
+     *
+     * @param oldGraph graph from which these clusters were computed
+     * @param newGraph graph whose clusters are to be derived
+     * @return clusters of the new graph
+     */
+    TopologyClusters update(TopologyGraph oldGraph, TopologyGraph newGraph) {
+        return update(GraphDelta.between(oldGraph, newGraph), newGraph);
+    }
+
+    /**
+     * Derives the clusters of a new graph from these clusters of the
+     * previous graph, given the differences between the two graphs.
+     *
+     * @param delta    differences from the graph these clusters were
+     *                 computed from
+     * @param newGraph graph whose clusters are to be derived
+     * @return clusters of the new graph
+     */
+    TopologyClusters update(GraphDelta delta, TopologyGraph newGraph) {
+        Set<TopologyVertex> removedVertexes = delta.removedVertexes();
+        Set<TopologyVertex> addedVertexes = delta.addedVertexes();
+
+        // Links which went inactive or came back are tallied as both
+        // removed and added; links whose annotations changed leave the
+        // clusters as they are, but their clusters must hand out the new
+        // links.
+        List<TopologyEdge> addedEdges = Lists.newArrayList(delta.addedEdges());
+        List<TopologyEdge> removedEdges = Lists.newArrayList(delta.removedEdges());
+        Map<TopologyEdge, TopologyEdge> reboundEdges = Maps.newHashMap();
+        Set<Cluster> stale = Sets.newIdentityHashSet();
+        delta.updatedEdges().forEach((oldEdge, newEdge) -> {
+            if (oldEdge.link().state() != newEdge.link().state()) {
+                removedEdges.add(oldEdge);
+                addedEdges.add(newEdge);
+            } else {
+                reboundEdges.put(oldEdge, newEdge);
+                Cluster cluster = clustersByVertex.get(oldEdge.src());
+                if (cluster != null && cluster == clustersByVertex.get(oldEdge.dst())) {
+                    stale.add(cluster);
+                }
+            }
+        });
+
+        if (removedVertexes.isEmpty() && addedVertexes.isEmpty() &&
+                addedEdges.isEmpty() && removedEdges.isEmpty() && stale.isEmpty()) {
+            return this;
+        }
+
+        // Find the clusters affected by the changes. Edges between clusters
+        // are not part of any cluster, so they are only of interest if they
+        // may join clusters together.
+        Set<Cluster> dirty = Sets.newIdentityHashSet();
+        SetMultimap<Cluster, TopologyEdge> removedByCluster = HashMultimap.create();
+        SetMultimap<Cluster, TopologyEdge> addedByCluster = HashMultimap.create();
+        removedVertexes.forEach(v -> dirty.add(clustersByVertex.get(v)));
+        for (TopologyEdge edge : removedEdges) {
+            Cluster cluster = clustersByVertex.get(edge.src());
+            if (cluster != null && cluster == clustersByVertex.get(edge.dst())) {
+                dirty.add(cluster);
+                removedByCluster.put(cluster, edge);
+            }
+        }
+        for (TopologyEdge edge : addedEdges) {
+            Cluster cluster = clustersByVertex.get(edge.src());
+            if (cluster != null && cluster == clustersByVertex.get(edge.dst())) {
+                dirty.add(cluster);
+                addedByCluster.put(cluster, edge);
+            } else if (isTraversable(edge) && !edge.src().equals(edge.dst())) {
+                // New path between clusters; they may have to be merged.
+                return compute(newGraph);
+            }
+        }
+
+        // Carry over the unaffected clusters, re-examine the affected ones
+        // and give each new vertex a cluster of its own.
+        List<Cluster> result = Lists.newArrayListWithCapacity(clusters.size() + addedVertexes.size());
+        for (Cluster cluster : clusters) {
+            if (dirty.contains(cluster)) {
+                result.addAll(cluster.update(newGraph, removedVertexes,
+                                             removedByCluster.get(cluster),
+                                             addedByCluster.get(cluster),
+                                             reboundEdges));
+            } else if (stale.contains(cluster)) {
+                result.add(cluster.rebind(reboundEdges));
+            } else {
+                result.add(cluster);
+            }
+        }
+        for (TopologyVertex vertex : addedVertexes) {
+            result.add(new Cluster(ImmutableSet.of(vertex),
+                                   clusterEdges(newGraph, ImmutableSet.of(vertex))));
+        }
+        return new TopologyClusters(result, true);
+    }
+
+    /**
+     * Returns the clusters, in the order of their cluster identifiers.
+     *
+     * @return list of clusters
+     */
+    List<Cluster> clusters() {
+        return clusters;
+    }
+
+    /**
+     * Indicates whether these clusters were derived from those of a previous
+     * graph rather than computed from scratch.
+     *
+     * @return true if derived incrementally
+     */
+    boolean isIncremental() {
+        return incremental;
+    }
+
+    // Searches the given graph for strongly connected clusters.
+    private static List<Cluster> search(Graph<TopologyVertex, TopologyEdge> graph) {
+        SccResult<TopologyVertex, TopologyEdge> results = TARJAN.search(graph, NO_INDIRECT_LINKS);
+        List<Cluster> result = Lists.newArrayListWithCapacity(results.clusterCount());
+        for (int i = 0, n = results.clusterCount(); i < n; i++) {
+            result.add(new Cluster(results.clusterVertexes().get(i),
+                                   results.clusterEdges().get(i)));
+        }
+        return result;
+    }
+
+    // Collects the edges of the given graph linking the specified vertexes.
+    private static Set<TopologyEdge> clusterEdges(TopologyGraph graph, Set<TopologyVertex> vertexes) {
+        ImmutableSet.Builder<TopologyEdge> builder = ImmutableSet.builder();
+        for (TopologyVertex vertex : vertexes) {
+            for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                if (vertexes.contains(edge.dst())) {
+                    builder.add(edge);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // Indicates whether the edge may be traversed to connect clusters.
+    private static boolean isTraversable(TopologyEdge edge) {
+        return NO_INDIRECT_LINKS.weight(edge) >= 0;
+    }
+
+    // Indicates whether the destination can be reached from the source using
+    // only traversable edges between the specified vertexes.
+    private static boolean isReachable(TopologyGraph graph, Set<TopologyVertex> vertexes,
+                                       TopologyVertex src, TopologyVertex dst) {
+        // Depth-first, as bypasses tend to be found a few hops away.
+        Set<TopologyVertex> visited = Sets.newHashSet(src);
+        Deque<TopologyVertex> stack = new ArrayDeque<>();
+        stack.push(src);
+        while (!stack.isEmpty()) {
+            for (TopologyEdge edge : graph.getEdgesFrom(stack.pop())) {
+                TopologyVertex next = edge.dst();
+                if (!isTraversable(edge) || !vertexes.contains(next) || !visited.add(next)) {
+                    continue;
+                }
+                if (next.equals(dst)) {
+                    return true;
+                }
+                stack.push(next);
+            }
+        }
+        return false;
+    }
+
+    // Finds the vertex whose device id is the lexicographical minimum in the
+    // specified set.
+    private static TopologyVertex findRoot(Set<TopologyVertex> vertexSet) {
+        TopologyVertex minVertex = null;
+        for (TopologyVertex vertex : vertexSet) {
+            if ((minVertex == null) || (vertex.deviceId()
+                    .toString().compareTo(minVertex.deviceId().toString()) < 0)) {
+                minVertex = vertex;
+            }
+        }
+        return minVertex;
+    }
+
+    /**
+     * Strongly connected cluster of vertexes along with its broadcast tree.
+     */
+    static final class Cluster {
+        private final Set<TopologyVertex> vertexes;
+        private final int edgeCount;
+        private final TopologyVertex root;
+        private volatile Set<TopologyEdge> edges;
+        private volatile BroadcastTree broadcastTree;
+
+        private Cluster(Set<TopologyVertex> vertexes, Set<TopologyEdge> edges) {
+            this(vertexes, edges, edges.size(), findRoot(vertexes), null);
+        }
+
+        private Cluster(Set<TopologyVertex> vertexes, Set<TopologyEdge> edges, int edgeCount,
+                        TopologyVertex root, BroadcastTree broadcastTree) {
+            this.vertexes = vertexes;
+            this.edges = edges;
+            this.edgeCount = edgeCount;
+            this.root = root;
+            this.broadcastTree = broadcastTree;
+        }
+
+        /**
+         * Returns the cluster vertexes.
+         *
+         * @return set of vertexes
+         */
+        Set<TopologyVertex> vertexes() {
+            return vertexes;
+        }
+
+        /**
+         * Returns the edges linking the cluster vertexes, collecting them if
+         * necessary.
+         *
+         * @param graph graph the cluster belongs to
+         * @return set of edges
+         */
+        Set<TopologyEdge> edges(TopologyGraph graph) {
+            Set<TopologyEdge> result = edges;
+            if (result == null) {
+                result = clusterEdges(graph, vertexes);
+                edges = result;
+            }
+            return result;
+        }
+
+        /**
+         * Returns the number of edges linking the cluster vertexes.
+         *
+         * @return number of edges
+         */
+        int edgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * Returns the cluster root, i.e. the vertex with the lowest device id.
+         *
+         * @return root vertex
+         */
+        TopologyVertex root() {
+            return root;
+        }
+
+        /**
+         * Returns the connection points along the shortest paths between the
+         * cluster root and all other vertexes of the cluster.
+         *
+         * @param graph graph the cluster belongs to
+         * @return broadcast points
+         */
+        Set<ConnectPoint> broadcastPoints(TopologyGraph graph) {
+            ImmutableSet.Builder<ConnectPoint> builder = ImmutableSet.builder();
+            for (TopologyEdge edge : broadcastTree(graph).parents.values()) {
+                builder.add(edge.link().src());
+                builder.add(edge.link().dst());
+            }
+            return builder.build();
+        }
+
+        /**
+         * Returns the shortest path tree rooted at the cluster root,
+         * computing it if necessary.
+         *
+         * @param graph graph the cluster belongs to
+         * @return broadcast tree
+         */
+        BroadcastTree broadcastTree(TopologyGraph graph) {
+            BroadcastTree tree = broadcastTree;
+            if (tree == null) {
+                tree = BroadcastTree.compute(graph, vertexes, root);
+                broadcastTree = tree;
+            }
+            return tree;
+        }
+
+        // Derives the clusters this cluster turns into in the new graph.
+        private List<Cluster> update(TopologyGraph newGraph, Set<TopologyVertex> removedVertexes,
+                                     Collection<TopologyEdge> removedEdges,
+                                     Collection<TopologyEdge> addedEdges,
+                                     Map<TopologyEdge, TopologyEdge> reboundEdges) {
+            // If no vertex went away and every removed link can be bypassed,
+            // the cluster stays whole; additions within a cluster never split it.
+            if (Collections.disjoint(vertexes, removedVertexes) && removedEdges.stream()
+                    .filter(TopologyClusters::isTraversable)
+                    .allMatch(e -> isReachable(newGraph, vertexes, e.src(), e.dst()))) {
+                BroadcastTree tree = broadcastTree;
+                if (tree != null) {
+                    tree = tree.update(newGraph, vertexes, removedEdges, addedEdges).rebind(reboundEdges);
+                }
+                return ImmutableList.of(new Cluster(vertexes, null,
+                                                    edgeCount - removedEdges.size() + addedEdges.size(),
+                                                    root, tree));
+            }
+
+            // Otherwise the cluster may have split; search it alone, as none
+            // of its vertexes can have joined another cluster.
+            Set<TopologyVertex> remaining = ImmutableSet.copyOf(Sets.difference(vertexes, removedVertexes));
+            return search(new CompactGraph<>(remaining, clusterEdges(newGraph, remaining)));
+        }
+
+        // Binds the cluster to the new edges of the links which only changed
+        // annotations, leaving the edges to be collected from the new graph.
+        private Cluster rebind(Map<TopologyEdge, TopologyEdge> reboundEdges) {
+            BroadcastTree tree = broadcastTree;
+            return new Cluster(vertexes, null, edgeCount, root,
+                               tree != null ? tree.rebind(reboundEdges) : null);
+        }
+
+        @Override
+        public String toString() {
+            return "Cluster{root=" + root + ", vertexes=" + vertexes.size() +
+                    ", edges=" + edgeCount + "}";
+        }
+    }
+
+    /**
+     * Hop-count shortest path tree spanning a cluster.
+     * <p>
+     * Since a cluster is strongly connected over direct links, the tree
+     * never needs to use indirect links, and every link it uses counts as a
+     * single hop under the builtin hop-count weight. A breadth-first search
+     * thus finds the same depths as a Dijkstra search with that weight; only
+     * the choice among equally short parents may differ, as it is arbitrary
+     * with either search.
+     * </p>
+     */
+    static final class BroadcastTree {
+        private final Map<TopologyVertex, TopologyEdge> parents;
+        private final Map<TopologyVertex, Integer> depths;
+
+        private BroadcastTree(Map<TopologyVertex, TopologyEdge> parents,
+                              Map<TopologyVertex, Integer> depths) {
+            this.parents = parents;
+            this.depths = depths;
+        }
+
+        /**
+         * Returns the tree edge leading to the specified vertex.
+         *
+         * @param vertex cluster vertex
+         * @return parent edge; null for the root
+         */
+        TopologyEdge parent(TopologyVertex vertex) {
+            return parents.get(vertex);
+        }
+
+        /**
+         * Returns the number of hops between the root and the specified vertex.
+         *
+         * @param vertex cluster vertex
+         * @return vertex depth
+         */
+        int depth(TopologyVertex vertex) {
+            return depths.get(vertex);
+        }
+
+        // Computes the tree with a breadth-first search from the root.
+        private static BroadcastTree compute(TopologyGraph graph, Set<TopologyVertex> vertexes,
+                                             TopologyVertex root) {
+            Map<TopologyVertex, TopologyEdge> parents = Maps.newHashMap();
+            Map<TopologyVertex, Integer> depths = Maps.newHashMap();
+            depths.put(root, 0);
+            relax(graph, vertexes, parents, depths, new ArrayDeque<>(ImmutableList.of(root)));
+            return new BroadcastTree(parents, depths);
+        }
+
+        // Derives the tree of the cluster in the new graph, in which the
+        // cluster remains strongly connected over the same vertexes.
+        private BroadcastTree update(TopologyGraph newGraph, Set<TopologyVertex> vertexes,
+                                     Collection<TopologyEdge> removedEdges,
+                                     Collection<TopologyEdge> addedEdges) {
+            Set<TopologyVertex> detached = removedEdges.stream()
+                    .filter(e -> e.equals(parents.get(e.dst())))
+                    .map(TopologyEdge::dst)
+                    .collect(Collectors.toSet());
+            List<TopologyEdge> shortcuts = addedEdges.stream()
+                    .filter(TopologyClusters::isTraversable)
+                    .filter(e -> depths.get(e.src()) + 1 < depths.get(e.dst()))
+                    .collect(Collectors.toList());
+            if (detached.isEmpty() && shortcuts.isEmpty()) {
+                return this;
+            }
+
+            Map<TopologyVertex, TopologyEdge> newParents = Maps.newHashMap(parents);
+            Map<TopologyVertex, Integer> newDepths = Maps.newHashMap(depths);
+            if (!detached.isEmpty()) {
+                reattach(newGraph, vertexes, detached, newParents, newDepths);
+            }
+
+            // Shortcuts only ever decrease depths, so propagate them.
+            Deque<TopologyVertex> queue = new ArrayDeque<>();
+            for (TopologyEdge edge : addedEdges) {
+                if (isTraversable(edge) && newDepths.get(edge.src()) + 1 < newDepths.get(edge.dst())) {
+                    newParents.put(edge.dst(), edge);
+                    newDepths.put(edge.dst(), newDepths.get(edge.src()) + 1);
+                    queue.add(edge.dst());
+                }
+            }
+            relax(newGraph, vertexes, newParents, newDepths, queue);
+            return new BroadcastTree(newParents, newDepths);
+        }
+
+        // Binds the tree to the new edges of the links which only changed
+        // annotations.
+        private BroadcastTree rebind(Map<TopologyEdge, TopologyEdge> reboundEdges) {
+            if (reboundEdges.isEmpty() || Collections.disjoint(parents.values(), reboundEdges.keySet())) {
+                return this;
+            }
+            Map<TopologyVertex, TopologyEdge> newParents = Maps.newHashMap(parents);
+            newParents.replaceAll((v, e) -> reboundEdges.getOrDefault(e, e));
+            return new BroadcastTree(newParents, depths);
+        }
+
+        // Re-attaches the subtrees hanging off the specified vertexes, whose
+        // links to their parents went away. As links were only removed,
+        // depths of the vertexes outside these subtrees remain unchanged.
+        private static void reattach(TopologyGraph graph, Set<TopologyVertex> vertexes,
+                                     Set<TopologyVertex> detached,
+                                     Map<TopologyVertex, TopologyEdge> parents,
+                                     Map<TopologyVertex, Integer> depths) {
+            SetMultimap<TopologyVertex, TopologyVertex> children = HashMultimap.create();
+            parents.forEach((v, e) -> children.put(e.src(), v));
+            Set<TopologyVertex> affected = Sets.newHashSet();
+            Deque<TopologyVertex> stack = new ArrayDeque<>(detached);
+            while (!stack.isEmpty()) {
+                TopologyVertex vertex = stack.pop();
+                if (affected.add(vertex)) {
+                    stack.addAll(children.get(vertex));
+                }
+            }
+            affected.forEach(v -> {
+                parents.remove(v);
+                depths.remove(v);
+            });
+
+            // Seed each affected vertex from its best unaffected neighbour
+            // and settle them in increasing depth order.
+            Map<TopologyVertex, TopologyEdge> candidates = Maps.newHashMap();
+            Map<TopologyVertex, Integer> tentative = Maps.newHashMap();
+            PriorityQueue<TopologyVertex> queue =
+                    new PriorityQueue<>(Comparator.comparingInt(tentative::get));
+            for (TopologyVertex vertex : affected) {
+                for (TopologyEdge edge : graph.getEdgesTo(vertex)) {
+                    Integer depth = depths.get(edge.src());
+                    if (depth != null && isTraversable(edge) && vertexes.contains(edge.src()) &&
+                            depth + 1 < tentative.getOrDefault(vertex, Integer.MAX_VALUE)) {
+                        tentative.put(vertex, depth + 1);
+                        candidates.put(vertex, edge);
+                    }
+                }
+                if (tentative.containsKey(vertex)) {
+                    queue.add(vertex);
+                }
+            }
+            while (!queue.isEmpty()) {
+                TopologyVertex vertex = queue.poll();
+                if (depths.containsKey(vertex)) {
+                    continue;
+                }
+                int depth = tentative.get(vertex);
+                depths.put(vertex, depth);
+                parents.put(vertex, candidates.get(vertex));
+                for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                    TopologyVertex next = edge.dst();
+                    if (affected.contains(next) && !depths.containsKey(next) && isTraversable(edge) &&
+                            depth + 1 < tentative.getOrDefault(next, Integer.MAX_VALUE)) {
+                        // Re-queue rather than update in place to keep the
+                        // queue ordering consistent.
+                        queue.remove(next);
+                        tentative.put(next, depth + 1);
+                        candidates.put(next, edge);
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        // Breadth-first relaxation of the depths of the vertexes reachable
+        // from those queued.
+        private static void relax(TopologyGraph graph, Set<TopologyVertex> vertexes,
+                                  Map<TopologyVertex, TopologyEdge> parents,
+                                  Map<TopologyVertex, Integer> depths,
+                                  Deque<TopologyVertex> queue) {
+            while (!queue.isEmpty()) {
+                TopologyVertex vertex = queue.poll();
+                int depth = depths.get(vertex) + 1;
+                for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                    TopologyVertex next = edge.dst();
+                    if (isTraversable(edge) && vertexes.contains(next) &&
+                            depth < depths.getOrDefault(next, Integer.MAX_VALUE)) {
+                        depths.put(next, depth);
+                        parents.put(next, edge);
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+    }
+
+    // Link weight for preventing traversal over indirect links.
+    private static class NoIndirectLinksWeight implements LinkWeight {
+        @Override
+        public double weight(TopologyEdge edge) {
+            return (edge.link().state() == INACTIVE)
+                    || (edge.link().type() == INDIRECT) ? -1 : 1;
+        }
+    }
+}
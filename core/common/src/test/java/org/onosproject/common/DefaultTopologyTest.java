@@ -19,6 +19,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onlab.packet.ChassisId;
 import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.DefaultDevice;
 import org.onosproject.net.DefaultLink;
 import org.onosproject.net.Device;
@@ -109,6 +110,22 @@ public class DefaultTopologyTest {
         assertEquals("incorrect path count", 1, paths.size());
     }
 
+    @Test
+    public void perCallWeightsNotCached() {
+        assertEquals("incorrect path count", 2, dt.getPaths(D1, D3).size());
+        long requests = dt.pathCacheStats().requestCount();
+        for (int i = 1; i <= 10; i++) {
+            double hopCost = i;
+            LinkWeight weight = edge -> hopCost;
+            assertEquals("incorrect path count", 2, dt.getPaths(D1, D3, weight).size());
+        }
+        assertEquals("per-call weights should bypass the cache",
+                     requests, dt.pathCacheStats().requestCount());
+
+        dt.getPaths(D2, D3);
+        assertEquals("incorrect cache misses", 2, dt.pathCacheStats().missCount());
+    }
+
     @Test
     public void pointRelated() {
         assertTrue("should be infrastructure point",
@@ -129,6 +146,59 @@ public class DefaultTopologyTest {
         assertFalse("cluster should not contain D5", devs.contains(D5));
     }
 
+    @Test
+    public void derivedFromPrevious() {
+        Set<Device> devices = of(device("1"), device("2"),
+                                 device("3"), device("4"),
+                                 device("5"));
+        Set<Link> links = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                             link("3", 2, "2", 2), link("2", 2, "3", 2),
+                             link("1", 3, "4", 3), link("4", 3, "1", 3),
+                             link("4", 4, "3", 4));
+        GraphDescription graphDescription =
+                new DefaultGraphDescription(System.nanoTime(), System.currentTimeMillis(),
+                                            devices, links);
+        DefaultTopology next = new DefaultTopology(PID, graphDescription, null, dt);
+        assertEquals("incorrect link count", 7, next.linkCount());
+        assertEquals("incorrect cluster count", 2, next.clusterCount());
+
+        TopologyCluster c = next.getCluster(D1);
+        assertEquals("incorrect root node", V1, c.root());
+        assertEquals("incorrect cluster link count", 7, c.linkCount());
+        assertEquals("incorrect cluster device count", 4, next.getClusterDevices(c).size());
+        assertEquals("incorrect cluster link count", 7, next.getClusterLinks(c).size());
+        assertEquals("incorrect broadcast set size", 6, next.broadcastSetSize(c.id()));
+    }
+
+    @Test
+    public void annotationChangeThroughReusedCluster() {
+        dt.getClusterLinks(dt.getCluster(D1));
+        Set<Device> devices = of(device("1"), device("2"),
+                                 device("3"), device("4"),
+                                 device("5"));
+        Link annotated = DefaultLink.builder().providerId(PID)
+                .src(new ConnectPoint(did("1"), portNumber(1)))
+                .dst(new ConnectPoint(did("2"), portNumber(1)))
+                .type(Link.Type.DIRECT)
+                .annotations(DefaultAnnotations.builder().set("latency", "5").build())
+                .build();
+        Set<Link> links = of(annotated, link("2", 1, "1", 1),
+                             link("3", 2, "2", 2), link("2", 2, "3", 2),
+                             link("1", 3, "4", 3), link("4", 3, "1", 3),
+                             link("3", 4, "4", 4), link("4", 4, "3", 4));
+        GraphDescription graphDescription =
+                new DefaultGraphDescription(System.nanoTime(), System.currentTimeMillis(),
+                                            devices, links);
+        DefaultTopology next = new DefaultTopology(PID, graphDescription, null, dt);
+
+        TopologyCluster c = next.getCluster(D1);
+        assertEquals("incorrect cluster link count", 8, next.getClusterLinks(c).size());
+        Link link = next.getClusterLinks(c).stream()
+                .filter(l -> l.equals(annotated)).findFirst().get();
+        assertEquals("stale link annotations", "5", link.annotations().value("latency"));
+        assertEquals("incorrect broadcast set size", 6, next.broadcastSetSize(c.id()));
+    }
+
     // Short-hand for creating a link.
     public static Link link(String src, int sp, String dst, int dp) {
         return DefaultLink.builder().providerId(PID)
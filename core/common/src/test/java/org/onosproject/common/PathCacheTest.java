@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.onlab.graph.DijkstraGraphSearch;
+import org.onlab.graph.GraphPathSearch;
+import org.onosproject.net.Link;
+import org.onosproject.net.Path;
+import org.onosproject.net.topology.DefaultTopologyEdge;
+import org.onosproject.net.topology.DefaultTopologyVertex;
+import org.onosproject.net.topology.HopCountLinkWeight;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+import static org.onosproject.common.DefaultTopologyTest.did;
+import static org.onosproject.common.DefaultTopologyTest.link;
+
+/**
+ * Test of the shortest-path cache.
+ */
+public class PathCacheTest {
+
+    private static final LinkWeight HOPS = new HopCountLinkWeight();
+    private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA =
+            new DijkstraGraphSearch<>();
+
+    private final Set<TopologyVertex> vertexes = Sets.newHashSet();
+    private final Set<Link> links = Sets.newHashSet();
+
+    private static TopologyVertex vertex(int id) {
+        return new DefaultTopologyVertex(did(Integer.toString(id)));
+    }
+
+    private void addDevices(int count) {
+        for (int i = 1; i <= count; i++) {
+            vertexes.add(vertex(i));
+        }
+    }
+
+    // Adds a pair of links between the two devices.
+    private void connect(int a, int b) {
+        links.add(link(Integer.toString(a), b, Integer.toString(b), a));
+        links.add(link(Integer.toString(b), a, Integer.toString(a), b));
+    }
+
+    private void disconnect(int a, int b) {
+        links.remove(link(Integer.toString(a), b, Integer.toString(b), a));
+        links.remove(link(Integer.toString(b), a, Integer.toString(a), b));
+    }
+
+    private TopologyGraph graph() {
+        Set<TopologyEdge> edges = links.stream()
+                .filter(l -> vertexes.contains(new DefaultTopologyVertex(l.src().deviceId())) &&
+                        vertexes.contains(new DefaultTopologyVertex(l.dst().deviceId())))
+                .map(l -> new DefaultTopologyEdge(new DefaultTopologyVertex(l.src().deviceId()),
+                                                  new DefaultTopologyVertex(l.dst().deviceId()), l))
+                .collect(Collectors.toSet());
+        return new DefaultTopologyGraph(ImmutableSet.copyOf(vertexes), edges);
+    }
+
+    // Checks the cached paths between every pair of vertexes against those
+    // found by the Dijkstra graph search.
+    private static void assertPaths(PathCache cache, TopologyGraph graph) {
+        for (TopologyVertex src : graph.getVertexes()) {
+            for (TopologyVertex dst : graph.getVertexes()) {
+                GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
+                        DIJKSTRA.search(graph, src, dst, HOPS, ALL_PATHS);
+                Set<List<Link>> expected = result.paths().stream()
+                        .map(p -> p.edges().stream().map(TopologyEdge::link).collect(Collectors.toList()))
+                        .collect(Collectors.toSet());
+                Set<Path> paths = cache.paths(src, dst);
+                assertEquals(expected, paths.stream().map(Path::links).collect(Collectors.toSet()));
+                for (Path path : paths) {
+                    assertEquals(path.links().size(), path.cost(), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void equalCostPaths() {
+        addDevices(4);
+        connect(1, 2);
+        connect(2, 4);
+        connect(1, 3);
+        connect(3, 4);
+        TopologyGraph graph = graph();
+        PathCache cache = new PathCache(graph, HOPS);
+        assertEquals(2, cache.paths(vertex(1), vertex(4)).size());
+        assertEquals(1, cache.paths(vertex(1), vertex(2)).size());
+        assertEquals(0, cache.paths(vertex(1), vertex(1)).size());
+        assertPaths(cache, graph);
+    }
+
+    @Test
+    public void unreachable() {
+        addDevices(3);
+        connect(1, 2);
+        PathCache cache = new PathCache(graph(), HOPS);
+        assertTrue(cache.paths(vertex(1), vertex(3)).isEmpty());
+    }
+
+    @Test
+    public void statistics() {
+        addDevices(4);
+        connect(1, 2);
+        connect(2, 3);
+        connect(3, 4);
+        PathCache cache = new PathCache(graph(), HOPS);
+        cache.paths(vertex(1), vertex(4));
+        cache.paths(vertex(1), vertex(3));
+        cache.paths(vertex(1), vertex(4));
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(2, cache.stats().hitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void bounded() {
+        addDevices(10);
+        for (int i = 1; i < 10; i++) {
+            connect(i, i + 1);
+        }
+        PathCache cache = new PathCache(graph(), HOPS, 25);
+        for (int i = 1; i <= 10; i++) {
+            cache.paths(vertex(i), vertex(1));
+        }
+        assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    public void selectiveInvalidation() {
+        // Two triangles joined by the 3-4 links.
+        addDevices(6);
+        connect(1, 2);
+        connect(2, 3);
+        connect(3, 1);
+        connect(4, 5);
+        connect(5, 6);
+        connect(6, 4);
+        connect(3, 4);
+        TopologyGraph oldGraph = graph();
+        PathCache cache = new PathCache(oldGraph, HOPS);
+        for (int i = 1; i <= 6; i++) {
+            cache.paths(vertex(i), vertex(1));
+        }
+
+        // Only the trees of the other triangle route over the 5-6 links;
+        // those of 5 and 6 use them to reach each other.
+        disconnect(5, 6);
+        TopologyGraph newGraph = graph();
+        PathCache updated = cache.update(GraphDelta.between(oldGraph, newGraph), newGraph);
+        assertEquals(4, updated.size());
+        assertPaths(updated, newGraph);
+
+        // A shortcut makes every tree reaching its source stale.
+        oldGraph = newGraph;
+        connect(1, 5);
+        newGraph = graph();
+        PathCache shortcut = updated.update(GraphDelta.between(oldGraph, newGraph), newGraph);
+        assertEquals(0, shortcut.size());
+        assertPaths(shortcut, newGraph);
+    }
+
+    @Test
+    public void randomChanges() {
+        Random random = new Random(42);
+        int size = 20;
+        addDevices(size);
+        for (int i = 0; i < 2 * size; i++) {
+            connect(1 + random.nextInt(size), 1 + random.nextInt(size));
+        }
+        TopologyGraph graph = graph();
+        PathCache cache = new PathCache(graph, HOPS);
+        for (int i = 0; i < 50; i++) {
+            int a = 1 + random.nextInt(size);
+            int b = 1 + random.nextInt(size);
+            if (random.nextBoolean()) {
+                connect(a, b);
+            } else {
+                List<Link> current = Lists.newArrayList(links);
+                links.remove(current.get(random.nextInt(current.size())));
+            }
+            TopologyGraph newGraph = graph();
+            cache = cache.update(GraphDelta.between(graph, newGraph), newGraph);
+            assertPaths(cache, newGraph);
+            graph = newGraph;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.onosproject.net.Link;
+import org.onosproject.net.topology.DefaultTopologyEdge;
+import org.onosproject.net.topology.DefaultTopologyVertex;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.common.DefaultTopologyTest.did;
+import static org.onosproject.common.DefaultTopologyTest.link;
+
+/**
+ * Test of the incremental derivation of topology clusters.
+ */
+public class TopologyClustersTest {
+
+    private final Set<TopologyVertex> vertexes = Sets.newHashSet();
+    private final Set<Link> links = Sets.newHashSet();
+
+    private static TopologyVertex vertex(int id) {
+        return new DefaultTopologyVertex(did(Integer.toString(id)));
+    }
+
+    // Adds a pair of links between the two devices.
+    private void connect(int a, int b) {
+        links.add(link(Integer.toString(a), b, Integer.toString(b), a));
+        links.add(link(Integer.toString(b), a, Integer.toString(a), b));
+    }
+
+    private void disconnect(int a, int b) {
+        links.remove(link(Integer.toString(a), b, Integer.toString(b), a));
+        links.remove(link(Integer.toString(b), a, Integer.toString(a), b));
+    }
+
+    private void addDevices(int count) {
+        for (int i = 1; i <= count; i++) {
+            vertexes.add(vertex(i));
+        }
+    }
+
+    private void removeDevice(int id) {
+        vertexes.remove(vertex(id));
+        links.removeIf(l -> l.src().deviceId().equals(did(Integer.toString(id))) ||
+                l.dst().deviceId().equals(did(Integer.toString(id))));
+    }
+
+    private TopologyGraph graph() {
+        Set<TopologyEdge> edges = links.stream()
+                .filter(l -> vertexes.contains(new DefaultTopologyVertex(l.src().deviceId())) &&
+                        vertexes.contains(new DefaultTopologyVertex(l.dst().deviceId())))
+                .map(l -> new DefaultTopologyEdge(new DefaultTopologyVertex(l.src().deviceId()),
+                                                  new DefaultTopologyVertex(l.dst().deviceId()), l))
+                .collect(Collectors.toSet());
+        return new DefaultTopologyGraph(ImmutableSet.copyOf(vertexes), edges);
+    }
+
+    private static Set<Set<TopologyVertex>> partition(TopologyClusters clusters) {
+        return clusters.clusters().stream()
+                .map(TopologyClusters.Cluster::vertexes)
+                .map(ImmutableSet::copyOf)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Set<TopologyEdge>> clusterEdges(TopologyClusters clusters, TopologyGraph graph) {
+        return clusters.clusters().stream()
+                .map(c -> {
+                    assertEquals(c.edges(graph).size(), c.edgeCount());
+                    return ImmutableSet.copyOf(c.edges(graph));
+                })
+                .collect(Collectors.toSet());
+    }
+
+    // Derives the clusters of the new graph and checks them against the
+    // clusters computed from scratch.
+    private static TopologyClusters assertUpdate(TopologyClusters previous,
+                                                 TopologyGraph oldGraph, TopologyGraph newGraph) {
+        TopologyClusters updated = previous.update(oldGraph, newGraph);
+        TopologyClusters computed = TopologyClusters.compute(newGraph);
+        assertEquals(partition(computed), partition(updated));
+        assertEquals(clusterEdges(computed, newGraph), clusterEdges(updated, newGraph));
+        for (TopologyClusters.Cluster cluster : updated.clusters()) {
+            TopologyClusters.BroadcastTree tree = cluster.broadcastTree(newGraph);
+            TopologyClusters.BroadcastTree expected = computed.clusters().stream()
+                    .filter(c -> c.vertexes().equals(cluster.vertexes()))
+                    .findFirst().get().broadcastTree(newGraph);
+            for (TopologyVertex vertex : cluster.vertexes()) {
+                assertEquals(expected.depth(vertex), tree.depth(vertex));
+                TopologyEdge parent = tree.parent(vertex);
+                if (vertex.equals(cluster.root())) {
+                    assertEquals(null, parent);
+                } else {
+                    assertTrue(newGraph.getEdgesTo(vertex).contains(parent));
+                    assertEquals(tree.depth(parent.src()) + 1, tree.depth(vertex));
+                }
+            }
+        }
+        return updated;
+    }
+
+    @Test
+    public void unchanged() {
+        addDevices(3);
+        connect(1, 2);
+        connect(2, 3);
+        TopologyGraph graph = graph();
+        TopologyClusters clusters = TopologyClusters.compute(graph);
+        assertEquals(1, clusters.clusters().size());
+        assertSame(clusters, clusters.update(graph, graph()));
+    }
+
+    @Test
+    public void bypassedLinkRemoval() {
+        addDevices(4);
+        connect(1, 2);
+        connect(2, 3);
+        connect(3, 4);
+        connect(4, 1);
+        connect(1, 3);
+        TopologyGraph oldGraph = graph();
+        TopologyClusters clusters = TopologyClusters.compute(oldGraph);
+        Set<?> points = clusters.clusters().get(0).broadcastPoints(oldGraph);
+
+        disconnect(2, 3);
+        TopologyClusters updated = assertUpdate(clusters, oldGraph, graph());
+        assertTrue(updated.isIncremental());
+        assertEquals(1, updated.clusters().size());
+        assertEquals(vertex(1), updated.clusters().get(0).root());
+        assertEquals(points.size(), updated.clusters().get(0).broadcastPoints(graph()).size());
+    }
+
+    @Test
+    public void splittingLinkRemoval() {
+        addDevices(6);
+        connect(1, 2);
+        connect(2, 3);
+        connect(3, 1);
+        connect(4, 5);
+        connect(5, 6);
+        TopologyGraph oldGraph = graph();
+        TopologyClusters clusters = TopologyClusters.compute(oldGraph);
+        assertEquals(2, clusters.clusters().size());
+        TopologyClusters.Cluster untouched = clusters.clusters().stream()
+                .filter(c -> c.vertexes().contains(vertex(1))).findFirst().get();
+
+        disconnect(5, 6);
+        TopologyClusters updated = assertUpdate(clusters, oldGraph, graph());
+        assertTrue(updated.isIncremental());
+        assertEquals(3, updated.clusters().size());
+        assertTrue(updated.clusters().contains(untouched));
+    }
+
+    @Test
+    public void joiningLinkAddition() {
+        addDevices(4);
+        connect(1, 2);
+        connect(3, 4);
+        TopologyGraph oldGraph = graph();
+        TopologyClusters clusters = TopologyClusters.compute(oldGraph);
+        assertEquals(2, clusters.clusters().size());
+
+        connect(2, 3);
+        TopologyClusters updated = assertUpdate(clusters, oldGraph, graph());
+        assertFalse(updated.isIncremental());
+        assertEquals(1, updated.clusters().size());
+    }
+
+    @Test
+    public void deviceRemovalAndAddition() {
+        addDevices(4);
+        connect(1, 2);
+        connect(2, 3);
+        connect(3, 4);
+        TopologyGraph oldGraph = graph();
+        TopologyClusters clusters = TopologyClusters.compute(oldGraph);
+
+        removeDevice(2);
+        vertexes.add(vertex(5));
+        TopologyGraph newGraph = graph();
+        TopologyClusters updated = assertUpdate(clusters, oldGraph, newGraph);
+        assertTrue(updated.isIncremental());
+        assertEquals(3, updated.clusters().size());
+        assertEquals(vertex(3), updated.clusters().stream()
+                .filter(c -> c.vertexes().contains(vertex(4))).findFirst().get().root());
+    }
+
+    @Test
+    public void randomChanges() {
+        Random random = new Random(42);
+        int size = 30;
+        addDevices(size);
+        for (int i = 0; i < 2 * size; i++) {
+            connect(1 + random.nextInt(size), 1 + random.nextInt(size));
+        }
+        TopologyGraph graph = graph();
+        TopologyClusters clusters = TopologyClusters.compute(graph);
+        for (int i = 0; i < 200; i++) {
+            int a = 1 + random.nextInt(size);
+            int b = 1 + random.nextInt(size);
+            switch (random.nextInt(4)) {
+                case 0:
+                    connect(a, b);
+                    break;
+                case 1:
+                    removeDevice(a);
+                    break;
+                case 2:
+                    vertexes.add(vertex(a));
+                    break;
+                default:
+                    List<Link> current = Lists.newArrayList(links);
+                    if (!current.isEmpty()) {
+                        links.remove(current.get(random.nextInt(current.size())));
+                    }
+                    break;
+            }
+            TopologyGraph newGraph = graph();
+            clusters = assertUpdate(clusters, graph, newGraph);
+            graph = newGraph;
+        }
+    }
+}
@@ -15,11 +15,22 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.SharedExecutors;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.DefaultEventSinkRegistry;
 import org.onosproject.event.Event;
@@ -29,15 +40,24 @@ import org.slf4j.Logger;
 
 import com.google.common.base.Stopwatch;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimerTask;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.security.AppGuard.checkPermission;
 import static org.onosproject.security.AppPermission.Type.EVENT_READ;
@@ -45,11 +65,18 @@ import static org.onosproject.security.AppPermission.Type.EVENT_WRITE;
 import static org.slf4j.LoggerFactory.getLogger;
 /**
  * Simple implementation of an event dispatching service.
+ * <p>
+ * Events are dispatched by several independent lanes, so that a slow sink
+ * only delays the events sharing its lane. All events of a given class go
+ * through the same lane, unless the class is partitioned by subject, in
+ * which case all events of a given class and subject do. Events posted
+ * together are queued on each lane at once, in order.
+ * </p>
  */
 @Component(immediate = true)
 @Service
 public class CoreEventDispatcher extends DefaultEventSinkRegistry
-        implements EventDeliveryService {
+        implements EventDeliveryService, MetricsHelper {
 
     private final Logger log = getLogger(getClass());
 
@@ -59,35 +86,79 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private static final long DEFAULT_EXECUTE_MS = 5_000; // ms
     private static final long WATCHDOG_MS = 250; // ms
 
-    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private static final int NUM_LANES = 8;
 
-    private final ExecutorService executor =
-            newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-%d", log));
+    private static final String METRICS_COMPONENT = "EventDispatcher";
 
     @SuppressWarnings("unchecked")
     private static final Event KILL_PILL = new AbstractEvent(null, 0) {
     };
 
-    private DispatchLoop dispatchLoop;
-    private long maxProcessMillis = DEFAULT_EXECUTE_MS;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private final DispatchLane[] lanes = new DispatchLane[NUM_LANES];
+
+    // Event classes are spread across the lanes in order of appearance.
+    private final Map<Class<?>, Integer> classLanes = Maps.newConcurrentMap();
+    private final AtomicInteger nextClassLane = new AtomicInteger();
+    private final Set<Class<? extends Event>> partitionedClasses = Sets.newConcurrentHashSet();
+
+    private volatile long maxProcessMillis = DEFAULT_EXECUTE_MS;
 
     // Means to detect long-running sinks
     private TimerTask watchdog;
-    private EventSink lastSink;
-    private final Stopwatch stopwatch = Stopwatch.createUnstarted();
-    private Future<?> dispatchFuture;
+
+    /**
+     * Creates an event dispatcher with its lanes ready to accept events.
+     */
+    public CoreEventDispatcher() {
+        for (int i = 0; i < NUM_LANES; i++) {
+            lanes[i] = new DispatchLane(i);
+        }
+    }
 
     @Override
     public void post(Event event) {
-        if (!events.add(event)) {
+        if (!lane(event).offer(new QueuedEvent(event))) {
             log.error("Unable to post event {}", event);
         }
     }
 
+    @Override
+    public void postAll(List<? extends Event> events) {
+        List<List<Event>> laneEvents = new ArrayList<>(NUM_LANES);
+        for (int i = 0; i < NUM_LANES; i++) {
+            laneEvents.add(new ArrayList<>());
+        }
+        for (Event event : events) {
+            laneEvents.get(lane(event).index).add(event);
+        }
+        for (int i = 0; i < NUM_LANES; i++) {
+            List<Event> batch = laneEvents.get(i);
+            if (!batch.isEmpty() && !lanes[i].offer(new QueuedEvent(batch))) {
+                log.error("Unable to post events {}", batch);
+            }
+        }
+    }
+
+    // Picks the lane for the event based on its class and, if partitioned,
+    // its subject.
+    private DispatchLane lane(Event event) {
+        Class<?> eventClass = event.getClass();
+        int lane = classLanes.computeIfAbsent(eventClass,
+                                              c -> Math.floorMod(nextClassLane.getAndIncrement(), NUM_LANES));
+        if (partitionedClasses.contains(eventClass) && event.subject() != null) {
+            lane += Math.floorMod(event.subject().hashCode(), NUM_LANES);
+        }
+        return lanes[lane % NUM_LANES];
+    }
+
     @Activate
     public void activate() {
-        dispatchLoop = new DispatchLoop();
-        dispatchFuture = executor.submit(dispatchLoop);
+        for (DispatchLane lane : lanes) {
+            lane.start();
+        }
 
         if (maxProcessMillis != 0) {
             startWatchdog();
@@ -98,9 +169,10 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
 
     @Deactivate
     public void deactivate() {
-        dispatchLoop.stop();
+        for (DispatchLane lane : lanes) {
+            lane.stop();
+        }
         stopWatchdog();
-        post(KILL_PILL);
         log.info("Stopped");
     }
 
@@ -138,22 +210,121 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
         return maxProcessMillis;
     }
 
-    // Auxiliary event dispatching loop that feeds off the events queue.
+    @Override
+    public void setPartitionedBySubject(Class<? extends Event> eventClass, boolean partitioned) {
+        checkPermission(EVENT_WRITE);
+        checkNotNull(eventClass, "Event class cannot be null");
+        if (partitioned) {
+            partitionedClasses.add(eventClass);
+        } else {
+            partitionedClasses.remove(eventClass);
+        }
+    }
+
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    // Events queued for dispatching together, along with the time they were
+    // queued at.
+    private static final class QueuedEvent {
+        private final List<Event> events;
+        private final long queuedNanos;
+
+        private QueuedEvent(Event event) {
+            this(Collections.singletonList(event), System.nanoTime());
+        }
+
+        private QueuedEvent(List<Event> events) {
+            this(events, System.nanoTime());
+        }
+
+        private QueuedEvent(List<Event> events, long queuedNanos) {
+            this.events = events;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    // Queue of events along with the loop dispatching them on its own thread.
+    private class DispatchLane {
+        private final int index;
+        private final BlockingDeque<QueuedEvent> events = new LinkedBlockingDeque<>();
+        private final ExecutorService executor;
+
+        private DispatchLoop dispatchLoop;
+        private Future<?> dispatchFuture;
+
+        private EventSink lastSink;
+        private final Stopwatch stopwatch = Stopwatch.createUnstarted();
+
+        private Timer queueTimer;
+        private Timer processTimer;
+
+        DispatchLane(int index) {
+            this.index = index;
+            this.executor = newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-" + index, log));
+        }
+
+        boolean offer(QueuedEvent queued) {
+            return events.add(queued);
+        }
+
+        void start() {
+            String feature = "lane-" + index;
+            queueTimer = createTimer(METRICS_COMPONENT, feature, "queueTime");
+            processTimer = createTimer(METRICS_COMPONENT, feature, "processTime");
+            if (metricsService != null) {
+                MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+                MetricsFeature f = c.registerFeature(feature);
+                metricsService.registerMetric(c, f, "queueDepth", (Gauge<Integer>) events::size);
+            }
+            dispatchLoop = new DispatchLoop(this);
+            dispatchFuture = executor.submit(dispatchLoop);
+        }
+
+        void stop() {
+            dispatchLoop.stop();
+            offer(new QueuedEvent(KILL_PILL));
+            if (metricsService != null) {
+                MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+                metricsService.removeMetric(c, c.registerFeature("lane-" + index), "queueDepth");
+            }
+        }
+
+        // Cancels the current dispatch loop and submits a new one.
+        void restart() {
+            dispatchLoop.stop();
+            dispatchLoop = new DispatchLoop(this);
+            dispatchFuture.cancel(true);
+            dispatchFuture = executor.submit(dispatchLoop);
+        }
+    }
+
+    // Auxiliary event dispatching loop that feeds off the events queue of a lane.
     private class DispatchLoop implements Runnable {
+        private final DispatchLane lane;
         private volatile boolean stopped;
 
+        DispatchLoop(DispatchLane lane) {
+            this.lane = lane;
+        }
+
         @Override
         public void run() {
             stopped = false;
             log.info("Dispatch loop initiated");
             while (!stopped) {
                 try {
-                    // Fetch the next event and if it is the kill-pill, bail
-                    Event event = events.take();
-                    if (event == KILL_PILL) {
+                    // Fetch the next events and if it is the kill-pill, bail
+                    QueuedEvent queued = lane.events.take();
+                    if (queued.events.get(0) == KILL_PILL) {
                         break;
                     }
-                    process(event);
+                    if (lane.queueTimer != null) {
+                        lane.queueTimer.update(System.nanoTime() - queued.queuedNanos, TimeUnit.NANOSECONDS);
+                    }
+                    process(queued);
                 } catch (InterruptedException e) {
                     log.warn("Dispatch loop interrupted");
                 } catch (Exception | Error e) {
@@ -163,15 +334,37 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
             log.info("Dispatch loop terminated");
         }
 
+        // Processes the queued events in order; if this loop gets replaced
+        // in the meantime, the events left are handed back to the lane.
+        private void process(QueuedEvent queued) {
+            for (int i = 0; i < queued.events.size(); i++) {
+                if (stopped) {
+                    List<Event> left = queued.events.subList(i, queued.events.size());
+                    lane.events.addFirst(new QueuedEvent(new ArrayList<>(left), queued.queuedNanos));
+                    return;
+                }
+                try {
+                    process(queued.events.get(i));
+                } catch (Exception | Error e) {
+                    log.warn("Error encountered while dispatching event:", e);
+                }
+            }
+        }
+
         // Locate the sink for the event class and use it to process the event
         @SuppressWarnings("unchecked")
         private void process(Event event) {
             EventSink sink = getSink(event.getClass());
             if (sink != null) {
-                lastSink = sink;
-                stopwatch.start();
-                sink.process(event);
-                stopwatch.reset();
+                lane.lastSink = sink;
+                final Context processContext = startTimer(lane.processTimer);
+                lane.stopwatch.start();
+                try {
+                    sink.process(event);
+                } finally {
+                    lane.stopwatch.reset();
+                    stopTimer(processContext);
+                }
             } else {
                 log.warn("No sink registered for event class {}",
                          event.getClass().getName());
@@ -187,20 +380,19 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private class Watchdog extends TimerTask {
         @Override
         public void run() {
-            long elapsedTimeMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-            if (elapsedTimeMillis > maxProcessMillis) {
-                stopwatch.reset();
-                log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop",
-                          lastSink.getClass().getName(), elapsedTimeMillis);
-
-                // Notify the sink that it has exceeded its time limit.
-                lastSink.onProcessLimit();
-
-                // Cancel the old dispatch loop and submit a new one.
-                dispatchLoop.stop();
-                dispatchLoop = new DispatchLoop();
-                dispatchFuture.cancel(true);
-                dispatchFuture = executor.submit(dispatchLoop);
+            for (DispatchLane lane : lanes) {
+                long elapsedTimeMillis = lane.stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                if (elapsedTimeMillis > maxProcessMillis) {
+                    lane.stopwatch.reset();
+                    log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop",
+                             lane.lastSink.getClass().getName(), elapsedTimeMillis);
+
+                    // Notify the sink that it has exceeded its time limit.
+                    lane.lastSink.onProcessLimit();
+
+                    // Cancel the old dispatch loop and submit a new one.
+                    lane.restart();
+                }
             }
         }
     }
@@ -43,6 +43,7 @@ import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.CompletedBatchOperation;
 import org.onosproject.net.flow.DefaultFlowEntry;
 import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowEntryReconciliation;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleBatchEntry;
 import org.onosproject.net.flow.FlowRuleBatchEvent;
@@ -394,24 +395,6 @@ public class FlowRuleManager
             log.debug("Flow {} is on switch but not in store.", flowRule);
         }
 
-        private void flowAdded(FlowEntry flowEntry) {
-            checkNotNull(flowEntry, FLOW_RULE_NULL);
-            checkValidity();
-
-            if (checkRuleLiveness(flowEntry, store.getFlowEntry(flowEntry))) {
-                FlowRuleEvent event = store.addOrUpdateFlowRule(flowEntry);
-                if (event == null) {
-                    log.debug("No flow store event generated.");
-                } else {
-                    log.trace("Flow {} {}", flowEntry, event.type());
-                    post(event);
-                }
-            } else {
-                log.debug("Removing flow rules....");
-                removeFlowRules(flowEntry);
-            }
-        }
-
         private boolean checkRuleLiveness(FlowEntry swRule, FlowEntry storedRule) {
             if (storedRule == null) {
                 return false;
@@ -450,45 +433,54 @@ public class FlowRuleManager
 
         private void pushFlowMetricsInternal(DeviceId deviceId, Iterable<FlowEntry> flowEntries,
                                              boolean useMissingFlow) {
-            Map<FlowEntry, FlowEntry> storedRules = Maps.newHashMap();
-            store.getFlowEntries(deviceId).forEach(f -> storedRules.put(f, f));
+            checkValidity();
+            FlowEntryReconciliation reconciliation =
+                    store.reconcileFlowEntries(deviceId, flowEntries, this::checkRuleLiveness);
+            if (log.isTraceEnabled()) {
+                reconciliation.events().forEach(event -> log.trace("Flow {} {}", event.subject(), event.type()));
+            }
+            postAll(reconciliation.events());
+
+            if (!reconciliation.expiredEntries().isEmpty()) {
+                log.debug("Removing flow rules....");
+                removeFlowRules(reconciliation.expiredEntries().toArray(new FlowRule[0]));
+            }
 
-            for (FlowEntry rule : flowEntries) {
+            reconciliation.mismatchedEntries().forEach((rule, storedRule) -> {
                 try {
-                    FlowEntry storedRule = storedRules.remove(rule);
-                    if (storedRule != null) {
-                        if (storedRule.exactMatch(rule)) {
-                            // we both have the rule, let's update some info then.
-                            flowAdded(rule);
-                        } else {
-                            // the two rules are not an exact match - remove the
-                            // switch's rule and install our rule
-                            extraneousFlow(rule);
-                            flowMissing(storedRule);
-                        }
-                    } else {
-                        // the device has a rule the store does not have
-                        if (!allowExtraneousRules) {
-                            extraneousFlow(rule);
-                        }
-                    }
+                    // the two rules are not an exact match - remove the
+                    // switch's rule and install our rule
+                    extraneousFlow(rule);
+                    flowMissing(storedRule);
                 } catch (Exception e) {
                     log.debug("Can't process added or extra rule {}", e.getMessage());
                 }
-            }
+            });
 
-            // DO NOT reinstall
-            if (useMissingFlow) {
-                for (FlowEntry rule : storedRules.keySet()) {
+            // the device has rules the store does not have
+            if (!allowExtraneousRules) {
+                for (FlowEntry rule : reconciliation.extraneousEntries()) {
                     try {
-                        // there are rules in the store that aren't on the switch
-                        log.debug("Adding rule in store, but not on switch {}", rule);
-                        flowMissing(rule);
+                        extraneousFlow(rule);
                     } catch (Exception e) {
-                        log.debug("Can't add missing flow rule:", e);
+                        log.debug("Can't process added or extra rule {}", e.getMessage());
                     }
                 }
             }
+
+            // DO NOT reinstall
+            if (!useMissingFlow) {
+                return;
+            }
+            for (FlowEntry rule : reconciliation.missingEntries()) {
+                try {
+                    // there are rules in the store that aren't on the switch
+                    log.debug("Adding rule in store, but not on switch {}", rule);
+                    flowMissing(rule);
+                } catch (Exception e) {
+                    log.debug("Can't add missing flow rule:", e);
+                }
+            }
         }
 
         @Override
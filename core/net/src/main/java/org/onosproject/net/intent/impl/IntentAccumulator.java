@@ -25,10 +25,14 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
- * An accumulator for building batches of intent operations. Only one batch should
- * be in process per instance at a time.
+ * An accumulator for building batches of intent operations. Only a bounded
+ * number of batches may be in process per instance at a time; until one of
+ * them completes, further operations keep accumulating.
  */
 public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
@@ -42,23 +46,47 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     private final IntentBatchDelegate delegate;
 
-    private volatile boolean ready;
+    private volatile int maxInFlightBatches;
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
 
     /**
-     * Creates an intent operation accumulator.
+     * Creates an intent operation accumulator which hands out a single batch
+     * at a time.
      *
      * @param delegate the intent batch delegate
      */
     protected IntentAccumulator(IntentBatchDelegate delegate) {
+        this(delegate, 1);
+    }
+
+    /**
+     * Creates an intent operation accumulator which hands out up to the given
+     * number of batches before waiting for any of them to complete.
+     *
+     * @param delegate           the intent batch delegate
+     * @param maxInFlightBatches maximum number of batches in process
+     */
+    protected IntentAccumulator(IntentBatchDelegate delegate, int maxInFlightBatches) {
         super(TIMER, DEFAULT_MAX_EVENTS, DEFAULT_MAX_BATCH_MS, DEFAULT_MAX_IDLE_MS);
         this.delegate = delegate;
         // Assume that the delegate is ready for work at the start
-        ready = true; //TODO validate the assumption that delegate is ready
+        setMaxInFlightBatches(maxInFlightBatches);
+    }
+
+    /**
+     * Changes the number of batches handed out before waiting for any of
+     * them to complete. Batches already in process are not affected.
+     *
+     * @param maxInFlightBatches maximum number of batches in process
+     */
+    public void setMaxInFlightBatches(int maxInFlightBatches) {
+        checkArgument(maxInFlightBatches > 0, "Maximum in-flight batches must be positive");
+        this.maxInFlightBatches = maxInFlightBatches;
     }
 
     @Override
     public void processItems(List<IntentData> items) {
-        ready = false;
+        inFlightBatches.incrementAndGet();
         delegate.execute(reduce(items));
     }
 
@@ -73,10 +101,22 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     @Override
     public boolean isReady() {
-        return ready;
+        return inFlightBatches.get() < maxInFlightBatches;
     }
 
+    /**
+     * Signals that one of the batches handed out has been processed.
+     */
     public void ready() {
-        ready = true;
+        inFlightBatches.updateAndGet(n -> Math.max(n - 1, 0));
+    }
+
+    /**
+     * Returns the number of batches currently in process.
+     *
+     * @return number of in-flight batches
+     */
+    public int inFlightBatches() {
+        return inFlightBatches.get();
     }
 }
@@ -36,8 +36,10 @@ import org.slf4j.Logger;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -256,11 +258,22 @@ class IntentInstaller {
                 installIntents.forEach(installable ->
                                                trackerService.addTrackedResources(newInstall.key(),
                                                                                   installable.resources()));
-                prepareIntents(uninstallIntents, Direction.REMOVE);
-                prepareIntents(installIntents, Direction.ADD);
+                prepareUpdate(uninstallIntents, installIntents);
             }
         }
 
+        /**
+         * Prepares the replacement of the specified installable intents by
+         * the others.
+         *
+         * @param uninstallIntents intents to uninstall
+         * @param installIntents   intents to install
+         */
+        void prepareUpdate(List<Intent> uninstallIntents, List<Intent> installIntents) {
+            prepareIntents(uninstallIntents, Direction.REMOVE);
+            prepareIntents(installIntents, Direction.ADD);
+        }
+
         /**
          * Applies the specified intent data, if present, to the network using the
          * specified context.
@@ -349,6 +362,31 @@ class IntentInstaller {
 
         }
 
+        @Override
+        void prepareUpdate(List<Intent> uninstallIntents, List<Intent> installIntents) {
+            // Only touch the flow rules which actually changed, such as those
+            // around a repaired segment of a path, and leave the others be.
+            Map<FlowRule, FlowRule> oldRules = new HashMap<>();
+            uninstallIntents.forEach(x -> ((FlowRuleIntent) x).flowRules()
+                    .forEach(rule -> oldRules.put(rule, rule)));
+            List<FlowRule> newRules = new ArrayList<>();
+            for (Intent installIntent : installIntents) {
+                for (FlowRule rule : ((FlowRuleIntent) installIntent).flowRules()) {
+                    FlowRule oldRule = oldRules.get(rule);
+                    if (oldRule != null && oldRule.exactMatch(rule)) {
+                        oldRules.remove(rule);
+                    } else {
+                        newRules.add(rule);
+                    }
+                }
+            }
+
+            builder.newStage();
+            oldRules.values().forEach(builder::remove);
+            builder.newStage();
+            newRules.forEach(builder::add);
+        }
+
         @Override
         public Object error() {
             return flowRuleOperationsContext;
@@ -15,6 +15,9 @@
  */
 package org.onosproject.net.intent.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -23,10 +26,14 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.Tools;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
 import org.onosproject.core.IdGenerator;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.event.AbstractListenerManager;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.flow.FlowRuleService;
@@ -54,6 +61,7 @@ import org.onosproject.net.resource.ResourceService;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -67,6 +75,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.intent.IntentState.*;
 import static org.onosproject.net.intent.constraint.PartialFailureConstraint.intentAllowsPartialFailure;
@@ -83,7 +93,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 @Service
 public class IntentManager
         extends AbstractListenerManager<IntentEvent, IntentListener>
-        implements IntentService, IntentExtensionService {
+        implements IntentService, IntentExtensionService, MetricsHelper {
 
     private static final Logger log = getLogger(IntentManager.class);
 
@@ -107,6 +117,22 @@ public class IntentManager
             label = "Number of worker threads")
     private int numThreads = DEFAULT_NUM_THREADS;
 
+    private static final int DEFAULT_NUM_BATCH_LANES = 4;
+    @Property(name = "numBatchLanes",
+            intValue = DEFAULT_NUM_BATCH_LANES,
+            label = "Number of single-threaded lanes across which intent batches " +
+                    "are sharded by key; applied on activation")
+    private int numBatchLanes = DEFAULT_NUM_BATCH_LANES;
+
+    private static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 4;
+    @Property(name = "maxInFlightBatches",
+            intValue = DEFAULT_MAX_IN_FLIGHT_BATCHES,
+            label = "Maximum number of intent batches in process at a time")
+    private int maxInFlightBatches = DEFAULT_MAX_IN_FLIGHT_BATCHES;
+
+    private static final String METRICS_COMPONENT = "Intent";
+    private static final String METRICS_FEATURE_BATCH = "batch";
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected CoreService coreService;
 
@@ -131,7 +157,10 @@ public class IntentManager
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected GroupService groupService;
 
-    private ExecutorService batchExecutor;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private ExecutorService[] batchExecutors;
     private ExecutorService workerExecutor;
 
     private final IntentInstaller intentInstaller = new IntentInstaller();
@@ -143,11 +172,19 @@ public class IntentManager
     private final IntentBatchDelegate batchDelegate = new InternalBatchDelegate();
     private IdGenerator idGenerator;
 
-    private final IntentAccumulator accumulator = new IntentAccumulator(batchDelegate);
+    private IntentAccumulator accumulator;
+
+    private Timer batchTimer;
+    private Timer processTimer;
+    private Timer storeWriteTimer;
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
         configService.registerProperties(getClass());
+        if (context != null) {
+            readBatchConfiguration(context.getProperties());
+        }
+        accumulator = new IntentAccumulator(batchDelegate, maxInFlightBatches);
 
         intentInstaller.init(store, trackerService, flowRuleService, flowObjectiveService);
         if (skipReleaseResourcesOnWithdrawal) {
@@ -157,10 +194,22 @@ public class IntentManager
         }
         trackerService.setDelegate(topoDelegate);
         eventDispatcher.addSink(IntentEvent.class, listenerRegistry);
-        batchExecutor = newSingleThreadExecutor(groupedThreads("onos/intent", "batch", log));
+        batchExecutors = new ExecutorService[numBatchLanes];
+        for (int i = 0; i < numBatchLanes; i++) {
+            batchExecutors[i] = newSingleThreadExecutor(groupedThreads("onos/intent", "batch-" + i, log));
+        }
         workerExecutor = newFixedThreadPool(numThreads, groupedThreads("onos/intent", "worker-%d", log));
         idGenerator = coreService.getIdGenerator("intent-ids");
         Intent.bindIdGenerator(idGenerator);
+        batchTimer = createTimer(METRICS_COMPONENT, METRICS_FEATURE_BATCH, "processTime");
+        processTimer = createTimer(METRICS_COMPONENT, "process", "processTime");
+        storeWriteTimer = createTimer(METRICS_COMPONENT, "storeWrite", "processTime");
+        if (metricsService != null) {
+            MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature f = c.registerFeature(METRICS_FEATURE_BATCH);
+            metricsService.registerMetric(c, f, "inFlightBatches", (Gauge<Integer>) accumulator::inFlightBatches);
+            metricsService.registerMetric(c, f, "ready", (Gauge<Boolean>) accumulator::isReady);
+        }
         log.info("Started");
     }
 
@@ -175,9 +224,17 @@ public class IntentManager
         configService.unregisterProperties(getClass(), false);
         trackerService.unsetDelegate(topoDelegate);
         eventDispatcher.removeSink(IntentEvent.class);
-        batchExecutor.shutdown();
+        for (ExecutorService batchExecutor : batchExecutors) {
+            batchExecutor.shutdown();
+        }
         workerExecutor.shutdown();
         Intent.unbindIdGenerator(idGenerator);
+        if (metricsService != null) {
+            MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+            MetricsFeature f = c.registerFeature(METRICS_FEATURE_BATCH);
+            metricsService.removeMetric(c, f, "inFlightBatches");
+            metricsService.removeMetric(c, f, "ready");
+        }
         log.info("Stopped");
     }
 
@@ -214,6 +271,28 @@ public class IntentManager
             }
             logConfig("Reconfigured number of worker threads");
         }
+
+        int oldNumBatchLanes = numBatchLanes;
+        readBatchConfiguration(context.getProperties());
+        accumulator.setMaxInFlightBatches(maxInFlightBatches);
+        if (numBatchLanes != oldNumBatchLanes) {
+            log.info("Number of batch lanes set to {}; applied on activation", numBatchLanes);
+        }
+    }
+
+    // Reads the batch lanes and in-flight limit, keeping the current values
+    // if they are not configured or not positive.
+    private void readBatchConfiguration(Dictionary<?, ?> properties) {
+        Integer lanes = Tools.getIntegerProperty(properties, "numBatchLanes");
+        if (lanes != null && lanes > 0) {
+            numBatchLanes = lanes;
+        }
+        Integer inFlight = Tools.getIntegerProperty(properties, "maxInFlightBatches");
+        if (inFlight != null && inFlight > 0) {
+            maxInFlightBatches = inFlight;
+        }
+        log.info("Configured with {} batch lanes and up to {} batches in flight",
+                 numBatchLanes, maxInFlightBatches);
     }
 
     private void logConfig(String prefix) {
@@ -321,6 +400,11 @@ public class IntentManager
         return store.getPending();
     }
 
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
     // Store delegate to re-post events emitted from the store.
     private class InternalStoreDelegate implements IntentStoreDelegate {
         @Override
@@ -408,35 +492,69 @@ public class IntentManager
             log.debug("Execute {} operation(s).", operations.size());
             log.trace("Execute operations: {}", operations);
 
-            // batchExecutor is single-threaded, so only one batch is in flight at a time
-            CompletableFuture.runAsync(() -> {
-                // process intent until the phase reaches one of the final phases
-                List<CompletableFuture<IntentData>> futures = operations.stream()
-                        .map(x -> CompletableFuture.completedFuture(x)
-                                .thenApply(IntentManager.this::createInitialPhase)
-                                .thenApplyAsync(IntentProcessPhase::process, workerExecutor)
-                                .thenApply(FinalIntentProcessPhase::data)
-                                .exceptionally(e -> {
-                                    //FIXME
-                                    log.warn("Future failed: {}", e);
-                                    return null;
-                                })).collect(Collectors.toList());
-
-                // write multiple data to store in order
-                store.batchWrite(Tools.allOf(futures).join().stream()
-                                         .filter(Objects::nonNull)
-                                         .collect(Collectors.toList()));
-            }, batchExecutor).exceptionally(e -> {
-                log.error("Error submitting batches:", e);
-                // FIXME incomplete Intents should be cleaned up
-                //       (transition to FAILED, etc.)
-
-                // the batch has failed
-                // TODO: maybe we should do more?
-                log.error("Walk the plank, matey...");
-                return null;
-            }).thenRun(accumulator::ready);
+            // Operations are sharded by key across single-threaded lanes, so
+            // several batches may be in flight while those on a given intent
+            // are still processed and written to the store in order.
+            final Context batchContext = startTimer(batchTimer);
+            Map<Integer, List<IntentData>> shards = operations.stream()
+                    .collect(Collectors.groupingBy(data -> lane(data.key())));
+            List<CompletableFuture<Void>> futures = shards.entrySet().stream()
+                    .map(shard -> CompletableFuture.runAsync(() -> processShard(shard.getValue()),
+                                                             batchExecutors[shard.getKey()])
+                            .exceptionally(e -> {
+                                log.error("Error submitting batches:", e);
+                                // FIXME incomplete Intents should be cleaned up
+                                //       (transition to FAILED, etc.)
+
+                                // the batch has failed
+                                // TODO: maybe we should do more?
+                                log.error("Walk the plank, matey...");
+                                return null;
+                            }))
+                    .collect(Collectors.toList());
+
+            Tools.allOf(futures).whenComplete((result, error) -> {
+                stopTimer(batchContext);
+                accumulator.ready();
+            });
+        }
 
+        private int lane(Key key) {
+            return Math.floorMod(key.hashCode(), batchExecutors.length);
+        }
+
+        private void processShard(List<IntentData> operations) {
+            // process intent until the phase reaches one of the final phases
+            List<CompletableFuture<IntentData>> futures = operations.stream()
+                    .map(x -> CompletableFuture.completedFuture(x)
+                            .thenApply(IntentManager.this::createInitialPhase)
+                            .thenApplyAsync(this::process, workerExecutor)
+                            .thenApply(FinalIntentProcessPhase::data)
+                            .exceptionally(e -> {
+                                //FIXME
+                                log.warn("Future failed: {}", e);
+                                return null;
+                            })).collect(Collectors.toList());
+
+            // write multiple data to store in order
+            List<IntentData> results = Tools.allOf(futures).join().stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            final Context storeWriteContext = startTimer(storeWriteTimer);
+            try {
+                store.batchWrite(results);
+            } finally {
+                stopTimer(storeWriteContext);
+            }
+        }
+
+        private FinalIntentProcessPhase process(IntentProcessPhase initial) {
+            final Context processContext = startTimer(processTimer);
+            try {
+                return IntentProcessPhase.process(initial);
+            } finally {
+                stopTimer(processContext);
+            }
         }
     }
 
@@ -15,9 +15,8 @@
  */
 package org.onosproject.net.intent.impl;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -55,11 +54,16 @@ import org.onosproject.net.topology.TopologyListener;
 import org.onosproject.net.topology.TopologyService;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -67,7 +71,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Multimaps.synchronizedSetMultimap;
 import static java.util.concurrent.Executors.newScheduledThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.onlab.util.Tools.groupedThreads;
@@ -89,12 +92,9 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
     private final Logger log = getLogger(getClass());
 
-    private final SetMultimap<LinkKey, Key> intentsByLink =
-            //TODO this could be slow as a point of synchronization
-            synchronizedSetMultimap(HashMultimap.<LinkKey, Key>create());
+    private final ResourceIndex<LinkKey> intentsByLink = new ResourceIndex<>();
 
-    private final SetMultimap<ElementId, Key> intentsByDevice =
-            synchronizedSetMultimap(HashMultimap.<ElementId, Key>create());
+    private final ResourceIndex<ElementId> intentsByDevice = new ResourceIndex<>();
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
@@ -129,6 +129,10 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
     protected final AtomicBoolean updateScheduled = new AtomicBoolean(false);
 
+    // Topology events yet to be handled, in batches, by the executor
+    private final Queue<TopologyEvent> pendingTopologyEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean topologyChangeScheduled = new AtomicBoolean(false);
+
     @Activate
     public void activate() {
         topologyService.addListener(listener);
@@ -180,9 +184,9 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                     Collection<NetworkResource> resources) {
         for (NetworkResource resource : resources) {
             if (resource instanceof Link) {
-                intentsByLink.put(linkKey((Link) resource), intentKey);
+                intentsByLink.add(linkKey((Link) resource), intentKey);
             } else if (resource instanceof ElementId) {
-                intentsByDevice.put((ElementId) resource, intentKey);
+                intentsByDevice.add((ElementId) resource, intentKey);
             }
         }
     }
@@ -194,7 +198,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
             if (resource instanceof Link) {
                 intentsByLink.remove(linkKey((Link) resource), intentKey);
             } else if (resource instanceof ElementId) {
-                intentsByDevice.remove(resource, intentKey);
+                intentsByDevice.remove((ElementId) resource, intentKey);
             }
         }
     }
@@ -215,7 +219,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
         if (log.isTraceEnabled()) {
             log.trace("intent {}, old: {}, new: {}, installableCount: {}, resourceCount: {}",
                       key,
-                      intentsByDevice.values().contains(key),
+                      intentsByDevice.contains(key),
                       isLocal && isInstalled,
                       installables.size(),
                       intent.resources().size() +
@@ -247,53 +251,63 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
     private class InternalTopologyListener implements TopologyListener {
         @Override
         public void event(TopologyEvent event) {
-            executorService.execute(new TopologyChangeHandler(event));
+            pendingTopologyEvents.add(event);
+            if (topologyChangeScheduled.compareAndSet(false, true)) {
+                executorService.execute(new TopologyChangeHandler());
+            }
         }
     }
 
-    // Re-dispatcher of topology change events.
+    // Re-dispatcher of topology change events; the events which piled up
+    // while the previous batch was being handled are handled as one.
     private class TopologyChangeHandler implements Runnable {
 
-        private final TopologyEvent event;
-
-        TopologyChangeHandler(TopologyEvent event) {
-            this.event = event;
-        }
-
         @Override
         public void run() {
+            topologyChangeScheduled.set(false);
+            List<TopologyEvent> events = new ArrayList<>();
+            for (TopologyEvent event = pendingTopologyEvents.poll(); event != null;
+                    event = pendingTopologyEvents.poll()) {
+                events.add(event);
+            }
+
             // If there is no delegate, why bother? Just bail.
-            if (delegate == null) {
+            if (delegate == null || events.isEmpty()) {
                 return;
             }
 
-            if (event.reasons() == null || event.reasons().isEmpty()) {
-                delegate.triggerCompile(Collections.emptySet(), true);
-
-            } else {
-                Set<Key> intentsToRecompile = new HashSet<>();
-                boolean dontRecompileAllFailedIntents = true;
-
-                // Scan through the list of reasons and keep accruing all
-                // intents that need to be recompiled.
-                for (Event reason : event.reasons()) {
-                    if (reason instanceof LinkEvent) {
-                        LinkEvent linkEvent = (LinkEvent) reason;
-                        final LinkKey linkKey = linkKey(linkEvent.subject());
-                        synchronized (intentsByLink) {
-                            Set<Key> intentKeys = intentsByLink.get(linkKey);
-                            log.debug("recompile triggered by LinkEvent {} ({}) for {}",
-                                    linkKey, linkEvent.type(), intentKeys);
-                            intentsToRecompile.addAll(intentKeys);
-                        }
-                        dontRecompileAllFailedIntents = dontRecompileAllFailedIntents &&
-                                (linkEvent.type() == LINK_REMOVED ||
-                                (linkEvent.type() == LINK_UPDATED &&
-                                linkEvent.subject().isDurable()));
-                    }
+            Set<Key> intentsToRecompile = new HashSet<>();
+            boolean recompileAllFailedIntents = false;
+            for (TopologyEvent event : events) {
+                if (event.reasons() == null || event.reasons().isEmpty()) {
+                    recompileAllFailedIntents = true;
+                } else {
+                    recompileAllFailedIntents |= accrueIntents(event, intentsToRecompile);
                 }
-                delegate.triggerCompile(intentsToRecompile, !dontRecompileAllFailedIntents);
             }
+            delegate.triggerCompile(intentsToRecompile, recompileAllFailedIntents);
+        }
+
+        // Scans through the list of reasons and accrues all intents that need
+        // to be recompiled; returns whether all failed intents need to be
+        // recompiled as well.
+        private boolean accrueIntents(TopologyEvent event, Set<Key> intentsToRecompile) {
+            boolean dontRecompileAllFailedIntents = true;
+            for (Event reason : event.reasons()) {
+                if (reason instanceof LinkEvent) {
+                    LinkEvent linkEvent = (LinkEvent) reason;
+                    final LinkKey linkKey = linkKey(linkEvent.subject());
+                    Set<Key> intentKeys = intentsByLink.get(linkKey);
+                    log.debug("recompile triggered by LinkEvent {} ({}) for {}",
+                            linkKey, linkEvent.type(), intentKeys);
+                    intentsToRecompile.addAll(intentKeys);
+                    dontRecompileAllFailedIntents = dontRecompileAllFailedIntents &&
+                            (linkEvent.type() == LINK_REMOVED ||
+                            (linkEvent.type() == LINK_UPDATED &&
+                            linkEvent.subject().isDurable()));
+                }
+            }
+            return !dontRecompileAllFailedIntents;
         }
     }
 
@@ -336,11 +350,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
 
             // TODO should we recompile on available==true?
 
-            final ImmutableSet<Key> snapshot;
-            synchronized (intentsByDevice) {
-                snapshot = ImmutableSet.copyOf(intentsByDevice.get(id));
-            }
-            delegate.triggerCompile(snapshot, available);
+            delegate.triggerCompile(intentsByDevice.get(id), available);
         }
     }
 
@@ -424,4 +434,35 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
             scheduleIntentUpdate(1);
         }
     }
+
+    // Reverse index from resources to the keys of the intents relying on
+    // them. Updates only lock the hash bin of the resource, rather than the
+    // whole index, and lookups take no locks at all.
+    private static final class ResourceIndex<R> {
+        private final ConcurrentMap<R, Set<Key>> keys = new ConcurrentHashMap<>();
+
+        void add(R resource, Key key) {
+            keys.compute(resource, (r, set) -> {
+                Set<Key> updated = set == null ? Sets.newConcurrentHashSet() : set;
+                updated.add(key);
+                return updated;
+            });
+        }
+
+        void remove(R resource, Key key) {
+            keys.computeIfPresent(resource, (r, set) -> {
+                set.remove(key);
+                return set.isEmpty() ? null : set;
+            });
+        }
+
+        Set<Key> get(R resource) {
+            Set<Key> set = keys.get(resource);
+            return set == null ? ImmutableSet.of() : ImmutableSet.copyOf(set);
+        }
+
+        boolean contains(Key key) {
+            return keys.values().stream().anyMatch(set -> set.contains(key));
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.onosproject.net.intent.impl.compiler;
 
+import com.google.common.collect.Iterables;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -26,6 +27,7 @@ import org.onosproject.net.DeviceId;
 import org.onosproject.net.DisjointPath;
 import org.onosproject.net.EdgeLink;
 import org.onosproject.net.Link;
+import org.onosproject.net.NetworkResource;
 import org.onosproject.net.Path;
 import org.onosproject.net.Port;
 import org.onosproject.net.PortNumber;
@@ -56,13 +58,21 @@ import org.onosproject.net.intent.constraint.ProtectionConstraint;
 import org.onosproject.net.intent.impl.PathNotFoundException;
 import org.onosproject.net.link.LinkService;
 import org.onosproject.net.provider.ProviderId;
+import org.onosproject.net.topology.DefaultTopologyEdge;
+import org.onosproject.net.topology.DefaultTopologyVertex;
+import org.onosproject.net.topology.LinkWeight;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
 import static org.onosproject.net.DefaultEdgeLink.createEdgeLink;
@@ -114,7 +124,7 @@ public class PointToPointIntentCompiler
 
         // proceed with no protected paths
         if (!ProtectionConstraint.requireProtectedPath(intent)) {
-            return createUnprotectedIntent(ingressPoint, egressPoint, intent);
+            return createUnprotectedIntent(ingressPoint, egressPoint, intent, installable);
         }
 
         try {
@@ -136,10 +146,14 @@ public class PointToPointIntentCompiler
 
     private List<Intent> createUnprotectedIntent(ConnectPoint ingressPoint,
                                                  ConnectPoint egressPoint,
-                                                 PointToPointIntent intent) {
+                                                 PointToPointIntent intent,
+                                                 List<Intent> installable) {
         List<Link> links = new ArrayList<>();
-        Path path = getPath(intent, ingressPoint.deviceId(),
-                            egressPoint.deviceId());
+        Path path = repairPath(intent, installable);
+        if (path == null) {
+            path = getPath(intent, ingressPoint.deviceId(),
+                           egressPoint.deviceId());
+        }
 
         links.add(createEdgeLink(ingressPoint, true));
         links.addAll(path.links());
@@ -150,6 +164,117 @@ public class PointToPointIntentCompiler
                                        PathIntent.ProtectionType.PRIMARY));
     }
 
+    /**
+     * Repairs the path of the previously installed intent by only replacing
+     * the segment spanning the links which are no longer active, so that the
+     * flow rules along the rest of the path can be left untouched.
+     *
+     * @param intent      intent being recompiled
+     * @param installable previous installable intents; may be null
+     * @return repaired path; null if there is no broken path to repair or if
+     * the repaired path would loop or fail the intent constraints
+     */
+    private Path repairPath(PointToPointIntent intent, List<Intent> installable) {
+        if (installable == null || installable.size() != 1) {
+            return null;
+        }
+        List<Link> oldLinks = previousLinks(intent, installable.get(0));
+        if (oldLinks == null) {
+            return null;
+        }
+
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < oldLinks.size(); i++) {
+            Link link = linkService.getLink(oldLinks.get(i).src(), oldLinks.get(i).dst());
+            if (link == null || link.state() != Link.State.ACTIVE) {
+                first = first < 0 ? i : first;
+                last = i;
+            }
+        }
+        if (first < 0) {
+            return null;
+        }
+
+        Path detour;
+        try {
+            detour = getPath(intent, oldLinks.get(first).src().deviceId(),
+                             oldLinks.get(last).dst().deviceId());
+        } catch (PathNotFoundException e) {
+            return null;
+        }
+
+        List<Link> links = new ArrayList<>(oldLinks.subList(0, first));
+        links.addAll(detour.links());
+        links.addAll(oldLinks.subList(last + 1, oldLinks.size()));
+        Set<DeviceId> devices = new HashSet<>();
+        devices.add(links.get(0).src().deviceId());
+        for (Link link : links) {
+            if (!devices.add(link.dst().deviceId())) {
+                return null;
+            }
+        }
+
+        LinkWeight weight = weight(intent.constraints());
+        double cost = detour.cost();
+        for (Link link : Iterables.concat(oldLinks.subList(0, first),
+                                          oldLinks.subList(last + 1, oldLinks.size()))) {
+            cost += weight.weight(new DefaultTopologyEdge(new DefaultTopologyVertex(link.src().deviceId()),
+                                                          new DefaultTopologyVertex(link.dst().deviceId()),
+                                                          link));
+        }
+        Path path = new DefaultPath(PID, links, cost, detour.annotations());
+        return checkPath(path, intent.constraints()) ? path : null;
+    }
+
+    /**
+     * Returns the infrastructure links of the path previously compiled for
+     * the intent, from the ingress to the egress device.
+     * <p>
+     * Recompilation is handed the flow rule intents the path intent was
+     * compiled into, which only carry the path links as an unordered
+     * collection of resources; the path is then rebuilt by chaining its
+     * links from the ingress device.
+     * </p>
+     *
+     * @param intent      intent being recompiled
+     * @param installable previous installable intent
+     * @return links of the previous path; null if they do not form a single
+     * path from the ingress to the egress device
+     */
+    private List<Link> previousLinks(PointToPointIntent intent, Intent installable) {
+        DeviceId ingress = intent.ingressPoint().deviceId();
+        DeviceId egress = intent.egressPoint().deviceId();
+        if (installable instanceof PathIntent) {
+            List<Link> links = ((PathIntent) installable).path().links().stream()
+                    .filter(link -> !(link instanceof EdgeLink))
+                    .collect(Collectors.toList());
+            return links.isEmpty() || !links.get(0).src().deviceId().equals(ingress) ||
+                    !links.get(links.size() - 1).dst().deviceId().equals(egress) ? null : links;
+        }
+
+        Map<DeviceId, Link> bySource = new HashMap<>();
+        for (NetworkResource resource : installable.resources()) {
+            if (resource instanceof Link && !(resource instanceof EdgeLink)) {
+                Link link = (Link) resource;
+                if (bySource.put(link.src().deviceId(), link) != null) {
+                    return null;
+                }
+            }
+        }
+        List<Link> links = new ArrayList<>();
+        DeviceId device = ingress;
+        while (!device.equals(egress)) {
+            Link link = bySource.get(device);
+            if (link == null) {
+                return null;
+            }
+            links.add(link);
+            device = link.dst().deviceId();
+        }
+        return links.isEmpty() || links.size() != bySource.size() ? null : links;
+    }
+
     //FIXME: Compatibility with EncapsulationConstraint
     private List<Intent> createProtectedIntent(ConnectPoint ingressPoint,
                                                ConnectPoint egressPoint,
@@ -24,6 +24,8 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.DeserializationException;
+import org.onlab.packet.EthernetView;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.core.ApplicationId;
@@ -60,6 +62,8 @@ import org.onosproject.net.provider.AbstractProviderRegistry;
 import org.onosproject.net.provider.AbstractProviderService;
 import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
@@ -111,6 +115,7 @@ public class PacketManager
     private final DeviceListener deviceListener = new InternalDeviceListener();
 
     private final List<ProcessorEntry> processors = Lists.newCopyOnWriteArrayList();
+    private volatile ProcessorIndex processorIndex = new ProcessorIndex(ImmutableList.of());
 
     private final  PacketDriverProvider defaultProvider = new PacketDriverProvider();
 
@@ -147,20 +152,33 @@ public class PacketManager
     public void addProcessor(PacketProcessor processor, int priority) {
         checkPermission(PACKET_EVENT);
         checkNotNull(processor, "Processor cannot be null");
-        ProcessorEntry entry = new ProcessorEntry(processor, priority);
+        addProcessorEntry(new ProcessorEntry(processor, priority, PacketProcessorFilter.ALL));
+    }
+
+    @Override
+    public void addProcessor(PacketProcessor processor, int priority,
+                             TrafficSelector selector) {
+        checkPermission(PACKET_EVENT);
+        checkNotNull(processor, "Processor cannot be null");
+        checkNotNull(selector, "Selector cannot be null");
+        addProcessorEntry(new ProcessorEntry(processor, priority,
+                                             new PacketProcessorFilter(selector)));
+    }
 
+    private synchronized void addProcessorEntry(ProcessorEntry entry) {
         // Insert the new processor according to its priority.
         int i = 0;
         for (; i < processors.size(); i++) {
-            if (priority < processors.get(i).priority()) {
+            if (entry.priority() < processors.get(i).priority()) {
                 break;
             }
         }
         processors.add(i, entry);
+        processorIndex = new ProcessorIndex(processors);
     }
 
     @Override
-    public void removeProcessor(PacketProcessor processor) {
+    public synchronized void removeProcessor(PacketProcessor processor) {
         checkPermission(PACKET_EVENT);
         checkNotNull(processor, "Processor cannot be null");
 
@@ -171,6 +189,7 @@ public class PacketManager
                 break;
             }
         }
+        processorIndex = new ProcessorIndex(processors);
     }
 
     @Override
@@ -366,8 +385,13 @@ public class PacketManager
 
         @Override
         public void processPacket(PacketContext context) {
-            // TODO filter packets sent to processors based on registrations
-            for (ProcessorEntry entry : processors) {
+            ProcessorIndex index = processorIndex;
+            ByteBuffer raw = index.isFiltering() ? context.inPacket().unparsed() : null;
+            EthernetView eth = view(raw);
+            for (ProcessorEntry entry : index.candidates(eth)) {
+                if (eth != null && !entry.filter().matchesPayload(raw.array(), eth)) {
+                    continue;
+                }
                 try {
                     long start = System.nanoTime();
                     entry.processor().process(context);
@@ -378,6 +402,20 @@ public class PacketManager
             }
         }
 
+        // Returns a view over the raw packet header, or null if the packet
+        // cannot be inspected without parsing it.
+        private EthernetView view(ByteBuffer raw) {
+            if (raw == null || !raw.hasArray()) {
+                return null;
+            }
+            try {
+                return EthernetView.wrap(raw.array(), raw.arrayOffset() + raw.position(),
+                                         raw.remaining());
+            } catch (DeserializationException e) {
+                return null;
+            }
+        }
+
     }
 
 
@@ -439,18 +477,79 @@ public class PacketManager
         }
     }
 
+    /**
+     * Immutable snapshot of the registered processors, indexed by the
+     * ethernet type of the packets they are interested in.
+     */
+    private static final class ProcessorIndex {
+        private final ProcessorEntry[] all;
+        private final boolean filtering;
+        // sorted ethernet types filtered on, and the candidates for each
+        private final int[] ethTypes;
+        private final ProcessorEntry[][] byEthType;
+        private final ProcessorEntry[] anyEthType;
+
+        private ProcessorIndex(List<ProcessorEntry> entries) {
+            this.all = entries.toArray(new ProcessorEntry[entries.size()]);
+            this.filtering = entries.stream().anyMatch(e -> !e.filter().isWildcard());
+            this.ethTypes = entries.stream()
+                    .mapToInt(e -> e.filter().ethType())
+                    .filter(type -> type != PacketProcessorFilter.ANY)
+                    .distinct().sorted().toArray();
+            this.byEthType = new ProcessorEntry[ethTypes.length][];
+            for (int i = 0; i < ethTypes.length; i++) {
+                byEthType[i] = candidates(ethTypes[i]);
+            }
+            this.anyEthType = candidates(PacketProcessorFilter.ANY);
+        }
+
+        private ProcessorEntry[] candidates(int ethType) {
+            return Arrays.stream(all)
+                    .filter(e -> e.filter().ethType() == PacketProcessorFilter.ANY
+                            || e.filter().ethType() == ethType)
+                    .toArray(ProcessorEntry[]::new);
+        }
+
+        /**
+         * Indicates whether any processor registered a filter, in which case
+         * packets need to be inspected in order to be dispatched.
+         */
+        private boolean isFiltering() {
+            return filtering;
+        }
+
+        /**
+         * Returns, in priority order, the processors that may be interested
+         * in the given packet based on its ethernet type.
+         */
+        private ProcessorEntry[] candidates(EthernetView eth) {
+            if (eth == null) {
+                return all;
+            }
+            int i = Arrays.binarySearch(ethTypes, eth.getEtherType() & 0xffff);
+            return i >= 0 ? byEthType[i] : anyEthType;
+        }
+    }
+
     /**
      * Entity for tracking stats for a packet processor.
      */
     private class ProcessorEntry implements PacketProcessorEntry {
         private final PacketProcessor processor;
         private final int priority;
+        private final PacketProcessorFilter filter;
         private long invocations = 0;
         private long nanos = 0;
 
-        public ProcessorEntry(PacketProcessor processor, int priority) {
+        public ProcessorEntry(PacketProcessor processor, int priority,
+                              PacketProcessorFilter filter) {
             this.processor = processor;
             this.priority = priority;
+            this.filter = filter;
+        }
+
+        PacketProcessorFilter filter() {
+            return filter;
         }
 
         @Override
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.packet.impl;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.IPv6;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.criteria.Criterion;
+import org.onosproject.net.flow.criteria.EthTypeCriterion;
+import org.onosproject.net.flow.criteria.IPProtocolCriterion;
+import org.onosproject.net.flow.criteria.TcpPortCriterion;
+import org.onosproject.net.flow.criteria.UdpPortCriterion;
+
+/**
+ * Inbound packet filter derived from the selector a packet processor was
+ * registered with.
+ * <p>
+ * Only the ethernet type, IP protocol and TCP/UDP port criteria of the
+ * selector are considered; any other criterion is treated as a wildcard,
+ * so a processor may still receive packets its selector would not match.
+ * Packets are matched against their raw bytes, without being parsed.
+ * </p>
+ */
+final class PacketProcessorFilter {
+
+    /**
+     * Filter letting every packet through.
+     */
+    static final PacketProcessorFilter ALL = new PacketProcessorFilter(null);
+
+    /**
+     * Value of a criterion absent from the selector.
+     */
+    static final int ANY = -1;
+
+    private static final int IPV4_HEADER_LENGTH = 20;
+    private static final int IPV6_HEADER_LENGTH = 40;
+    private static final int EXTENSION_HEADER_LENGTH = 8;
+    private static final int PORTS_LENGTH = 4;
+
+    private final int ethType;
+    private final int ipProto;
+    private final int tcpSrc;
+    private final int tcpDst;
+    private final int udpSrc;
+    private final int udpDst;
+    private final boolean matchesL3;
+
+    /**
+     * Creates a filter from the supported criteria of the given selector.
+     *
+     * @param selector traffic selector; null to accept every packet
+     */
+    PacketProcessorFilter(TrafficSelector selector) {
+        this.ethType = value(selector, Criterion.Type.ETH_TYPE);
+        this.ipProto = value(selector, Criterion.Type.IP_PROTO);
+        this.tcpSrc = value(selector, Criterion.Type.TCP_SRC);
+        this.tcpDst = value(selector, Criterion.Type.TCP_DST);
+        this.udpSrc = value(selector, Criterion.Type.UDP_SRC);
+        this.udpDst = value(selector, Criterion.Type.UDP_DST);
+        this.matchesL3 = ipProto != ANY || tcpSrc != ANY || tcpDst != ANY
+                || udpSrc != ANY || udpDst != ANY;
+    }
+
+    /**
+     * Indicates whether this filter lets every packet through.
+     *
+     * @return true if no supported criteria were given
+     */
+    boolean isWildcard() {
+        return ethType == ANY && !matchesL3;
+    }
+
+    /**
+     * Returns the ethernet type of the packets this filter lets through.
+     *
+     * @return unsigned ethernet type; {@link #ANY} if not filtered
+     */
+    int ethType() {
+        return ethType;
+    }
+
+    /**
+     * Indicates whether the given packet, whose ethernet type is known to
+     * match, passes the IP protocol and transport port criteria.
+     * <p>
+     * IPv6 extension headers are skipped to find the transport protocol,
+     * as a switch would; non-initial fragments never match port criteria.
+     * </p>
+     *
+     * @param data array holding the packet
+     * @param eth  view over the ethernet header of the packet
+     * @return true if the packet passes this filter
+     */
+    boolean matchesPayload(byte[] data, EthernetView eth) {
+        if (!matchesL3) {
+            return true;
+        }
+        int offset = eth.payloadOffset();
+        int end = offset + eth.payloadLength();
+        int proto;
+        boolean firstFragment;
+        if (eth.getEtherType() == Ethernet.TYPE_IPV4) {
+            if (end - offset < IPV4_HEADER_LENGTH) {
+                return false;
+            }
+            proto = data[offset + 9] & 0xff;
+            firstFragment = (getShort(data, offset + 6) & 0x1fff) == 0;
+            offset += (data[offset] & 0x0f) * 4;
+        } else if (eth.getEtherType() == Ethernet.TYPE_IPV6) {
+            if (end - offset < IPV6_HEADER_LENGTH) {
+                return false;
+            }
+            proto = data[offset + 6] & 0xff;
+            firstFragment = true;
+            offset += IPV6_HEADER_LENGTH;
+            while (isExtensionHeader(proto)) {
+                if (end - offset < EXTENSION_HEADER_LENGTH) {
+                    return false;
+                }
+                int length;
+                if (proto == (IPv6.PROTOCOL_FRAG & 0xff)) {
+                    firstFragment = (getShort(data, offset + 2) & 0xfff8) == 0;
+                    length = EXTENSION_HEADER_LENGTH;
+                } else if (proto == (IPv6.PROTOCOL_AH & 0xff)) {
+                    length = ((data[offset + 1] & 0xff) + 2) * 4;
+                } else {
+                    length = ((data[offset + 1] & 0xff) + 1) * 8;
+                }
+                proto = data[offset] & 0xff;
+                offset += length;
+            }
+        } else {
+            return false;
+        }
+        if (ipProto != ANY && ipProto != proto) {
+            return false;
+        }
+        if (tcpSrc != ANY || tcpDst != ANY) {
+            return proto == IPv4.PROTOCOL_TCP
+                    && matchesPorts(data, offset, end, firstFragment, tcpSrc, tcpDst);
+        }
+        if (udpSrc != ANY || udpDst != ANY) {
+            return proto == IPv4.PROTOCOL_UDP
+                    && matchesPorts(data, offset, end, firstFragment, udpSrc, udpDst);
+        }
+        return true;
+    }
+
+    private static boolean isExtensionHeader(int proto) {
+        return proto == (IPv6.PROTOCOL_HOPOPT & 0xff)
+                || proto == (IPv6.PROTOCOL_ROUTING & 0xff)
+                || proto == (IPv6.PROTOCOL_FRAG & 0xff)
+                || proto == (IPv6.PROTOCOL_AH & 0xff)
+                || proto == (IPv6.PROTOCOL_DSTOPT & 0xff);
+    }
+
+    private static boolean matchesPorts(byte[] data, int offset, int end, boolean firstFragment,
+                                        int src, int dst) {
+        if (!firstFragment || end - offset < PORTS_LENGTH) {
+            return false;
+        }
+        return matches(src, getShort(data, offset)) && matches(dst, getShort(data, offset + 2));
+    }
+
+    private static int getShort(byte[] data, int index) {
+        return (data[index] & 0xff) << 8 | data[index + 1] & 0xff;
+    }
+
+    private static boolean matches(int expected, int actual) {
+        return expected == ANY || expected == actual;
+    }
+
+    private static int value(TrafficSelector selector, Criterion.Type type) {
+        Criterion criterion = selector == null ? null : selector.getCriterion(type);
+        if (criterion == null) {
+            return ANY;
+        }
+        switch (type) {
+            case ETH_TYPE:
+                return ((EthTypeCriterion) criterion).ethType().toShort() & 0xffff;
+            case IP_PROTO:
+                return ((IPProtocolCriterion) criterion).protocol() & 0xff;
+            case TCP_SRC:
+            case TCP_DST:
+                return ((TcpPortCriterion) criterion).tcpPort().toInt();
+            case UDP_SRC:
+            case UDP_DST:
+                return ((UdpPortCriterion) criterion).udpPort().toInt();
+            default:
+                return ANY;
+        }
+    }
+}
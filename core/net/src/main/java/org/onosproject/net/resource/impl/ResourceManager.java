@@ -40,6 +40,7 @@ import org.onosproject.net.resource.ResourceStoreDelegate;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -156,7 +157,8 @@ public final class ResourceManager extends AbstractListenerManager<ResourceEvent
         return children.stream()
                 // We access store twice in this method, then the store may be updated by others
                 .filter(store::isAvailable)
-                .collect(Collectors.toSet());
+                // keep the order of the store, which may list preferred resources first
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     @Override
@@ -168,7 +170,8 @@ public final class ResourceManager extends AbstractListenerManager<ResourceEvent
         return store.getChildResources(parent, cls).stream()
                 // We access store twice in this method, then the store may be updated by others
                 .filter(store::isAvailable)
-                .collect(Collectors.toSet());
+                // keep the order of the store, which may list preferred resources first
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     @Override
@@ -182,7 +185,7 @@ public final class ResourceManager extends AbstractListenerManager<ResourceEvent
                 .filter(store::isAvailable)
                 .map(x -> x.valueAs(cls))
                 .flatMap(Tools::stream)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     @Override
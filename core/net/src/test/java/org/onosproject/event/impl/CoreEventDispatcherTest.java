@@ -22,11 +22,18 @@ import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.EventSink;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test of the event dispatcher mechanism.
@@ -76,6 +83,64 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void postAll() throws Exception {
+        prickleSink.latch = new CountDownLatch(2);
+        gooSink.latch = new CountDownLatch(2);
+        dispatcher.postAll(Arrays.asList(new Goo("boom"), new Prickle("yo"),
+                                         new Goo("bang"), new Prickle("dude")));
+        prickleSink.latch.await(100, TimeUnit.MILLISECONDS);
+        gooSink.latch.await(100, TimeUnit.MILLISECONDS);
+        validate(prickleSink, "yo", "dude");
+        validate(gooSink, "boom", "bang");
+    }
+
+    @Test
+    public void slowSinkDoesNotStallOtherLanes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.removeSink(Goo.class);
+        dispatcher.addSink(Goo.class, event -> {
+            try {
+                release.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        prickleSink.latch = new CountDownLatch(1);
+        dispatcher.post(new Goo("slow"));
+        dispatcher.post(new Prickle("yo"));
+        assertTrue("event stalled behind slow sink",
+                   prickleSink.latch.await(500, TimeUnit.MILLISECONDS));
+        release.countDown();
+        validate(prickleSink, "yo");
+    }
+
+    @Test
+    public void partitionedEventsKeepSubjectOrder() throws Exception {
+        dispatcher.setPartitionedBySubject(Numbered.class, true);
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(400);
+        dispatcher.addSink(Numbered.class, event -> {
+            received.computeIfAbsent(event.subject(), k -> new CopyOnWriteArrayList<>())
+                    .add(event.number);
+            latch.countDown();
+        });
+
+        for (int i = 0; i < 100; i++) {
+            for (String subject : new String[]{"a", "b", "c", "d"}) {
+                dispatcher.post(new Numbered(subject, i));
+            }
+        }
+        assertTrue("events not dispatched", latch.await(1, TimeUnit.SECONDS));
+        dispatcher.removeSink(Numbered.class);
+
+        List<Integer> expected = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        for (String subject : new String[]{"a", "b", "c", "d"}) {
+            assertEquals("incorrect order", expected, received.get(subject));
+        }
+    }
+
     private void validate(Sink sink, String... strings) {
         int i = 0;
         assertEquals("incorrect event count", strings.length, sink.subjects.size());
@@ -104,6 +169,15 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class Numbered extends Thing {
+        final int number;
+
+        protected Numbered(String subject, int number) {
+            super(subject);
+            this.number = number;
+        }
+    }
+
     private static class Sink {
         final List<String> subjects = new ArrayList<>();
         CountDownLatch latch;
@@ -17,6 +17,7 @@ package org.onosproject.net.flow.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -225,8 +226,58 @@ public class FlowRuleManagerTest {
         System.err.println("events :" + listener.events);
         assertEquals("should still be 2 rules", 2, flowCount());
 
+        // fe1 is unchanged, so only fe2 is updated, as missing
         providerService.pushFlowMetrics(DID, ImmutableList.of(fe1));
-        validateEvents(RULE_UPDATED, RULE_UPDATED);
+        validateEvents(RULE_UPDATED);
+    }
+
+    /**
+     * Tests that stats replies only generate events for the rules whose
+     * statistics changed.
+     */
+    @Test
+    public void flowStatsChanged() {
+        FlowRule f1 = addFlowRule(1);
+        FlowRule f2 = addFlowRule(2);
+
+        FlowEntry fe1 = new DefaultFlowEntry(f1);
+        FlowEntry fe2 = new DefaultFlowEntry(f2);
+        providerService.pushFlowMetrics(DID, ImmutableList.of(fe1, fe2));
+        validateEvents(RULE_ADD_REQUESTED, RULE_ADD_REQUESTED,
+                       RULE_ADDED, RULE_ADDED);
+
+        providerService.pushFlowMetrics(DID, ImmutableList.of(fe1, fe2));
+        validateEvents();
+
+        FlowEntry updatedFe1 = new DefaultFlowEntry(f1, FlowEntryState.ADDED, 1, 10, 1000);
+        providerService.pushFlowMetrics(DID, ImmutableList.of(updatedFe1, fe2));
+        validateEvents(RULE_UPDATED);
+        FlowEntry stored = Iterables.find(service.getFlowEntries(DID), entry -> entry.equals(f1));
+        assertEquals("stats should be updated", 1000, stored.bytes());
+    }
+
+    /**
+     * Tests that stats replies in which only the life of the rules advanced
+     * update the stored life without generating events.
+     */
+    @Test
+    public void flowLifeAdvanced() {
+        FlowRule f1 = addFlowRule(1);
+        FlowRule f2 = addFlowRule(2);
+
+        providerService.pushFlowMetrics(DID, ImmutableList.of(new DefaultFlowEntry(f1),
+                                                              new DefaultFlowEntry(f2)));
+        validateEvents(RULE_ADD_REQUESTED, RULE_ADD_REQUESTED,
+                       RULE_ADDED, RULE_ADDED);
+
+        for (int life = 1; life <= 3; life++) {
+            providerService.pushFlowMetrics(DID, ImmutableList.of(
+                    new DefaultFlowEntry(f1, FlowEntryState.ADDED, life, 0, 0),
+                    new DefaultFlowEntry(f2, FlowEntryState.ADDED, life, 0, 0)));
+            validateEvents();
+        }
+        FlowEntry stored = Iterables.find(service.getFlowEntries(DID), entry -> entry.equals(f1));
+        assertEquals("life should be updated", 3, stored.life());
     }
 
     private boolean validateState(Map<FlowRule, FlowEntryState> expected) {
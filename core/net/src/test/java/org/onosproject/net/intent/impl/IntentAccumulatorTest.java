@@ -36,6 +36,7 @@ import com.google.common.collect.ImmutableList;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 
 /**
  * Unit tests for the intent accumulator.
@@ -156,5 +157,30 @@ public class IntentAccumulatorTest {
         accumulator.processItems(intentDataItems);
     }
 
+    /**
+     * Tests that the accumulator hands out no more batches than the
+     * configured number until one of them completes.
+     */
+    @Test
+    public void checkInFlightBatches() {
+        IntentAccumulator accumulator = new IntentAccumulator(operations -> { }, 2);
+        List<IntentData> intentDataItems = ImmutableList.of(
+                new IntentData(intent1, IntentState.INSTALLED,
+                        new MockTimestamp(1)));
 
+        assertThat(accumulator.isReady(), is(true));
+        accumulator.processItems(intentDataItems);
+        assertThat(accumulator.isReady(), is(true));
+        accumulator.processItems(intentDataItems);
+        assertThat(accumulator.isReady(), is(false));
+        assertThat(accumulator.inFlightBatches(), is(2));
+
+        accumulator.ready();
+        assertThat(accumulator.isReady(), is(true));
+        assertThat(accumulator.inFlightBatches(), is(1));
+
+        // lowering the limit holds back further batches
+        accumulator.setMaxInFlightBatches(1);
+        assertThat(accumulator.isReady(), is(false));
+    }
 }
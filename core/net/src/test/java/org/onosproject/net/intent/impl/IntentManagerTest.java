@@ -234,7 +234,7 @@ public class IntentManagerTest {
         service = manager;
         extensionService = manager;
 
-        manager.activate();
+        manager.activate(null);
         service.addListener(listener);
         extensionService.registerCompiler(MockIntent.class, compiler);
 
@@ -15,28 +15,39 @@
  */
 package org.onosproject.net.intent.impl.compiler;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.onlab.util.Bandwidth;
 import org.onosproject.TestApplicationId;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultLink;
+import org.onosproject.net.ElementId;
 import org.onosproject.net.Link;
 import org.onosproject.net.Path;
 import org.onosproject.net.flow.TrafficSelector;
 import org.onosproject.net.flow.TrafficTreatment;
 import org.onosproject.net.intent.AbstractIntentTest;
 import org.onosproject.net.intent.Constraint;
+import org.onosproject.net.intent.FlowRuleIntent;
 import org.onosproject.net.intent.Intent;
 import org.onosproject.net.intent.IntentTestsMocks;
 import org.onosproject.net.intent.PathIntent;
 import org.onosproject.net.intent.PointToPointIntent;
 import org.onosproject.net.intent.constraint.BandwidthConstraint;
 import org.onosproject.net.intent.impl.PathNotFoundException;
+import org.onosproject.net.link.LinkServiceAdapter;
 import org.onosproject.net.resource.ResourceService;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.PathServiceAdapter;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -47,7 +58,10 @@ import static org.junit.Assert.fail;
 import static org.onosproject.net.DefaultEdgeLink.createEdgeLink;
 import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.net.NetTestTools.APP_ID;
+import static org.onosproject.net.NetTestTools.PID;
 import static org.onosproject.net.NetTestTools.connectPoint;
+import static org.onosproject.net.NetTestTools.createPath;
+import static org.onosproject.net.NetTestTools.did;
 import static org.onosproject.net.PortNumber.portNumber;
 import static org.onosproject.net.intent.LinksHaveEntryWithSourceDestinationPairMatcher.linksHasPath;
 
@@ -264,4 +278,125 @@ public class PointToPointIntentCompilerTest extends AbstractIntentTest {
             assertThat(noPath.getMessage(), containsString("No path"));
         }
     }
+
+    /**
+     * Creates a compiler for which every link is active except those
+     * leaving the given device, and which only knows of the given paths.
+     *
+     * @param down  id of the device whose egress links are down
+     * @param paths paths known to the path service
+     * @return point to point compiler
+     */
+    private PointToPointIntentCompiler makeRepairCompiler(String down, Path... paths) {
+        PointToPointIntentCompiler compiler = new PointToPointIntentCompiler();
+        compiler.linkService = new LinkServiceAdapter() {
+            @Override
+            public Link getLink(ConnectPoint src, ConnectPoint dst) {
+                return src.deviceId().equals(did(down)) ? null :
+                        DefaultLink.builder().providerId(PID).src(src).dst(dst)
+                                .type(Link.Type.DIRECT).state(Link.State.ACTIVE).build();
+            }
+        };
+        compiler.pathService = new PathServiceAdapter() {
+            @Override
+            public Set<Path> getPaths(ElementId src, ElementId dst, LinkWeight weight) {
+                return Arrays.stream(paths)
+                        .filter(p -> p.src().elementId().equals(src) && p.dst().elementId().equals(dst))
+                        .collect(Collectors.toSet());
+            }
+        };
+        return compiler;
+    }
+
+    /**
+     * Compiles the intent along the given hops and returns the installables
+     * the compiled path intent would yield.
+     */
+    private List<Intent> installables(PointToPointIntent intent, String... hops) {
+        Intent compiled = makeCompiler(hops).compile(intent, null).get(0);
+        return ImmutableList.of(new FlowRuleIntent(APPID, Collections.emptyList(), compiled.resources()));
+    }
+
+    /**
+     * Tests that only the broken segment of a previously compiled path gets
+     * recomputed.
+     */
+    @Test
+    public void testPathRepair() {
+        PointToPointIntent intent = makeIntent("d1", "d5");
+        List<Intent> installable = installables(intent, "d1", "d2", "d3", "d4", "d5");
+
+        PointToPointIntentCompiler compiler = makeRepairCompiler("d2", createPath("d2", "d6", "d3"));
+        List<Intent> result = compiler.compile(intent, installable);
+        assertThat(result, hasSize(1));
+        PathIntent pathIntent = (PathIntent) result.get(0);
+        assertThat(pathIntent.path().links(), hasSize(7));
+        assertThat(pathIntent.path().links(), linksHasPath("d1", "d2"));
+        assertThat(pathIntent.path().links(), linksHasPath("d2", "d6"));
+        assertThat(pathIntent.path().links(), linksHasPath("d6", "d3"));
+        assertThat(pathIntent.path().links(), linksHasPath("d3", "d4"));
+        assertThat(pathIntent.path().links(), linksHasPath("d4", "d5"));
+    }
+
+    /**
+     * Tests that a broken multi-hop path is repaired along the previous
+     * path, whatever the order in which its links are listed as resources.
+     */
+    @Test
+    public void testMultiHopPathRepair() {
+        PointToPointIntent intent = makeIntent("d1", "d6");
+        Intent compiled = makeCompiler(new String[] {"d1", "d2", "d3", "d4", "d5", "d6"}).compile(intent, null).get(0);
+        List<Intent> installable = ImmutableList.of(new FlowRuleIntent(
+                APPID, Collections.emptyList(), Lists.reverse(ImmutableList.copyOf(compiled.resources()))));
+
+        PointToPointIntentCompiler compiler = makeRepairCompiler("d3", createPath("d3", "d7", "d8", "d4"));
+        List<Intent> result = compiler.compile(intent, installable);
+        assertThat(result, hasSize(1));
+        List<Link> links = ((PathIntent) result.get(0)).path().links();
+        assertThat(links, hasSize(9));
+        assertThat(links.subList(1, 8).stream()
+                           .map(link -> link.src().deviceId().toString() + "-" + link.dst().deviceId())
+                           .collect(Collectors.toList()),
+                   Matchers.contains("of:d1-of:d2", "of:d2-of:d3", "of:d3-of:d7", "of:d7-of:d8",
+                                     "of:d8-of:d4", "of:d4-of:d5", "of:d5-of:d6"));
+    }
+
+    /**
+     * Tests that a path intent given as previous installable is repaired
+     * along its own path.
+     */
+    @Test
+    public void testPathIntentRepair() {
+        PointToPointIntent intent = makeIntent("d1", "d5");
+        List<Intent> installable = makeCompiler(new String[] {"d1", "d2", "d3", "d4", "d5"}).compile(intent, null);
+
+        PointToPointIntentCompiler compiler = makeRepairCompiler("d4", createPath("d4", "d6", "d5"));
+        List<Intent> result = compiler.compile(intent, installable);
+        assertThat(result, hasSize(1));
+        PathIntent pathIntent = (PathIntent) result.get(0);
+        assertThat(pathIntent.path().links(), hasSize(7));
+        assertThat(pathIntent.path().links(), linksHasPath("d1", "d2"));
+        assertThat(pathIntent.path().links(), linksHasPath("d3", "d4"));
+        assertThat(pathIntent.path().links(), linksHasPath("d4", "d6"));
+        assertThat(pathIntent.path().links(), linksHasPath("d6", "d5"));
+    }
+
+    /**
+     * Tests that the whole path gets recomputed if the repaired one would
+     * loop.
+     */
+    @Test
+    public void testPathRepairLoop() {
+        PointToPointIntent intent = makeIntent("d1", "d5");
+        List<Intent> installable = installables(intent, "d1", "d2", "d3", "d4", "d5");
+
+        PointToPointIntentCompiler compiler =
+                makeRepairCompiler("d2", createPath("d2", "d4", "d3"), createPath("d1", "d7", "d5"));
+        List<Intent> result = compiler.compile(intent, installable);
+        assertThat(result, hasSize(1));
+        PathIntent pathIntent = (PathIntent) result.get(0);
+        assertThat(pathIntent.path().links(), hasSize(4));
+        assertThat(pathIntent.path().links(), linksHasPath("d1", "d7"));
+        assertThat(pathIntent.path().links(), linksHasPath("d7", "d5"));
+    }
 }
@@ -18,32 +18,55 @@ package org.onosproject.net.packet.impl;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.packet.ARP;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPacket;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.IPv6;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.TCP;
+import org.onlab.packet.TpPort;
+import org.onlab.packet.UDP;
+import org.onlab.packet.ipv6.Fragment;
+import org.onlab.packet.ipv6.HopByHopOptions;
 import org.onosproject.cluster.ClusterServiceAdapter;
 import org.onosproject.common.event.impl.TestEventDispatcher;
 import org.onosproject.core.CoreServiceAdapter;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.TestListener;
 import org.onosproject.net.AnnotationKeys;
+import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.DefaultDevice;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.device.DeviceServiceAdapter;
 import org.onosproject.net.driver.AbstractHandlerBehaviour;
 import org.onosproject.net.driver.DefaultDriver;
 import org.onosproject.net.driver.impl.DriverManager;
+import org.onosproject.net.flow.DefaultTrafficSelector;
 import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.packet.DefaultInboundPacket;
 import org.onosproject.net.packet.DefaultOutboundPacket;
+import org.onosproject.net.packet.DefaultPacketContext;
+import org.onosproject.net.packet.InboundPacket;
 import org.onosproject.net.packet.OutboundPacket;
+import org.onosproject.net.packet.PacketContext;
 import org.onosproject.net.packet.PacketProgrammable;
+import org.onosproject.net.packet.PacketProvider;
 import org.onosproject.net.packet.PacketProviderRegistry;
+import org.onosproject.net.packet.PacketProviderService;
+import org.onosproject.net.provider.AbstractProvider;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.provider.TestProvider;
 import org.onosproject.store.trivial.SimplePacketStore;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
@@ -102,6 +125,167 @@ public class PacketManagerTest {
         assertEquals("Packet not emitted correctly", packet, emittedPacket);
     }
 
+    /**
+     * Tests that packets are only dispatched to processors whose selector
+     * may match them, in priority order.
+     */
+    @Test
+    public void selectiveProcessorDispatch() {
+        List<String> invoked = Lists.newArrayList();
+        mgr.addProcessor(context -> invoked.add("all"), 3);
+        mgr.addProcessor(context -> invoked.add("arp"), 1,
+                         DefaultTrafficSelector.builder()
+                                 .matchEthType(Ethernet.TYPE_ARP).build());
+        mgr.addProcessor(context -> invoked.add("udp"), 2,
+                         DefaultTrafficSelector.builder()
+                                 .matchEthType(Ethernet.TYPE_IPV4)
+                                 .matchIPProtocol(IPv4.PROTOCOL_UDP).build());
+        mgr.addProcessor(context -> invoked.add("dhcp"), 0,
+                         DefaultTrafficSelector.builder()
+                                 .matchEthType(Ethernet.TYPE_IPV4)
+                                 .matchIPProtocol(IPv4.PROTOCOL_UDP)
+                                 .matchUdpDst(TpPort.tpPort(UDP.DHCP_SERVER_PORT)).build());
+
+        PacketProviderService providerService =
+                providerRegistry.register(new TestPacketProvider());
+
+        ARP request = new ARP();
+        request.setHardwareAddressLength((byte) 6)
+                .setProtocolAddressLength((byte) 4)
+                .setSenderHardwareAddress(new byte[6])
+                .setSenderProtocolAddress(new byte[4])
+                .setTargetHardwareAddress(new byte[6])
+                .setTargetProtocolAddress(new byte[4]);
+        Ethernet arp = new Ethernet();
+        arp.setEtherType(Ethernet.TYPE_ARP);
+        arp.setPayload(request);
+        providerService.processPacket(context(arp));
+        assertEquals(ImmutableList.of("arp", "all"), invoked);
+
+        invoked.clear();
+        UDP dhcp = new UDP();
+        dhcp.setDestinationPort(UDP.DHCP_SERVER_PORT);
+        providerService.processPacket(context(ipv4(dhcp)));
+        assertEquals(ImmutableList.of("dhcp", "udp", "all"), invoked);
+
+        invoked.clear();
+        providerService.processPacket(context(ipv4(new TCP())));
+        assertEquals(ImmutableList.of("all"), invoked);
+
+        invoked.clear();
+        providerService.processPacket(context(null));
+        assertEquals(ImmutableList.of("dhcp", "arp", "udp", "all"), invoked);
+
+        assertEquals(4, mgr.getProcessors().size());
+        assertEquals(2, mgr.getProcessors().get(0).invocations());
+        assertEquals(4, mgr.getProcessors().get(3).invocations());
+    }
+
+    /**
+     * Tests that IPv6 packets are matched on their transport header past any
+     * extension headers, and VLAN-tagged packets on their inner ethernet type.
+     */
+    @Test
+    public void ipv6AndVlanProcessorDispatch() {
+        List<String> invoked = Lists.newArrayList();
+        mgr.addProcessor(context -> invoked.add("all"), 2);
+        mgr.addProcessor(context -> invoked.add("http6"), 0,
+                         DefaultTrafficSelector.builder()
+                                 .matchEthType(Ethernet.TYPE_IPV6)
+                                 .matchIPProtocol(IPv6.PROTOCOL_TCP)
+                                 .matchTcpDst(TpPort.tpPort(80)).build());
+        mgr.addProcessor(context -> invoked.add("udp4"), 1,
+                         DefaultTrafficSelector.builder()
+                                 .matchEthType(Ethernet.TYPE_IPV4)
+                                 .matchIPProtocol(IPv4.PROTOCOL_UDP).build());
+
+        PacketProviderService providerService =
+                providerRegistry.register(new TestPacketProvider());
+
+        TCP http = new TCP();
+        http.setDestinationPort(80);
+        HopByHopOptions options = new HopByHopOptions();
+        options.setNextHeader(IPv6.PROTOCOL_TCP);
+        options.setOptions(new byte[6]);
+        options.setPayload(http);
+        providerService.processPacket(context(ipv6(IPv6.PROTOCOL_HOPOPT, options)));
+        assertEquals(ImmutableList.of("http6", "all"), invoked);
+
+        invoked.clear();
+        TCP ssh = new TCP();
+        ssh.setDestinationPort(22);
+        providerService.processPacket(context(ipv6(IPv6.PROTOCOL_TCP, ssh)));
+        assertEquals(ImmutableList.of("all"), invoked);
+
+        invoked.clear();
+        TCP tail = new TCP();
+        tail.setDestinationPort(80);
+        Fragment fragment = new Fragment();
+        fragment.setNextHeader(IPv6.PROTOCOL_TCP);
+        fragment.setFragmentOffset((short) 100);
+        fragment.setPayload(tail);
+        providerService.processPacket(context(ipv6(IPv6.PROTOCOL_FRAG, fragment)));
+        assertEquals(ImmutableList.of("all"), invoked);
+
+        invoked.clear();
+        Ethernet tagged = ipv4(new UDP());
+        tagged.setVlanID((short) 10);
+        providerService.processPacket(context(tagged));
+        assertEquals(ImmutableList.of("udp4", "all"), invoked);
+
+        invoked.clear();
+        Ethernet taggedTcp = ipv4(new TCP());
+        taggedTcp.setVlanID((short) 10);
+        providerService.processPacket(context(taggedTcp));
+        assertEquals(ImmutableList.of("all"), invoked);
+    }
+
+    private static Ethernet ipv6(byte nextHeader, IPacket payload) {
+        IPv6 ip = new IPv6();
+        ip.setNextHeader(nextHeader);
+        ip.setSourceAddress(new byte[16]);
+        ip.setDestinationAddress(new byte[16]);
+        ip.setPayload(payload);
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV6);
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    private static Ethernet ipv4(IPacket transport) {
+        IPv4 ip = new IPv4();
+        ip.setProtocol(transport instanceof TCP ? IPv4.PROTOCOL_TCP : IPv4.PROTOCOL_UDP);
+        ip.setPayload(transport);
+        Ethernet eth = new Ethernet();
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    private static PacketContext context(Ethernet eth) {
+        if (eth != null) {
+            eth.setSourceMACAddress(MacAddress.ZERO).setDestinationMACAddress(MacAddress.BROADCAST);
+        }
+        InboundPacket inPkt = new DefaultInboundPacket(
+                new ConnectPoint(FOO_DID, PortNumber.portNumber(1)), eth,
+                eth == null ? ByteBuffer.allocate(0) : ByteBuffer.wrap(eth.serialize()));
+        return new DefaultPacketContext(0, inPkt, null, false) {
+            @Override
+            public void send() {
+            }
+        };
+    }
+
+    private static class TestPacketProvider extends AbstractProvider implements PacketProvider {
+        TestPacketProvider() {
+            super(FOO_PID);
+        }
+
+        @Override
+        public void emit(OutboundPacket packet) {
+        }
+    }
+
     private static class TestDeviceService extends DeviceServiceAdapter {
         @Override
         public int getDeviceCount() {
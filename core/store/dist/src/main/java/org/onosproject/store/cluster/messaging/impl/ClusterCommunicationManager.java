@@ -212,6 +212,12 @@ public class ClusterCommunicationManager
         messagingService.unregisterHandler(subject.value());
     }
 
+    @Override
+    public void setBulkSubject(MessageSubject subject, boolean bulk) {
+        checkPermission(CLUSTER_WRITE);
+        messagingService.setBulkType(subject.value(), bulk);
+    }
+
     @Override
     public <M, R> void addSubscriber(MessageSubject subject,
             Function<byte[], M> decoder,
@@ -20,6 +20,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import io.netty.bootstrap.Bootstrap;
@@ -69,9 +70,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.KeyStore;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -100,6 +105,15 @@ public class NettyMessagingManager implements MessagingService {
 
     private static final String REPLY_MESSAGE_TYPE = "NETTY_MESSAGING_REQUEST_REPLY";
 
+    // channels opened to each peer; the first one carries bulk traffic
+    static final int CHANNELS_PER_ENDPOINT = 4;
+    private static final int BULK_CHANNEL = 0;
+
+    // messages written to a channel before flushing it mid-batch
+    private static final int FLUSH_THRESHOLD_BYTES = 64 * 1024;
+    // messages written to a channel per event loop task
+    private static final int MAX_BATCH_SIZE = 1024;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected HybridLogicalClockService clockService;
 
@@ -107,6 +121,8 @@ public class NettyMessagingManager implements MessagingService {
     private int preamble;
     private final AtomicBoolean started = new AtomicBoolean(false);
     private final Map<String, Consumer<InternalMessage>> handlers = new ConcurrentHashMap<>();
+    // types of bulk transfers, kept apart from latency-sensitive traffic
+    private final Set<String> bulkTypes = Sets.newConcurrentHashSet();
     private final AtomicLong messageIdGenerator = new AtomicLong(0);
     private final Cache<Long, Callback> callbacks = CacheBuilder.newBuilder()
             .expireAfterWrite(REPLY_TIME_OUT_MILLIS, TimeUnit.MILLISECONDS)
@@ -120,7 +136,7 @@ public class NettyMessagingManager implements MessagingService {
             })
             .build();
 
-    private final GenericKeyedObjectPool<Endpoint, Connection> channels
+    private final GenericKeyedObjectPool<ChannelKey, Connection> channels
             = new GenericKeyedObjectPool<>(new OnosCommunicationChannelFactory());
 
     private EventLoopGroup serverGroup;
@@ -231,6 +247,19 @@ public class NettyMessagingManager implements MessagingService {
     }
 
     protected CompletableFuture<Void> sendAsync(Endpoint ep, InternalMessage message) {
+        return sendAsync(ep, message, message.type());
+    }
+
+    /**
+     * Sends a message on the channel to the given endpoint that carries the
+     * given subject.
+     *
+     * @param ep      destination endpoint
+     * @param message message to send
+     * @param subject subject selecting the channel
+     * @return future completed once the message is written out
+     */
+    private CompletableFuture<Void> sendAsync(Endpoint ep, InternalMessage message, String subject) {
         checkPermission(CLUSTER_WRITE);
         if (ep.equals(localEp)) {
             try {
@@ -243,13 +272,14 @@ public class NettyMessagingManager implements MessagingService {
 
         CompletableFuture<Void> future = new CompletableFuture<>();
         try {
+            ChannelKey key = new ChannelKey(ep, channelIndex(subject));
             Connection connection = null;
             try {
-                connection = channels.borrowObject(ep);
+                connection = channels.borrowObject(key);
                 connection.send(message, future);
             } finally {
                 if (connection != null) {
-                    channels.returnObject(ep, connection);
+                    channels.returnObject(key, connection);
                 }
             }
         } catch (Exception e) {
@@ -349,23 +379,50 @@ public class NettyMessagingManager implements MessagingService {
         });
     }
 
+    @Override
+    public void setBulkType(String type, boolean bulk) {
+        checkPermission(CLUSTER_WRITE);
+        if (bulk) {
+            bulkTypes.add(type);
+        } else {
+            bulkTypes.remove(type);
+        }
+    }
+
+    /**
+     * Returns the index of the channel to a peer that carries messages of
+     * the given subject. Bulk transfers get a channel of their own, so they
+     * cannot hold up latency-sensitive traffic, and other subjects are spread
+     * over the remaining channels.
+     *
+     * @param subject message subject
+     * @return channel index
+     */
+    int channelIndex(String subject) {
+        if (bulkTypes.contains(subject)) {
+            return BULK_CHANNEL;
+        }
+        return 1 + Math.floorMod(subject.hashCode(), CHANNELS_PER_ENDPOINT - 1);
+    }
+
     private class OnosCommunicationChannelFactory
-            implements KeyedPoolableObjectFactory<Endpoint, Connection> {
+            implements KeyedPoolableObjectFactory<ChannelKey, Connection> {
 
         @Override
-        public void activateObject(Endpoint endpoint,  Connection connection)
+        public void activateObject(ChannelKey key,  Connection connection)
                 throws Exception {
         }
 
         @Override
-        public void destroyObject(Endpoint ep, Connection connection) throws Exception {
-            log.debug("Closing connection to {}", ep);
+        public void destroyObject(ChannelKey key, Connection connection) throws Exception {
+            log.debug("Closing connection to {}", key.endpoint);
             //Is this the right way to destroy?
             connection.destroy();
         }
 
         @Override
-        public Connection makeObject(Endpoint ep) throws Exception {
+        public Connection makeObject(ChannelKey key) throws Exception {
+            Endpoint ep = key.endpoint;
             Bootstrap bootstrap = new Bootstrap();
             bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
             bootstrap.option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, 10 * 64 * 1024);
@@ -398,12 +455,12 @@ public class NettyMessagingManager implements MessagingService {
         }
 
         @Override
-        public void passivateObject(Endpoint ep, Connection connection)
+        public void passivateObject(ChannelKey key, Connection connection)
                 throws Exception {
         }
 
         @Override
-        public boolean validateObject(Endpoint ep, Connection connection) {
+        public boolean validateObject(ChannelKey key, Connection connection) {
             return connection.validate();
         }
     }
@@ -574,7 +631,8 @@ public class NettyMessagingManager implements MessagingService {
                 REPLY_MESSAGE_TYPE,
                 responsePayload.orElse(new byte[0]),
                 status);
-        sendAsync(message.sender(), response).whenComplete((result, error) -> {
+        // replies travel on the channel of their request
+        sendAsync(message.sender(), response, message.type()).whenComplete((result, error) -> {
             if (error != null) {
                 log.debug("Failed to respond", error);
             }
@@ -598,8 +656,54 @@ public class NettyMessagingManager implements MessagingService {
             executor.execute(() -> future.completeExceptionally(error));
         }
     }
+
+    /**
+     * Identifies one of the channels to a peer.
+     */
+    private static final class ChannelKey {
+        private final Endpoint endpoint;
+        private final int index;
+
+        private ChannelKey(Endpoint endpoint, int index) {
+            this.endpoint = endpoint;
+            this.index = index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, index);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ChannelKey)) {
+                return false;
+            }
+            ChannelKey that = (ChannelKey) obj;
+            return this.index == that.index && Objects.equals(this.endpoint, that.endpoint);
+        }
+    }
+
+    /**
+     * Message waiting to be written out on a channel.
+     */
+    private static final class OutboundMessage {
+        private final InternalMessage message;
+        private final CompletableFuture<Void> future;
+
+        private OutboundMessage(InternalMessage message, CompletableFuture<Void> future) {
+            this.message = message;
+            this.future = future;
+        }
+    }
+
     private final class Connection {
         private final CompletableFuture<Channel> internalFuture;
+        private final Queue<OutboundMessage> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
 
         public Connection(CompletableFuture<Channel> internalFuture) {
             this.internalFuture = internalFuture;
@@ -608,24 +712,58 @@ public class NettyMessagingManager implements MessagingService {
         /**
          * Sends a message out on its channel and associated the message with a
          * completable future used for signaling.
+         * <p>
+         * Messages are queued and written out by the event loop of the
+         * channel, which flushes them together once per task rather than
+         * one system call per message.
+         * </p>
          * @param message the message to be sent
          * @param future a future that is completed normally or exceptionally if
          *               message sending succeeds or fails respectively
          */
-        public void send(Object message, CompletableFuture<Void> future) {
-            internalFuture.whenComplete((channel, throwable) -> {
-                if (throwable == null) {
-                    channel.writeAndFlush(message).addListener(channelFuture -> {
-                        if (!channelFuture.isSuccess()) {
-                            future.completeExceptionally(channelFuture.cause());
-                        } else {
-                            future.complete(null);
+        public void send(InternalMessage message, CompletableFuture<Void> future) {
+            outbound.add(new OutboundMessage(message, future));
+            if (drainScheduled.compareAndSet(false, true)) {
+                internalFuture.whenComplete((channel, throwable) -> {
+                    if (throwable == null) {
+                        channel.eventLoop().execute(() -> drain(channel));
+                    } else {
+                        drainScheduled.set(false);
+                        OutboundMessage pending;
+                        while ((pending = outbound.poll()) != null) {
+                            pending.future.completeExceptionally(throwable);
                         }
-                    });
-                } else {
-                    future.completeExceptionally(throwable);
+                    }
+                });
+            }
+        }
+
+        private void drain(Channel channel) {
+            drainScheduled.set(false);
+            int bytes = 0;
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                OutboundMessage pending = outbound.poll();
+                if (pending == null) {
+                    break;
                 }
-            });
+                CompletableFuture<Void> future = pending.future;
+                channel.write(pending.message).addListener(channelFuture -> {
+                    if (!channelFuture.isSuccess()) {
+                        future.completeExceptionally(channelFuture.cause());
+                    } else {
+                        future.complete(null);
+                    }
+                });
+                bytes += pending.message.payload().length;
+                if (bytes >= FLUSH_THRESHOLD_BYTES) {
+                    channel.flush();
+                    bytes = 0;
+                }
+            }
+            channel.flush();
+            if (!outbound.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+                channel.eventLoop().execute(() -> drain(channel));
+            }
         }
 
         /**
@@ -44,6 +44,7 @@ import org.onosproject.net.flow.CompletedBatchOperation;
 import org.onosproject.net.flow.DefaultFlowEntry;
 import org.onosproject.net.flow.FlowEntry;
 import org.onosproject.net.flow.FlowEntry.FlowEntryState;
+import org.onosproject.net.flow.FlowEntryReconciliation;
 import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleBatchEntry;
@@ -91,6 +92,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
  import static com.google.common.base.Strings.isNullOrEmpty;
@@ -336,6 +338,7 @@ public class DistributedFlowRuleStore
                 REMOVE_FLOW_ENTRY, serializer::decode, this::removeFlowRuleInternal, serializer::encode, executor);
         clusterCommunicator.addSubscriber(
                 FLOW_TABLE_BACKUP, serializer::decode, flowTable::onBackupReceipt, serializer::encode, executor);
+        clusterCommunicator.setBulkSubject(FLOW_TABLE_BACKUP, true);
     }
 
     private void unregisterMessageHandlers() {
@@ -345,6 +348,7 @@ public class DistributedFlowRuleStore
         clusterCommunicator.removeSubscriber(APPLY_BATCH_FLOWS);
         clusterCommunicator.removeSubscriber(REMOTE_APPLY_COMPLETED);
         clusterCommunicator.removeSubscriber(FLOW_TABLE_BACKUP);
+        clusterCommunicator.setBulkSubject(FLOW_TABLE_BACKUP, false);
     }
 
     private void logConfig(String prefix) {
@@ -561,16 +565,7 @@ public class DistributedFlowRuleStore
         // check if this new rule is an update to an existing entry
         StoredFlowEntry stored = flowTable.getFlowEntry(rule);
         if (stored != null) {
-            //FIXME modification of "stored" flow entry outside of flow table
-            stored.setBytes(rule.bytes());
-            stored.setLife(rule.life(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
-            stored.setPackets(rule.packets());
-            stored.setLastSeen();
-            if (stored.state() == FlowEntryState.PENDING_ADD) {
-                stored.setState(FlowEntryState.ADDED);
-                return new FlowRuleEvent(Type.RULE_ADDED, rule);
-            }
-            return new FlowRuleEvent(Type.RULE_UPDATED, rule);
+            return updateStoredFlowEntry(stored, rule, true);
         }
 
         // TODO: Confirm if this behavior is correct. See SimpleFlowRuleStore
@@ -579,6 +574,37 @@ public class DistributedFlowRuleStore
         return null;
     }
 
+    // Merges the statistics of the given rule into the stored entry; unless
+    // forced, an update event is only generated if they actually changed.
+    private FlowRuleEvent updateStoredFlowEntry(StoredFlowEntry stored, FlowEntry rule,
+                                                boolean forceUpdateEvent) {
+        // the life of a rule grows with every poll, so it is updated
+        // without making the rule count as changed
+        boolean changed = stored.bytes() != rule.bytes() ||
+                stored.packets() != rule.packets();
+        //FIXME modification of "stored" flow entry outside of flow table
+        stored.setBytes(rule.bytes());
+        stored.setLife(rule.life(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        stored.setPackets(rule.packets());
+        stored.setLastSeen();
+        if (stored.state() == FlowEntryState.PENDING_ADD) {
+            stored.setState(FlowEntryState.ADDED);
+            return new FlowRuleEvent(Type.RULE_ADDED, rule);
+        }
+        return changed || forceUpdateEvent ? new FlowRuleEvent(Type.RULE_UPDATED, rule) : null;
+    }
+
+    @Override
+    public FlowEntryReconciliation reconcileFlowEntries(DeviceId deviceId,
+                                                        Iterable<FlowEntry> flowEntries,
+                                                        BiPredicate<FlowEntry, FlowEntry> liveness) {
+        NodeId master = mastershipService.getMasterFor(deviceId);
+        if (!Objects.equals(local, master)) {
+            return FlowRuleStore.super.reconcileFlowEntries(deviceId, flowEntries, liveness);
+        }
+        return flowTable.reconcile(deviceId, flowEntries, liveness);
+    }
+
     @Override
     public FlowRuleEvent removeFlowRule(FlowEntry rule) {
         final DeviceId deviceId = rule.deviceId();
@@ -841,6 +867,39 @@ public class DistributedFlowRuleStore
             flowEntries.remove(deviceId);
         }
 
+        // Walks the reported entries, looking each one up in the device
+        // table rather than in a copy of it, then the table itself for the
+        // stored entries which were not reported.
+        public FlowEntryReconciliation reconcile(DeviceId deviceId,
+                                                 Iterable<FlowEntry> reported,
+                                                 BiPredicate<FlowEntry, FlowEntry> liveness) {
+            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table = getFlowTable(deviceId);
+            Set<StoredFlowEntry> matched = Sets.newIdentityHashSet();
+            FlowEntryReconciliation.Builder builder = FlowEntryReconciliation.builder();
+            for (FlowEntry rule : reported) {
+                Map<StoredFlowEntry, StoredFlowEntry> entries = table.get(rule.id());
+                StoredFlowEntry stored = entries != null ? entries.get(rule) : null;
+                if (stored == null || !matched.add(stored)) {
+                    builder.addExtraneousEntry(rule);
+                } else if (!stored.exactMatch(rule)) {
+                    builder.addMismatchedEntry(rule, stored);
+                } else if (!liveness.test(rule, stored)) {
+                    builder.addExpiredEntry(rule);
+                } else {
+                    FlowRuleEvent event = updateStoredFlowEntry(stored, rule, false);
+                    if (event != null) {
+                        builder.addEvent(event);
+                    }
+                }
+            }
+            table.values().forEach(entries -> entries.values().forEach(stored -> {
+                if (!matched.contains(stored)) {
+                    builder.addMissingEntry(stored);
+                }
+            }));
+            return builder.build();
+        }
+
         private List<NodeId> getBackupNodes(DeviceId deviceId) {
             // The returned backup node list is in the order of preference i.e. next likely master first.
             List<NodeId> allPossibleBackupNodes = replicaInfoManager.getReplicaInfoFor(deviceId).backups();
@@ -15,10 +15,14 @@
  */
 package org.onosproject.store.group.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -27,12 +31,16 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.KryoNamespace;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.core.DefaultGroupId;
 import org.onosproject.core.GroupId;
+import org.onosproject.core.MetricsHelper;
 import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.MastershipRole;
@@ -74,6 +82,7 @@ import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -81,14 +90,18 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.metrics.MetricsUtil.startTimer;
+import static org.onlab.metrics.MetricsUtil.stopTimer;
 import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -101,7 +114,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 @Service
 public class DistributedGroupStore
         extends AbstractStore<GroupEvent, GroupStoreDelegate>
-        implements GroupStore {
+        implements GroupStore, MetricsHelper {
 
     private final Logger log = getLogger(getClass());
 
@@ -126,6 +139,9 @@ public class DistributedGroupStore
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ComponentConfigService cfgService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     // Per device group table with (device id + app cookie) as key
     private ConsistentMap<GroupStoreKeyMapKey,
             StoredGroupEntry> groupStoreEntriesByKey = null;
@@ -138,9 +154,13 @@ public class DistributedGroupStore
             mapListener = new GroupStoreKeyMapListener();
     private final ConcurrentMap<DeviceId, ConcurrentMap<GroupId, Group>>
             extraneousGroupEntriesById = new ConcurrentHashMap<>();
-    private ExecutorService messageHandlingExecutor;
-    private static final int MESSAGE_HANDLER_THREAD_POOL_SIZE = 1;
-    private final HashMap<DeviceId, Boolean> deviceAuditStatus = new HashMap<>();
+    // Remote group operations are sharded by device across single-threaded
+    // handlers, so that those on a given device are processed in order.
+    private static final int MESSAGE_HANDLER_THREAD_POOL_SIZE = 8;
+    private static final String METRICS_COMPONENT = "GroupStore";
+    private MessageShard[] messageShards;
+    private final ConcurrentMap<DeviceId, Boolean> deviceAuditStatus = new ConcurrentHashMap<>();
+    private final ConcurrentMap<DeviceId, Object> deviceAuditLocks = new ConcurrentHashMap<>();
 
     private final AtomicInteger groupIdGen = new AtomicInteger();
 
@@ -183,16 +203,17 @@ public class DistributedGroupStore
         clusterMsgSerializer = kryoBuilder.build("GroupStore");
         Serializer serializer = Serializer.using(clusterMsgSerializer);
 
-        messageHandlingExecutor = Executors.
-                newFixedThreadPool(MESSAGE_HANDLER_THREAD_POOL_SIZE,
-                                   groupedThreads("onos/store/group",
-                                                  "message-handlers",
-                                                  log));
+        messageShards = new MessageShard[MESSAGE_HANDLER_THREAD_POOL_SIZE];
+        for (int i = 0; i < messageShards.length; i++) {
+            messageShards[i] = new MessageShard(i);
+        }
 
+        // messages are only decoded on the messaging thread and then handed
+        // over to the shard of their device
         clusterCommunicator.addSubscriber(GroupStoreMessageSubjects.REMOTE_GROUP_OP_REQUEST,
                                           clusterMsgSerializer::deserialize,
-                                          this::process,
-                                          messageHandlingExecutor);
+                                          this::dispatch,
+                                          MoreExecutors.directExecutor());
 
         log.debug("Creating Consistent map onos-group-store-keymap");
 
@@ -224,6 +245,9 @@ public class DistributedGroupStore
         groupStoreEntriesByKey.removeListener(mapListener);
         cfgService.unregisterProperties(getClass(), false);
         clusterCommunicator.removeSubscriber(GroupStoreMessageSubjects.REMOTE_GROUP_OP_REQUEST);
+        for (MessageShard shard : messageShards) {
+            shard.stop();
+        }
         log.info("Stopped");
     }
 
@@ -931,7 +955,7 @@ public class DistributedGroupStore
     @Override
     public void deviceInitialAuditCompleted(DeviceId deviceId,
                                             boolean completed) {
-        synchronized (deviceAuditStatus) {
+        synchronized (deviceAuditLocks.computeIfAbsent(deviceId, k -> new Object())) {
             if (completed) {
                 log.debug("AUDIT completed for device {}",
                           deviceId);
@@ -969,10 +993,8 @@ public class DistributedGroupStore
 
     @Override
     public boolean deviceInitialAuditStatus(DeviceId deviceId) {
-        synchronized (deviceAuditStatus) {
-            Boolean audited = deviceAuditStatus.get(deviceId);
-            return audited != null && audited;
-        }
+        Boolean audited = deviceAuditStatus.get(deviceId);
+        return audited != null && audited;
     }
 
     @Override
@@ -1133,6 +1155,53 @@ public class DistributedGroupStore
         }
     }
 
+    private void dispatch(GroupStoreMessage groupOp) {
+        messageShards[Math.floorMod(groupOp.deviceId().hashCode(), messageShards.length)].submit(groupOp);
+    }
+
+    /**
+     * Coalesces the bucket updates of a group which are queued right behind
+     * each other, that is with no other operation on the same device in
+     * between, into a single update. Operations on a device thus keep their
+     * order, and the remaining operations are left as they are.
+     *
+     * @param groupOps remote group operations, in the order of arrival
+     * @return group operations to process
+     */
+    static List<GroupStoreMessage> coalesce(List<GroupStoreMessage> groupOps) {
+        List<GroupStoreMessage> result = new ArrayList<>(groupOps.size());
+        // position in the result of the last operation on each device
+        Map<DeviceId, Integer> lastOps = new HashMap<>();
+        for (GroupStoreMessage groupOp : groupOps) {
+            Integer last = lastOps.get(groupOp.deviceId());
+            if (groupOp.type() == GroupStoreMessage.Type.UPDATE && last != null &&
+                    isMergeable(result.get(last), groupOp)) {
+                result.set(last, merge(result.get(last), groupOp));
+                continue;
+            }
+            result.add(groupOp);
+            lastOps.put(groupOp.deviceId(), result.size() - 1);
+        }
+        return result;
+    }
+
+    private static boolean isMergeable(GroupStoreMessage first, GroupStoreMessage second) {
+        return first.type() == GroupStoreMessage.Type.UPDATE &&
+                Objects.equals(first.appCookie(), second.appCookie()) &&
+                first.newAppCookie() == null && second.newAppCookie() == null &&
+                first.updateType() == second.updateType();
+    }
+
+    private static GroupStoreMessage merge(GroupStoreMessage first, GroupStoreMessage second) {
+        Set<GroupBucket> buckets = new LinkedHashSet<>(first.updateBuckets().buckets());
+        buckets.addAll(second.updateBuckets().buckets());
+        return GroupStoreMessage.createGroupUpdateRequestMsg(first.deviceId(),
+                                                             first.appCookie(),
+                                                             first.updateType(),
+                                                             new GroupBuckets(new ArrayList<>(buckets)),
+                                                             null);
+    }
+
     private void process(GroupStoreMessage groupOp) {
         log.debug("Received remote group operation {} request for device {}",
                   groupOp.type(),
@@ -1155,6 +1224,67 @@ public class DistributedGroupStore
         }
     }
 
+    @Override
+    public MetricsService metricsService() {
+        return metricsService;
+    }
+
+    /**
+     * Single-threaded handler of the remote group operations on a share of
+     * the devices. Operations queued up while the handler is busy are
+     * processed as a batch, with the bucket updates of a group coalesced.
+     */
+    private final class MessageShard {
+        private final String feature;
+        private final ExecutorService executor;
+        private final BlockingQueue<GroupStoreMessage> queue = new LinkedBlockingQueue<>();
+        private final Timer processTimer;
+
+        MessageShard(int index) {
+            feature = "message-handler-" + index;
+            executor = newSingleThreadExecutor(groupedThreads("onos/store/group", feature, log));
+            processTimer = createTimer(METRICS_COMPONENT, feature, "processTime");
+            if (metricsService != null) {
+                MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+                MetricsFeature f = c.registerFeature(feature);
+                metricsService.registerMetric(c, f, "queueDepth", (Gauge<Integer>) queue::size);
+            }
+        }
+
+        void submit(GroupStoreMessage groupOp) {
+            queue.add(groupOp);
+            executor.execute(this::drain);
+        }
+
+        void stop() {
+            executor.shutdown();
+            if (metricsService != null) {
+                MetricsComponent c = metricsService.registerComponent(METRICS_COMPONENT);
+                metricsService.removeMetric(c, c.registerFeature(feature), "queueDepth");
+            }
+        }
+
+        private void drain() {
+            List<GroupStoreMessage> groupOps = new ArrayList<>();
+            queue.drainTo(groupOps);
+            if (groupOps.isEmpty()) {
+                // already handled by an earlier run
+                return;
+            }
+            for (GroupStoreMessage groupOp : coalesce(groupOps)) {
+                Context context = startTimer(processTimer);
+                try {
+                    process(groupOp);
+                } catch (Exception e) {
+                    log.warn("Failed to process remote group operation {} for device {}",
+                             groupOp.type(), groupOp.deviceId(), e);
+                } finally {
+                    stopTimer(context);
+                }
+            }
+        }
+    }
+
     /**
      * Flattened map key to be used to store group entries.
      */
@@ -107,4 +107,18 @@ class ConsistentDiscreteResourceSubStore {
                 .map(Map.Entry::getKey)
                 .map(x -> Resources.discrete(x).resource());
     }
+
+    // allocates the resource outside of any transaction: O(1)
+    boolean allocate(ResourceConsumerId consumerId, DiscreteResource resource) {
+        return consumers.putIfAbsent(resource.id(), consumerId) == null;
+    }
+
+    // releases the resource outside of any transaction: O(1)
+    boolean release(DiscreteResource resource, ResourceConsumerId consumerId) {
+        return consumers.remove(resource.id(), consumerId);
+    }
+
+    boolean isAllocated(DiscreteResourceId id) {
+        return consumers.containsKey(id);
+    }
 }
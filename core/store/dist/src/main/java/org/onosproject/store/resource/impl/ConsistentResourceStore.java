@@ -17,13 +17,22 @@ package org.onosproject.store.resource.impl;
 
 import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onlab.util.KryoNamespace;
 import org.onlab.util.Tools;
+import org.onosproject.cfg.ComponentConfigService;
+import org.onosproject.cluster.ClusterEvent;
+import org.onosproject.cluster.ClusterEventListener;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.net.resource.ContinuousResource;
 import org.onosproject.net.resource.ContinuousResourceId;
 import org.onosproject.net.resource.DiscreteResource;
@@ -38,26 +47,35 @@ import org.onosproject.net.resource.ResourceStore;
 import org.onosproject.net.resource.ResourceStoreDelegate;
 import org.onosproject.net.resource.Resources;
 import org.onosproject.store.AbstractStore;
+import org.onosproject.store.resource.impl.DiscreteResourceLeases.Pool;
 import org.onosproject.store.serializers.KryoNamespaces;
 import org.onosproject.store.service.CommitStatus;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageService;
 import org.onosproject.store.service.TransactionContext;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.util.Tools.get;
+import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.resource.ResourceEvent.Type.RESOURCE_ADDED;
 import static org.onosproject.net.resource.ResourceEvent.Type.RESOURCE_REMOVED;
 
@@ -84,20 +102,108 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
             .register(MplsLabelCodec.class)
             .build());
 
+    private static final boolean DEFAULT_LEASING_ENABLED = false;
+    private static final int DEFAULT_LEASE_BLOCK_SIZE = 64;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected StorageService service;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService configService;
+
+    @Property(name = "leasingEnabled", boolValue = DEFAULT_LEASING_ENABLED,
+            label = "Indicates whether nodes lease blocks of discrete resources and serve " +
+                    "allocations from them without a transaction")
+    private boolean leasingEnabled = DEFAULT_LEASING_ENABLED;
+
+    @Property(name = "leaseBlockSize", intValue = DEFAULT_LEASE_BLOCK_SIZE,
+            label = "Number of discrete resources of a type under a parent leased at once")
+    private int leaseBlockSize = DEFAULT_LEASE_BLOCK_SIZE;
+
     private ConsistentDiscreteResourceSubStore discreteStore;
     private ConsistentContinuousResourceSubStore continuousStore;
 
+    private NodeId localNodeId;
+    private volatile DiscreteResourceLeases leases;
+    private final Set<Pool> pendingLeases = Sets.newConcurrentHashSet();
+    private ExecutorService leaseExecutor;
+    private final ClusterEventListener clusterListener = new InternalClusterListener();
+
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        configService.registerProperties(getClass());
         discreteStore = new ConsistentDiscreteResourceSubStore(service);
         continuousStore = new ConsistentContinuousResourceSubStore(service);
 
+        localNodeId = clusterService.getLocalNode().id();
+        leaseExecutor = newSingleThreadExecutor(groupedThreads("onos/store/resource", "leases", log));
+        clusterService.addListener(clusterListener);
+        modified(context);
+
         log.info("Started");
     }
 
+    @Deactivate
+    public void deactivate() {
+        clusterService.removeListener(clusterListener);
+        configService.unregisterProperties(getClass(), false);
+        disableLeasing();
+        leaseExecutor.shutdown();
+
+        log.info("Stopped");
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+
+        Dictionary properties = context.getProperties();
+        boolean newLeasingEnabled;
+        int newLeaseBlockSize;
+        try {
+            String s = get(properties, "leasingEnabled");
+            newLeasingEnabled = isNullOrEmpty(s) ? leasingEnabled : Boolean.parseBoolean(s.trim());
+
+            s = get(properties, "leaseBlockSize");
+            newLeaseBlockSize = isNullOrEmpty(s) ? leaseBlockSize : Integer.parseInt(s.trim());
+        } catch (NumberFormatException | ClassCastException e) {
+            newLeasingEnabled = DEFAULT_LEASING_ENABLED;
+            newLeaseBlockSize = DEFAULT_LEASE_BLOCK_SIZE;
+        }
+
+        leaseBlockSize = Math.max(newLeaseBlockSize, 1);
+        if (newLeasingEnabled != leasingEnabled) {
+            leasingEnabled = newLeasingEnabled;
+            if (leasingEnabled) {
+                enableLeasing();
+            } else {
+                disableLeasing();
+            }
+        }
+        log.info("Configured. Leasing is {}, lease block size is {}",
+                 leasingEnabled ? "enabled" : "disabled", leaseBlockSize);
+    }
+
+    private void enableLeasing() {
+        DiscreteResourceLeases newLeases = new DiscreteResourceLeases(service, localNodeId);
+        newLeases.recover(discreteStore::isAllocated);
+        leases = newLeases;
+    }
+
+    private void disableLeasing() {
+        DiscreteResourceLeases oldLeases = leases;
+        leases = null;
+        if (oldLeases != null) {
+            oldLeases.close();
+        }
+    }
+
     // Computational complexity: O(1) if the resource is discrete type.
     // O(n) if the resource is continuous type where n is the number of the existing allocations for the resource
     @Override
@@ -208,6 +314,12 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
         checkNotNull(resources);
         checkNotNull(consumer);
 
+        DiscreteResourceLeases leases = this.leases;
+        List<DiscreteResource> discreteResources = discreteResources(resources);
+        if (leases != null && discreteResources.size() == resources.size() && leases.take(discreteResources)) {
+            return allocateLeased(leases, discreteResources, consumer.consumerId());
+        }
+
         TransactionContext tx = service.transactionContextBuilder().build();
         tx.begin();
 
@@ -215,6 +327,10 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
         TransactionalContinuousResourceSubStore continuousTxStore = continuousStore.transactional(tx);
         for (Resource resource : resources) {
             if (resource instanceof DiscreteResource) {
+                DiscreteResourceId id = ((DiscreteResource) resource).id();
+                if (leases != null && discreteTxStore.isLeasedByOther(id, localNodeId)) {
+                    return abortTransaction(tx);
+                }
                 if (!discreteTxStore.allocate(consumer.consumerId(), (DiscreteResource) resource)) {
                     return abortTransaction(tx);
                 }
@@ -225,13 +341,27 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
             }
         }
 
-        return tx.commit().join() == CommitStatus.SUCCESS;
+        boolean committed = tx.commit().join() == CommitStatus.SUCCESS;
+        if (committed && leases != null) {
+            leases.taken(discreteResources);
+            replenish(leases, discreteResources);
+        }
+        return committed;
     }
 
     @Override
     public boolean release(List<ResourceAllocation> allocations) {
         checkNotNull(allocations);
 
+        DiscreteResourceLeases leases = this.leases;
+        List<DiscreteResource> discreteResources = discreteResources(allocations.stream()
+                .map(ResourceAllocation::resource)
+                .collect(Collectors.toList()));
+        if (leases != null && discreteResources.size() == allocations.size() &&
+                discreteResources.stream().allMatch(leases::isLocal)) {
+            return releaseLeased(leases, allocations);
+        }
+
         TransactionContext tx = service.transactionContextBuilder().build();
         tx.begin();
 
@@ -252,7 +382,12 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
             }
         }
 
-        return tx.commit().join() == CommitStatus.SUCCESS;
+        boolean committed = tx.commit().join() == CommitStatus.SUCCESS;
+        if (committed && leases != null) {
+            discreteResources.forEach(leases::giveBack);
+            trim(leases, discreteResources);
+        }
+        return committed;
     }
 
     // computational complexity: O(1) if the resource is discrete type.
@@ -264,6 +399,14 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
         checkArgument(resource instanceof DiscreteResource || resource instanceof ContinuousResource);
 
         if (resource instanceof DiscreteResource) {
+            // resources leased by other nodes are not available to this one
+            DiscreteResourceLeases leases = this.leases;
+            if (leases != null) {
+                NodeId holder = leases.holder(((DiscreteResource) resource).id());
+                if (holder != null && !holder.equals(localNodeId)) {
+                    return false;
+                }
+            }
             // check if already consumed
             return discreteStore.isAvailable((DiscreteResource) resource);
         } else {
@@ -285,13 +428,14 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
         return Stream.concat(discrete, continuous).collect(Collectors.toList());
     }
 
-    // computational complexity: O(1)
+    // computational complexity: O(1), or O(n) when leasing is enabled where n is
+    // the number of the children of the specified resource
     @Override
     public Set<Resource> getChildResources(DiscreteResourceId parent) {
         checkNotNull(parent);
 
         return ImmutableSet.<Resource>builder()
-                .addAll(discreteStore.getChildResources(parent))
+                .addAll(localLeasesFirst(discreteStore.getChildResources(parent)))
                 .addAll(continuousStore.getChildResources(parent))
                 .build();
     }
@@ -302,7 +446,7 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
         checkNotNull(cls);
 
         return ImmutableSet.<Resource>builder()
-                .addAll(discreteStore.getChildResources(parent, cls))
+                .addAll(localLeasesFirst(discreteStore.getChildResources(parent, cls)))
                 .addAll(continuousStore.getChildResources(parent, cls))
                 .build();
     }
@@ -319,6 +463,151 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
         return Stream.concat(discrete, continuous).collect(Collectors.toList());
     }
 
+    /**
+     * Orders the given resources so that the free resources leased by the
+     * local node come first. Callers picking the first available resources
+     * are thereby steered to the ones allocated without a transaction.
+     *
+     * @param resources discrete resources
+     * @return the same resources, the free locally leased ones first
+     */
+    private Collection<DiscreteResource> localLeasesFirst(Set<DiscreteResource> resources) {
+        DiscreteResourceLeases leases = this.leases;
+        if (leases == null || resources.isEmpty()) {
+            return resources;
+        }
+
+        List<DiscreteResource> ordered = new ArrayList<>(resources.size());
+        resources.stream().filter(leases::isFree).forEach(ordered::add);
+        resources.stream().filter(x -> !leases.isFree(x)).forEach(ordered::add);
+        return ordered;
+    }
+
+    /**
+     * Allocates resources taken from the local leases, which no other node
+     * allocates, with a single map update per resource rather than through
+     * a transaction.
+     *
+     * @param leases     local leases
+     * @param resources  resources taken from the local leases
+     * @param consumerId consumer ID
+     * @return true if the operation succeeds, false otherwise
+     */
+    private boolean allocateLeased(DiscreteResourceLeases leases, List<DiscreteResource> resources,
+                                   ResourceConsumerId consumerId) {
+        for (int i = 0; i < resources.size(); i++) {
+            if (!discreteStore.allocate(consumerId, resources.get(i))) {
+                // allocated regardless of the lease; undo the preceding allocations
+                List<DiscreteResource> allocated = resources.subList(0, i);
+                allocated.forEach(x -> discreteStore.release(x, consumerId));
+                allocated.forEach(leases::giveBack);
+                resources.subList(i + 1, resources.size()).forEach(leases::giveBack);
+                return false;
+            }
+        }
+
+        replenish(leases, resources);
+        return true;
+    }
+
+    /**
+     * Releases allocations of resources leased by the local node, with a
+     * single map update per resource rather than through a transaction.
+     *
+     * @param leases      local leases
+     * @param allocations allocations of resources leased by the local node
+     * @return true if the operation succeeds, false otherwise
+     */
+    private boolean releaseLeased(DiscreteResourceLeases leases, List<ResourceAllocation> allocations) {
+        List<DiscreteResource> resources = new ArrayList<>(allocations.size());
+        for (int i = 0; i < allocations.size(); i++) {
+            ResourceAllocation allocation = allocations.get(i);
+            DiscreteResource resource = (DiscreteResource) allocation.resource();
+            if (!discreteStore.release(resource, allocation.consumerId())) {
+                // undo the preceding releases
+                allocations.subList(0, i).forEach(x ->
+                        discreteStore.allocate(x.consumerId(), (DiscreteResource) x.resource()));
+                return false;
+            }
+            resources.add(resource);
+        }
+
+        resources.forEach(leases::giveBack);
+        trim(leases, resources);
+        return true;
+    }
+
+    // leases a new block in the background for the pools running low
+    private void replenish(DiscreteResourceLeases leases, List<DiscreteResource> resources) {
+        int lowWatermark = Math.max(leaseBlockSize / 4, 1);
+        resources.stream()
+                .filter(x -> leases.free(x) < lowWatermark)
+                .filter(x -> pendingLeases.add(Pool.of(x)))
+                .forEach(x -> leaseExecutor.execute(() -> {
+                    try {
+                        leaseBlock(leases, x);
+                    } finally {
+                        pendingLeases.remove(Pool.of(x));
+                    }
+                }));
+    }
+
+    // returns the free resources of the pools holding more than two blocks
+    private void trim(DiscreteResourceLeases leases, List<DiscreteResource> resources) {
+        int blockSize = leaseBlockSize;
+        resources.stream()
+                .filter(x -> leases.free(x) > 2 * blockSize)
+                .filter(x -> pendingLeases.add(Pool.of(x)))
+                .forEach(x -> leaseExecutor.execute(() -> {
+                    try {
+                        leases.trim(x, blockSize);
+                    } finally {
+                        pendingLeases.remove(Pool.of(x));
+                    }
+                }));
+    }
+
+    /**
+     * Leases a block of the free resources of the pool of the given
+     * resource, in a single transaction.
+     *
+     * @param leases   local leases
+     * @param resource resource identifying the pool
+     */
+    private void leaseBlock(DiscreteResourceLeases leases, DiscreteResource resource) {
+        Pool pool = Pool.of(resource);
+        int count = leaseBlockSize - leases.free(resource);
+        if (pool.parent() == null || pool.type() == null || count <= 0) {
+            return;
+        }
+
+        TransactionContext tx = service.transactionContextBuilder().build();
+        tx.begin();
+
+        Set<DiscreteResource> block = discreteStore.transactional(tx)
+                .lease(localNodeId, pool.parent(), pool.type(), count);
+        if (block.isEmpty()) {
+            abortTransaction(tx);
+            return;
+        }
+
+        if (tx.commit().join() == CommitStatus.SUCCESS) {
+            log.debug("Leased {} resources of type {} under {}",
+                      block.size(), pool.type().getSimpleName(), pool.parent());
+            leases.leased(block);
+        } else {
+            log.debug("Failed to lease resources of type {} under {}",
+                      pool.type().getSimpleName(), pool.parent());
+        }
+    }
+
+    private static List<DiscreteResource> discreteResources(List<? extends Resource> resources) {
+        return resources.stream()
+                .filter(x -> x instanceof DiscreteResource)
+                .map(x -> (DiscreteResource) x)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Abort the transaction.
      *
@@ -383,7 +672,26 @@ public class ConsistentResourceStore extends AbstractStore<ResourceEvent, Resour
                 .map(x -> (ContinuousResource) x)
                 .collect(Collectors.toCollection(LinkedHashSet::new));
 
+        if (leases != null) {
+            discreteTxStore.revokeLeases(discreteResources);
+        }
         return discreteTxStore.unregister(parent, discreteResources)
                 && continuousTxStore.unregister(parent, continuousResources);
     }
+
+    private class InternalClusterListener implements ClusterEventListener {
+        @Override
+        public void event(ClusterEvent event) {
+            DiscreteResourceLeases leases = ConsistentResourceStore.this.leases;
+            if (leases == null) {
+                return;
+            }
+            // take back the leases of the nodes which left the cluster
+            if (event.type() == ClusterEvent.Type.INSTANCE_DEACTIVATED ||
+                    event.type() == ClusterEvent.Type.INSTANCE_REMOVED) {
+                NodeId nodeId = event.subject().id();
+                leaseExecutor.execute(() -> leases.revokeAll(nodeId));
+            }
+        }
+    }
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.resource.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.resource.DiscreteResource;
+import org.onosproject.net.resource.DiscreteResourceId;
+import org.onosproject.net.resource.Resources;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.MapEvent;
+import org.onosproject.store.service.MapEventListener;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.onosproject.store.resource.impl.ConsistentResourceStore.SERIALIZER;
+
+/**
+ * Leases of blocks of discrete resources to controller nodes.
+ * <p>
+ * A node serves allocations of the free resources it leases without a
+ * distributed transaction, as no other node allocates them. Leases are
+ * advisory: the consumer map remains the authority on allocations.
+ * </p>
+ */
+class DiscreteResourceLeases {
+
+    private final NodeId localNodeId;
+    private final ConsistentMap<DiscreteResourceId, NodeId> leaseMap;
+
+    // lease holders, mirrored from the lease map
+    private final Map<DiscreteResourceId, NodeId> holders = Maps.newConcurrentMap();
+    // free resources leased by the local node
+    private final Map<Pool, Set<DiscreteResource>> pools = Maps.newConcurrentMap();
+
+    private final MapEventListener<DiscreteResourceId, NodeId> leaseListener = this::leaseChanged;
+
+    DiscreteResourceLeases(StorageService service, NodeId localNodeId) {
+        this.localNodeId = localNodeId;
+        this.leaseMap = service.<DiscreteResourceId, NodeId>consistentMapBuilder()
+                .withName(MapNames.DISCRETE_LEASE_MAP)
+                .withSerializer(SERIALIZER)
+                .build();
+        leaseMap.addListener(leaseListener);
+        leaseMap.entrySet().forEach(e -> holders.put(e.getKey(), e.getValue().value()));
+    }
+
+    /**
+     * Takes back the free resources leased by the local node before it
+     * restarted.
+     *
+     * @param isAllocated tells whether a resource is allocated
+     */
+    void recover(Predicate<DiscreteResourceId> isAllocated) {
+        holders.forEach((id, holder) -> {
+            if (holder.equals(localNodeId) && !isAllocated.test(id)) {
+                DiscreteResource resource = Resources.discrete(id).resource();
+                pool(resource).add(resource);
+            }
+        });
+    }
+
+    /**
+     * Stops tracking leases and returns the free resources leased by the
+     * local node.
+     */
+    void close() {
+        leaseMap.removeListener(leaseListener);
+        pools.values().forEach(this::revoke);
+    }
+
+    /**
+     * Returns the node leasing the given resource.
+     *
+     * @param id resource ID
+     * @return lease holder; null if the resource is not leased
+     */
+    NodeId holder(DiscreteResourceId id) {
+        return holders.get(id);
+    }
+
+    /**
+     * Indicates whether the given resource is leased by the local node.
+     *
+     * @param resource discrete resource
+     * @return true if the local node leases the resource
+     */
+    boolean isLocal(DiscreteResource resource) {
+        return localNodeId.equals(holders.get(resource.id()));
+    }
+
+    /**
+     * Returns the number of free resources leased by the local node in the
+     * pool of the given resource.
+     *
+     * @param resource discrete resource
+     * @return number of free leased resources
+     */
+    int free(DiscreteResource resource) {
+        Set<DiscreteResource> pool = pools.get(Pool.of(resource));
+        return pool != null ? pool.size() : 0;
+    }
+
+    /**
+     * Indicates whether the given resource is free and leased by the local
+     * node.
+     *
+     * @param resource discrete resource
+     * @return true if the resource is in a local pool
+     */
+    boolean isFree(DiscreteResource resource) {
+        Set<DiscreteResource> pool = pools.get(Pool.of(resource));
+        return pool != null && pool.contains(resource);
+    }
+
+    /**
+     * Takes the given resources out of the local pools, either all of them
+     * or none.
+     *
+     * @param resources discrete resources
+     * @return true if all the resources were free and leased locally
+     */
+    boolean take(Collection<DiscreteResource> resources) {
+        List<DiscreteResource> taken = Lists.newArrayListWithCapacity(resources.size());
+        for (DiscreteResource resource : resources) {
+            if (!pool(resource).remove(resource)) {
+                taken.forEach(this::giveBack);
+                return false;
+            }
+            taken.add(resource);
+        }
+        return true;
+    }
+
+    /**
+     * Takes the given resources out of the local pools, as far as they are
+     * in there, since they were allocated.
+     *
+     * @param resources discrete resources
+     */
+    void taken(Collection<DiscreteResource> resources) {
+        resources.forEach(r -> {
+            Set<DiscreteResource> pool = pools.get(Pool.of(r));
+            if (pool != null) {
+                pool.remove(r);
+            }
+        });
+    }
+
+    /**
+     * Puts the given resource back into the local pools, if it is still
+     * leased by the local node.
+     *
+     * @param resource discrete resource
+     */
+    void giveBack(DiscreteResource resource) {
+        if (isLocal(resource)) {
+            pool(resource).add(resource);
+        }
+    }
+
+    /**
+     * Adds newly leased resources to the local pools.
+     *
+     * @param resources discrete resources
+     */
+    void leased(Collection<DiscreteResource> resources) {
+        resources.forEach(r -> holders.put(r.id(), localNodeId));
+        resources.forEach(r -> pool(r).add(r));
+    }
+
+    /**
+     * Returns the free resources of the given pool in excess of the given
+     * number to the lease map.
+     *
+     * @param resource discrete resource identifying the pool
+     * @param keep     number of free resources to keep
+     */
+    void trim(DiscreteResource resource, int keep) {
+        Set<DiscreteResource> pool = pool(resource);
+        revoke(pool.stream().skip(keep).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns the leases of the given node, which is presumably gone, to the
+     * lease map.
+     *
+     * @param nodeId node identifier
+     */
+    void revokeAll(NodeId nodeId) {
+        holders.entrySet().stream()
+                .filter(e -> e.getValue().equals(nodeId))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+                .forEach(id -> {
+                    holders.remove(id, nodeId);
+                    leaseMap.remove(id, nodeId);
+                });
+    }
+
+    private void revoke(Collection<DiscreteResource> resources) {
+        ImmutableList.copyOf(resources).forEach(r -> {
+            holders.remove(r.id(), localNodeId);
+            pool(r).remove(r);
+            leaseMap.remove(r.id(), localNodeId);
+        });
+    }
+
+    private Set<DiscreteResource> pool(DiscreteResource resource) {
+        return pools.computeIfAbsent(Pool.of(resource), k -> Sets.newConcurrentHashSet());
+    }
+
+    private void leaseChanged(MapEvent<DiscreteResourceId, NodeId> event) {
+        Versioned<NodeId> value = event.newValue();
+        if (value != null) {
+            holders.put(event.key(), value.value());
+        } else {
+            holders.remove(event.key());
+        }
+        if (value == null || !value.value().equals(localNodeId)) {
+            DiscreteResource resource = Resources.discrete(event.key()).resource();
+            Set<DiscreteResource> pool = pools.get(Pool.of(resource));
+            if (pool != null) {
+                pool.remove(resource);
+            }
+        }
+    }
+
+    /**
+     * Identifies the resources of a type under a parent, such as the MPLS
+     * labels of a port.
+     */
+    static final class Pool {
+        private final DiscreteResourceId parent;
+        private final Class<?> type;
+
+        private Pool(DiscreteResourceId parent, Class<?> type) {
+            this.parent = parent;
+            this.type = type;
+        }
+
+        static Pool of(DiscreteResource resource) {
+            return new Pool(resource.id().parent().orElse(null),
+                            resource.valueAs(Object.class).map(Object::getClass).orElse(null));
+        }
+
+        DiscreteResourceId parent() {
+            return parent;
+        }
+
+        Class<?> type() {
+            return type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(parent, type);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Pool)) {
+                return false;
+            }
+            Pool that = (Pool) obj;
+            return Objects.equals(this.parent, that.parent) && Objects.equals(this.type, that.type);
+        }
+    }
+}
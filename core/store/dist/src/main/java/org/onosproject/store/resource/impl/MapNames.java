@@ -18,6 +18,7 @@ package org.onosproject.store.resource.impl;
 final class MapNames {
     static final String DISCRETE_CONSUMER_MAP = "onos-discrete-consumers";
     static final String DISCRETE_CHILD_MAP = "onos-resource-discrete-children";
+    static final String DISCRETE_LEASE_MAP = "onos-discrete-leases";
     static final String CONTINUOUS_CONSUMER_MAP = "onos-continuous-consumers";
     static final String CONTINUOUS_CHILD_MAP = "onos-resource-continuous-children";
 
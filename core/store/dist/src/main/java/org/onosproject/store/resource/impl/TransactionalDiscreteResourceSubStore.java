@@ -15,6 +15,7 @@
  */
 package org.onosproject.store.resource.impl;
 
+import org.onosproject.cluster.NodeId;
 import org.onosproject.net.resource.DiscreteResource;
 import org.onosproject.net.resource.DiscreteResourceId;
 import org.onosproject.net.resource.Resource;
@@ -24,6 +25,7 @@ import org.onosproject.store.service.TransactionalMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 
@@ -33,8 +35,11 @@ class TransactionalDiscreteResourceSubStore {
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final TransactionalMap<DiscreteResourceId, DiscreteResources> childMap;
     private final TransactionalMap<DiscreteResourceId, ResourceConsumerId> consumers;
+    private final TransactionContext tx;
+    private TransactionalMap<DiscreteResourceId, NodeId> leases;
 
     TransactionalDiscreteResourceSubStore(TransactionContext tx) {
+        this.tx = tx;
         this.childMap = tx.getTransactionalMap(MapNames.DISCRETE_CHILD_MAP, SERIALIZER);
         this.consumers = tx.getTransactionalMap(MapNames.DISCRETE_CONSUMER_MAP, SERIALIZER);
     }
@@ -131,4 +136,43 @@ class TransactionalDiscreteResourceSubStore {
 
         return true;
     }
+
+    boolean isLeasedByOther(DiscreteResourceId id, NodeId nodeId) {
+        NodeId holder = leases().get(id);
+        return holder != null && !holder.equals(nodeId);
+    }
+
+    // leases up to the given number of the free and unleased children of the
+    // given type under the parent to the given node
+    Set<DiscreteResource> lease(NodeId nodeId, DiscreteResourceId parent, Class<?> cls, int count) {
+        Set<DiscreteResource> leased = new LinkedHashSet<>();
+        DiscreteResources children = childMap.get(parent);
+        if (children == null || count <= 0) {
+            return leased;
+        }
+
+        for (DiscreteResource child : children.valuesOf(cls)) {
+            if (isAllocated(child.id()) || leases().get(child.id()) != null) {
+                continue;
+            }
+            leases().put(child.id(), nodeId);
+            leased.add(child);
+            if (leased.size() >= count) {
+                break;
+            }
+        }
+        return leased;
+    }
+
+    void revokeLeases(Set<DiscreteResource> resources) {
+        resources.forEach(x -> leases().remove(x.id()));
+    }
+
+    private TransactionalMap<DiscreteResourceId, NodeId> leases() {
+        // only looked up when leasing is in use
+        if (leases == null) {
+            leases = tx.getTransactionalMap(MapNames.DISCRETE_LEASE_MAP, SERIALIZER);
+        }
+        return leases;
+    }
 }
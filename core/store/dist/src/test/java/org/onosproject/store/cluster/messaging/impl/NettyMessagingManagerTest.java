@@ -39,12 +39,14 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -154,6 +156,51 @@ public class NettyMessagingManagerTest {
         assertEquals(ep1, sender.get());
     }
 
+    /*
+     * Sends a burst of messages, which are coalesced on their channel, and verifies that all of them are
+     * delivered in order.
+     */
+    @Test
+    public void testSendBurst() {
+        String subject = nextSubject();
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count);
+        AtomicLong expected = new AtomicLong();
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        netty2.registerHandler(subject, (ep, data) -> {
+            if (Long.parseLong(new String(data)) != expected.getAndIncrement()) {
+                ordered.set(false);
+            }
+            latch.countDown();
+        }, MoreExecutors.directExecutor());
+
+        for (int i = 0; i < count; i++) {
+            netty1.sendAsync(ep2, subject, Long.toString(i).getBytes());
+        }
+        assertTrue(Uninterruptibles.awaitUninterruptibly(latch, 10, TimeUnit.SECONDS));
+        assertTrue(ordered.get());
+    }
+
+    /*
+     * Verifies that the subjects marked as bulk, and only those, get a channel of their own.
+     */
+    @Test
+    public void testChannelIndex() {
+        netty1.setBulkType("ecm-foo-anti-entropy", true);
+        netty1.setBulkType("peer-flow-table-backup", true);
+        int bulk = netty1.channelIndex("ecm-foo-anti-entropy");
+        assertEquals(bulk, netty1.channelIndex("peer-flow-table-backup"));
+        assertNotEquals(bulk, netty1.channelIndex("ecm-bar-anti-entropy"));
+        for (int i = 0; i < 100; i++) {
+            int index = netty1.channelIndex(nextSubject());
+            assertTrue(index >= 0 && index < NettyMessagingManager.CHANNELS_PER_ENDPOINT);
+            assertNotEquals(bulk, index);
+        }
+
+        netty1.setBulkType("peer-flow-table-backup", false);
+        assertNotEquals(bulk, netty1.channelIndex("peer-flow-table-backup"));
+    }
+
     /*
      * Supplies executors when registering a handler and calling sendAndReceive and verifies the request handling
      * and response completion occurs on the expected thread.
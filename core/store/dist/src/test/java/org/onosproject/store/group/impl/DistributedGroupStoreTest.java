@@ -459,4 +459,65 @@ public class DistributedGroupStoreTest {
                 .addEqualityGroup(key3)
                 .testEquals();
     }
+
+    private static GroupBuckets outputBuckets(int... ports) {
+        List<GroupBucket> bucketList = new ArrayList<>();
+        for (int port : ports) {
+            bucketList.add(DefaultGroupBucket.createSelectGroupBucket(
+                    DefaultTrafficTreatment.builder().setOutput(PortNumber.portNumber(port)).build()));
+        }
+        return new GroupBuckets(bucketList);
+    }
+
+    /**
+     * Tests coalescing the queued bucket updates of a group.
+     */
+    @Test
+    public void testCoalesceBucketUpdates() {
+        GroupStoreMessage add1 = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, ADD, outputBuckets(1), null);
+        GroupStoreMessage add2 = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId2, groupKey2, ADD, outputBuckets(2), null);
+        GroupStoreMessage add3 = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, ADD, outputBuckets(3, 1), null);
+        GroupStoreMessage remove = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, REMOVE, outputBuckets(1), null);
+        GroupStoreMessage add4 = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, ADD, outputBuckets(4), null);
+        GroupStoreMessage delete = GroupStoreMessage.createGroupDeleteRequestMsg(deviceId1, groupKey1);
+        GroupStoreMessage add5 = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, ADD, outputBuckets(5), null);
+
+        // the updates of the first group merge until another operation type comes in,
+        // operations on other devices in between do not matter
+        List<GroupStoreMessage> coalesced = DistributedGroupStore.coalesce(
+                ImmutableList.of(add1, add2, add3, remove, add4, delete, add5));
+        assertThat(coalesced, hasSize(6));
+        assertThat(coalesced.get(0).updateBuckets(), is(outputBuckets(1, 3)));
+        assertThat(coalesced.get(0).appCookie(), is(groupKey1));
+        assertThat(coalesced.subList(1, 6), is(ImmutableList.of(add2, remove, add4, delete, add5)));
+
+        // updates which rename the group are not merged
+        GroupStoreMessage rename = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, ADD, outputBuckets(6), groupKey3);
+        assertThat(DistributedGroupStore.coalesce(ImmutableList.of(add1, rename, add4)),
+                   is(ImmutableList.of(add1, rename, add4)));
+    }
+
+    /**
+     * Tests that the bucket updates of a group are not coalesced across an
+     * operation on another group of the same device.
+     */
+    @Test
+    public void testCoalesceInterleavedOperations() {
+        // the first group stops pointing to the second one before the latter is deleted
+        GroupStoreMessage unchain = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, REMOVE, outputBuckets(1), null);
+        GroupStoreMessage delete = GroupStoreMessage.createGroupDeleteRequestMsg(deviceId1, groupKey2);
+        GroupStoreMessage update = GroupStoreMessage.createGroupUpdateRequestMsg(
+                deviceId1, groupKey1, REMOVE, outputBuckets(2), null);
+
+        assertThat(DistributedGroupStore.coalesce(ImmutableList.of(unchain, delete, update)),
+                   is(ImmutableList.of(unchain, delete, update)));
+    }
 }
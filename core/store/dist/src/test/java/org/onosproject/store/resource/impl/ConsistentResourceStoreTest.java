@@ -0,0 +1,462 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.resource.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.osgi.ComponentContextAdapter;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MplsLabel;
+import org.onosproject.cfg.ComponentConfigAdapter;
+import org.onosproject.cluster.ClusterEvent;
+import org.onosproject.cluster.ClusterEventListener;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.intent.IntentId;
+import org.onosproject.net.resource.DiscreteResource;
+import org.onosproject.net.resource.DiscreteResourceId;
+import org.onosproject.net.resource.Resource;
+import org.onosproject.net.resource.ResourceAllocation;
+import org.onosproject.net.resource.Resources;
+import org.onosproject.store.primitives.TransactionId;
+import org.onosproject.store.service.AsyncConsistentMap;
+import org.onosproject.store.service.CommitStatus;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.ConsistentMapBuilder;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageServiceAdapter;
+import org.onosproject.store.service.TestConsistentMap;
+import org.onosproject.store.service.TransactionContext;
+import org.onosproject.store.service.TransactionContextBuilder;
+import org.onosproject.store.service.TransactionalMap;
+import org.onosproject.store.service.Versioned;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.onlab.junit.TestTools.assertAfter;
+
+/**
+ * Unit tests of the consistent resource store, with and without leasing.
+ */
+public class ConsistentResourceStoreTest {
+
+    private static final DeviceId DID = DeviceId.deviceId("of:1");
+    private static final PortNumber PORT = PortNumber.portNumber(1);
+    private static final DiscreteResource DEVICE = Resources.discrete(DID).resource();
+    private static final DiscreteResource PORT_RESOURCE = Resources.discrete(DID, PORT).resource();
+    private static final int LABELS = 32;
+    private static final int BLOCK_SIZE = 4;
+
+    private static final ControllerNode NODE1 =
+            new DefaultControllerNode(new NodeId("node1"), IpAddress.valueOf("10.0.0.1"));
+    private static final ControllerNode NODE2 =
+            new DefaultControllerNode(new NodeId("node2"), IpAddress.valueOf("10.0.0.2"));
+
+    private TestStorageService storageService;
+    private List<ConsistentResourceStore> stores;
+
+    @Before
+    public void setUp() {
+        storageService = new TestStorageService();
+        stores = Lists.newArrayList();
+    }
+
+    @After
+    public void tearDown() {
+        stores.forEach(ConsistentResourceStore::deactivate);
+    }
+
+    private ConsistentResourceStore createStore(ControllerNode node, boolean leasingEnabled) {
+        ConsistentResourceStore store = new ConsistentResourceStore();
+        store.service = storageService;
+        store.clusterService = new TestClusterService(node);
+        store.configService = new ComponentConfigAdapter();
+        store.activate(new ComponentContextAdapter() {
+            @Override
+            public Dictionary getProperties() {
+                Hashtable<String, String> props = new Hashtable<>();
+                props.put("leasingEnabled", String.valueOf(leasingEnabled));
+                props.put("leaseBlockSize", String.valueOf(BLOCK_SIZE));
+                return props;
+            }
+        });
+        stores.add(store);
+        return store;
+    }
+
+    private static DiscreteResource label(int label) {
+        return Resources.discrete(DID, PORT, MplsLabel.mplsLabel(label)).resource();
+    }
+
+    private static List<DiscreteResource> labels(int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(ConsistentResourceStoreTest::label)
+                .collect(Collectors.toList());
+    }
+
+    private static void register(ConsistentResourceStore store, int count) {
+        assertTrue(store.register(ImmutableList.of(DEVICE)));
+        assertTrue(store.register(ImmutableList.of(PORT_RESOURCE)));
+        assertTrue(store.register(labels(count)));
+    }
+
+    private static List<DiscreteResource> available(ConsistentResourceStore store) {
+        return labels(LABELS).stream().filter(store::isAvailable).collect(Collectors.toList());
+    }
+
+    // free resources leased by the given node, according to the lease map
+    private List<DiscreteResource> leased(ConsistentResourceStore store, ControllerNode node) {
+        ConsistentMap<DiscreteResourceId, NodeId> leaseMap = storageService.map(MapNames.DISCRETE_LEASE_MAP);
+        List<Map.Entry<DiscreteResourceId, Versioned<NodeId>>> leases;
+        // leases are committed in the background, under the storage service lock
+        synchronized (storageService) {
+            leases = ImmutableList.copyOf(leaseMap.entrySet());
+        }
+        return leases.stream()
+                .filter(e -> e.getValue().value().equals(node.id()))
+                .map(e -> Resources.discrete(e.getKey()).resource())
+                .filter(store::isAvailable)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tests allocation and release through transactions.
+     */
+    @Test
+    public void testAllocateWithoutLeasing() {
+        ConsistentResourceStore store = createStore(NODE1, false);
+        register(store, LABELS);
+        IntentId consumer = IntentId.valueOf(1);
+
+        assertTrue(store.allocate(ImmutableList.of(label(1), label(2)), consumer));
+        assertFalse(store.isAvailable(label(1)));
+        assertFalse(store.allocate(ImmutableList.of(label(2), label(3)), IntentId.valueOf(2)));
+        assertTrue(store.isAvailable(label(3)));
+        assertThat(available(store).size(), is(LABELS - 2));
+
+        List<ResourceAllocation> allocations = store.getResourceAllocations(label(1).id());
+        assertThat(allocations.size(), is(1));
+        assertTrue(store.release(allocations));
+        assertTrue(store.isAvailable(label(1)));
+    }
+
+    /**
+     * Tests that allocations are served from the leased blocks, which are
+     * replenished as they run out.
+     */
+    @Test
+    public void testAllocateFromLeases() {
+        ConsistentResourceStore store = createStore(NODE1, true);
+        register(store, LABELS);
+
+        // the first allocation goes through a transaction and leases a block
+        assertTrue(store.allocate(ImmutableList.of(label(1)), IntentId.valueOf(1)));
+        assertAfter(1000, () -> assertThat(leased(store, NODE1).size(), is(BLOCK_SIZE)));
+        assertThat(available(store).size(), is(LABELS - 1));
+
+        List<DiscreteResource> leased = leased(store, NODE1);
+        for (int i = 0; i < leased.size(); i++) {
+            IntentId consumer = IntentId.valueOf(i + 2);
+            assertTrue(store.allocate(ImmutableList.of(leased.get(i)), consumer));
+            assertThat(store.getResourceAllocations(leased.get(i).id()).get(0).consumerId(),
+                       is(consumer.consumerId()));
+        }
+        leased.forEach(x -> assertFalse(store.isAvailable(x)));
+
+        // the drained pool is replenished with a new block
+        assertAfter(1000, () -> assertThat(leased(store, NODE1).size(), is(BLOCK_SIZE)));
+        assertTrue(leased(store, NODE1).stream().noneMatch(leased::contains));
+
+        // released resources go back to the pool
+        assertTrue(store.release(store.getResourceAllocations(leased.get(0).id())));
+        assertTrue(store.isAvailable(leased.get(0)));
+    }
+
+    /**
+     * Tests that the resources leased by a node are not available to other
+     * nodes until the node leaves the cluster.
+     */
+    @Test
+    public void testLeasesAcrossNodes() {
+        ConsistentResourceStore store1 = createStore(NODE1, true);
+        ConsistentResourceStore store2 = createStore(NODE2, true);
+        register(store1, LABELS);
+
+        assertTrue(store1.allocate(ImmutableList.of(label(1)), IntentId.valueOf(1)));
+        assertAfter(1000, () -> assertThat(leased(store1, NODE1).size(), is(BLOCK_SIZE)));
+
+        List<DiscreteResource> leased = leased(store1, NODE1);
+        leased.forEach(x -> assertTrue(store1.isAvailable(x)));
+        leased.forEach(x -> assertFalse(store2.isAvailable(x)));
+        assertFalse(store2.allocate(ImmutableList.of(leased.get(0)), IntentId.valueOf(2)));
+        assertThat(available(store1).size(), is(LABELS - 1));
+        assertThat(available(store2).size(), is(LABELS - 1 - BLOCK_SIZE));
+
+        // crash recovery: the leases of a node leaving the cluster are revoked
+        ((TestClusterService) store2.clusterService).post(
+                new ClusterEvent(ClusterEvent.Type.INSTANCE_DEACTIVATED, NODE1));
+        assertAfter(1000, () -> leased.forEach(x -> assertTrue(store2.isAvailable(x))));
+    }
+
+    /**
+     * Tests that leased resources are not left behind when unregistered.
+     */
+    @Test
+    public void testUnregisterLeased() {
+        ConsistentResourceStore store = createStore(NODE1, true);
+        register(store, LABELS);
+
+        assertTrue(store.allocate(ImmutableList.of(label(1)), IntentId.valueOf(1)));
+        assertAfter(1000, () -> assertThat(leased(store, NODE1).size(), is(BLOCK_SIZE)));
+
+        List<DiscreteResource> leased = leased(store, NODE1);
+        assertTrue(store.unregister(ImmutableList.of(leased.get(0).id())));
+        assertFalse(store.allocate(ImmutableList.of(leased.get(0)), IntentId.valueOf(2)));
+    }
+
+    /**
+     * Tests that the free resources leased by the local node are listed
+     * first among the child resources.
+     */
+    @Test
+    public void testLocalLeasesListedFirst() {
+        ConsistentResourceStore store1 = createStore(NODE1, true);
+        ConsistentResourceStore store2 = createStore(NODE2, true);
+        register(store1, LABELS);
+
+        // the other node leases a block first, so the local block is not
+        // at the head of the registered resources
+        assertTrue(store2.allocate(ImmutableList.of(label(LABELS)), IntentId.valueOf(1)));
+        assertAfter(1000, () -> assertThat(leased(store2, NODE2).size(), is(BLOCK_SIZE)));
+        assertTrue(store1.allocate(ImmutableList.of(label(LABELS - 1)), IntentId.valueOf(2)));
+        assertAfter(1000, () -> assertThat(leased(store1, NODE1).size(), is(BLOCK_SIZE)));
+
+        Set<Resource> leased = ImmutableSet.copyOf(leased(store1, NODE1));
+        Set<Resource> first = store1.getChildResources(PORT_RESOURCE.id(), MplsLabel.class).stream()
+                .limit(BLOCK_SIZE)
+                .collect(Collectors.toSet());
+        assertThat(first, is(leased));
+    }
+
+    private static final class TestClusterService extends ClusterServiceAdapter {
+        private final ControllerNode node;
+        private final List<ClusterEventListener> listeners = Lists.newCopyOnWriteArrayList();
+
+        private TestClusterService(ControllerNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public ControllerNode getLocalNode() {
+            return node;
+        }
+
+        @Override
+        public void addListener(ClusterEventListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(ClusterEventListener listener) {
+            listeners.remove(listener);
+        }
+
+        private void post(ClusterEvent event) {
+            listeners.forEach(l -> l.event(event));
+        }
+    }
+
+    /**
+     * Storage service whose consistent maps are shared by name, with
+     * transactions which buffer their writes until committed.
+     */
+    private static final class TestStorageService extends StorageServiceAdapter {
+        private final Map<String, ConsistentMap<Object, Object>> maps = Maps.newConcurrentMap();
+
+        @SuppressWarnings("unchecked")
+        private <K, V> ConsistentMap<K, V> map(String name) {
+            return (ConsistentMap<K, V>) (ConsistentMap<?, ?>) maps.computeIfAbsent(
+                    name, n -> new TestConsistentMap.Builder<>().withName(n).build());
+        }
+
+        @Override
+        public <K, V> ConsistentMapBuilder<K, V> consistentMapBuilder() {
+            return new ConsistentMapBuilder<K, V>() {
+                @Override
+                public ConsistentMap<K, V> build() {
+                    return map(name());
+                }
+
+                @Override
+                public AsyncConsistentMap<K, V> buildAsyncMap() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public TransactionContextBuilder transactionContextBuilder() {
+            return new TransactionContextBuilder() {
+                @Override
+                public TransactionContext build() {
+                    return new TestTransactionContext(TestStorageService.this);
+                }
+            };
+        }
+    }
+
+    private static final class TestTransactionContext implements TransactionContext {
+        private final TestStorageService storageService;
+        private final List<TestTransactionalMap<?, ?>> txMaps = Lists.newArrayList();
+        private boolean open;
+
+        private TestTransactionContext(TestStorageService storageService) {
+            this.storageService = storageService;
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public TransactionId transactionId() {
+            return TransactionId.from("test");
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void begin() {
+            open = true;
+        }
+
+        @Override
+        public synchronized CompletableFuture<CommitStatus> commit() {
+            synchronized (storageService) {
+                txMaps.forEach(TestTransactionalMap::apply);
+            }
+            open = false;
+            return CompletableFuture.completedFuture(CommitStatus.SUCCESS);
+        }
+
+        @Override
+        public void abort() {
+            open = false;
+        }
+
+        @Override
+        public <K, V> TransactionalMap<K, V> getTransactionalMap(String mapName, Serializer serializer) {
+            TestTransactionalMap<K, V> txMap = new TestTransactionalMap<>(storageService.map(mapName));
+            txMaps.add(txMap);
+            return txMap;
+        }
+    }
+
+    private static final class TestTransactionalMap<K, V> implements TransactionalMap<K, V> {
+        private final ConsistentMap<K, V> map;
+        private final Map<K, Optional<V>> writes = Maps.newLinkedHashMap();
+
+        private TestTransactionalMap(ConsistentMap<K, V> map) {
+            this.map = map;
+        }
+
+        private void apply() {
+            writes.forEach((k, v) -> {
+                if (v.isPresent()) {
+                    map.put(k, v.get());
+                } else {
+                    map.remove(k);
+                }
+            });
+        }
+
+        @Override
+        public V get(K key) {
+            Optional<V> written = writes.get(key);
+            return written != null ? written.orElse(null) : Versioned.valueOrNull(map.get(key));
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            V old = get(key);
+            writes.put(key, Optional.of(value));
+            return old;
+        }
+
+        @Override
+        public V remove(K key) {
+            V old = get(key);
+            writes.put(key, Optional.empty());
+            return old;
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            V old = get(key);
+            if (old == null) {
+                writes.put(key, Optional.of(value));
+            }
+            return old;
+        }
+
+        @Override
+        public boolean remove(K key, V value) {
+            if (!value.equals(get(key))) {
+                return false;
+            }
+            writes.put(key, Optional.empty());
+            return true;
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            if (!oldValue.equals(get(key))) {
+                return false;
+            }
+            writes.put(key, Optional.of(newValue));
+            return true;
+        }
+    }
+}
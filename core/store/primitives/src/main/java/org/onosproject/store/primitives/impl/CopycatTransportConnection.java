@@ -16,6 +16,7 @@
 package org.onosproject.store.primitives.impl;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.slf4j.LoggerFactory.getLogger;
 import io.atomix.catalyst.concurrent.Listener;
 import io.atomix.catalyst.concurrent.Listeners;
 import io.atomix.catalyst.concurrent.ThreadContext;
@@ -27,46 +28,68 @@ import io.atomix.catalyst.transport.TransportException;
 import io.atomix.catalyst.util.Assert;
 import io.atomix.catalyst.util.reference.ReferenceCounted;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
-import org.apache.commons.io.IOUtils;
 import org.onlab.util.Tools;
 import org.onosproject.cluster.PartitionId;
 import org.onosproject.store.cluster.messaging.MessagingException;
 import org.onosproject.store.cluster.messaging.MessagingService;
+import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * {@link Connection} implementation for CopycatTransport.
+ * <p>
+ * Messages sent in the same execution round are serialized straight into a
+ * shared frame and go out as a single cluster message. The receiving side
+ * acknowledges the frame as soon as it has dispatched its messages, and
+ * sends the reply to each message on its own as soon as that message has
+ * been handled. See {@link CopycatTransportFrames}.
+ * </p>
  */
 public class CopycatTransportConnection implements Connection {
 
+    private final Logger log = getLogger(getClass());
+
     private final Listeners<Throwable> exceptionListeners = new Listeners<>();
     private final Listeners<Connection> closeListeners = new Listeners<>();
 
     static final byte SUCCESS = 0x03;
     static final byte FAILURE = 0x04;
 
+    // how long a message waits for its reply, as long as a cluster message does
+    private static final Duration REPLY_TIMEOUT = Duration.ofMillis(250);
+    private static final byte[] ACK = new byte[0];
+
     private final long connectionId;
     private final CopycatTransport.Mode mode;
     private final Address remoteAddress;
     private final MessagingService messagingService;
     private final String outboundMessageSubject;
     private final String inboundMessageSubject;
+    private final String replySubject;
+    private final String remoteReplySubject;
     private final ThreadContext context;
     private final Map<Class<?>, InternalHandler> handlers = Maps.newConcurrentMap();
+    private final Map<Long, PendingResponse> pendingResponses = Maps.newConcurrentMap();
+
+    // frame of the messages to send in the next flush, guarded by itself
+    private final CopycatTransportFrames.Writer outbound = new CopycatTransportFrames.Writer();
+    private List<Long> outboundRequests = Lists.newArrayList();
+    private long lastRequestId;
 
     CopycatTransportConnection(long connectionId,
             CopycatTransport.Mode mode,
@@ -81,24 +104,27 @@ public class CopycatTransportConnection implements Connection {
         if (mode == CopycatTransport.Mode.CLIENT) {
             this.outboundMessageSubject = String.format("onos-copycat-%s", partitionId);
             this.inboundMessageSubject = String.format("onos-copycat-%s-%d", partitionId, connectionId);
+            this.replySubject = String.format("onos-copycat-%s-%d-client-reply", partitionId, connectionId);
+            this.remoteReplySubject = String.format("onos-copycat-%s-%d-server-reply", partitionId, connectionId);
         } else {
             this.outboundMessageSubject = String.format("onos-copycat-%s-%d", partitionId, connectionId);
             this.inboundMessageSubject = String.format("onos-copycat-%s", partitionId);
+            this.replySubject = String.format("onos-copycat-%s-%d-server-reply", partitionId, connectionId);
+            this.remoteReplySubject = String.format("onos-copycat-%s-%d-client-reply", partitionId, connectionId);
         }
         this.context = checkNotNull(context);
+        messagingService.registerHandler(replySubject, (sender, payload) -> {
+            handleReply(payload);
+        }, MoreExecutors.directExecutor());
     }
 
     public void setBidirectional() {
         messagingService.registerHandler(inboundMessageSubject, (sender, payload) -> {
-            try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
-                if (input.readLong() !=  connectionId) {
-                    throw new IllegalStateException("Invalid connection Id");
-                }
-                return handle(IOUtils.toByteArray(input));
-            } catch (IOException e) {
-                Throwables.propagate(e);
-                return null;
+            CopycatTransportFrames.Reader frame = new CopycatTransportFrames.Reader(payload);
+            if (frame.readHeader() != connectionId) {
+                throw new IllegalStateException("Invalid connection Id");
             }
+            return handle(frame);
         });
     }
 
@@ -106,52 +132,85 @@ public class CopycatTransportConnection implements Connection {
     public <T, U> CompletableFuture<U> send(T message) {
         ThreadContext context = ThreadContext.currentContextOrThrow();
         CompletableFuture<U> result = new CompletableFuture<>();
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            new DataOutputStream(baos).writeLong(connectionId);
-            context.serializer().writeObject(message, baos);
-            if (message instanceof ReferenceCounted) {
-                ((ReferenceCounted<?>) message).release();
+        boolean first;
+        long requestId;
+        synchronized (outbound) {
+            first = outboundRequests.isEmpty();
+            if (first) {
+                outbound.reset();
+                outbound.writeHeader(connectionId);
             }
-            messagingService.sendAndReceive(CopycatTransport.toEndpoint(remoteAddress),
-                                            outboundMessageSubject,
-                                            baos.toByteArray(),
-                                            context.executor())
-                    .whenComplete((r, e) -> {
-                        Throwable wrappedError = e;
-                        if (e != null) {
-                            Throwable rootCause = Throwables.getRootCause(e);
-                            if (MessagingException.class.isAssignableFrom(rootCause.getClass())) {
-                                wrappedError = new TransportException(e);
-                            }
-                        }
-                        handleResponse(r, wrappedError, result, context);
-                    });
-        } catch (SerializationException | IOException e) {
-            result.completeExceptionally(e);
+            requestId = ++lastRequestId;
+            outbound.beginEntry();
+            try {
+                outbound.writeLong(requestId);
+                context.serializer().writeObject(message, outbound);
+                outbound.endEntry();
+            } catch (SerializationException e) {
+                outbound.abortEntry();
+                result.completeExceptionally(e);
+                return result;
+            }
+            pendingResponses.put(requestId, new PendingResponse(result, context));
+            outboundRequests.add(requestId);
+        }
+        if (message instanceof ReferenceCounted) {
+            ((ReferenceCounted<?>) message).release();
+        }
+        context.schedule(REPLY_TIMEOUT, () -> fail(requestId, new TransportException("Request timed out")));
+        if (first) {
+            // let the messages sent in this round join the frame
+            context.execute(this::flush);
         }
         return result;
     }
 
-    private <T> void handleResponse(byte[] response,
-                                    Throwable error,
-                                    CompletableFuture<T> future,
-                                    ThreadContext context) {
-        if (error != null) {
-            context.execute(() -> future.completeExceptionally(error));
+    private void flush() {
+        byte[] frame;
+        List<Long> requests;
+        synchronized (outbound) {
+            if (outboundRequests.isEmpty()) {
+                return;
+            }
+            frame = outbound.toByteArray();
+            requests = outboundRequests;
+            outboundRequests = Lists.newArrayList();
+        }
+        messagingService.sendAndReceive(CopycatTransport.toEndpoint(remoteAddress),
+                                        outboundMessageSubject,
+                                        frame,
+                                        MoreExecutors.directExecutor())
+                .whenComplete((r, e) -> {
+                    if (e != null) {
+                        Throwable wrappedError = e;
+                        Throwable rootCause = Throwables.getRootCause(e);
+                        if (MessagingException.class.isAssignableFrom(rootCause.getClass())) {
+                            wrappedError = new TransportException(e);
+                        }
+                        // the messages of the frame that were not replied to are lost
+                        for (long requestId : requests) {
+                            fail(requestId, wrappedError);
+                        }
+                    }
+                });
+    }
+
+    private void handleReply(byte[] payload) {
+        CopycatTransportFrames.Reader reply = new CopycatTransportFrames.Reader(payload);
+        if (reply.readHeader() != connectionId) {
+            log.warn("Dropped a reply for another connection than {}", connectionId);
             return;
         }
-        checkNotNull(response);
-        InputStream input = new ByteArrayInputStream(response);
-        try {
-            byte status = (byte) input.read();
-            if (status == FAILURE) {
-                Throwable t = context.serializer().readObject(input);
-                context.execute(() -> future.completeExceptionally(t));
-            } else {
-                context.execute(() -> future.complete(context.serializer().readObject(input)));
-            }
-        } catch (IOException e) {
-            context.execute(() -> future.completeExceptionally(e));
+        PendingResponse pending = pendingResponses.remove(reply.readLong());
+        if (pending != null) {
+            pending.complete(reply.readRemaining());
+        }
+    }
+
+    private void fail(long requestId, Throwable error) {
+        PendingResponse pending = pendingResponses.remove(requestId);
+        if (pending != null) {
+            pending.fail(error);
         }
     }
 
@@ -162,29 +221,59 @@ public class CopycatTransportConnection implements Connection {
         return null;
     }
 
-   public CompletableFuture<byte[]> handle(byte[] message) {
+    /**
+     * Handles the messages of a received frame. Each message is replied to
+     * on its own as soon as it is handled, regardless of the others.
+     *
+     * @param frame frame positioned after the header
+     * @return future for the acknowledgement of the frame
+     */
+    CompletableFuture<byte[]> handle(CopycatTransportFrames.Reader frame) {
+        while (frame.hasRemaining()) {
+            InputStream message = frame.readEntry();
+            long requestId;
+            try {
+                requestId = new DataInputStream(message).readLong();
+            } catch (IOException e) {
+                return Tools.exceptionalFuture(e);
+            }
+            handle(message).whenComplete((r, e) -> reply(requestId, r, e));
+        }
+        return CompletableFuture.completedFuture(ACK);
+    }
+
+    private CompletableFuture<Object> handle(InputStream message) {
         try {
-            Object request = context.serializer().readObject(new ByteArrayInputStream(message));
+            Object request = context.serializer().readObject(message);
             InternalHandler handler = handlers.get(request.getClass());
             if (handler == null) {
                 return Tools.exceptionalFuture(new IllegalStateException(
                         "No handler registered for " + request.getClass()));
             }
-            return handler.handle(request).handle((result, error) -> {
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                    baos.write(error != null ? FAILURE : SUCCESS);
-                    context.serializer().writeObject(error != null ? error : result, baos);
-                    return baos.toByteArray();
-                } catch (IOException e) {
-                    Throwables.propagate(e);
-                    return null;
-                }
-            });
+            return handler.handle(request);
         } catch (Exception e) {
             return Tools.exceptionalFuture(e);
         }
     }
 
+    private void reply(long requestId, Object result, Throwable error) {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        writer.writeHeader(connectionId);
+        writer.writeLong(requestId);
+        try {
+            writer.write(error != null ? FAILURE : SUCCESS);
+            context.serializer().writeObject(error != null ? error : result, writer);
+        } catch (SerializationException e) {
+            writer = CopycatTransportFrames.writer();
+            writer.writeHeader(connectionId);
+            writer.writeLong(requestId);
+            writer.write(FAILURE);
+            context.serializer().writeObject(e, writer);
+        }
+        messagingService.sendAsync(CopycatTransport.toEndpoint(remoteAddress), remoteReplySubject,
+                                   writer.toByteArray());
+    }
+
     @Override
     public Listener<Throwable> exceptionListener(Consumer<Throwable> listener) {
         return exceptionListeners.add(listener);
@@ -201,6 +290,9 @@ public class CopycatTransportConnection implements Connection {
         if (mode == CopycatTransport.Mode.CLIENT) {
             messagingService.unregisterHandler(inboundMessageSubject);
         }
+        messagingService.unregisterHandler(replySubject);
+        pendingResponses.keySet().forEach(requestId ->
+                fail(requestId, new TransportException("Connection closed")));
         return CompletableFuture.completedFuture(null);
     }
 
@@ -248,4 +340,39 @@ public class CopycatTransportConnection implements Connection {
             return answer;
         }
     }
+
+    /**
+     * Response awaited by a message of a sent frame.
+     */
+    private static final class PendingResponse {
+
+        private final CompletableFuture<Object> future;
+        private final ThreadContext context;
+
+        @SuppressWarnings("unchecked")
+        private PendingResponse(CompletableFuture<?> future, ThreadContext context) {
+            this.future = (CompletableFuture<Object>) future;
+            this.context = context;
+        }
+
+        private void complete(InputStream response) {
+            context.execute(() -> {
+                try {
+                    byte status = (byte) response.read();
+                    Object value = context.serializer().readObject(response);
+                    if (status == FAILURE) {
+                        future.completeExceptionally((Throwable) value);
+                    } else {
+                        future.complete(value);
+                    }
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+
+        private void fail(Throwable error) {
+            context.execute(() -> future.completeExceptionally(error));
+        }
+    }
 }
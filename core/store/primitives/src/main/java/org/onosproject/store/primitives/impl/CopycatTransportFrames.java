@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Framing of the messages exchanged by {@link CopycatTransportConnection}s.
+ * <p>
+ * Every frame starts with a header made of the format version and the
+ * connection identifier. A request frame then carries a batch of
+ * length-prefixed messages, each one starting with its request identifier.
+ * A reply frame carries the reply to a single message: its request
+ * identifier, its status and its content. Messages are serialized straight
+ * into a reusable frame buffer and read back from views of the received
+ * payload, so the only copy made on either side is the one of the completed
+ * frame handed to the messaging service.
+ * </p>
+ */
+final class CopycatTransportFrames {
+
+    // buffers larger than this are not kept around for reuse
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Version of the frame format, to be bumped on any incompatible change.
+     */
+    static final byte VERSION = 1;
+
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    private CopycatTransportFrames() {
+    }
+
+    /**
+     * Returns the writer of the current thread, ready to write a new frame.
+     * The writer must not be acquired again by the thread before the frame
+     * is completed.
+     *
+     * @return frame writer
+     */
+    static Writer writer() {
+        Writer writer = WRITERS.get();
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Writer of a frame into a growable buffer which is reused across frames.
+     */
+    static final class Writer extends OutputStream {
+        private byte[] buffer = new byte[INITIAL_CAPACITY];
+        private int position;
+        private int entryStart = -1;
+        private int entries;
+
+        /**
+         * Discards what was written so far.
+         */
+        void reset() {
+            if (buffer.length > MAX_RETAINED_CAPACITY) {
+                buffer = new byte[INITIAL_CAPACITY];
+            }
+            position = 0;
+            entryStart = -1;
+            entries = 0;
+        }
+
+        /**
+         * Returns the number of bytes written.
+         *
+         * @return frame size
+         */
+        int size() {
+            return position;
+        }
+
+        /**
+         * Returns the number of complete entries written.
+         *
+         * @return entry count
+         */
+        int entries() {
+            return entries;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, buffer, position, len);
+            position += len;
+        }
+
+        /**
+         * Writes the frame header.
+         *
+         * @param connectionId connection identifier
+         */
+        void writeHeader(long connectionId) {
+            write(VERSION);
+            writeLong(connectionId);
+        }
+
+        /**
+         * Writes a long value.
+         *
+         * @param value value
+         */
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        /**
+         * Writes an int value.
+         *
+         * @param value value
+         */
+        void writeInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            putInt(position, value);
+            position += Integer.BYTES;
+        }
+
+        /**
+         * Starts a length-prefixed entry, whose content is then written
+         * through this output stream.
+         */
+        void beginEntry() {
+            checkState(entryStart < 0, "Entry already started");
+            writeInt(0);
+            entryStart = position;
+        }
+
+        /**
+         * Completes the current entry.
+         */
+        void endEntry() {
+            checkState(entryStart >= 0, "No entry started");
+            putInt(entryStart - Integer.BYTES, position - entryStart);
+            entryStart = -1;
+            entries++;
+        }
+
+        /**
+         * Drops the current entry, for instance when its content failed to
+         * serialize.
+         */
+        void abortEntry() {
+            checkState(entryStart >= 0, "No entry started");
+            position = entryStart - Integer.BYTES;
+            entryStart = -1;
+        }
+
+        /**
+         * Returns the frame written so far.
+         *
+         * @return frame bytes
+         */
+        byte[] toByteArray() {
+            checkState(entryStart < 0, "Entry not completed");
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void putInt(int index, int value) {
+            buffer[index] = (byte) (value >>> 24);
+            buffer[index + 1] = (byte) (value >>> 16);
+            buffer[index + 2] = (byte) (value >>> 8);
+            buffer[index + 3] = (byte) value;
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    /**
+     * Reader of a received frame, which hands out views of its entries.
+     */
+    static final class Reader {
+        private final byte[] payload;
+        private int position;
+
+        /**
+         * Creates a reader of the given frame.
+         *
+         * @param payload frame bytes
+         */
+        Reader(byte[] payload) {
+            this.payload = payload;
+        }
+
+        /**
+         * Indicates whether there is anything left to read.
+         *
+         * @return true if the frame is not fully read
+         */
+        boolean hasRemaining() {
+            return position < payload.length;
+        }
+
+        /**
+         * Reads the frame header.
+         *
+         * @return connection identifier
+         */
+        long readHeader() {
+            checkState(hasRemaining(), "Truncated frame");
+            byte version = payload[position++];
+            checkState(version == VERSION, "Unsupported frame version %s", version);
+            return readLong();
+        }
+
+        /**
+         * Reads a long value.
+         *
+         * @return value
+         */
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Reads an int value.
+         *
+         * @return value
+         */
+        int readInt() {
+            checkState(position + Integer.BYTES <= payload.length, "Truncated frame");
+            int value = ((payload[position] & 0xFF) << 24) |
+                    ((payload[position + 1] & 0xFF) << 16) |
+                    ((payload[position + 2] & 0xFF) << 8) |
+                    (payload[position + 3] & 0xFF);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        /**
+         * Returns a view of the next length-prefixed entry.
+         *
+         * @return stream over the entry content
+         */
+        InputStream readEntry() {
+            int length = readInt();
+            checkState(length >= 0 && position + length <= payload.length, "Truncated frame");
+            InputStream entry = new ByteArrayInputStream(payload, position, length);
+            position += length;
+            return entry;
+        }
+
+        /**
+         * Returns a view of the rest of the frame.
+         *
+         * @return stream over the remaining content
+         */
+        InputStream readRemaining() {
+            InputStream rest = new ByteArrayInputStream(payload, position, payload.length - position);
+            position = payload.length;
+            return rest;
+        }
+    }
+}
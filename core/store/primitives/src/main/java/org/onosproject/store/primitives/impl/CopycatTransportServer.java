@@ -24,9 +24,6 @@ import io.atomix.catalyst.transport.Address;
 import io.atomix.catalyst.transport.Connection;
 import io.atomix.catalyst.transport.Server;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
@@ -34,8 +31,6 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
-import org.apache.commons.io.IOUtils;
-import org.onlab.util.Tools;
 import org.onosproject.cluster.PartitionId;
 import org.onosproject.store.cluster.messaging.MessagingService;
 import org.slf4j.Logger;
@@ -75,32 +70,28 @@ public class CopycatTransportServer implements Server {
 
     private void listen(Address address, Consumer<Connection> listener, ThreadContext context) {
         messagingService.registerHandler(messageSubject, (sender, payload) -> {
-            try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
-                long connectionId = input.readLong();
-                AtomicBoolean newConnectionCreated = new AtomicBoolean(false);
-                CopycatTransportConnection connection = connections.computeIfAbsent(connectionId, k -> {
-                    newConnectionCreated.set(true);
-                    CopycatTransportConnection newConnection = new CopycatTransportConnection(connectionId,
-                            CopycatTransport.Mode.SERVER,
-                            partitionId,
-                            CopycatTransport.toAddress(sender),
-                            messagingService,
-                            getOrCreateContext(context));
-                    log.debug("Created new incoming connection {}", connectionId);
-                    newConnection.closeListener(c -> connections.remove(connectionId, c));
-                    return newConnection;
-                });
-                byte[] request = IOUtils.toByteArray(input);
-                return CompletableFuture.supplyAsync(
-                        () -> {
-                            if (newConnectionCreated.get()) {
-                                listener.accept(connection);
-                            }
-                            return connection;
-                        }, context.executor()).thenCompose(c -> c.handle(request));
-            } catch (IOException e) {
-                return Tools.exceptionalFuture(e);
-            }
+            CopycatTransportFrames.Reader frame = new CopycatTransportFrames.Reader(payload);
+            long connectionId = frame.readHeader();
+            AtomicBoolean newConnectionCreated = new AtomicBoolean(false);
+            CopycatTransportConnection connection = connections.computeIfAbsent(connectionId, k -> {
+                newConnectionCreated.set(true);
+                CopycatTransportConnection newConnection = new CopycatTransportConnection(connectionId,
+                        CopycatTransport.Mode.SERVER,
+                        partitionId,
+                        CopycatTransport.toAddress(sender),
+                        messagingService,
+                        getOrCreateContext(context));
+                log.debug("Created new incoming connection {}", connectionId);
+                newConnection.closeListener(c -> connections.remove(connectionId, c));
+                return newConnection;
+            });
+            return CompletableFuture.supplyAsync(
+                    () -> {
+                        if (newConnectionCreated.get()) {
+                            listener.accept(connection);
+                        }
+                        return connection;
+                    }, context.executor()).thenCompose(c -> c.handle(frame));
         });
         context.execute(() -> {
             listenFuture.complete(null);
@@ -42,6 +42,7 @@ import org.onosproject.store.service.WallClockTimestamp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -90,6 +91,7 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private final MessageSubject updateMessageSubject;
     private final MessageSubject antiEntropyAdvertisementSubject;
+    private final MessageSubject digestTreeAdvertisementSubject;
     private final MessageSubject updateRequestSubject;
 
     private final Set<EventuallyConsistentMapListener<K, V>> listeners
@@ -117,6 +119,7 @@ public class EventuallyConsistentMapImpl<K, V>
     private final long initialDelaySec = 5;
     private final boolean lightweightAntiEntropy;
     private final boolean tombstonesDisabled;
+    private final MapDigestTree<K> digestTree;
 
     private static final int WINDOW_SIZE = 5;
     private static final int HIGH_LOAD_THRESHOLD = 2;
@@ -153,9 +156,12 @@ public class EventuallyConsistentMapImpl<K, V>
      * @param antiEntropyPeriod     period that the anti-entropy task should run
      * @param antiEntropyTimeUnit   time unit for anti-entropy period
      * @param convergeFaster        make anti-entropy try to converge faster
+     * @param digestTreeAntiEntropy exchange hierarchical digests during
+     *                              anti-entropy instead of per-key digests
      * @param persistent            persist data to disk
      * @param persistenceService    persistence service
      */
+    // CHECKSTYLE IGNORE ParameterNumber FOR NEXT 1 LINES
     EventuallyConsistentMapImpl(String mapName,
                                 ClusterService clusterService,
                                 ClusterCommunicationService clusterCommunicator,
@@ -169,6 +175,7 @@ public class EventuallyConsistentMapImpl<K, V>
                                 long antiEntropyPeriod,
                                 TimeUnit antiEntropyTimeUnit,
                                 boolean convergeFaster,
+                                boolean digestTreeAntiEntropy,
                                 boolean persistent,
                                 PersistenceService persistenceService) {
         this.mapName = mapName;
@@ -184,6 +191,12 @@ public class EventuallyConsistentMapImpl<K, V>
         } else {
             items = Maps.newConcurrentMap();
         }
+        if (digestTreeAntiEntropy) {
+            digestTree = new MapDigestTree<>(serializer::encode);
+            items.forEach((key, value) -> digestTree.update(key, null, value.digest()));
+        } else {
+            digestTree = null;
+        }
         senderPending = Maps.newConcurrentMap();
         destroyedMessage = mapName + ERROR_DESTROYED;
 
@@ -244,6 +257,17 @@ public class EventuallyConsistentMapImpl<K, V>
                                           this::handleAntiEntropyAdvertisement,
                                           serializer::encode,
                                           this.backgroundExecutor);
+        clusterCommunicator.setBulkSubject(antiEntropyAdvertisementSubject, true);
+
+        digestTreeAdvertisementSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy-tree");
+        if (digestTree != null) {
+            clusterCommunicator.addSubscriber(digestTreeAdvertisementSubject,
+                                              serializer::decode,
+                                              this::handleDigestTreeAdvertisement,
+                                              serializer::encode,
+                                              this.backgroundExecutor);
+            clusterCommunicator.setBulkSubject(digestTreeAdvertisementSubject, true);
+        }
 
         updateRequestSubject = new MessageSubject("ecm-" + mapName + "-update-request");
         clusterCommunicator.addSubscriber(updateRequestSubject,
@@ -281,6 +305,7 @@ public class EventuallyConsistentMapImpl<K, V>
                          .register(MapValue.class)
                          .register(MapValue.Digest.class)
                          .register(UpdateRequest.class)
+                         .register(DigestTreeAdvertisement.class)
                          .build(name() + "-ecmap"));
     }
 
@@ -397,6 +422,7 @@ public class EventuallyConsistentMapImpl<K, V>
             }
             if (updated.get()) {
                 previousValue.set(existing);
+                trackUpdate(k, existing, tombstone.orElse(null));
                 return tombstone.orElse(null);
             } else {
                 return existing;
@@ -425,7 +451,9 @@ public class EventuallyConsistentMapImpl<K, V>
                 updated.set(true);
                 // We return a copy to ensure updates to peers can be serialized.
                 // This prevents replica divergence due to serialization failures.
-                return serializer.copy(newValue);
+                MapValue<V> copy = serializer.copy(newValue);
+                trackUpdate(k, mv, copy);
+                return copy;
             } else {
                 return mv;
             }
@@ -496,6 +524,7 @@ public class EventuallyConsistentMapImpl<K, V>
         items.compute(key, (k, existing) -> {
             if (existing == null || newValue.isNewerThan(existing)) {
                 updated.set(true);
+                trackUpdate(k, existing, newValue);
                 return newValue;
             }
             return existing;
@@ -503,6 +532,23 @@ public class EventuallyConsistentMapImpl<K, V>
         return updated.get();
     }
 
+    /**
+     * Reflects a change of the value mapped to a key in the digest tree, if
+     * one is maintained. Must be called from within the compute function of
+     * the backing map.
+     *
+     * @param key key
+     * @param oldValue previous value; null if there was none
+     * @param newValue new value; null if the key was removed
+     */
+    private void trackUpdate(K key, MapValue<V> oldValue, MapValue<V> newValue) {
+        if (digestTree != null) {
+            digestTree.update(key,
+                              oldValue == null ? null : oldValue.digest(),
+                              newValue == null ? null : newValue.digest());
+        }
+    }
+
     @Override
     public void addListener(EventuallyConsistentMapListener<K, V> listener) {
         checkState(!destroyed, destroyedMessage);
@@ -530,6 +576,11 @@ public class EventuallyConsistentMapImpl<K, V>
         clusterCommunicator.removeSubscriber(updateMessageSubject);
         clusterCommunicator.removeSubscriber(updateRequestSubject);
         clusterCommunicator.removeSubscriber(antiEntropyAdvertisementSubject);
+        clusterCommunicator.setBulkSubject(antiEntropyAdvertisementSubject, false);
+        if (digestTree != null) {
+            clusterCommunicator.removeSubscriber(digestTreeAdvertisementSubject);
+            clusterCommunicator.setBulkSubject(digestTreeAdvertisementSubject, false);
+        }
         return CompletableFuture.completedFuture(null);
     }
 
@@ -580,7 +631,14 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private void sendAdvertisementToPeer(NodeId peer) {
         long adCreationTime = System.currentTimeMillis();
-        AntiEntropyAdvertisement<K> ad = createAdvertisement();
+        if (digestTree != null) {
+            sendDigestTreeAdvertisementToPeer(peer, adCreationTime, 0, new int[]{0});
+        } else {
+            sendAdvertisementToPeer(peer, adCreationTime, createAdvertisement());
+        }
+    }
+
+    private void sendAdvertisementToPeer(NodeId peer, long adCreationTime, AntiEntropyAdvertisement<K> ad) {
         clusterCommunicator.sendAndReceive(ad,
                 antiEntropyAdvertisementSubject,
                 serializer::encode,
@@ -608,11 +666,61 @@ public class EventuallyConsistentMapImpl<K, V>
                 });
     }
 
+    /**
+     * Advertises the hashes of the given digest tree nodes to a peer and
+     * descends into the nodes the peer reports as different. Once the leaf
+     * level is reached, the entries of the differing buckets are advertised
+     * using a regular, bucket scoped, anti-entropy advertisement.
+     */
+    private void sendDigestTreeAdvertisementToPeer(NodeId peer, long adCreationTime, int level, int[] nodes) {
+        DigestTreeAdvertisement ad = new DigestTreeAdvertisement(localNodeId, level, nodes,
+                                                                 digestTree.hashes(level, nodes));
+        clusterCommunicator.<DigestTreeAdvertisement, int[]>sendAndReceive(ad,
+                digestTreeAdvertisementSubject,
+                serializer::encode,
+                serializer::decode,
+                peer)
+                .whenComplete((diff, error) -> {
+                    if (error != null) {
+                        log.debug("Failed to send digest tree advertisement to {}", peer, error);
+                    } else if (diff == null) {
+                        log.trace("Digest tree advertisement to {} was ignored", peer);
+                    } else if (diff.length == 0) {
+                        antiEntropyTimes.put(peer, adCreationTime);
+                    } else if (level < MapDigestTree.LEAF_LEVEL) {
+                        backgroundExecutor.execute(() -> sendDigestTreeAdvertisementToPeer(
+                                peer, adCreationTime, level + 1, MapDigestTree.children(diff)));
+                    } else {
+                        backgroundExecutor.execute(() -> sendAdvertisementToPeer(
+                                peer, adCreationTime, createAdvertisement(diff)));
+                    }
+                });
+    }
+
     private AntiEntropyAdvertisement<K> createAdvertisement() {
         return new AntiEntropyAdvertisement<>(localNodeId,
                 ImmutableMap.copyOf(Maps.transformValues(items, MapValue::digest)));
     }
 
+    private AntiEntropyAdvertisement<K> createAdvertisement(int[] buckets) {
+        Set<Integer> scope = Arrays.stream(buckets).boxed().collect(Collectors.toSet());
+        Map<K, MapValue.Digest> digests = Maps.newHashMap();
+        digestTree.keys(scope).forEach(key -> {
+            MapValue<V> value = items.get(key);
+            if (value != null) {
+                digests.put(key, value.digest());
+            }
+        });
+        return new AntiEntropyAdvertisement<>(localNodeId, digests, scope);
+    }
+
+    private int[] handleDigestTreeAdvertisement(DigestTreeAdvertisement ad) {
+        if (destroyed || underHighLoad()) {
+            return null;
+        }
+        return digestTree.diff(ad.level(), ad.nodes(), ad.hashes());
+    }
+
     private AntiEntropyResponse handleAntiEntropyAdvertisement(AntiEntropyAdvertisement<K> ad) {
         if (destroyed || underHighLoad()) {
             return AntiEntropyResponse.IGNORED;
@@ -644,7 +752,20 @@ public class EventuallyConsistentMapImpl<K, V>
         Set<K> staleOrMissing = new HashSet<>();
         Set<K> locallyUnknown = new HashSet<>(ad.digest().keySet());
 
-        items.forEach((key, localValue) -> {
+        Map<K, MapValue<V>> localItems = items;
+        if (ad.buckets() != null) {
+            // only the entries in the advertised digest tree buckets are compared
+            checkState(digestTree != null, "Received bucket scoped advertisement without a digest tree");
+            localItems = Maps.newHashMap();
+            for (K key : digestTree.keys(ad.buckets())) {
+                MapValue<V> value = items.get(key);
+                if (value != null) {
+                    localItems.put(key, value);
+                }
+            }
+        }
+
+        localItems.forEach((key, localValue) -> {
             locallyUnknown.remove(key);
             MapValue.Digest remoteValueDigest = ad.digest().get(key);
             if (remoteValueDigest == null || localValue.isNewerThan(remoteValueDigest.timestamp())) {
@@ -707,7 +828,13 @@ public class EventuallyConsistentMapImpl<K, V>
                                           .filter(e -> e.getValue().creationTime() <= currentSafeTombstonePurgeTime)
                                           .collect(Collectors.toList());
         previousTombstonePurgeTime = currentSafeTombstonePurgeTime;
-        tombStonesToDelete.forEach(entry -> items.remove(entry.getKey(), entry.getValue()));
+        tombStonesToDelete.forEach(entry -> items.computeIfPresent(entry.getKey(), (key, value) -> {
+            if (value.equals(entry.getValue())) {
+                trackUpdate(key, value, null);
+                return null;
+            }
+            return value;
+        }));
     }
 
     private void processUpdates(Collection<UpdateEntry<K, V>> updates) {
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Hierarchical digest over the entries of an eventually consistent map.
+ * <p>
+ * Keys are hashed into a fixed number of leaf buckets. Every bucket carries
+ * the XOR of the hashes of its (key, digest) entries and every inner node
+ * carries the XOR of its children, so that an update only touches the
+ * nodes on the path from its leaf to the root. Two replicas holding the same
+ * entries have identical trees; replicas that diverge differ only along the
+ * paths leading to the buckets holding the divergent entries.
+ * </p>
+ * <p>
+ * Hashes are computed over the serialized form of keys and digests so that
+ * they are stable across controller instances.
+ * </p>
+ *
+ * @param <K> key type
+ */
+final class MapDigestTree<K> {
+
+    /**
+     * Number of bits of the bucket index consumed by each tree level.
+     */
+    static final int BITS_PER_LEVEL = 4;
+
+    /**
+     * Number of children of each inner node.
+     */
+    static final int FANOUT = 1 << BITS_PER_LEVEL;
+
+    /**
+     * Depth of the leaf level; the root is at level 0.
+     */
+    static final int LEAF_LEVEL = 3;
+
+    /**
+     * Number of leaf buckets.
+     */
+    static final int BUCKETS = 1 << (BITS_PER_LEVEL * LEAF_LEVEL);
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final Function<Object, byte[]> encoder;
+    private final AtomicLongArray[] levels = new AtomicLongArray[LEAF_LEVEL + 1];
+    private final Map<Integer, Set<K>> bucketKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new, empty digest tree.
+     *
+     * @param encoder function used to serialize keys and digests
+     */
+    MapDigestTree(Function<Object, byte[]> encoder) {
+        this.encoder = encoder;
+        for (int level = 0; level <= LEAF_LEVEL; level++) {
+            levels[level] = new AtomicLongArray(1 << (BITS_PER_LEVEL * level));
+        }
+    }
+
+    /**
+     * Accounts for a change of the value mapped to the specified key.
+     * <p>
+     * Must be invoked while holding the key's entry in the backing map so
+     * that updates to the same key are applied in order.
+     * </p>
+     *
+     * @param key          key whose value changed
+     * @param oldDigest    digest of the previous value; null if there was none
+     * @param newDigest    digest of the new value; null if the key was removed
+     */
+    void update(K key, MapValue.Digest oldDigest, MapValue.Digest newDigest) {
+        if (Objects.equals(oldDigest, newDigest)) {
+            return;
+        }
+        long keyHash = HASH.hashBytes(encoder.apply(key)).asLong();
+        int bucket = bucket(keyHash);
+        long delta = entryHash(keyHash, oldDigest) ^ entryHash(keyHash, newDigest);
+        for (int level = LEAF_LEVEL; level >= 0; level--) {
+            int index = bucket >>> (BITS_PER_LEVEL * (LEAF_LEVEL - level));
+            AtomicLongArray hashes = levels[level];
+            long current;
+            do {
+                current = hashes.get(index);
+            } while (!hashes.compareAndSet(index, current, current ^ delta));
+        }
+        if (oldDigest == null) {
+            bucketKeys.compute(bucket, (b, keys) -> {
+                Set<K> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                result.add(key);
+                return result;
+            });
+        } else if (newDigest == null) {
+            bucketKeys.computeIfPresent(bucket, (b, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * Returns the hashes of the specified nodes of a tree level.
+     *
+     * @param level tree level
+     * @param nodes node indexes within the level
+     * @return node hashes, in the same order as the nodes
+     */
+    long[] hashes(int level, int[] nodes) {
+        checkLevel(level);
+        long[] result = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            result[i] = levels[level].get(nodes[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the nodes whose local hash differs from the given remote one.
+     *
+     * @param level  tree level
+     * @param nodes  node indexes within the level
+     * @param hashes remote node hashes, in the same order as the nodes
+     * @return indexes of the nodes that differ
+     */
+    int[] diff(int level, int[] nodes, long[] hashes) {
+        checkLevel(level);
+        checkArgument(nodes.length == hashes.length, "nodes and hashes must have the same length");
+        return IntStream.range(0, nodes.length)
+                .filter(i -> levels[level].get(nodes[i]) != hashes[i])
+                .map(i -> nodes[i])
+                .toArray();
+    }
+
+    /**
+     * Returns the children of the specified nodes.
+     *
+     * @param nodes node indexes within a non-leaf level
+     * @return indexes of the children within the next level
+     */
+    static int[] children(int[] nodes) {
+        int[] result = new int[nodes.length * FANOUT];
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = 0; j < FANOUT; j++) {
+                result[i * FANOUT + j] = (nodes[i] << BITS_PER_LEVEL) | j;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys currently hashed into the specified buckets.
+     *
+     * @param buckets leaf bucket indexes
+     * @return keys held in the buckets
+     */
+    Set<K> keys(Set<Integer> buckets) {
+        ImmutableSet.Builder<K> builder = ImmutableSet.builder();
+        buckets.forEach(bucket -> builder.addAll(bucketKeys.getOrDefault(bucket, ImmutableSet.of())));
+        return builder.build();
+    }
+
+    /**
+     * Returns the hash of the whole tree.
+     *
+     * @return root hash
+     */
+    long rootHash() {
+        return levels[0].get(0);
+    }
+
+    private long entryHash(long keyHash, MapValue.Digest digest) {
+        if (digest == null) {
+            return 0L;
+        }
+        return HASH.newHasher()
+                .putLong(keyHash)
+                .putBytes(encoder.apply(digest))
+                .hash()
+                .asLong();
+    }
+
+    private static int bucket(long keyHash) {
+        return (int) (keyHash >>> (Long.SIZE - BITS_PER_LEVEL * LEAF_LEVEL));
+    }
+
+    private static void checkLevel(int level) {
+        checkArgument(level >= 0 && level <= LEAF_LEVEL, "invalid tree level %s", level);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.atomix.catalyst.concurrent.SingleThreadContext;
+import io.atomix.catalyst.serializer.Serializer;
+import io.atomix.catalyst.transport.Address;
+import io.atomix.catalyst.transport.MessageHandler;
+import io.atomix.catalyst.transport.TransportException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.util.Tools;
+import org.onosproject.cluster.PartitionId;
+import org.onosproject.store.cluster.messaging.Endpoint;
+import org.onosproject.store.cluster.messaging.MessagingService;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * Unit tests for CopycatTransportConnection.
+ */
+public class CopycatTransportConnectionTest {
+
+    private static final PartitionId PARTITION = PartitionId.from(1);
+    private static final Address ADDRESS = new Address("127.0.0.1", 9876);
+
+    private LoopbackMessagingService messagingService;
+    private SingleThreadContext clientContext;
+    private SingleThreadContext serverContext;
+    private CopycatTransportConnection client;
+    private CompletableFuture<Object> slowReply;
+
+    @Before
+    public void setUp() {
+        messagingService = new LoopbackMessagingService();
+        clientContext = new SingleThreadContext("copycat-test-client-%d", new Serializer());
+        serverContext = new SingleThreadContext("copycat-test-server-%d", new Serializer());
+        client = new CopycatTransportConnection(1, CopycatTransport.Mode.CLIENT, PARTITION, ADDRESS,
+                                                messagingService, clientContext);
+        CopycatTransportConnection server =
+                new CopycatTransportConnection(1, CopycatTransport.Mode.SERVER, PARTITION, ADDRESS,
+                                               messagingService, serverContext);
+        // dispatches the frames to the server connection, like CopycatTransportServer
+        messagingService.registerHandler(String.format("onos-copycat-%s", PARTITION), (sender, payload) -> {
+            CopycatTransportFrames.Reader frame = new CopycatTransportFrames.Reader(payload);
+            frame.readHeader();
+            return server.handle(frame);
+        });
+
+        slowReply = new CompletableFuture<>();
+        serverContext.execute(() -> {
+            server.handler(String.class, (MessageHandler<String, Object>) message -> {
+                switch (message) {
+                    case "slow":
+                        return slowReply;
+                    case "fail":
+                        return Tools.exceptionalFuture(new IllegalStateException(message));
+                    case "never":
+                        return new CompletableFuture<>();
+                    default:
+                        return CompletableFuture.completedFuture(message.toUpperCase());
+                }
+            });
+        }).join();
+    }
+
+    @After
+    public void tearDown() {
+        clientContext.close();
+        serverContext.close();
+    }
+
+    // sends the given messages in the same round, hence in the same frame
+    private List<CompletableFuture<Object>> send(String... messages) {
+        return clientContext.execute(() -> {
+            ImmutableList.Builder<CompletableFuture<Object>> results = ImmutableList.builder();
+            for (String message : messages) {
+                results.add(client.send(message));
+            }
+            return results.build();
+        }).join();
+    }
+
+    private static Object get(CompletableFuture<Object> result) throws Exception {
+        return result.get(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that the messages of a frame are replied to as soon as each of
+     * them is handled.
+     */
+    @Test
+    public void testRepliesAsHandled() throws Exception {
+        List<CompletableFuture<Object>> results = send("slow", "fast");
+        assertEquals("FAST", get(results.get(1)));
+        assertEquals(1, messagingService.frames);
+        assertFalse(results.get(0).isDone());
+
+        slowReply.complete("SLOW");
+        assertEquals("SLOW", get(results.get(0)));
+    }
+
+    /**
+     * Tests that the failure of a message does not affect the others of
+     * its frame.
+     */
+    @Test
+    public void testFailureIsolated() throws Exception {
+        List<CompletableFuture<Object>> results = send("foo", "fail", "bar");
+        assertEquals("FOO", get(results.get(0)));
+        assertEquals("BAR", get(results.get(2)));
+        assertEquals(1, messagingService.frames);
+        try {
+            get(results.get(1));
+            fail("Failed message should not complete normally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Tests that a message which is never replied to times out.
+     */
+    @Test
+    public void testUnrepliedMessageTimesOut() throws Exception {
+        List<CompletableFuture<Object>> results = send("never", "foo");
+
+        assertEquals("FOO", get(results.get(1)));
+        try {
+            get(results.get(0));
+            fail("Unreplied message should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TransportException);
+        }
+    }
+
+    /**
+     * Messaging service delivering every message to the local handlers.
+     */
+    private static final class LoopbackMessagingService implements MessagingService {
+        private final Map<String, BiFunction<Endpoint, byte[], CompletableFuture<byte[]>>> handlers =
+                Maps.newConcurrentMap();
+        private volatile int frames;
+
+        private CompletableFuture<byte[]> deliver(Endpoint ep, String type, byte[] payload) {
+            BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> handler = handlers.get(type);
+            if (handler == null) {
+                return Tools.exceptionalFuture(new IllegalStateException("No handler for " + type));
+            }
+            return handler.apply(ep, payload);
+        }
+
+        @Override
+        public CompletableFuture<Void> sendAsync(Endpoint ep, String type, byte[] payload) {
+            return deliver(ep, type, payload).thenApply(r -> null);
+        }
+
+        @Override
+        public CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload) {
+            frames++;
+            return deliver(ep, type, payload);
+        }
+
+        @Override
+        public CompletableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload,
+                                                        Executor executor) {
+            return sendAndReceive(ep, type, payload);
+        }
+
+        @Override
+        public void registerHandler(String type, BiConsumer<Endpoint, byte[]> handler, Executor executor) {
+            handlers.put(type, (ep, payload) -> {
+                handler.accept(ep, payload);
+                return CompletableFuture.completedFuture(new byte[0]);
+            });
+        }
+
+        @Override
+        public void registerHandler(String type, BiFunction<Endpoint, byte[], byte[]> handler,
+                                    Executor executor) {
+            handlers.put(type, (ep, payload) -> CompletableFuture.completedFuture(handler.apply(ep, payload)));
+        }
+
+        @Override
+        public void registerHandler(String type, BiFunction<Endpoint, byte[], CompletableFuture<byte[]>> handler) {
+            handlers.put(type, handler);
+        }
+
+        @Override
+        public void unregisterHandler(String type) {
+            handlers.remove(type);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Unit tests for CopycatTransportFrames.
+ */
+public class CopycatTransportFramesTest {
+
+    private static final byte[] FOO = "foo".getBytes();
+    private static final byte[] BAR = "bar-bar".getBytes();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        writer.writeHeader(-42L);
+        writer.beginEntry();
+        writer.write(FOO);
+        writer.endEntry();
+        writer.beginEntry();
+        writer.endEntry();
+        writer.beginEntry();
+        writer.write(BAR);
+        writer.endEntry();
+        assertEquals(3, writer.entries());
+
+        CopycatTransportFrames.Reader reader = new CopycatTransportFrames.Reader(writer.toByteArray());
+        assertEquals(-42L, reader.readHeader());
+        assertArrayEquals(FOO, IOUtils.toByteArray(reader.readEntry()));
+        assertArrayEquals(new byte[0], IOUtils.toByteArray(reader.readEntry()));
+        assertArrayEquals(BAR, IOUtils.toByteArray(reader.readEntry()));
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void testAbortEntry() throws IOException {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        writer.beginEntry();
+        writer.write(FOO);
+        writer.endEntry();
+        writer.beginEntry();
+        writer.write(BAR);
+        writer.abortEntry();
+        assertEquals(1, writer.entries());
+
+        CopycatTransportFrames.Reader reader = new CopycatTransportFrames.Reader(writer.toByteArray());
+        assertArrayEquals(FOO, IOUtils.toByteArray(reader.readEntry()));
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void testWriterReuse() {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        byte[] large = new byte[4096];
+        Arrays.fill(large, (byte) 7);
+        writer.beginEntry();
+        writer.write(large, 0, large.length);
+        writer.endEntry();
+        assertEquals(large.length + Integer.BYTES, writer.size());
+
+        CopycatTransportFrames.Writer again = CopycatTransportFrames.writer();
+        assertTrue(again == writer);
+        assertEquals(0, again.size());
+        assertEquals(0, again.entries());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTruncatedFrame() throws IOException {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        writer.beginEntry();
+        writer.write(BAR);
+        writer.endEntry();
+        byte[] frame = writer.toByteArray();
+        new CopycatTransportFrames.Reader(Arrays.copyOf(frame, frame.length - 1)).readEntry();
+    }
+
+    @Test
+    public void testReadRemaining() throws IOException {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        writer.writeHeader(7L);
+        writer.writeLong(42L);
+        writer.write(BAR);
+
+        CopycatTransportFrames.Reader reader = new CopycatTransportFrames.Reader(writer.toByteArray());
+        assertEquals(7L, reader.readHeader());
+        assertEquals(42L, reader.readLong());
+        assertArrayEquals(BAR, IOUtils.toByteArray(reader.readRemaining()));
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnsupportedVersion() {
+        CopycatTransportFrames.Writer writer = CopycatTransportFrames.writer();
+        writer.writeHeader(7L);
+        byte[] frame = writer.toByteArray();
+        frame[0] = CopycatTransportFrames.VERSION + 1;
+        new CopycatTransportFrames.Reader(frame).readHeader();
+    }
+}
@@ -41,6 +41,8 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -51,6 +53,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onlab.packet.IpAddress;
 import org.onlab.util.KryoNamespace;
+import org.onlab.util.Tools;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.cluster.DefaultControllerNode;
@@ -66,9 +69,13 @@ import org.onosproject.store.serializers.KryoNamespaces;
 import org.onosproject.store.service.EventuallyConsistentMap;
 import org.onosproject.store.service.EventuallyConsistentMapEvent;
 import org.onosproject.store.service.EventuallyConsistentMapListener;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
 import com.google.common.util.concurrent.MoreExecutors;
 
 /**
@@ -90,6 +97,8 @@ public class EventuallyConsistentMapImplTest {
             = new MessageSubject("ecm-" + MAP_NAME + "-anti-entropy");
     private static final MessageSubject UPDATE_REQUEST_SUBJECT
             = new MessageSubject("ecm-" + MAP_NAME + "-update-request");
+    private static final MessageSubject DIGEST_TREE_MESSAGE_SUBJECT
+            = new MessageSubject("ecm-" + MAP_NAME + "-anti-entropy-tree");
 
     private static final String KEY1 = "one";
     private static final String KEY2 = "two";
@@ -98,11 +107,19 @@ public class EventuallyConsistentMapImplTest {
 
     private final ControllerNode self =
             new DefaultControllerNode(new NodeId("local"), IpAddress.valueOf(1));
+    private final ControllerNode node1 =
+            new DefaultControllerNode(new NodeId("node1"), IpAddress.valueOf(2));
+    private final ControllerNode node2 =
+            new DefaultControllerNode(new NodeId("node2"), IpAddress.valueOf(3));
 
     private Consumer<Collection<UpdateEntry<String, String>>> updateHandler;
     private Consumer<Collection<UpdateRequest<String>>> requestHandler;
     private Function<AntiEntropyAdvertisement<String>, AntiEntropyResponse> antiEntropyHandler;
 
+    private final Map<NodeId, PeerClusterCommunicationService> cluster = Maps.newConcurrentMap();
+    private final List<EventuallyConsistentMap<String, String>> replicas = new ArrayList<>();
+    private volatile boolean replicating = true;
+
     @Before
     public void setUp() throws Exception {
         clusterService = createMock(ClusterService.class);
@@ -129,6 +146,7 @@ public class EventuallyConsistentMapImplTest {
         clusterCommunicator.<Object>addSubscriber(anyObject(MessageSubject.class),
                 anyObject(Function.class), anyObject(Consumer.class), anyObject(Executor.class));
         expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(1);
+        clusterCommunicator.setBulkSubject(ANTI_ENTROPY_MESSAGE_SUBJECT, true);
 
         replay(clusterCommunicator);
 
@@ -155,6 +173,7 @@ public class EventuallyConsistentMapImplTest {
     public void tearDown() {
         reset(clusterCommunicator);
         ecMap.destroy();
+        replicas.forEach(EventuallyConsistentMap::destroy);
     }
 
     @SuppressWarnings("unchecked")
@@ -635,6 +654,7 @@ public class EventuallyConsistentMapImplTest {
         clusterCommunicator.removeSubscriber(UPDATE_MESSAGE_SUBJECT);
         clusterCommunicator.removeSubscriber(UPDATE_REQUEST_SUBJECT);
         clusterCommunicator.removeSubscriber(ANTI_ENTROPY_MESSAGE_SUBJECT);
+        clusterCommunicator.setBulkSubject(ANTI_ENTROPY_MESSAGE_SUBJECT, false);
 
         replay(clusterCommunicator);
 
@@ -657,6 +677,69 @@ public class EventuallyConsistentMapImplTest {
         }
     }
 
+    @Test
+    public void testDigestTreeAntiEntropyInSync() throws Exception {
+        Replica replica1 = new Replica(node1, node2);
+        Replica replica2 = new Replica(node2, node1);
+
+        replica2.awaitEvents(() -> replica1.map.put(KEY1, VALUE1));
+
+        replica1.antiEntropy();
+
+        // The root hashes match, so nothing below the root is exchanged
+        assertEquals(1, replica1.communicator.sent.get(DIGEST_TREE_MESSAGE_SUBJECT).size());
+        assertTrue(replica1.communicator.sent.get(ANTI_ENTROPY_MESSAGE_SUBJECT).isEmpty());
+        assertTrue(replica2.communicator.sent.isEmpty());
+    }
+
+    @Test
+    public void testDigestTreeAntiEntropyRepairsDivergentKey() throws Exception {
+        Replica replica1 = new Replica(node1, node2);
+        Replica replica2 = new Replica(node2, node1);
+
+        // A replica ignores anti-entropy under high load, so each replica
+        // takes no more than two writes here
+        replica2.awaitEvents(() -> replica1.map.put(KEY1, VALUE1));
+        replicating = false;
+        replica1.map.put(KEY2, VALUE2);
+        assertNull(replica2.map.get(KEY2));
+
+        replica2.awaitEvents(replica1::antiEntropy);
+
+        // The exchange descends to the single differing leaf bucket
+        assertEquals(MapDigestTree.LEAF_LEVEL + 1,
+                     replica1.communicator.sent.get(DIGEST_TREE_MESSAGE_SUBJECT).size());
+        AntiEntropyAdvertisement<String> ad = replica1.sentAdvertisement();
+        assertEquals(1, ad.buckets().size());
+        assertTrue(ad.digest().containsKey(KEY2));
+        assertEquals(ImmutableSet.of(KEY2), replica2.sentUpdateRequest().keys());
+
+        assertEquals(VALUE1, replica2.map.get(KEY1));
+        assertEquals(VALUE2, replica2.map.get(KEY2));
+    }
+
+    @Test
+    public void testDigestTreeAntiEntropyPropagatesTombstone() throws Exception {
+        Replica replica1 = new Replica(node1, node2);
+        Replica replica2 = new Replica(node2, node1);
+
+        replica2.awaitEvents(() -> replica1.map.put(KEY1, VALUE1));
+        replicating = false;
+        replica1.map.remove(KEY1);
+        assertEquals(VALUE1, replica2.map.get(KEY1));
+
+        replica2.awaitEvents(replica1::antiEntropy);
+
+        AntiEntropyAdvertisement<String> ad = replica1.sentAdvertisement();
+        assertEquals(1, ad.buckets().size());
+        assertTrue(ad.digest().get(KEY1).isTombstone());
+        // The tombstone is applied from the advertisement itself
+        assertTrue(replica2.sentUpdateRequest().keys().isEmpty());
+
+        assertNull(replica2.map.get(KEY1));
+        assertTrue(replica2.map.isEmpty());
+    }
+
     private UpdateEntry<String, String> generatePutMessage(String key, String value, Timestamp timestamp) {
         return new UpdateEntry<>(key, new MapValue<>(value, timestamp));
     }
@@ -799,6 +882,189 @@ public class EventuallyConsistentMapImplTest {
         }
     }
 
+    /**
+     * Replica of a digest tree anti-entropy map, which exchanges messages
+     * with the other replicas through the test cluster.
+     */
+    private final class Replica {
+        private final EventuallyConsistentMap<String, String> map;
+        private final PeerClusterCommunicationService communicator;
+        private final ManualScheduledExecutor backgroundExecutor = new ManualScheduledExecutor();
+
+        /**
+         * Creates a replica and adds it to the test cluster.
+         *
+         * @param local the node of the replica
+         * @param peer the node of the other replica
+         */
+        private Replica(ControllerNode local, ControllerNode peer) {
+            ClusterService clusterService = createMock(ClusterService.class);
+            expect(clusterService.getLocalNode()).andReturn(local).anyTimes();
+            expect(clusterService.getNodes()).andReturn(ImmutableSet.of(local, peer)).anyTimes();
+            expect(clusterService.getState(peer.id())).andReturn(ControllerNode.State.ACTIVE).anyTimes();
+            replay(clusterService);
+
+            communicator = new PeerClusterCommunicationService();
+            cluster.put(local.id(), communicator);
+
+            KryoNamespace.Builder serializer = KryoNamespace.newBuilder()
+                    .register(KryoNamespaces.API)
+                    .register(TestTimestamp.class);
+
+            map = new EventuallyConsistentMapBuilderImpl<String, String>(
+                            clusterService, communicator, persistenceService)
+                    .withName(MAP_NAME)
+                    .withSerializer(serializer)
+                    .withTimestampProvider((k, v) -> clockService.getTimestamp(k, v))
+                    .withPeerUpdateFunction((k, v) ->
+                            replicating ? ImmutableList.of(peer.id()) : ImmutableList.of())
+                    .withEventExecutor(MoreExecutors.newDirectExecutorService())
+                    .withCommunicationExecutor(MoreExecutors.newDirectExecutorService())
+                    .withBackgroundExecutor(backgroundExecutor)
+                    .withDigestTreeAntiEntropy()
+                    .build();
+            replicas.add(map);
+        }
+
+        /**
+         * Runs a round of anti-entropy with the peer.
+         */
+        private void antiEntropy() {
+            backgroundExecutor.antiEntropyTask.run();
+        }
+
+        /**
+         * Runs an action and waits for the map of this replica to notify an
+         * event.
+         *
+         * @param action the action to run
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private void awaitEvents(Runnable action) throws InterruptedException {
+            CountDownLatch latch = new CountDownLatch(1);
+            TestListener listener = new TestListener(latch);
+            map.addListener(listener);
+            action.run();
+            assertTrue("Timeout waiting for an event", latch.await(1, TimeUnit.SECONDS));
+            map.removeListener(listener);
+        }
+
+        /**
+         * Returns the only anti-entropy advertisement this replica has sent.
+         *
+         * @return the anti-entropy advertisement
+         */
+        @SuppressWarnings("unchecked")
+        private AntiEntropyAdvertisement<String> sentAdvertisement() {
+            List<Object> ads = communicator.sent.get(ANTI_ENTROPY_MESSAGE_SUBJECT);
+            assertEquals(1, ads.size());
+            return (AntiEntropyAdvertisement<String>) ads.get(0);
+        }
+
+        /**
+         * Returns the only update request this replica has sent.
+         *
+         * @return the update request
+         */
+        @SuppressWarnings("unchecked")
+        private UpdateRequest<String> sentUpdateRequest() {
+            List<Object> requests = communicator.sent.get(UPDATE_REQUEST_SUBJECT);
+            assertEquals(1, requests.size());
+            return (UpdateRequest<String>) requests.get(0);
+        }
+    }
+
+    /**
+     * ClusterCommunicationService implementation that encodes the messages
+     * sent by a replica and hands them to the subscribers of the destination
+     * replica. The messages sent are recorded by subject.
+     */
+    private final class PeerClusterCommunicationService
+            extends ClusterCommunicationServiceAdapter {
+
+        private final Map<MessageSubject, Function<byte[], CompletableFuture<byte[]>>> subscribers =
+                Maps.newConcurrentMap();
+        private final ListMultimap<MessageSubject, Object> sent =
+                Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+
+        @Override
+        public <M> void addSubscriber(MessageSubject subject,
+                Function<byte[], M> decoder, Consumer<M> handler,
+                Executor executor) {
+            subscribers.put(subject, payload -> CompletableFuture.runAsync(
+                    () -> handler.accept(decoder.apply(payload)), executor).thenApply(v -> null));
+        }
+
+        @Override
+        public <M, R> void addSubscriber(MessageSubject subject,
+                Function<byte[], M> decoder, Function<M, R> handler, Function<R, byte[]> encoder, Executor executor) {
+            subscribers.put(subject, payload -> CompletableFuture.supplyAsync(
+                    () -> encoder.apply(handler.apply(decoder.apply(payload))), executor));
+        }
+
+        @Override
+        public void removeSubscriber(MessageSubject subject) {
+            subscribers.remove(subject);
+        }
+
+        @Override
+        public <M> CompletableFuture<Void> unicast(M message, MessageSubject subject,
+                Function<M, byte[]> encoder, NodeId toNodeId) {
+            return deliver(message, subject, encoder, toNodeId).thenApply(reply -> null);
+        }
+
+        @Override
+        public <M, R> CompletableFuture<R> sendAndReceive(M message,
+                MessageSubject subject, Function<M, byte[]> encoder,
+                Function<byte[], R> decoder, NodeId toNodeId) {
+            return deliver(message, subject, encoder, toNodeId).thenApply(decoder);
+        }
+
+        private <M> CompletableFuture<byte[]> deliver(M message, MessageSubject subject,
+                Function<M, byte[]> encoder, NodeId toNodeId) {
+            sent.put(subject, message);
+            Function<byte[], CompletableFuture<byte[]>> subscriber =
+                    cluster.get(toNodeId).subscribers.get(subject);
+            if (subscriber == null) {
+                return Tools.exceptionalFuture(
+                        new IllegalStateException("No subscriber for " + subject));
+            }
+            return subscriber.apply(encoder.apply(message));
+        }
+    }
+
+    /**
+     * Background executor that runs tasks in the calling thread and holds on
+     * to the periodic anti-entropy task, so that tests decide when it runs.
+     */
+    private static final class ManualScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+        private Runnable antiEntropyTask;
+
+        private ManualScheduledExecutor() {
+            super(0);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay,
+                                                      long period, TimeUnit unit) {
+            antiEntropyTask = command;
+            return null;
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+                                                         long delay, TimeUnit unit) {
+            // tombstones are not purged in these tests
+            return null;
+        }
+    }
+
     /**
      * ClockService implementation that gives out timestamps based on a
      * sequential counter. This clock service enables more control over the
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onosproject.store.LogicalTimestamp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MapDigestTree.
+ */
+public class MapDigestTreeTest {
+
+    private static final MapValue.Digest V1 = new MapValue.Digest(new LogicalTimestamp(1), false);
+    private static final MapValue.Digest V2 = new MapValue.Digest(new LogicalTimestamp(2), false);
+    private static final MapValue.Digest T3 = new MapValue.Digest(new LogicalTimestamp(3), true);
+
+    private final MapDigestTree<String> tree1 = newTree();
+    private final MapDigestTree<String> tree2 = newTree();
+
+    private static MapDigestTree<String> newTree() {
+        return new MapDigestTree<>(o -> o.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(0L, tree1.rootHash());
+        assertEquals(0, tree1.diff(0, new int[]{0}, tree2.hashes(0, new int[]{0})).length);
+    }
+
+    @Test
+    public void testSameEntriesInDifferentOrder() {
+        for (int i = 0; i < 100; i++) {
+            tree1.update("k" + i, null, V1);
+        }
+        for (int i = 99; i >= 0; i--) {
+            tree2.update("k" + i, null, V2);
+            tree2.update("k" + i, V2, V1);
+        }
+        assertEquals(tree1.rootHash(), tree2.rootHash());
+    }
+
+    @Test
+    public void testRemoveRestoresHash() {
+        tree1.update("a", null, V1);
+        long hash = tree1.rootHash();
+        tree1.update("b", null, V1);
+        assertNotEquals(hash, tree1.rootHash());
+        tree1.update("b", V1, null);
+        assertEquals(hash, tree1.rootHash());
+        tree1.update("a", V1, null);
+        assertEquals(0L, tree1.rootHash());
+    }
+
+    @Test
+    public void testDescendToDivergentBucket() {
+        for (int i = 0; i < 1000; i++) {
+            tree1.update("k" + i, null, V1);
+            tree2.update("k" + i, null, V1);
+        }
+        tree2.update("k42", V1, T3);
+
+        int[] nodes = new int[]{0};
+        for (int level = 0; level <= MapDigestTree.LEAF_LEVEL; level++) {
+            int[] diff = tree1.diff(level, nodes, tree2.hashes(level, nodes));
+            assertEquals(1, diff.length);
+            nodes = level < MapDigestTree.LEAF_LEVEL ? MapDigestTree.children(diff) : diff;
+        }
+
+        Set<Integer> buckets = Arrays.stream(nodes).boxed().collect(Collectors.toSet());
+        assertTrue(tree1.keys(buckets).contains("k42"));
+        assertEquals(tree1.keys(buckets), tree2.keys(buckets));
+    }
+
+    @Test
+    public void testChildren() {
+        int[] children = MapDigestTree.children(new int[]{1});
+        assertEquals(MapDigestTree.FANOUT, children.length);
+        assertEquals(MapDigestTree.FANOUT, children[0]);
+        assertEquals(2 * MapDigestTree.FANOUT - 1, children[MapDigestTree.FANOUT - 1]);
+        assertArrayEquals(new int[0], MapDigestTree.children(new int[0]));
+        assertEquals(ImmutableSet.of(), tree1.keys(ImmutableSet.of(0)));
+    }
+}
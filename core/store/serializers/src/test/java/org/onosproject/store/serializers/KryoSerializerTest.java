@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.onlab.packet.VlanId;
 import org.onlab.util.Bandwidth;
 import org.onlab.util.Frequency;
+import org.onlab.util.KryoNamespace;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.cluster.RoleInfo;
 import org.onosproject.core.DefaultApplicationId;
@@ -81,6 +82,8 @@ import org.onlab.packet.Ip4Prefix;
 import org.onlab.packet.Ip6Prefix;
 import org.onlab.packet.MacAddress;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
@@ -426,6 +429,23 @@ public class KryoSerializerTest {
         assertAnnotationsEquals(copiedA12, A1_2);
     }
 
+    @Test
+    public void testReusedBuffers() {
+        KryoNamespace namespace = KryoNamespaces.API;
+        byte[] large = new byte[2 * KryoNamespace.MAX_POOLED_BUFFER_SIZE];
+        Arrays.fill(large, (byte) 1);
+
+        // a small object after a large one must not carry its leftovers
+        assertArrayEquals(large, namespace.deserialize(namespace.serialize(large)));
+        assertEquals(CP1, namespace.deserialize(namespace.serialize(CP1)));
+        assertEquals(CP2, namespace.deserialize(namespace.serialize(CP2)));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        namespace.serialize(large, stream, 16);
+        assertArrayEquals(large, namespace.deserialize(new ByteArrayInputStream(stream.toByteArray())));
+        assertArrayEquals(namespace.serialize(DEV1), namespace.serialize(DEV1));
+    }
+
     // code clone
     private static void assertAnnotationsEquals(Annotations actual, SparseAnnotations... annotations) {
         SparseAnnotations expected = DefaultAnnotations.builder().build();
@@ -36,6 +36,15 @@ public interface RouteStore extends Store<RouteEvent, RouteStoreDelegate> {
      */
     void updateRoute(Route route);
 
+    /**
+     * Adds or updates the given routes in the store.
+     *
+     * @param routes routes to add or update
+     */
+    default void updateRoutes(Collection<Route> routes) {
+        routes.forEach(this::updateRoute);
+    }
+
     /**
      * Removes the given route from the store.
      *
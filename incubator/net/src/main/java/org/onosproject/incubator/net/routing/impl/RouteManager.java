@@ -181,11 +181,9 @@ public class RouteManager implements ListenerService<RouteEvent, RouteListener>,
     @Override
     public void update(Collection<Route> routes) {
         synchronized (this) {
-            routes.forEach(route -> {
-                log.debug("Received update {}", route);
-                routeStore.updateRoute(route);
-                resolve(route);
-            });
+            routes.forEach(route -> log.debug("Received update {}", route));
+            routeStore.updateRoutes(routes);
+            routes.forEach(this::resolve);
         }
     }
 
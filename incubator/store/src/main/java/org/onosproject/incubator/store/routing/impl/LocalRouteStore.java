@@ -20,10 +20,6 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
-import com.googlecode.concurrenttrees.common.KeyValuePair;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-import com.googlecode.concurrenttrees.radixinverted.ConcurrentInvertedRadixTree;
-import com.googlecode.concurrenttrees.radixinverted.InvertedRadixTree;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Service;
@@ -42,12 +38,13 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Route store based on in-memory storage.
@@ -69,8 +66,8 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
     public void activate() {
         routeTables = new ConcurrentHashMap<>();
 
-        routeTables.put(IPV4, new RouteTable());
-        routeTables.put(IPV6, new RouteTable());
+        routeTables.put(IPV4, new RouteTable(IpAddress.Version.INET));
+        routeTables.put(IPV6, new RouteTable(IpAddress.Version.INET6));
     }
 
     @Override
@@ -78,6 +75,14 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
         getDefaultRouteTable(route).update(route);
     }
 
+    @Override
+    public void updateRoutes(Collection<Route> routes) {
+        Map<Boolean, List<Route>> byVersion = routes.stream()
+                .collect(Collectors.partitioningBy(route -> route.prefix().isIp4()));
+        routeTables.get(IPV4).update(byVersion.get(true));
+        routeTables.get(IPV6).update(byVersion.get(false));
+    }
+
     @Override
     public void removeRoute(Route route) {
         RouteTable table = getDefaultRouteTable(route);
@@ -162,27 +167,11 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
         return routeTables.get(routeTableId);
     }
 
-    private static String createBinaryString(IpPrefix ipPrefix) {
-        byte[] octets = ipPrefix.address().toOctets();
-        StringBuilder result = new StringBuilder(ipPrefix.prefixLength());
-        result.append("0");
-        for (int i = 0; i < ipPrefix.prefixLength(); i++) {
-            int byteOffset = i / Byte.SIZE;
-            int bitOffset = i % Byte.SIZE;
-            int mask = 1 << (Byte.SIZE - 1 - bitOffset);
-            byte value = octets[byteOffset];
-            boolean isSet = ((value & mask) != 0);
-            result.append(isSet ? "1" : "0");
-        }
-
-        return result.toString();
-    }
-
     /**
      * Route table into which routes can be placed.
      */
     private class RouteTable {
-        private final InvertedRadixTree<Route> routeTable;
+        private final PatriciaTrie<Route> routeTable;
 
         private final Map<IpPrefix, Route> routes = new ConcurrentHashMap<>();
         private final Multimap<IpAddress, Route> reverseIndex =
@@ -190,10 +179,11 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
 
         /**
          * Creates a new route table.
+         *
+         * @param version IP version of the routes
          */
-        public RouteTable() {
-            routeTable = new ConcurrentInvertedRadixTree<>(
-                    new DefaultByteArrayNodeFactory());
+        public RouteTable(IpAddress.Version version) {
+            routeTable = new PatriciaTrie<>(version);
         }
 
         /**
@@ -202,48 +192,73 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
          * @param route route to update
          */
         public void update(Route route) {
+            update(Collections.singletonList(route));
+        }
+
+        /**
+         * Adds or updates the routes in the route table. The routes are
+         * loaded in bulk when they outnumber those already in the table.
+         *
+         * @param newRoutes routes to update
+         */
+        public void update(Collection<Route> newRoutes) {
             synchronized (this) {
-                Route oldRoute = routes.put(route.prefix(), route);
-                routeTable.put(createBinaryString(route.prefix()), route);
+                Map<IpPrefix, Route> batch = new LinkedHashMap<>();
+                List<RouteEvent> events = new LinkedList<>();
+                for (Route route : newRoutes) {
+                    batch.put(route.prefix(), route);
+                    RouteEvent event = updateIndexes(route);
+                    if (event != null) {
+                        events.add(event);
+                    }
+                }
+                routeTable.putAll(batch);
 
-                // TODO manage routes from multiple providers
+                // Only notify once the routes can be looked up
+                events.forEach(LocalRouteStore.this::notifyDelegate);
+            }
+        }
 
-                reverseIndex.put(route.nextHop(), route);
+        // Records the route and returns the event to send for it; null if none.
+        private RouteEvent updateIndexes(Route route) {
+            Route oldRoute = routes.put(route.prefix(), route);
 
-                if (oldRoute != null) {
-                    reverseIndex.remove(oldRoute.nextHop(), oldRoute);
+            // TODO manage routes from multiple providers
 
-                    if (reverseIndex.get(oldRoute.nextHop()).isEmpty()) {
-                        nextHops.remove(oldRoute.nextHop());
-                    }
-                }
+            reverseIndex.put(route.nextHop(), route);
 
-                if (route.equals(oldRoute)) {
-                    // No need to send events if the new route is the same
-                    return;
-                }
+            if (oldRoute != null) {
+                reverseIndex.remove(oldRoute.nextHop(), oldRoute);
 
-                MacAddress nextHopMac = nextHops.get(route.nextHop());
-
-                if (oldRoute != null && !oldRoute.nextHop().equals(route.nextHop())) {
-                    if (nextHopMac == null) {
-                        // We don't know the new MAC address yet so delete the route
-                        notifyDelegate(new RouteEvent(RouteEvent.Type.ROUTE_REMOVED,
-                                new ResolvedRoute(oldRoute, null)));
-                    } else {
-                        // We know the new MAC address so update the route
-                        notifyDelegate(new RouteEvent(RouteEvent.Type.ROUTE_UPDATED,
-                                new ResolvedRoute(route, nextHopMac)));
-                    }
-                    return;
+                if (reverseIndex.get(oldRoute.nextHop()).isEmpty()) {
+                    nextHops.remove(oldRoute.nextHop());
                 }
+            }
 
+            if (route.equals(oldRoute)) {
+                // No need to send events if the new route is the same
+                return null;
+            }
 
-                if (nextHopMac != null) {
-                    notifyDelegate(new RouteEvent(RouteEvent.Type.ROUTE_ADDED,
-                            new ResolvedRoute(route, nextHopMac)));
+            MacAddress nextHopMac = nextHops.get(route.nextHop());
+
+            if (oldRoute != null && !oldRoute.nextHop().equals(route.nextHop())) {
+                if (nextHopMac == null) {
+                    // We don't know the new MAC address yet so delete the route
+                    return new RouteEvent(RouteEvent.Type.ROUTE_REMOVED,
+                            new ResolvedRoute(oldRoute, null));
+                } else {
+                    // We know the new MAC address so update the route
+                    return new RouteEvent(RouteEvent.Type.ROUTE_UPDATED,
+                            new ResolvedRoute(route, nextHopMac));
                 }
             }
+
+            if (nextHopMac != null) {
+                return new RouteEvent(RouteEvent.Type.ROUTE_ADDED,
+                        new ResolvedRoute(route, nextHopMac));
+            }
+            return null;
         }
 
         /**
@@ -254,7 +269,7 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
         public void remove(Route route) {
             synchronized (this) {
                 Route removed = routes.remove(route.prefix());
-                routeTable.remove(createBinaryString(route.prefix()));
+                routeTable.remove(route.prefix());
 
                 if (removed != null) {
                     reverseIndex.remove(removed.nextHop(), removed);
@@ -280,17 +295,7 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
          * @return all routes
          */
         public Collection<Route> getRoutes() {
-            Iterator<KeyValuePair<Route>> it =
-                    routeTable.getKeyValuePairsForKeysStartingWith("").iterator();
-
-            List<Route> routes = new LinkedList<>();
-
-            while (it.hasNext()) {
-                KeyValuePair<Route> entry = it.next();
-                routes.add(entry.getValue());
-            }
-
-            return routes;
+            return routeTable.values();
         }
 
         /**
@@ -300,17 +305,7 @@ public class LocalRouteStore extends AbstractStore<RouteEvent, RouteStoreDelegat
          * @return most specific prefix containing the given
          */
         public Route longestPrefixMatch(IpAddress ip) {
-            Iterable<Route> prefixes =
-                    routeTable.getValuesForKeysPrefixing(createBinaryString(ip.toIpPrefix()));
-
-            Iterator<Route> it = prefixes.iterator();
-
-            Route route = null;
-            while (it.hasNext()) {
-                route = it.next();
-            }
-
-            return route;
+            return routeTable.longestPrefixMatch(ip);
         }
     }
 
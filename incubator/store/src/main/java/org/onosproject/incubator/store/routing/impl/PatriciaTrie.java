@@ -0,0 +1,345 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.incubator.store.routing.impl;
+
+import com.google.common.collect.Lists;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Binary Patricia trie mapping the IP prefixes of a single IP version to
+ * values, keyed directly on the bits of the prefix addresses.
+ * <p>
+ * Writers are serialized, whereas longest prefix match lookups take no locks
+ * and complete in at most one step per address bit. Every change is published
+ * to readers with a single volatile write, so a lookup sees every entry which
+ * was present for its whole duration.
+ * </p>
+ *
+ * @param <V> value type
+ */
+final class PatriciaTrie<V> {
+
+    private final IpAddress.Version version;
+    private final int maxLength;
+
+    private volatile Node<V> root;
+    private volatile int size;
+
+    /**
+     * Creates an empty trie for prefixes of the given IP version.
+     *
+     * @param version IP version
+     */
+    PatriciaTrie(IpAddress.Version version) {
+        this.version = checkNotNull(version);
+        this.maxLength = version == IpAddress.Version.INET ?
+                IpAddress.INET_BIT_LENGTH : IpAddress.INET6_BIT_LENGTH;
+    }
+
+    /**
+     * Returns the number of prefixes in the trie.
+     *
+     * @return number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Maps the given prefix to the given value.
+     *
+     * @param prefix IP prefix
+     * @param value  value to map the prefix to
+     * @return value previously mapped to the prefix; null if none
+     */
+    synchronized V put(IpPrefix prefix, V value) {
+        checkPrefix(prefix);
+        checkNotNull(value);
+        byte[] octets = prefix.address().toOctets();
+        return put(high(octets), low(octets), prefix.prefixLength(), value);
+    }
+
+    /**
+     * Maps all the given prefixes to their values.
+     * <p>
+     * When the batch is at least as large as the trie, as during initial
+     * route convergence, the entries are loaded into a new trie which is then
+     * published to readers all at once.
+     * </p>
+     *
+     * @param entries prefix to value bindings
+     */
+    synchronized void putAll(Map<IpPrefix, V> entries) {
+        if (entries.size() < size) {
+            entries.forEach(this::put);
+            return;
+        }
+        PatriciaTrie<V> staging = new PatriciaTrie<>(version);
+        forEach(root, (n, value) -> staging.put(n.high, n.low, n.length, value));
+        entries.forEach(staging::put);
+        root = staging.root;
+        size = staging.size;
+    }
+
+    /**
+     * Removes the mapping for the given prefix.
+     *
+     * @param prefix IP prefix
+     * @return value previously mapped to the prefix; null if none
+     */
+    synchronized V remove(IpPrefix prefix) {
+        checkPrefix(prefix);
+        byte[] octets = prefix.address().toOctets();
+        long high = high(octets);
+        long low = low(octets);
+        int length = prefix.prefixLength();
+
+        Node<V> grandparent = null;
+        Node<V> parent = null;
+        Node<V> node = root;
+        while (node != null && node.length < length && node.isPrefixOf(high, low)) {
+            grandparent = parent;
+            parent = node;
+            node = node.child(bit(high, low, node.length));
+        }
+        if (node == null || node.length != length || !node.isPrefixOf(high, low) ||
+                node.value == null) {
+            return null;
+        }
+
+        V oldValue = node.value;
+        node.value = null;
+        size--;
+        if (node.left != null && node.right != null) {
+            return oldValue;
+        }
+
+        // Unlink the node and, as value-less nodes only serve to branch,
+        // its parent too if the latter is left with a single child.
+        Node<V> child = node.left != null ? node.left : node.right;
+        replace(parent, node, child);
+        if (child == null && parent != null && parent.value == null) {
+            replace(grandparent, parent, parent.left != null ? parent.left : parent.right);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Returns the value of the longest prefix containing the given address.
+     *
+     * @param ip IP address to look up
+     * @return value of the most specific prefix; null if none
+     */
+    V longestPrefixMatch(IpAddress ip) {
+        checkArgument(ip.version() == version, "Address %s is not of version %s", ip, version);
+        byte[] octets = ip.toOctets();
+        long high = high(octets);
+        long low = low(octets);
+
+        V match = null;
+        Node<V> node = root;
+        while (node != null && node.isPrefixOf(high, low)) {
+            V value = node.value;
+            if (value != null) {
+                match = value;
+            }
+            if (node.length == maxLength) {
+                break;
+            }
+            node = node.child(bit(high, low, node.length));
+        }
+        return match;
+    }
+
+    /**
+     * Returns a snapshot of all values in the trie, with the values of
+     * shorter prefixes preceding those of the prefixes they contain.
+     *
+     * @return list of values
+     */
+    List<V> values() {
+        List<V> values = Lists.newArrayListWithCapacity(size);
+        forEach(root, (node, value) -> values.add(value));
+        return values;
+    }
+
+    private void checkPrefix(IpPrefix prefix) {
+        checkArgument(prefix.version() == version, "Prefix %s is not of version %s", prefix, version);
+    }
+
+    // Inserts or updates the entry for the given key bits.
+    private V put(long high, long low, int length, V value) {
+        Node<V> parent = null;
+        Node<V> node = root;
+        while (node != null) {
+            int common = commonLength(node.high, node.low, high, low,
+                                      Math.min(node.length, length));
+            if (common == node.length && common == length) {
+                V oldValue = node.value;
+                node.value = value;
+                if (oldValue == null) {
+                    size++;
+                }
+                return oldValue;
+            }
+            if (common < node.length) {
+                // The new key diverges from or is a prefix of the node key,
+                // so fully build its replacement before linking it in.
+                Node<V> split;
+                if (common == length) {
+                    split = new Node<>(high, low, length, value);
+                    split.setChild(bit(node.high, node.low, length), node);
+                } else {
+                    split = new Node<>(mask(high, common), common < Long.SIZE ? 0 : mask(low, common - Long.SIZE),
+                                       common, null);
+                    split.setChild(bit(high, low, common), new Node<>(high, low, length, value));
+                    split.setChild(bit(node.high, node.low, common), node);
+                }
+                replace(parent, node, split);
+                size++;
+                return null;
+            }
+            parent = node;
+            node = node.child(bit(high, low, node.length));
+        }
+        replace(parent, null, new Node<>(high, low, length, value));
+        size++;
+        return null;
+    }
+
+    // Links the new node in place of the old child of the parent, or in
+    // place of the root if there is no parent.
+    private void replace(Node<V> parent, Node<V> oldChild, Node<V> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (oldChild == null) {
+            parent.setChild(bit(newChild.high, newChild.low, parent.length), newChild);
+        } else if (parent.left == oldChild) {
+            parent.left = newChild;
+        } else {
+            parent.right = newChild;
+        }
+    }
+
+    // Visits the nodes holding values in pre-order, along with their values.
+    private static <V> void forEach(Node<V> root, BiConsumer<Node<V>, V> consumer) {
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            Node<V> node = stack.pop();
+            V value = node.value;
+            if (value != null) {
+                consumer.accept(node, value);
+            }
+            Node<V> right = node.right;
+            Node<V> left = node.left;
+            if (right != null) {
+                stack.push(right);
+            }
+            if (left != null) {
+                stack.push(left);
+            }
+        }
+    }
+
+    // Address bits are held in two longs, IPv4 ones in the high-order half
+    // of the first.
+    private static long high(byte[] octets) {
+        return bits(octets, 0);
+    }
+
+    private static long low(byte[] octets) {
+        return bits(octets, Long.BYTES);
+    }
+
+    private static long bits(byte[] octets, int offset) {
+        long bits = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            bits <<= Byte.SIZE;
+            if (offset + i < octets.length) {
+                bits |= octets[offset + i] & 0xff;
+            }
+        }
+        return bits;
+    }
+
+    private static int bit(long high, long low, int index) {
+        return (int) (index < Long.SIZE ? high >>> (Long.SIZE - 1 - index) :
+                low >>> (2 * Long.SIZE - 1 - index)) & 1;
+    }
+
+    // Keeps the given number of high-order bits.
+    private static long mask(long bits, int length) {
+        return length == 0 ? 0 : length >= Long.SIZE ? bits : bits & (-1L << (Long.SIZE - length));
+    }
+
+    // Returns the number of leading bits the two keys have in common, up to
+    // the given limit.
+    private static int commonLength(long high1, long low1, long high2, long low2, int limit) {
+        long diff = high1 ^ high2;
+        int common = diff != 0 ? Long.numberOfLeadingZeros(diff) :
+                Long.SIZE + Long.numberOfLeadingZeros(low1 ^ low2);
+        return Math.min(common, limit);
+    }
+
+    // Trie node; its key never changes once it has been linked in.
+    private static final class Node<V> {
+        private final long high;
+        private final long low;
+        private final int length;
+
+        private volatile V value;
+        private volatile Node<V> left;
+        private volatile Node<V> right;
+
+        private Node(long high, long low, int length, V value) {
+            this.high = high;
+            this.low = low;
+            this.length = length;
+            this.value = value;
+        }
+
+        private Node<V> child(int bit) {
+            return bit == 0 ? left : right;
+        }
+
+        private void setChild(int bit, Node<V> child) {
+            if (bit == 0) {
+                left = child;
+            } else {
+                right = child;
+            }
+        }
+
+        // Indicates whether the node key is a prefix of the given bits.
+        private boolean isPrefixOf(long high, long low) {
+            return commonLength(this.high, this.low, high, low, length) == length;
+        }
+    }
+}
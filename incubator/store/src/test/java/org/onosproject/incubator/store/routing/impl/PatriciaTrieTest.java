@@ -0,0 +1,214 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.incubator.store.routing.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the Patricia trie used for longest prefix matches.
+ */
+public class PatriciaTrieTest {
+
+    private static final IpPrefix DEFAULT = IpPrefix.valueOf("0.0.0.0/0");
+    private static final IpPrefix P8 = IpPrefix.valueOf("10.0.0.0/8");
+    private static final IpPrefix P16 = IpPrefix.valueOf("10.1.0.0/16");
+    private static final IpPrefix P24 = IpPrefix.valueOf("10.1.2.0/24");
+    private static final IpPrefix OTHER24 = IpPrefix.valueOf("10.1.3.0/24");
+    private static final IpPrefix HOST = IpPrefix.valueOf("10.1.2.3/32");
+
+    private final PatriciaTrie<IpPrefix> trie = new PatriciaTrie<>(IpAddress.Version.INET);
+
+    private void putAll(IpPrefix... prefixes) {
+        for (IpPrefix prefix : prefixes) {
+            trie.put(prefix, prefix);
+        }
+    }
+
+    private IpPrefix lookup(String ip) {
+        return trie.longestPrefixMatch(IpAddress.valueOf(ip));
+    }
+
+    @Test
+    public void longestPrefixMatch() {
+        assertNull(lookup("10.1.2.3"));
+        putAll(P16, HOST, P8, P24, OTHER24);
+        assertEquals(5, trie.size());
+
+        assertEquals(HOST, lookup("10.1.2.3"));
+        assertEquals(P24, lookup("10.1.2.4"));
+        assertEquals(OTHER24, lookup("10.1.3.1"));
+        assertEquals(P16, lookup("10.1.4.1"));
+        assertEquals(P8, lookup("10.2.0.1"));
+        assertNull(lookup("11.0.0.1"));
+
+        trie.put(DEFAULT, DEFAULT);
+        assertEquals(DEFAULT, lookup("11.0.0.1"));
+    }
+
+    @Test
+    public void update() {
+        putAll(P8, P24);
+        assertEquals(P8, trie.put(P8, P16));
+        assertEquals(2, trie.size());
+        assertEquals(P16, lookup("10.0.0.1"));
+    }
+
+    @Test
+    public void remove() {
+        putAll(P8, P16, P24, OTHER24, HOST);
+
+        assertNull(trie.remove(DEFAULT));
+        assertNull(trie.remove(IpPrefix.valueOf("10.1.0.0/17")));
+        assertEquals(P16, trie.remove(P16));
+        assertEquals(P24, lookup("10.1.2.1"));
+        assertEquals(P8, lookup("10.1.4.1"));
+
+        assertEquals(P24, trie.remove(P24));
+        assertEquals(OTHER24, trie.remove(OTHER24));
+        assertEquals(P8, lookup("10.1.2.4"));
+        assertEquals(HOST, lookup("10.1.2.3"));
+        assertEquals(2, trie.size());
+        assertEquals(Lists.newArrayList(P8, HOST), trie.values());
+
+        assertEquals(P8, trie.remove(P8));
+        assertEquals(HOST, trie.remove(HOST));
+        assertEquals(0, trie.size());
+        assertTrue(trie.values().isEmpty());
+        assertNull(lookup("10.1.2.3"));
+    }
+
+    @Test
+    public void values() {
+        putAll(HOST, OTHER24, P8, P24, P16);
+        assertEquals(Lists.newArrayList(P8, P16, P24, HOST, OTHER24), trie.values());
+    }
+
+    @Test
+    public void ipv6() {
+        PatriciaTrie<IpPrefix> trie6 = new PatriciaTrie<>(IpAddress.Version.INET6);
+        IpPrefix p32 = IpPrefix.valueOf("2001:db8::/32");
+        IpPrefix p64 = IpPrefix.valueOf("2001:db8:0:1::/64");
+        IpPrefix p96 = IpPrefix.valueOf("2001:db8:0:1::1:0:0/96");
+        IpPrefix host = IpPrefix.valueOf("2001:db8:0:1::1:0:1/128");
+        for (IpPrefix prefix : Lists.newArrayList(p96, host, p32, p64)) {
+            trie6.put(prefix, prefix);
+        }
+        assertEquals(host, trie6.longestPrefixMatch(IpAddress.valueOf("2001:db8:0:1::1:0:1")));
+        assertEquals(p96, trie6.longestPrefixMatch(IpAddress.valueOf("2001:db8:0:1::1:0:2")));
+        assertEquals(p64, trie6.longestPrefixMatch(IpAddress.valueOf("2001:db8:0:1::2:0:2")));
+        assertEquals(p32, trie6.longestPrefixMatch(IpAddress.valueOf("2001:db8:0:2::1")));
+        assertNull(trie6.longestPrefixMatch(IpAddress.valueOf("2001:db9::1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongVersion() {
+        trie.put(IpPrefix.valueOf("2001:db8::/32"), DEFAULT);
+    }
+
+    @Test
+    public void bulkLoad() {
+        putAll(P8, HOST);
+        trie.putAll(ImmutableMap.of(P16, P16, P24, P24, HOST, P8));
+        assertEquals(4, trie.size());
+        assertEquals(P8, lookup("10.1.2.3"));
+        assertEquals(P24, lookup("10.1.2.4"));
+
+        // Smaller batches are merged in place
+        trie.putAll(ImmutableMap.of(OTHER24, OTHER24));
+        assertEquals(5, trie.size());
+        assertEquals(OTHER24, lookup("10.1.3.1"));
+    }
+
+    private static IpPrefix randomPrefix(Random random, int maxLength) {
+        return IpPrefix.valueOf(random.nextInt(), random.nextInt(maxLength + 1));
+    }
+
+    // Finds the longest prefix match by checking every prefix.
+    private static IpPrefix bruteForce(Map<IpPrefix, IpPrefix> prefixes, IpAddress ip) {
+        IpPrefix match = null;
+        for (IpPrefix prefix : prefixes.keySet()) {
+            if (prefix.contains(ip) && (match == null || match.prefixLength() < prefix.prefixLength())) {
+                match = prefix;
+            }
+        }
+        return match;
+    }
+
+    @Test
+    public void sameAsBruteForce() {
+        Random random = new Random(7);
+        Map<IpPrefix, IpPrefix> expected = Maps.newHashMap();
+        for (int i = 0; i < 2000; i++) {
+            // Short prefixes over few leading bits so that they nest a lot
+            IpPrefix prefix = IpPrefix.valueOf(random.nextInt() & 0xf0f00000, random.nextInt(17));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(prefix), trie.remove(prefix));
+            } else {
+                assertEquals(expected.put(prefix, prefix), trie.put(prefix, prefix));
+            }
+            assertEquals(expected.size(), trie.size());
+            IpAddress ip = IpAddress.valueOf(random.nextInt() & 0xf0f00000);
+            assertEquals(bruteForce(expected, ip), trie.longestPrefixMatch(ip));
+        }
+        assertEquals(expected.size(), trie.values().size());
+    }
+
+    @Test
+    public void concurrentLookups() throws Exception {
+        // Lookups of an address always covered by a stable route must
+        // never miss it while other routes come and go.
+        IpPrefix stable = IpPrefix.valueOf("10.0.0.0/8");
+        trie.put(stable, stable);
+        IpAddress ip = IpAddress.valueOf("10.1.2.3");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(() -> {
+            Random random = new Random(11);
+            for (int i = 0; i < 100000; i++) {
+                IpPrefix prefix = IpPrefix.valueOf(0x0a000000 | (random.nextInt() & 0x00f0f000),
+                                                   9 + random.nextInt(16));
+                if (random.nextBoolean()) {
+                    trie.put(prefix, stable);
+                } else {
+                    trie.remove(prefix);
+                }
+            }
+        });
+        while (!writer.isDone()) {
+            assertEquals(stable, trie.longestPrefixMatch(ip));
+        }
+        writer.get();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
@@ -14,12 +14,14 @@
 package org.onosproject.bgp.controller.impl;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.Striped;
 
 import org.onosproject.bgp.controller.BgpController;
 import org.onosproject.bgp.controller.BgpId;
 import org.onosproject.bgp.controller.BgpLinkListener;
 import org.onosproject.bgp.controller.BgpLocalRib;
 import org.onosproject.bgp.controller.BgpNodeListener;
+import org.onosproject.bgp.controller.BgpPeer;
 import org.onosproject.bgp.controller.BgpSessionInfo;
 import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpLSNlri;
@@ -37,28 +39,40 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Implementation of local RIB.
+ * <p>
+ * Updates of different NLRIs, possibly received from different peers, proceed
+ * concurrently; those of an NLRI are serialized by the lock stripe of its
+ * identifier. A withdrawal only triggers a new best path selection when it
+ * removes the current best path.
+ * </p>
  */
 public class BgpLocalRibImpl implements BgpLocalRib {
 
     private static final Logger log = LoggerFactory.getLogger(BgpLocalRibImpl.class);
+    private static final int LOCK_STRIPES = 256;
+
     private BgpController bgpController;
 
-    private Map<BgpNodeLSIdentifier, PathAttrNlriDetailsLocalRib> nodeTree = new TreeMap<>();
-    private Map<BgpLinkLSIdentifier, PathAttrNlriDetailsLocalRib> linkTree = new TreeMap<>();
-    private Map<BgpPrefixLSIdentifier, PathAttrNlriDetailsLocalRib> prefixTree = new TreeMap<>();
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
+    private Map<BgpNodeLSIdentifier, PathAttrNlriDetailsLocalRib> nodeTree = new ConcurrentSkipListMap<>();
+    private Map<BgpLinkLSIdentifier, PathAttrNlriDetailsLocalRib> linkTree = new ConcurrentSkipListMap<>();
+    private Map<BgpPrefixLSIdentifier, PathAttrNlriDetailsLocalRib> prefixTree = new ConcurrentSkipListMap<>();
 
     private Map<RouteDistinguisher, Map<BgpNodeLSIdentifier, PathAttrNlriDetailsLocalRib>> vpnNodeTree
-                                                                                                   = new TreeMap<>();
+                                                                                    = new ConcurrentSkipListMap<>();
     private Map<RouteDistinguisher, Map<BgpLinkLSIdentifier, PathAttrNlriDetailsLocalRib>> vpnLinkTree
-                                                                                                   = new TreeMap<>();
+                                                                                    = new ConcurrentSkipListMap<>();
     private Map<RouteDistinguisher, Map<BgpPrefixLSIdentifier, PathAttrNlriDetailsLocalRib>> vpnPrefixTree
-                                                                                                   = new TreeMap<>();
+                                                                                    = new ConcurrentSkipListMap<>();
 
     public BgpLocalRibImpl(BgpController bgpController) {
         this.bgpController = bgpController;
@@ -120,69 +134,21 @@ public class BgpLocalRibImpl implements BgpLocalRib {
 
     @Override
     public void add(BgpSessionInfo sessionInfo, BgpLSNlri nlri, PathAttrNlriDetails details) throws BgpParseException {
-        int decisionResult;
-
         log.debug("Add to local RIB {}", details.toString());
 
-        PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                               sessionInfo.remoteBgpId().ipAddress(),
-                                                               sessionInfo.remoteBgpIdentifier(),
-                                                               sessionInfo.remoteBgpASNum(),
-                                                               sessionInfo.isIbgpSession(), details);
+        PathAttrNlriDetailsLocalRib detailsLocRib = localRibDetails(sessionInfo, details);
         if (nlri instanceof BgpNodeLSNlriVer4) {
-            BgpNodeLSIdentifier nodeLsIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-            if (nodeTree.containsKey(nodeLsIdentifier)) {
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                // Compare local RIB entry with the current attribute
-                decisionResult = selectionAlgo.compare(nodeTree.get(nodeLsIdentifier), detailsLocRib);
-                if (decisionResult <= 0) {
-                    for (BgpNodeListener l : bgpController.listener()) {
-                        l.addNode((BgpNodeLSNlriVer4) nlri, details);
-                    }
-                    nodeTree.replace(nodeLsIdentifier, detailsLocRib);
-                    log.debug("Local RIB update node: {}", detailsLocRib.toString());
-                }
-            } else {
-                nodeTree.put(nodeLsIdentifier, detailsLocRib);
-                for (BgpNodeListener l : bgpController.listener()) {
-                    l.addNode((BgpNodeLSNlriVer4) nlri, details);
-                }
-                log.debug("Local RIB ad node: {}", detailsLocRib.toString());
-            }
+            BgpNodeLSNlriVer4 nodeNlri = (BgpNodeLSNlriVer4) nlri;
+            update(nodeNlri.getLocalNodeDescriptors(), nodeTree, detailsLocRib,
+                   nodeRib(nodeNlri.isVpnPresent()), nodeNotifier(nodeNlri));
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
-            BgpLinkLSIdentifier linkLsIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-            if (linkTree.containsKey(linkLsIdentifier)) {
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                // Compare local RIB entry with the current attribute
-                decisionResult = selectionAlgo.compare(linkTree.get(linkLsIdentifier), detailsLocRib);
-                if (decisionResult <= 0) {
-                    linkTree.replace(linkLsIdentifier, detailsLocRib);
-                    for (BgpLinkListener l : bgpController.linkListener()) {
-                        l.addLink((BgpLinkLsNlriVer4) nlri, details);
-                    }
-                    log.debug("Local RIB update link: {}", detailsLocRib.toString());
-                }
-            } else {
-                linkTree.put(linkLsIdentifier, detailsLocRib);
-                for (BgpLinkListener l : bgpController.linkListener()) {
-                    l.addLink((BgpLinkLsNlriVer4) nlri, details);
-                }
-                log.debug("Local RIB add link: {}", detailsLocRib.toString());
-            }
+            BgpLinkLsNlriVer4 linkNlri = (BgpLinkLsNlriVer4) nlri;
+            update(linkNlri.getLinkIdentifier(), linkTree, detailsLocRib,
+                   linkRib(linkNlri.isVpnPresent()), linkNotifier(linkNlri));
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
-            BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-            if (prefixTree.containsKey(prefixIdentifier)) {
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                // Compare local RIB entry with the current attribute
-                decisionResult = selectionAlgo.compare(prefixTree.get(prefixIdentifier), detailsLocRib);
-                if (decisionResult <= 0) {
-                    prefixTree.replace(prefixIdentifier, detailsLocRib);
-                    log.debug("Local RIB update prefix: {}", detailsLocRib.toString());
-                }
-            } else {
-                prefixTree.put(prefixIdentifier, detailsLocRib);
-                log.debug("Local RIB add prefix: {}", detailsLocRib.toString());
-            }
+            BgpPrefixIPv4LSNlriVer4 prefixNlri = (BgpPrefixIPv4LSNlriVer4) nlri;
+            update(prefixNlri.getPrefixIdentifier(), prefixTree, detailsLocRib,
+                   prefixRib(prefixNlri.isVpnPresent()), Notifier.NONE);
         }
     }
 
@@ -252,60 +218,8 @@ public class BgpLocalRibImpl implements BgpLocalRib {
      * @throws BgpParseException throws BGP parse exception
      */
     public void selectionProcessNode(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
-        BgpPeerImpl peer;
-        BgpSessionInfo sessionInfo;
-        int decisionResult;
-        boolean containsKey;
-
-        BgpNodeLSIdentifier nodeLsIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-
-        if (nodeTree.containsKey(nodeLsIdentifier)) {
-            for (BgpNodeListener l : bgpController.listener()) {
-                l.deleteNode((BgpNodeLSNlriVer4) nlri);
-            }
-            log.debug("Local RIB delete node: {}", nodeLsIdentifier.toString());
-            nodeTree.remove(nodeLsIdentifier);
-        }
-
-        for (BgpId bgpId : bgpController.connectedPeers().keySet()) {
-            peer = (BgpPeerImpl) (bgpController.getPeer(bgpId));
-
-            if (nodeTree.containsKey(nodeLsIdentifier)) {
-                containsKey = (!isVpnRib) ? (peer.adjacencyRib().nodeTree().containsKey(nodeLsIdentifier)) :
-                                            (peer.vpnAdjacencyRib().nodeTree().containsKey(nodeLsIdentifier));
-
-                if (!containsKey) {
-                    continue;
-                }
-                sessionInfo = peer.sessionInfo();
-                PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                                sessionInfo.remoteBgpId().ipAddress(),
-                                                                sessionInfo.remoteBgpIdentifier(),
-                                                                sessionInfo.remoteBgpASNum(),
-                                                                sessionInfo.isIbgpSession(),
-                                                                (!isVpnRib) ?
-                                                                (peer.adjacencyRib().nodeTree()
-                                                                                    .get(nodeLsIdentifier)) :
-                                                                (peer.vpnAdjacencyRib().nodeTree()
-                                                                                        .get(nodeLsIdentifier)));
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                decisionResult = selectionAlgo.compare(nodeTree.get(nodeLsIdentifier), detailsLocRib);
-                if (decisionResult < 0) {
-                    nodeTree.replace(nodeLsIdentifier, detailsLocRib);
-                    log.debug("Local RIB node updated: {}", detailsLocRib.toString());
-                }
-            } else {
-                if (!isVpnRib) {
-                    if (peer.adjacencyRib().nodeTree().containsKey(nodeLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.adjacencyRib().nodeTree().get(nodeLsIdentifier));
-                    }
-                } else {
-                    if (peer.vpnAdjacencyRib().nodeTree().containsKey(nodeLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.vpnAdjacencyRib().nodeTree().get(nodeLsIdentifier));
-                    }
-                }
-            }
-        }
+        BgpNodeLSNlriVer4 nodeNlri = (BgpNodeLSNlriVer4) nlri;
+        withdraw(nodeNlri.getLocalNodeDescriptors(), nodeTree, nodeRib(isVpnRib), nodeNotifier(nodeNlri));
     }
 
      /**
@@ -316,125 +230,183 @@ public class BgpLocalRibImpl implements BgpLocalRib {
      * @throws BgpParseException BGP parse exception
      */
     public void selectionProcessLink(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
-        BgpPeerImpl peer;
-        BgpSessionInfo sessionInfo;
-        int decisionResult;
-        boolean containsKey;
+        BgpLinkLsNlriVer4 linkNlri = (BgpLinkLsNlriVer4) nlri;
+        withdraw(linkNlri.getLinkIdentifier(), linkTree, linkRib(isVpnRib), linkNotifier(linkNlri));
+    }
 
-        BgpLinkLSIdentifier linkLsIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
+     /**
+     * Selection process for local RIB prefix.
+     *
+     * @param nlri NLRI to update
+     * @param isVpnRib true if VPN local RIB, otherwise false
+     * @throws BgpParseException BGP parse exception
+     */
+    public void selectionProcessPrefix(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
+        BgpPrefixIPv4LSNlriVer4 prefixNlri = (BgpPrefixIPv4LSNlriVer4) nlri;
+        withdraw(prefixNlri.getPrefixIdentifier(), prefixTree, prefixRib(isVpnRib), Notifier.NONE);
+    }
 
-        if (linkTree.containsKey(linkLsIdentifier)) {
-            log.debug("Local RIB remove link: {}", linkLsIdentifier.toString());
-            for (BgpLinkListener l : bgpController.linkListener()) {
-                l.deleteLink((BgpLinkLsNlriVer4) nlri);
+    /**
+     * Updates the local RIB entry of an NLRI with a path received from a
+     * peer.
+     *
+     * @param key NLRI identifier
+     * @param localRib local RIB tree of the NLRI type
+     * @param detailsLocRib received path
+     * @param adjRib adjacency RIB-in tree of the NLRI type of a peer
+     * @param notifier listener notifications of the NLRI type
+     * @throws BgpParseException while notifying the listeners
+     */
+    private <K> void update(K key, Map<K, PathAttrNlriDetailsLocalRib> localRib,
+                            PathAttrNlriDetailsLocalRib detailsLocRib,
+                            Function<BgpPeerImpl, Map<K, PathAttrNlriDetails>> adjRib,
+                            Notifier notifier) throws BgpParseException {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            PathAttrNlriDetailsLocalRib current = localRib.get(key);
+            if (current == null || new BgpSelectionAlgo().compare(current, detailsLocRib) <= 0) {
+                localRib.put(key, detailsLocRib);
+                notifier.added(detailsLocRib.localRibNlridetails());
+                log.debug("Local RIB {}: {}", current == null ? "add" : "update", detailsLocRib);
+            } else if (current.localRibIpAddress().equals(detailsLocRib.localRibIpAddress())) {
+                // the best path got worse, another peer may now offer a better one
+                select(key, localRib, adjRib, notifier);
             }
-            linkTree.remove(linkLsIdentifier);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        for (BgpId bgpId : bgpController.connectedPeers().keySet()) {
-            peer = (BgpPeerImpl) (bgpController.getPeer(bgpId));
-
-            if (linkTree.containsKey(linkLsIdentifier)) {
-
-                containsKey = (!isVpnRib) ? (peer.adjacencyRib().linkTree().containsKey(linkLsIdentifier)) :
-                                            (peer.vpnAdjacencyRib().linkTree().containsKey(linkLsIdentifier));
-
-                if (!containsKey) {
-                    continue;
-                }
-
-                sessionInfo = peer.sessionInfo();
-
-                PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                            sessionInfo.remoteBgpId().ipAddress(),
-                                                            sessionInfo.remoteBgpIdentifier(),
-                                                            sessionInfo.remoteBgpASNum(),
-                                                            sessionInfo.isIbgpSession(),
-                                                            ((!isVpnRib) ?
-                                                            (peer.adjacencyRib().linkTree().get(linkLsIdentifier)) :
-                                                            (peer.vpnAdjacencyRib().linkTree()
-                                                                                   .get(linkLsIdentifier))));
-
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                decisionResult = selectionAlgo.compare(linkTree.get(linkLsIdentifier), detailsLocRib);
-                if (decisionResult < 0) {
-                    linkTree.replace(linkLsIdentifier, detailsLocRib);
-                    log.debug("Local RIB link updated: {}", detailsLocRib.toString());
-                }
-            } else {
-                if (!isVpnRib) {
-                    if (peer.adjacencyRib().linkTree().containsKey(linkLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.adjacencyRib().linkTree().get(linkLsIdentifier));
-                    }
-                } else {
-                    if (peer.vpnAdjacencyRib().linkTree().containsKey(linkLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.vpnAdjacencyRib().linkTree().get(linkLsIdentifier));
-                    }
-                }
+    /**
+     * Updates the local RIB entry of an NLRI withdrawn by a peer. The best
+     * path is only selected anew if it was the withdrawn one.
+     *
+     * @param key NLRI identifier
+     * @param localRib local RIB tree of the NLRI type
+     * @param adjRib adjacency RIB-in tree of the NLRI type of a peer
+     * @param notifier listener notifications of the NLRI type
+     * @throws BgpParseException while notifying the listeners
+     */
+    private <K> void withdraw(K key, Map<K, PathAttrNlriDetailsLocalRib> localRib,
+                              Function<BgpPeerImpl, Map<K, PathAttrNlriDetails>> adjRib,
+                              Notifier notifier) throws BgpParseException {
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            PathAttrNlriDetailsLocalRib current = localRib.get(key);
+            if (current != null && isAdvertised(key, current, adjRib)) {
+                return;
             }
+            select(key, localRib, adjRib, notifier);
+        } finally {
+            lock.unlock();
         }
     }
 
-     /**
-     * Selection process for local RIB prefix.
+    /**
+     * Selects the best path of an NLRI among those of the connected peers.
+     * Must be called with the lock of the NLRI held.
      *
-     * @param nlri NLRI to update
-     * @param isVpnRib true if VPN local RIB, otherwise false
-     * @throws BgpParseException BGP parse exception
+     * @param key NLRI identifier
+     * @param localRib local RIB tree of the NLRI type
+     * @param adjRib adjacency RIB-in tree of the NLRI type of a peer
+     * @param notifier listener notifications of the NLRI type
+     * @throws BgpParseException while notifying the listeners
      */
-    public void selectionProcessPrefix(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
-        BgpPeerImpl peer;
-        BgpSessionInfo sessionInfo;
-        int decisionResult;
-        boolean containsKey;
-
-        BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-        if (prefixTree.containsKey(prefixIdentifier)) {
-            log.debug("Local RIB remove prefix: {}", prefixIdentifier.toString());
-            prefixTree.remove(prefixIdentifier);
+    private <K> void select(K key, Map<K, PathAttrNlriDetailsLocalRib> localRib,
+                            Function<BgpPeerImpl, Map<K, PathAttrNlriDetails>> adjRib,
+                            Notifier notifier) throws BgpParseException {
+        PathAttrNlriDetailsLocalRib best = null;
+        for (BgpPeer bgpPeer : bgpController.connectedPeers().values()) {
+            BgpPeerImpl peer = (BgpPeerImpl) bgpPeer;
+            PathAttrNlriDetails details = adjRib.apply(peer).get(key);
+            if (details == null) {
+                continue;
+            }
+            PathAttrNlriDetailsLocalRib candidate = localRibDetails(peer.sessionInfo(), details);
+            if (best == null || new BgpSelectionAlgo().compare(best, candidate) < 0) {
+                best = candidate;
+            }
+        }
+        if (best != null) {
+            localRib.put(key, best);
+            notifier.added(best.localRibNlridetails());
+            log.debug("Local RIB updated: {}", best);
+        } else if (localRib.remove(key) != null) {
+            notifier.deleted();
+            log.debug("Local RIB delete: {}", key);
         }
+    }
+
+    /**
+     * Indicates whether a path is still advertised by the peer it was
+     * received from.
+     *
+     * @param key NLRI identifier
+     * @param details path in the local RIB
+     * @param adjRib adjacency RIB-in tree of the NLRI type of a peer
+     * @return true if the peer still advertises the path
+     */
+    private <K> boolean isAdvertised(K key, PathAttrNlriDetailsLocalRib details,
+                                     Function<BgpPeerImpl, Map<K, PathAttrNlriDetails>> adjRib) {
+        BgpPeer peer = bgpController.getPeer(BgpId.bgpId(details.localRibIpAddress()));
+        return peer != null && adjRib.apply((BgpPeerImpl) peer).get(key) == details.localRibNlridetails();
+    }
 
-        for (BgpId bgpId : bgpController.connectedPeers().keySet()) {
-            peer = (BgpPeerImpl) (bgpController.getPeer(bgpId));
+    private PathAttrNlriDetailsLocalRib localRibDetails(BgpSessionInfo sessionInfo, PathAttrNlriDetails details) {
+        return new PathAttrNlriDetailsLocalRib(sessionInfo.remoteBgpId().ipAddress(),
+                                               sessionInfo.remoteBgpIdentifier(),
+                                               sessionInfo.remoteBgpASNum(),
+                                               sessionInfo.isIbgpSession(), details);
+    }
+
+    private Function<BgpPeerImpl, Map<BgpNodeLSIdentifier, PathAttrNlriDetails>> nodeRib(boolean isVpnRib) {
+        return isVpnRib ? peer -> peer.vpnAdjacencyRib().nodeTree() : peer -> peer.adjacencyRib().nodeTree();
+    }
 
-            if (prefixTree.containsKey(prefixIdentifier)) {
+    private Function<BgpPeerImpl, Map<BgpLinkLSIdentifier, PathAttrNlriDetails>> linkRib(boolean isVpnRib) {
+        return isVpnRib ? peer -> peer.vpnAdjacencyRib().linkTree() : peer -> peer.adjacencyRib().linkTree();
+    }
+
+    private Function<BgpPeerImpl, Map<BgpPrefixLSIdentifier, PathAttrNlriDetails>> prefixRib(boolean isVpnRib) {
+        return isVpnRib ? peer -> peer.vpnAdjacencyRib().prefixTree() : peer -> peer.adjacencyRib().prefixTree();
+    }
 
-                containsKey = (!isVpnRib) ? (peer.adjacencyRib().prefixTree().containsKey(prefixIdentifier)) :
-                                            (peer.vpnAdjacencyRib().prefixTree().containsKey(prefixIdentifier));
-                if (!containsKey) {
-                    continue;
+    private Notifier nodeNotifier(BgpNodeLSNlriVer4 nlri) {
+        return new Notifier() {
+            @Override
+            public void added(PathAttrNlriDetails details) {
+                for (BgpNodeListener l : bgpController.listener()) {
+                    l.addNode(nlri, details);
                 }
-                sessionInfo = peer.sessionInfo();
-
-                PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                                sessionInfo.remoteBgpId().ipAddress(),
-                                                                sessionInfo.remoteBgpIdentifier(),
-                                                                sessionInfo.remoteBgpASNum(),
-                                                                sessionInfo.isIbgpSession(),
-                                                                ((!isVpnRib) ?
-                                                                (peer.adjacencyRib().prefixTree()
-                                                                                    .get(prefixIdentifier)) :
-                                                                (peer.vpnAdjacencyRib().prefixTree()
-                                                                                       .get(prefixIdentifier))));
-
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                decisionResult = selectionAlgo.compare(prefixTree.get(prefixIdentifier), detailsLocRib);
-                if (decisionResult < 0) {
-                    prefixTree.replace(prefixIdentifier, detailsLocRib);
-                    log.debug("local RIB prefix updated: {}", detailsLocRib.toString());
+            }
+
+            @Override
+            public void deleted() {
+                for (BgpNodeListener l : bgpController.listener()) {
+                    l.deleteNode(nlri);
                 }
-            } else {
-                    if (!isVpnRib) {
-                        if (peer.adjacencyRib().prefixTree().containsKey(prefixIdentifier)) {
-                            add(peer.sessionInfo(), nlri, peer.adjacencyRib().prefixTree().get(prefixIdentifier));
-                    } else {
-                        if (peer.vpnAdjacencyRib().prefixTree().containsKey(prefixIdentifier)) {
-                            add(peer.sessionInfo(), nlri, peer.vpnAdjacencyRib().prefixTree().get(prefixIdentifier));
-                        }
-                    }
+            }
+        };
+    }
+
+    private Notifier linkNotifier(BgpLinkLsNlriVer4 nlri) {
+        return new Notifier() {
+            @Override
+            public void added(PathAttrNlriDetails details) throws BgpParseException {
+                for (BgpLinkListener l : bgpController.linkListener()) {
+                    l.addLink(nlri, details);
                 }
             }
-        }
+
+            @Override
+            public void deleted() throws BgpParseException {
+                for (BgpLinkListener l : bgpController.linkListener()) {
+                    l.deleteLink(nlri);
+                }
+            }
+        };
     }
 
     @Override
@@ -442,17 +414,11 @@ public class BgpLocalRibImpl implements BgpLocalRib {
                     RouteDistinguisher routeDistinguisher) throws BgpParseException {
         add(sessionInfo, nlri, details);
         if (nlri instanceof BgpNodeLSNlriVer4) {
-            if (!vpnNodeTree.containsKey(routeDistinguisher)) {
-                vpnNodeTree.put(routeDistinguisher, nodeTree);
-            }
+            vpnNodeTree.putIfAbsent(routeDistinguisher, nodeTree);
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
-            if (!vpnLinkTree.containsKey(routeDistinguisher)) {
-                vpnLinkTree.put(routeDistinguisher, linkTree);
-            }
+            vpnLinkTree.putIfAbsent(routeDistinguisher, linkTree);
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
-            if (!vpnPrefixTree.containsKey(routeDistinguisher)) {
-                vpnPrefixTree.put(routeDistinguisher, prefixTree);
-            }
+            vpnPrefixTree.putIfAbsent(routeDistinguisher, prefixTree);
         }
     }
 
@@ -625,4 +591,34 @@ public class BgpLocalRibImpl implements BgpLocalRib {
                 .add("linkTree", linkTree).add("prefixTree", prefixTree).add("vpnNodeTree", vpnNodeTree)
                 .add("vpnLinkTree", vpnLinkTree).add("vpnPrefixTree", vpnPrefixTree).toString();
     }
+
+    /**
+     * Listener notifications of local RIB changes of an NLRI.
+     */
+    private interface Notifier {
+        Notifier NONE = new Notifier() {
+            @Override
+            public void added(PathAttrNlriDetails details) {
+            }
+
+            @Override
+            public void deleted() {
+            }
+        };
+
+        /**
+         * Notifies the new best path of the NLRI.
+         *
+         * @param details path attributes and NLRI information
+         * @throws BgpParseException while notifying the listeners
+         */
+        void added(PathAttrNlriDetails details) throws BgpParseException;
+
+        /**
+         * Notifies the removal of the NLRI.
+         *
+         * @throws BgpParseException while notifying the listeners
+         */
+        void deleted() throws BgpParseException;
+    }
 }
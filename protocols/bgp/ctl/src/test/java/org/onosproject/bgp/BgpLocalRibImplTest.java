@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.bgp;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.bgp.controller.BgpCfg;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpLinkListener;
+import org.onosproject.bgp.controller.BgpLocalRib;
+import org.onosproject.bgp.controller.BgpNodeListener;
+import org.onosproject.bgp.controller.BgpPeer;
+import org.onosproject.bgp.controller.BgpPeerManager;
+import org.onosproject.bgp.controller.impl.BgpLocalRibImpl;
+import org.onosproject.bgp.controller.impl.BgpPacketStatsImpl;
+import org.onosproject.bgp.controller.impl.BgpPeerImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSIdentifier;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4.ProtocolType;
+import org.onosproject.bgpio.protocol.linkstate.NodeDescriptors;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.AutonomousSystemTlv;
+import org.onosproject.bgpio.types.BgpLSIdentifierTlv;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.Origin;
+
+/**
+ * Test case for the BGP local RIB.
+ */
+public class BgpLocalRibImplTest {
+
+    private static final byte ORIGIN_IGP = 0x00;
+    private static final byte ORIGIN_INCOMPLETE = 0x02;
+
+    private final TestBgpController controller = new TestBgpController();
+    private final TestNodeListener listener = new TestNodeListener();
+    private BgpLocalRibImpl localRib;
+
+    @Before
+    public void setUp() {
+        localRib = (BgpLocalRibImpl) controller.bgpLocalRib();
+        controller.addListener(listener);
+    }
+
+    /**
+     * Withdrawals of paths other than the best one leave the local RIB as
+     * is, and the withdrawal of the best path falls back to the next best.
+     */
+    @Test
+    public void testIncrementalWithdraw() throws BgpParseException {
+        BgpPeerImpl peer1 = connect("10.0.0.1", 1);
+        BgpPeerImpl peer2 = connect("10.0.0.2", 2);
+        BgpNodeLSNlriVer4 nlri = node(1);
+        BgpNodeLSIdentifier key = nlri.getLocalNodeDescriptors();
+
+        PathAttrNlriDetails best = advertise(peer1, nlri, ORIGIN_IGP);
+        advertise(peer2, nlri, ORIGIN_INCOMPLETE);
+        assertThat(localRib.nodeTree().get(key).localRibNlridetails(), is(best));
+        assertThat(listener.added, is(1));
+
+        withdraw(peer2, nlri);
+        assertThat(localRib.nodeTree().get(key).localRibNlridetails(), is(best));
+        assertThat(listener.added, is(1));
+        assertThat(listener.deleted, is(0));
+
+        advertise(peer2, nlri, ORIGIN_INCOMPLETE);
+        withdraw(peer1, nlri);
+        assertThat(localRib.nodeTree().get(key).localRibIpAddress(), is(IpAddress.valueOf("10.0.0.2")));
+        assertThat(listener.added, is(2));
+        assertThat(listener.deleted, is(0));
+
+        withdraw(peer2, nlri);
+        assertThat(localRib.nodeTree().containsKey(key), is(false));
+        assertThat(listener.deleted, is(1));
+    }
+
+    /**
+     * A worse path from the peer of the best path makes way for a better
+     * path of another peer.
+     */
+    @Test
+    public void testWorseUpdateOfBestPath() throws BgpParseException {
+        BgpPeerImpl peer1 = connect("10.0.0.1", 1);
+        BgpPeerImpl peer2 = connect("10.0.0.2", 2);
+        BgpNodeLSNlriVer4 nlri = node(1);
+        BgpNodeLSIdentifier key = nlri.getLocalNodeDescriptors();
+
+        advertise(peer1, nlri, ORIGIN_IGP);
+        advertise(peer2, nlri, ORIGIN_INCOMPLETE);
+        PathAttrNlriDetails best = advertise(peer2, nlri, ORIGIN_IGP);
+        advertise(peer1, nlri, ORIGIN_INCOMPLETE);
+
+        assertThat(localRib.nodeTree().get(key).localRibNlridetails(), is(best));
+    }
+
+    /**
+     * Disconnecting a peer removes the NLRIs only it advertised.
+     */
+    @Test
+    public void testPeerDisconnect() throws BgpParseException {
+        BgpPeerImpl peer1 = connect("10.0.0.1", 1);
+        BgpPeerImpl peer2 = connect("10.0.0.2", 2);
+        advertise(peer1, node(1), ORIGIN_IGP);
+        advertise(peer1, node(2), ORIGIN_IGP);
+        advertise(peer2, node(2), ORIGIN_INCOMPLETE);
+
+        controller.connectedPeers().remove(peer1.sessionInfo().remoteBgpId());
+        peer1.updateLocalRibOnPeerDisconnect();
+
+        assertThat(localRib.nodeTree().containsKey(node(1).getLocalNodeDescriptors()), is(false));
+        assertThat(localRib.nodeTree().get(node(2).getLocalNodeDescriptors()).localRibIpAddress(),
+                   is(IpAddress.valueOf("10.0.0.2")));
+    }
+
+    private BgpPeerImpl connect(String address, int identifier) {
+        BgpId bgpId = BgpId.bgpId(IpAddress.valueOf(address));
+        BgpSessionInfoImpl sessionInfo = new BgpSessionInfoImpl(bgpId, BgpVersion.BGP_4, 100, (short) 180,
+                                                                identifier, (short) 180, false,
+                                                                new LinkedList<>());
+        BgpPeerImpl peer = new BgpPeerImpl(controller, sessionInfo, new BgpPacketStatsImpl());
+        controller.connectedPeers().put(bgpId, peer);
+        return peer;
+    }
+
+    private static BgpNodeLSNlriVer4 node(int id) {
+        LinkedList<BgpValueType> subTlvs = new LinkedList<>();
+        subTlvs.add(AutonomousSystemTlv.of(2478));
+        subTlvs.add(BgpLSIdentifierTlv.of(id));
+        BgpNodeLSIdentifier key = new BgpNodeLSIdentifier(new NodeDescriptors(subTlvs, (short) 0x10, (short) 256));
+        return new BgpNodeLSNlriVer4(0, ProtocolType.OSPF_V2.getType(), key, false, null);
+    }
+
+    private PathAttrNlriDetails advertise(BgpPeerImpl peer, BgpNodeLSNlriVer4 nlri, byte origin)
+            throws BgpParseException {
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        buffer.writeBytes(new byte[] {0x40, 0x01, 0x01, origin});
+        buffer.writeBytes(new byte[] {0x40, 0x02, 0x04, 0x02, 0x01, (byte) 0xfd, (byte) 0xea});
+        LinkedList<BgpValueType> pathAttributes = new LinkedList<>();
+        pathAttributes.add(Origin.read(buffer));
+        pathAttributes.add(AsPath.read(buffer));
+
+        PathAttrNlriDetails details = new PathAttrNlriDetails();
+        details.setIdentifier(0);
+        details.setProtocolID(ProtocolType.OSPF_V2);
+        details.setPathAttribute(pathAttributes);
+        peer.adjRib().add(nlri, details);
+        localRib.add(peer.sessionInfo(), nlri, details);
+        return details;
+    }
+
+    private void withdraw(BgpPeerImpl peer, BgpNodeLSNlriVer4 nlri) throws BgpParseException {
+        peer.adjRib().remove(nlri);
+        localRib.delete(nlri);
+    }
+
+    private static class TestNodeListener implements BgpNodeListener {
+        int added;
+        int deleted;
+
+        @Override
+        public synchronized void addNode(BgpNodeLSNlriVer4 nodeNlri, PathAttrNlriDetails details) {
+            added++;
+        }
+
+        @Override
+        public synchronized void deleteNode(BgpNodeLSNlriVer4 nodeNlri) {
+            deleted++;
+        }
+    }
+
+    private static class TestBgpController implements BgpController {
+        private final Map<BgpId, BgpPeer> peers = new ConcurrentHashMap<>();
+        private final Set<BgpNodeListener> nodeListeners = new CopyOnWriteArraySet<>();
+        private final Set<BgpLinkListener> linkListeners = new CopyOnWriteArraySet<>();
+        private final BgpLocalRib localRib = new BgpLocalRibImpl(this);
+        private final BgpLocalRib localRibVpn = new BgpLocalRibImpl(this);
+
+        @Override
+        public Iterable<BgpPeer> getPeers() {
+            return peers.values();
+        }
+
+        @Override
+        public BgpPeer getPeer(BgpId bgpId) {
+            return peers.get(bgpId);
+        }
+
+        @Override
+        public void addListener(BgpNodeListener listener) {
+            nodeListeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(BgpNodeListener listener) {
+            nodeListeners.remove(listener);
+        }
+
+        @Override
+        public void writeMsg(BgpId bgpId, BgpMessage msg) {
+        }
+
+        @Override
+        public void processBgpPacket(BgpId bgpId, BgpMessage msg) {
+        }
+
+        @Override
+        public void closeConnectedPeers() {
+        }
+
+        @Override
+        public BgpCfg getConfig() {
+            return null;
+        }
+
+        @Override
+        public int connectedPeerCount() {
+            return peers.size();
+        }
+
+        @Override
+        public BgpLocalRib bgpLocalRibVpn() {
+            return localRibVpn;
+        }
+
+        @Override
+        public BgpLocalRib bgpLocalRib() {
+            return localRib;
+        }
+
+        @Override
+        public BgpPeerManager peerManager() {
+            return null;
+        }
+
+        @Override
+        public Map<BgpId, BgpPeer> connectedPeers() {
+            return peers;
+        }
+
+        @Override
+        public Set<BgpNodeListener> listener() {
+            return nodeListeners;
+        }
+
+        @Override
+        public void addLinkListener(BgpLinkListener listener) {
+            linkListeners.add(listener);
+        }
+
+        @Override
+        public void removeLinkListener(BgpLinkListener listener) {
+            linkListeners.remove(listener);
+        }
+
+        @Override
+        public Set<BgpLinkListener> linkListener() {
+            return linkListeners;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.netconf.ctl;
+
+import java.net.ProtocolException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Incremental framing of the messages exchanged on a NETCONF session, either
+ * with the end-of-message delimiter of NETCONF 1.0 or with the chunked
+ * framing of NETCONF 1.1, as defined by RFC 6242.
+ * <p>
+ * Received bytes are decoded as they come, in chunks of any size, and each
+ * complete message is handed to the consumer of the framer.
+ * </p>
+ */
+final class NetconfMessageFramer {
+
+    static final String END_PATTERN = "]]>]]>";
+
+    private static final byte[] END_OF_MESSAGE = END_PATTERN.getBytes(UTF_8);
+    // KMP failure function of the end-of-message delimiter
+    private static final int[] END_OF_MESSAGE_FAILURE = failure(END_OF_MESSAGE);
+
+    private static final int INITIAL_CAPACITY = 4096;
+    // buffers larger than this are not kept around once a message is decoded
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private enum ChunkState {
+        HEADER_LF, HEADER_HASH, SIZE_START, SIZE, DATA, END_LF
+    }
+
+    private final Consumer<String> consumer;
+    private volatile boolean chunked;
+
+    private byte[] message = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    // end-of-message framing state
+    private int matched;
+
+    // chunked framing state
+    private ChunkState chunkState = ChunkState.HEADER_LF;
+    private long chunkSize;
+
+    /**
+     * Creates a framer handing decoded messages to the given consumer.
+     *
+     * @param consumer consumer of the decoded messages
+     */
+    NetconfMessageFramer(Consumer<String> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Switches to the chunked framing, once both peers advertised support
+     * for NETCONF 1.1 in their hello messages.
+     */
+    void enableChunkedFraming() {
+        chunked = true;
+    }
+
+    /**
+     * Indicates whether the chunked framing is in use.
+     *
+     * @return true if messages are framed in chunks
+     */
+    boolean isChunked() {
+        return chunked;
+    }
+
+    /**
+     * Frames a message to send.
+     *
+     * @param request message, possibly terminated by the end-of-message
+     *                delimiter
+     * @return framed message bytes
+     */
+    byte[] encode(String request) {
+        if (!chunked) {
+            return request.getBytes(UTF_8);
+        }
+        String payload = request.trim();
+        if (payload.endsWith(END_PATTERN)) {
+            payload = payload.substring(0, payload.length() - END_PATTERN.length()).trim();
+        }
+        byte[] bytes = payload.getBytes(UTF_8);
+        byte[] header = ("\n#" + bytes.length + "\n").getBytes(UTF_8);
+        byte[] trailer = "\n##\n".getBytes(UTF_8);
+        byte[] framed = Arrays.copyOf(header, header.length + bytes.length + trailer.length);
+        System.arraycopy(bytes, 0, framed, header.length, bytes.length);
+        System.arraycopy(trailer, 0, framed, header.length + bytes.length, trailer.length);
+        return framed;
+    }
+
+    /**
+     * Decodes received bytes, handing every message they complete to the
+     * consumer.
+     *
+     * @param bytes  buffer holding the received bytes
+     * @param offset offset of the received bytes in the buffer
+     * @param count  number of received bytes
+     * @throws ProtocolException if the bytes do not follow the framing
+     */
+    void decode(byte[] bytes, int offset, int count) throws ProtocolException {
+        int index = offset;
+        int end = offset + count;
+        while (index < end) {
+            index = chunked ? decodeChunked(bytes, index, end) : decodeEndOfMessage(bytes, index, end);
+        }
+    }
+
+    private int decodeEndOfMessage(byte[] bytes, int index, int end) {
+        while (index < end) {
+            byte b = bytes[index++];
+            append(b);
+            while (matched > 0 && b != END_OF_MESSAGE[matched]) {
+                matched = END_OF_MESSAGE_FAILURE[matched - 1];
+            }
+            if (b == END_OF_MESSAGE[matched]) {
+                matched++;
+            }
+            if (matched == END_OF_MESSAGE.length) {
+                matched = 0;
+                length -= END_OF_MESSAGE.length;
+                complete();
+                // the framing may have changed with this message
+                return index;
+            }
+        }
+        return index;
+    }
+
+    private int decodeChunked(byte[] bytes, int index, int end) throws ProtocolException {
+        while (index < end) {
+            if (chunkState == ChunkState.DATA) {
+                int count = (int) Math.min(chunkSize, end - index);
+                append(bytes, index, count);
+                index += count;
+                chunkSize -= count;
+                if (chunkSize == 0) {
+                    chunkState = ChunkState.HEADER_LF;
+                }
+                continue;
+            }
+
+            byte b = bytes[index++];
+            switch (chunkState) {
+            case HEADER_LF:
+                expect(b, '\n');
+                chunkState = ChunkState.HEADER_HASH;
+                break;
+            case HEADER_HASH:
+                expect(b, '#');
+                chunkState = ChunkState.SIZE_START;
+                break;
+            case SIZE_START:
+                if (b == '#') {
+                    chunkState = ChunkState.END_LF;
+                } else {
+                    if (b < '1' || b > '9') {
+                        throw new ProtocolException("Invalid chunk size");
+                    }
+                    chunkSize = b - '0';
+                    chunkState = ChunkState.SIZE;
+                }
+                break;
+            case SIZE:
+                if (b == '\n') {
+                    chunkState = ChunkState.DATA;
+                } else {
+                    if (b < '0' || b > '9') {
+                        throw new ProtocolException("Invalid chunk size");
+                    }
+                    chunkSize = chunkSize * 10 + b - '0';
+                    if (chunkSize > Integer.MAX_VALUE) {
+                        throw new ProtocolException("Chunk too large");
+                    }
+                }
+                break;
+            case END_LF:
+                expect(b, '\n');
+                chunkState = ChunkState.HEADER_LF;
+                complete();
+                return index;
+            default:
+                throw new ProtocolException("Unexpected framing state " + chunkState);
+            }
+        }
+        return index;
+    }
+
+    private static void expect(byte b, char expected) throws ProtocolException {
+        if (b != expected) {
+            throw new ProtocolException("Expected '" + expected + "' in chunked framing");
+        }
+    }
+
+    private void complete() {
+        String decoded = new String(message, 0, length, UTF_8);
+        length = 0;
+        if (message.length > MAX_RETAINED_CAPACITY) {
+            message = new byte[INITIAL_CAPACITY];
+        }
+        consumer.accept(decoded);
+    }
+
+    private void append(byte b) {
+        ensureCapacity(1);
+        message[length++] = b;
+    }
+
+    private void append(byte[] bytes, int offset, int count) {
+        ensureCapacity(count);
+        System.arraycopy(bytes, offset, message, length, count);
+        length += count;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > message.length) {
+            message = Arrays.copyOf(message, Math.max(message.length * 2, length + count));
+        }
+    }
+
+    private static int[] failure(byte[] pattern) {
+        int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = failure[k - 1];
+            }
+            if (pattern[i] == pattern[k]) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+}
@@ -29,13 +29,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -52,6 +50,9 @@ public class NetconfSessionImpl implements NetconfSession {
 
 
     private static final int CONNECTION_TIMEOUT = 0;
+    private static final int SSH_CHANNEL_OPEN = 2;
+    private static final int HELLO_MESSAGE_ID = 0;
+    private static final String NETCONF_BASE_1_1 = "urn:ietf:params:netconf:base:1.1";
     private static final String ENDPATTERN = "]]>]]>";
     private static final String MESSAGE_ID_STRING = "message-id";
     private static final String HELLO = "<hello";
@@ -93,7 +94,6 @@ public class NetconfSessionImpl implements NetconfSession {
             Collections.singletonList("urn:ietf:params:netconf:base:1.0");
     private String serverCapabilities;
     private NetconfStreamHandler streamHandler;
-    private Map<Integer, CompletableFuture<String>> replies;
     private List<String> errorReplies;
     private boolean subscriptionConnected = false;
 
@@ -103,8 +103,7 @@ public class NetconfSessionImpl implements NetconfSession {
         this.netconfConnection = null;
         this.sshSession = null;
         connectionActive = false;
-        replies = new HashMap<>();
-        errorReplies = new ArrayList<>();
+        errorReplies = new CopyOnWriteArrayList<>();
         startConnection();
     }
 
@@ -146,11 +145,12 @@ public class NetconfSessionImpl implements NetconfSession {
 
     private void startSshSession() throws NetconfException {
         try {
-            sshSession = netconfConnection.openSession();
+            Session session = netconfConnection.openSession();
+            sshSession = session;
             sshSession.startSubSystem("netconf");
-            streamHandler = new NetconfStreamThread(sshSession.getStdout(), sshSession.getStdin(),
-                                                    sshSession.getStderr(), deviceInfo,
-                                                    new NetconfSessionDelegateImpl());
+            streamHandler = new NetconfStreamReader(sshSession.getStdout(), sshSession.getStdin(),
+                                                    deviceInfo, new NetconfSessionDelegateImpl(),
+                                                    () -> session.getState() != SSH_CHANNEL_OPEN);
             this.addDeviceOutputListener(new NetconfDeviceOutputEventListenerImpl(deviceInfo));
             sendHello();
         } catch (IOException e) {
@@ -221,7 +221,12 @@ public class NetconfSessionImpl implements NetconfSession {
     }
 
     private void sendHello() throws NetconfException {
-        serverCapabilities = sendRequest(createHelloString());
+        String hello = createHelloString();
+        serverCapabilities = getReply(streamHandler.sendMessage(hello, HELLO_MESSAGE_ID), hello);
+        if (deviceCapabilities.contains(NETCONF_BASE_1_1) &&
+                serverCapabilities.contains(NETCONF_BASE_1_1)) {
+            streamHandler.enableChunkedFraming();
+        }
     }
 
     private String createHelloString() {
@@ -241,8 +246,8 @@ public class NetconfSessionImpl implements NetconfSession {
 
     }
 
-    private void checkAndRestablishSession() throws NetconfException {
-        if (sshSession.getState() != 2) {
+    private synchronized void checkAndRestablishSession() throws NetconfException {
+        if (sshSession.getState() != SSH_CHANNEL_OPEN) {
             try {
                 startSshSession();
             } catch (IOException e) {
@@ -259,47 +264,50 @@ public class NetconfSessionImpl implements NetconfSession {
 
     @Override
     public String requestSync(String request) throws NetconfException {
-        if (!request.contains(ENDPATTERN)) {
-            request = request + NEW_LINE + ENDPATTERN;
-        }
         String reply = sendRequest(request);
         checkReply(reply);
         return reply;
     }
 
     @Override
-    public CompletableFuture<String> request(String request) {
-        CompletableFuture<String> ftrep = streamHandler.sendMessage(request);
-        replies.put(messageIdInteger.get(), ftrep);
-        return ftrep;
+    public CompletableFuture<String> request(String request) throws NetconfException {
+        checkAndRestablishSession();
+        if (!request.contains(ENDPATTERN)) {
+            request = request + NEW_LINE + ENDPATTERN;
+        }
+        int messageId = messageIdInteger.incrementAndGet();
+        request = formatRequestMessageId(request, messageId);
+        request = formatXmlHeader(request);
+        return streamHandler.sendMessage(request, messageId);
     }
 
     private String sendRequest(String request) throws NetconfException {
-        checkAndRestablishSession();
-        request = formatRequestMessageId(request);
-        request = formatXmlHeader(request);
-        CompletableFuture<String> futureReply = request(request);
-        messageIdInteger.incrementAndGet();
+        return getReply(request(request), request);
+    }
+
+    private String getReply(CompletableFuture<String> futureReply, String request) throws NetconfException {
         int replyTimeout = NetconfControllerImpl.netconfReplyTimeout;
         String rp;
         try {
             rp = futureReply.get(replyTimeout, TimeUnit.SECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            // stop waiting for the reply, so that it no longer holds on to its message id
+            futureReply.cancel(false);
             throw new NetconfException("No matching reply for request " + request, e);
         }
         log.debug("Result {} from request {} to device {}", rp, request, deviceInfo);
         return rp.trim();
     }
 
-    private String formatRequestMessageId(String request) {
+    private String formatRequestMessageId(String request, int messageId) {
         if (request.contains(MESSAGE_ID_STRING)) {
             //FIXME if application provieds his own counting of messages this fails that count
             request = request.replaceFirst(MESSAGE_ID_STRING + EQUAL + NUMBER_BETWEEN_QUOTES_MATCHER,
-                                           MESSAGE_ID_STRING + EQUAL + "\"" + messageIdInteger.get() + "\"");
+                                           MESSAGE_ID_STRING + EQUAL + "\"" + messageId + "\"");
         } else if (!request.contains(MESSAGE_ID_STRING) && !request.contains(HELLO)) {
             //FIXME find out a better way to enforce the presence of message-id
             request = request.replaceFirst(END_OF_RPC_OPEN_TAG, "\" " + MESSAGE_ID_STRING + EQUAL + "\""
-                    + messageIdInteger.get() + "\"" + ">");
+                    + messageId + "\"" + ">");
         }
         return request;
     }
@@ -593,16 +601,11 @@ public class NetconfSessionImpl implements NetconfSession {
         public void notify(NetconfDeviceOutputEvent event)  {
             Optional<Integer> messageId = event.getMessageID();
 
+            // replies bearing a message id complete their request in the stream handler
             if (!messageId.isPresent()) {
                 errorReplies.add(event.getMessagePayload());
                 log.error("Device {} sent error reply {}",
                           event.getDeviceInfo(), event.getMessagePayload());
-                return;
-            }
-            CompletableFuture<String> completedReply =
-                    replies.get(messageId.get());
-            if (completedReply != null) {
-                completedReply.complete(event.getMessagePayload());
             }
         }
     }
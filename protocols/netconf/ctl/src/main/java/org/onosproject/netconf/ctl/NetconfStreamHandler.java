@@ -28,11 +28,20 @@ import java.util.concurrent.CompletableFuture;
 public interface NetconfStreamHandler {
     /**
      * Sends the request on the stream that is used to communicate to and from the device.
+     * The returned future is registered before the request is written, so that any number
+     * of requests may be outstanding on the stream, each matched to its reply by message id.
      *
-     * @param request request to send to the physical device
+     * @param request   request to send to the physical device
+     * @param messageId message id of the request
      * @return a CompletableFuture of type String that will contain the response for the request.
      */
-    CompletableFuture<String> sendMessage(String request);
+    CompletableFuture<String> sendMessage(String request, int messageId);
+
+    /**
+     * Switches the stream to the chunked framing of NETCONF 1.1, once both ends
+     * of the session advertised it in their hello messages.
+     */
+    void enableChunkedFraming();
 
     /**
      * Adds a listener for netconf events on the handled stream.
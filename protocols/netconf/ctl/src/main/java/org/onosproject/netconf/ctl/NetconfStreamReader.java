@@ -0,0 +1,291 @@
+/*
+ * Copyright 2015-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.netconf.ctl;
+
+import com.google.common.collect.Lists;
+import org.onosproject.netconf.NetconfDeviceInfo;
+import org.onosproject.netconf.NetconfDeviceOutputEvent;
+import org.onosproject.netconf.NetconfDeviceOutputEventListener;
+import org.onosproject.netconf.NetconfException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.concurrent.Executors.newScheduledThreadPool;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Handles all the input and output from the streams of a NETCONF session to
+ * and from the device the session is established with.
+ * <p>
+ * Rather than blocking a thread per session, the input streams of all sessions
+ * are polled by a small shared pool, which hands whatever bytes are available
+ * to the incremental framer of the session. Idle sessions are polled less and
+ * less often, and are polled again right away when a request is sent on them.
+ * Requests are matched to their replies by message id, so that any number of
+ * them may be outstanding on a session.
+ * </p>
+ */
+public class NetconfStreamReader implements NetconfStreamHandler {
+
+    private static final Logger log = LoggerFactory
+            .getLogger(NetconfStreamReader.class);
+    private static final String HELLO = "<hello";
+    private static final String RPC_REPLY = "rpc-reply";
+    private static final String RPC_ERROR = "rpc-error";
+    private static final String NOTIFICATION_LABEL = "<notification";
+    private static final Pattern MESSAGE_ID = Pattern.compile("message-id=[\"']([0-9]{1,9})[\"']");
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final long MIN_IDLE_DELAY_MICROS = 1000;
+    private static final long MAX_IDLE_DELAY_MICROS = 100_000;
+
+    private static final int READER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final ScheduledExecutorService READERS =
+            newScheduledThreadPool(READER_THREADS, groupedThreads("onos/netconf", "stream-reader-%d", log));
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final NetconfDeviceInfo netconfDeviceInfo;
+    private final NetconfSessionDelegate sessionDelegate;
+    private final BooleanSupplier sessionClosed;
+    private final NetconfMessageFramer framer = new NetconfMessageFramer(this::handleMessage);
+    private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+    private final Map<Integer, CompletableFuture<String>> replies = new ConcurrentHashMap<>();
+    private final List<NetconfDeviceOutputEventListener> netconfDeviceEventListeners
+            = Lists.newCopyOnWriteArrayList();
+    private volatile boolean enableNotifications = true;
+    private volatile boolean closed;
+
+    // guarded by this
+    private ScheduledFuture<?> nextPoll;
+    private long pollGeneration;
+    private boolean polling;
+    private boolean wokenUp;
+    private long idleDelay = MIN_IDLE_DELAY_MICROS;
+
+    /**
+     * Creates a handler of the streams of a session, and starts polling its
+     * input stream.
+     *
+     * @param in            input stream of the session
+     * @param out           output stream of the session
+     * @param deviceInfo    device the session is established with
+     * @param delegate      delegate notified of the replies
+     * @param sessionClosed tells whether the session was closed, once there is
+     *                      nothing left to read
+     */
+    public NetconfStreamReader(final InputStream in, final OutputStream out,
+                               NetconfDeviceInfo deviceInfo,
+                               NetconfSessionDelegate delegate,
+                               BooleanSupplier sessionClosed) {
+        this.in = in;
+        this.out = out;
+        this.netconfDeviceInfo = deviceInfo;
+        this.sessionDelegate = delegate;
+        this.sessionClosed = sessionClosed;
+        log.debug("Stream reader for device {} session started", deviceInfo);
+        schedule(0);
+    }
+
+    @Override
+    public CompletableFuture<String> sendMessage(String request, int messageId) {
+        log.debug("Sending message {} to device {}", request, netconfDeviceInfo);
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        replies.put(messageId, reply);
+        reply.whenComplete((r, e) -> replies.remove(messageId, reply));
+        if (closed) {
+            reply.completeExceptionally(closedException());
+            return reply;
+        }
+        try {
+            byte[] bytes = framer.encode(request);
+            synchronized (out) {
+                out.write(bytes);
+                out.flush();
+            }
+        } catch (IOException e) {
+            reply.completeExceptionally(new NetconfException("Failed to send request to device "
+                                                                     + netconfDeviceInfo, e));
+            return reply;
+        }
+        wakeUp();
+        return reply;
+    }
+
+    @Override
+    public void enableChunkedFraming() {
+        framer.enableChunkedFraming();
+    }
+
+    private void poll(long generation) {
+        synchronized (this) {
+            // a poll superseded by a wake up may still start, and must not run alongside the next one
+            if (closed || generation != pollGeneration) {
+                return;
+            }
+            polling = true;
+        }
+        boolean progress = false;
+        try {
+            int available = in.available();
+            if (available > 0) {
+                int read = in.read(buffer, 0, Math.min(available, buffer.length));
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                framer.decode(buffer, 0, read);
+                progress = true;
+            } else if (sessionClosed.getAsBoolean()) {
+                close();
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error in reading from the session for device {} ", netconfDeviceInfo, e);
+            close();
+            return;
+        }
+        synchronized (this) {
+            polling = false;
+            if (progress || wokenUp) {
+                wokenUp = false;
+                idleDelay = MIN_IDLE_DELAY_MICROS;
+                schedule(0);
+            } else {
+                schedule(idleDelay);
+                idleDelay = Math.min(idleDelay * 2, MAX_IDLE_DELAY_MICROS);
+            }
+        }
+    }
+
+    private synchronized void schedule(long delay) {
+        if (!closed) {
+            long generation = ++pollGeneration;
+            nextPoll = READERS.schedule(() -> poll(generation), delay, MICROSECONDS);
+        }
+    }
+
+    private synchronized void wakeUp() {
+        if (polling) {
+            // the running poll polls again right away once done
+            wokenUp = true;
+        } else {
+            idleDelay = MIN_IDLE_DELAY_MICROS;
+            if (nextPoll != null) {
+                nextPoll.cancel(false);
+            }
+            schedule(0);
+        }
+    }
+
+    private void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (nextPoll != null) {
+                nextPoll.cancel(false);
+            }
+        }
+        log.debug("Netconf device {} closed the session, will need to be reopened", netconfDeviceInfo);
+        NetconfException cause = closedException();
+        replies.values().forEach(reply -> reply.completeExceptionally(cause));
+        dispatch(new NetconfDeviceOutputEvent(NetconfDeviceOutputEvent.Type.DEVICE_UNREGISTERED,
+                                              null, null, Optional.of(-1), netconfDeviceInfo));
+    }
+
+    private NetconfException closedException() {
+        return new NetconfException("Session with device " + netconfDeviceInfo + " is closed");
+    }
+
+    private void handleMessage(String deviceReply) {
+        if (deviceReply.isEmpty()) {
+            close();
+        } else if (deviceReply.contains(RPC_REPLY) ||
+                deviceReply.contains(RPC_ERROR) ||
+                deviceReply.contains(HELLO)) {
+            Optional<Integer> messageId = getMsgId(deviceReply);
+            NetconfDeviceOutputEvent event = new NetconfDeviceOutputEvent(
+                    NetconfDeviceOutputEvent.Type.DEVICE_REPLY,
+                    null, deviceReply, messageId, netconfDeviceInfo);
+            messageId.map(replies::get).ifPresent(reply -> reply.complete(deviceReply));
+            sessionDelegate.notify(event);
+            dispatch(event);
+        } else if (deviceReply.contains(NOTIFICATION_LABEL)) {
+            if (enableNotifications) {
+                dispatch(new NetconfDeviceOutputEvent(
+                        NetconfDeviceOutputEvent.Type.DEVICE_NOTIFICATION,
+                        null, deviceReply, getMsgId(deviceReply), netconfDeviceInfo));
+            }
+        } else {
+            log.info("Error on replay from device {} ", deviceReply);
+        }
+    }
+
+    private void dispatch(NetconfDeviceOutputEvent event) {
+        for (NetconfDeviceOutputEventListener listener : netconfDeviceEventListeners) {
+            try {
+                listener.event(event);
+            } catch (RuntimeException e) {
+                log.warn("Listener failed to handle event from device {}", netconfDeviceInfo, e);
+            }
+        }
+    }
+
+    private static Optional<Integer> getMsgId(String reply) {
+        Matcher matcher = MESSAGE_ID.matcher(reply);
+        if (matcher.find()) {
+            return Optional.of(Integer.parseInt(matcher.group(1)));
+        } else if (reply.contains(HELLO)) {
+            return Optional.of(0);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void addDeviceEventListener(NetconfDeviceOutputEventListener listener) {
+        if (!netconfDeviceEventListeners.contains(listener)) {
+            netconfDeviceEventListeners.add(listener);
+        }
+    }
+
+    @Override
+    public void removeDeviceEventListener(NetconfDeviceOutputEventListener listener) {
+        netconfDeviceEventListeners.remove(listener);
+    }
+
+    @Override
+    public void setEnableNotifications(boolean enableNotifications) {
+        this.enableNotifications = enableNotifications;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.netconf.ctl;
+
+import org.junit.Test;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the framing of NETCONF messages.
+ */
+public class NetconfMessageFramerTest {
+
+    private static final String REPLY1 = "<rpc-reply message-id=\"1\"><ok/></rpc-reply>";
+    private static final String REPLY2 = "<rpc-reply message-id=\"2\"><data>]]]>]]</data></rpc-reply>";
+
+    private final List<String> messages = new ArrayList<>();
+    private final NetconfMessageFramer framer = new NetconfMessageFramer(messages::add);
+
+    /**
+     * Tests the end-of-message framing, with bytes received one at a time.
+     *
+     * @throws ProtocolException framing error
+     */
+    @Test
+    public void testEndOfMessage() throws ProtocolException {
+        byte[] bytes = (REPLY1 + "]]>]]>" + REPLY2 + "]]]>]]>").getBytes(UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            framer.decode(bytes, i, 1);
+        }
+        assertThat(messages, contains(REPLY1, REPLY2 + "]"));
+    }
+
+    /**
+     * Tests the chunked framing, with a message spread over several chunks
+     * and bytes received in arbitrary pieces.
+     *
+     * @throws ProtocolException framing error
+     */
+    @Test
+    public void testChunked() throws ProtocolException {
+        framer.enableChunkedFraming();
+        String first = REPLY1.substring(0, 10);
+        String second = REPLY1.substring(10);
+        byte[] bytes = ("\n#" + first.length() + "\n" + first + "\n#" + second.length() + "\n" + second +
+                "\n##\n" + new String(framer.encode(REPLY2 + "\n]]>]]>"), UTF_8)).getBytes(UTF_8);
+        for (int i = 0; i < bytes.length; i += 7) {
+            framer.decode(bytes, i, Math.min(7, bytes.length - i));
+        }
+        assertThat(messages, contains(REPLY1, REPLY2));
+    }
+
+    /**
+     * Tests switching to the chunked framing right after the hello message,
+     * with the following message received in the same piece.
+     *
+     * @throws ProtocolException framing error
+     */
+    @Test
+    public void testSwitchToChunked() throws ProtocolException {
+        List<String> received = new ArrayList<>();
+        NetconfMessageFramer[] framer = new NetconfMessageFramer[1];
+        framer[0] = new NetconfMessageFramer(message -> {
+            received.add(message);
+            framer[0].enableChunkedFraming();
+        });
+        byte[] bytes = ("<hello/>]]>]]>\n#" + REPLY1.length() + "\n" + REPLY1 + "\n##\n").getBytes(UTF_8);
+        framer[0].decode(bytes, 0, bytes.length);
+        assertThat(received, contains("<hello/>", REPLY1));
+    }
+
+    /**
+     * Tests that a malformed chunk header is rejected.
+     *
+     * @throws ProtocolException framing error
+     */
+    @Test(expected = ProtocolException.class)
+    public void testInvalidChunk() throws ProtocolException {
+        framer.enableChunkedFraming();
+        byte[] bytes = "\n#0\n\n##\n".getBytes(UTF_8);
+        framer.decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Tests that messages are sent as they are with the end-of-message
+     * framing, and in a single chunk with the chunked framing.
+     */
+    @Test
+    public void testEncode() {
+        assertThat(new String(framer.encode(REPLY1 + "]]>]]>"), UTF_8), is(REPLY1 + "]]>]]>"));
+        framer.enableChunkedFraming();
+        assertThat(new String(framer.encode(REPLY1 + "\n]]>]]>"), UTF_8),
+                   is("\n#" + REPLY1.length() + "\n" + REPLY1 + "\n##\n"));
+    }
+}
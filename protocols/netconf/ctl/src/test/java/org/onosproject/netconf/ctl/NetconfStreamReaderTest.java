@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.netconf.ctl;
+
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.netconf.NetconfDeviceInfo;
+import org.onosproject.netconf.NetconfDeviceOutputEvent;
+import org.onosproject.netconf.NetconfException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the NETCONF stream reader, against simulated devices.
+ */
+public class NetconfStreamReaderTest {
+
+    private static final String SERVER_HELLO = "<hello xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\">" +
+            "<capabilities><capability>urn:ietf:params:netconf:base:1.0</capability></capabilities>" +
+            "<session-id>1</session-id></hello>";
+    private static final String REQUEST = "<rpc message-id=\"%d\" " +
+            "xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\"><get/></rpc>\n]]>]]>";
+    private static final Pattern MESSAGE_ID = Pattern.compile("message-id=\"([0-9]+)\"");
+
+    private NetconfStreamReader connect(TestDevice device) {
+        NetconfDeviceInfo deviceInfo = new NetconfDeviceInfo("netconf", "netconf",
+                                                             IpAddress.valueOf("127.0.0.1"),
+                                                             device.port);
+        return new NetconfStreamReader(device.in, device.out, deviceInfo,
+                                       event -> { }, device.closed::get);
+    }
+
+    /**
+     * Tests several requests outstanding on a session, whose replies are
+     * received out of order.
+     *
+     * @throws Exception on errors
+     */
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        TestDevice device = new TestDevice(830);
+        NetconfStreamReader reader = connect(device);
+        assertThat(reader.sendMessage("<hello/>]]>]]>", 0).get(5, TimeUnit.SECONDS), is(SERVER_HELLO));
+
+        device.holdReplies = true;
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            replies.add(reader.sendMessage(String.format(REQUEST, i), i));
+        }
+        device.releaseRepliesReversed();
+        for (int i = 1; i <= 1000; i++) {
+            assertThat(messageId(replies.get(i - 1).get(5, TimeUnit.SECONDS)), is(i));
+        }
+    }
+
+    /**
+     * Tests that the outstanding requests fail and the listeners are told,
+     * once the device closes the session.
+     *
+     * @throws Exception on errors
+     */
+    @Test
+    public void testSessionClosed() throws Exception {
+        TestDevice device = new TestDevice(830);
+        NetconfStreamReader reader = connect(device);
+        CompletableFuture<NetconfDeviceOutputEvent.Type> unregistered = new CompletableFuture<>();
+        reader.addDeviceEventListener(event -> {
+            if (event.type() == NetconfDeviceOutputEvent.Type.DEVICE_UNREGISTERED) {
+                unregistered.complete(event.type());
+            }
+        });
+
+        device.holdReplies = true;
+        CompletableFuture<String> reply = reader.sendMessage(String.format(REQUEST, 1), 1);
+        device.closed.set(true);
+        try {
+            reply.get(5, TimeUnit.SECONDS);
+            fail("Reply received on a closed session");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(NetconfException.class));
+        }
+        assertThat(unregistered.get(5, TimeUnit.SECONDS), is(NetconfDeviceOutputEvent.Type.DEVICE_UNREGISTERED));
+        assertThat(reader.sendMessage(String.format(REQUEST, 2), 2).isCompletedExceptionally(), is(true));
+    }
+
+    private static int messageId(String message) {
+        Matcher matcher = MESSAGE_ID.matcher(message);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("No message id in " + message);
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    /**
+     * Simulated device, answering each request with an rpc-reply bearing its
+     * message id, and the hello message with its own.
+     */
+    private static final class TestDevice {
+        private final int port;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final DeviceInput in = new DeviceInput();
+        private final List<String> heldReplies = new ArrayList<>();
+        private volatile boolean holdReplies;
+        private final NetconfMessageFramer framer = new NetconfMessageFramer(this::reply);
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                framer.decode(b, off, len);
+            }
+        };
+
+        private TestDevice(int port) {
+            this.port = port;
+        }
+
+        private void reply(String request) {
+            String reply = request.contains("<hello") ? SERVER_HELLO :
+                    String.format("<rpc-reply message-id=\"%d\" " +
+                                          "xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\"><ok/></rpc-reply>",
+                                  messageId(request));
+            synchronized (heldReplies) {
+                if (holdReplies) {
+                    heldReplies.add(reply);
+                    return;
+                }
+            }
+            in.append(reply);
+        }
+
+        private void releaseRepliesReversed() {
+            synchronized (heldReplies) {
+                for (int i = heldReplies.size() - 1; i >= 0; i--) {
+                    in.append(heldReplies.get(i));
+                }
+                heldReplies.clear();
+                holdReplies = false;
+            }
+        }
+    }
+
+    /**
+     * Input stream of a simulated device, which never blocks.
+     */
+    private static final class DeviceInput extends InputStream {
+        private byte[] data = new byte[1024];
+        private int position;
+        private int limit;
+
+        private synchronized void append(String message) {
+            byte[] bytes = (message + "]]>]]>").getBytes(UTF_8);
+            if (limit + bytes.length > data.length) {
+                System.arraycopy(data, position, data, 0, limit - position);
+                limit -= position;
+                position = 0;
+                if (limit + bytes.length > data.length) {
+                    data = Arrays.copyOf(data, Math.max(data.length * 2, limit + bytes.length));
+                }
+            }
+            System.arraycopy(bytes, 0, data, limit, bytes.length);
+            limit += bytes.length;
+        }
+
+        @Override
+        public synchronized int available() {
+            return limit - position;
+        }
+
+        @Override
+        public synchronized int read() {
+            return position < limit ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            int count = Math.min(len, limit - position);
+            System.arraycopy(data, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
@@ -65,7 +65,9 @@ public interface OpenFlowPacketContext {
     void build(Ethernet ethFrame, OFPort outPort);
 
     /**
-     * Provided a handle onto the parsed payload.
+     * Provided a handle onto the parsed payload. The payload is decoded
+     * anew on each call, so every caller gets its own copy which it may
+     * modify freely; callers should decode it only if they need it.
      *
      * @return the parsed form of the payload.
      */
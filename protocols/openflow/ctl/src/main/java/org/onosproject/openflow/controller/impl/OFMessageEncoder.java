@@ -16,44 +16,45 @@
 
 package org.onosproject.openflow.controller.impl;
 
-import java.util.List;
-
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 import org.projectfloodlight.openflow.protocol.OFMessage;
 
 /**
- * Encode an openflow message for output into a ChannelBuffer, for use in a
+ * Encode a list of openflow messages for output into a ByteBuf, for use in a
  * netty pipeline.
  */
-public class OFMessageEncoder extends OneToOneEncoder {
+public class OFMessageEncoder extends MessageToByteEncoder<Iterable<OFMessage>> {
 
-    @Override
-    protected Object encode(ChannelHandlerContext ctx, Channel channel,
-                            Object msg) throws Exception {
-        if (!(msg instanceof List)) {
-            return msg;
-        }
+    // Scratch buffers grown beyond this size are not kept between writes
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    // openflowj serializes into netty 3 buffers; keep one per channel so
+    // that encoding does not allocate a fresh buffer for every write.
+    private ChannelBuffer scratch = ChannelBuffers.dynamicBuffer();
 
-        @SuppressWarnings("unchecked")
-        List<OFMessage> msglist = (List<OFMessage>) msg;
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Iterable<OFMessage> msgs,
+                          ByteBuf out) throws Exception {
         /* XXX S can't get length of OFMessage in loxigen's openflowj??
         int size = 0;
         for (OFMessage ofm : msglist) {
             size += ofm.getLengthU();
         }*/
 
-        ChannelBuffer buf = ChannelBuffers.dynamicBuffer();
-
-        for (OFMessage ofm : msglist) {
+        scratch.clear();
+        for (OFMessage ofm : msgs) {
             if (ofm != null) {
-                ofm.writeTo(buf);
+                ofm.writeTo(scratch);
             }
         }
-        return buf;
+        out.writeBytes(scratch.array(), scratch.arrayOffset(), scratch.writerIndex());
+        if (scratch.capacity() > MAX_RETAINED_CAPACITY) {
+            scratch = ChannelBuffers.dynamicBuffer();
+        }
     }
 
 }
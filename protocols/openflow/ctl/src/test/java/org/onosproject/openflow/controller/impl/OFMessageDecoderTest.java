@@ -16,15 +16,15 @@
 package org.onosproject.openflow.controller.impl;
 
 
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.buffer.ChannelBuffers;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
-import org.onosproject.core.netty.ChannelAdapter;
-import org.onosproject.openflow.ChannelHandlerContextAdapter;
 import org.projectfloodlight.openflow.protocol.OFHello;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
@@ -33,35 +33,31 @@ import static org.hamcrest.Matchers.nullValue;
  */
 public class OFMessageDecoderTest {
 
-    static class ConnectedChannel extends ChannelAdapter {
-        @Override
-        public boolean isConnected() {
-            return true;
-        }
-    }
+    // OFHello, OF version 1, xid of 0, total of 8 bytes
+    private static final byte[] HELLO = {0x1, 0x0, 0x0, 0x8, 0x0, 0x0, 0x0, 0x0};
 
-    private ChannelBuffer getHelloMessageBuffer() {
-        // OFHello, OF version 1, xid of 0, total of 8 bytes
-        byte[] messageData = {0x1, 0x0, 0x0, 0x8, 0x0, 0x0, 0x0, 0x0};
-        ChannelBuffer channelBuffer = ChannelBuffers.dynamicBuffer();
-        channelBuffer.writeBytes(messageData);
-        return channelBuffer;
+    private ByteBuf getHelloMessageBuffer() {
+        return Unpooled.copiedBuffer(HELLO);
     }
 
     /**
-     * Tests decoding a message on a closed channel.
+     * Tests that the bytes left over when the channel becomes inactive are
+     * dropped rather than decoded.
      *
      * @throws Exception when an exception is thrown from the decoder
      */
     @Test
-    public void testDecodeNoChannel() throws Exception {
-        OFMessageDecoder decoder = new OFMessageDecoder();
-        ChannelBuffer channelBuffer = getHelloMessageBuffer();
-        Object message =
-                decoder.decode(new ChannelHandlerContextAdapter(),
-                               new ChannelAdapter(),
-                               channelBuffer);
-        assertThat(message, nullValue());
+    public void testDecodeChannelInactive() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new OFMessageDecoder());
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeBytes(HELLO).writeBytes(HELLO, 0, 3);
+        channel.writeInbound(buffer);
+        assertThat(channel.readInbound(), instanceOf(OFHello.class));
+
+        // closing the channel fires channelInactive and a last decode
+        assertThat(channel.finish(), is(false));
+        assertThat(channel.isActive(), is(false));
+        assertThat(channel.readInbound(), nullValue());
     }
 
     /**
@@ -71,14 +67,31 @@ public class OFMessageDecoderTest {
      */
     @Test
     public void testDecode() throws Exception {
-        OFMessageDecoder decoder = new OFMessageDecoder();
-        ChannelBuffer channelBuffer = getHelloMessageBuffer();
-        Object message =
-                decoder.decode(new ChannelHandlerContextAdapter(),
-                               new ConnectedChannel(),
-                               channelBuffer);
+        EmbeddedChannel channel = new EmbeddedChannel(new OFMessageDecoder());
+        channel.writeInbound(getHelloMessageBuffer());
+        Object message = channel.readInbound();
         assertThat(message, notNullValue());
         assertThat(message, instanceOf(OFHello.class));
     }
 
+    /**
+     * Tests decoding several messages, the last one split across two reads.
+     *
+     * @throws Exception when an exception is thrown from the decoder
+     */
+    @Test
+    public void testDecodeFragmented() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new OFMessageDecoder());
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeBytes(HELLO).writeBytes(HELLO).writeBytes(HELLO, 0, 3);
+        channel.writeInbound(buffer);
+        assertThat(channel.readInbound(), instanceOf(OFHello.class));
+        assertThat(channel.readInbound(), instanceOf(OFHello.class));
+        assertThat(channel.readInbound(), nullValue());
+
+        channel.writeInbound(Unpooled.copiedBuffer(HELLO, 3, HELLO.length - 3));
+        assertThat(channel.readInbound(), instanceOf(OFHello.class));
+        assertThat(channel.finish(), is(false));
+    }
+
 }
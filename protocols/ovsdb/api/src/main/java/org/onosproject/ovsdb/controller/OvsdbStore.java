@@ -40,6 +40,17 @@ public class OvsdbStore {
         return tableStore;
     }
 
+    /**
+     * Gets the OvsdbTableStore, creating it if the database has no tables
+     * yet, so that updates can be applied to it in place.
+     *
+     * @param dbName ovsdb database name
+     * @return tableStore OvsdbTableStore
+     */
+    public OvsdbTableStore getOrCreateOvsdbTableStore(String dbName) {
+        return ovsdbStore.computeIfAbsent(dbName, name -> new OvsdbTableStore());
+    }
+
     /**
      * Create or Update a value to ovsdbStore.
      *
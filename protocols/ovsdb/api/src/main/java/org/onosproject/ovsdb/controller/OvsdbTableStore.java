@@ -36,6 +36,17 @@ public class OvsdbTableStore {
         return tableStore.get(tableName);
     }
 
+    /**
+     * Gets the ovsdbRowStore, creating it if the table has no rows yet, so
+     * that updates can be applied to it in place.
+     *
+     * @param tableName an ovsdb table name
+     * @return OvsdbRowStore the data of table
+     */
+    public OvsdbRowStore getOrCreateRows(String tableName) {
+        return tableStore.computeIfAbsent(tableName, name -> new OvsdbRowStore());
+    }
+
     /**
      * Creates or updates a value to tableStore.
      *
@@ -100,8 +100,8 @@ public class DefaultOvsdbClient implements OvsdbProviderService, OvsdbClientServ
     private Callback monitorCallBack;
     private OvsdbStore ovsdbStore = new OvsdbStore();
 
-    private final Map<String, String> requestMethod = Maps.newHashMap();
-    private final Map<String, SettableFuture<? extends Object>> requestResult = Maps.newHashMap();
+    private final Map<String, String> requestMethod = Maps.newConcurrentMap();
+    private final Map<String, SettableFuture<? extends Object>> requestResult = Maps.newConcurrentMap();
     private final Map<String, DatabaseSchema> schema = Maps.newHashMap();
 
     /**
@@ -221,17 +221,9 @@ public class DefaultOvsdbClient implements OvsdbProviderService, OvsdbClientServ
     @Override
     public void updateOvsdbStore(String dbName, String tableName, String uuid,
                                  Row row) {
-        OvsdbTableStore tableStore = ovsdbStore.getOvsdbTableStore(dbName);
-        if (tableStore == null) {
-            tableStore = new OvsdbTableStore();
-        }
-        OvsdbRowStore rowStore = tableStore.getRows(tableName);
-        if (rowStore == null) {
-            rowStore = new OvsdbRowStore();
-        }
-        rowStore.insertRow(uuid, row);
-        tableStore.createOrUpdateTable(tableName, rowStore);
-        ovsdbStore.createOrUpdateOvsdbStore(dbName, tableStore);
+        ovsdbStore.getOrCreateOvsdbTableStore(dbName)
+                .getOrCreateRows(tableName)
+                .insertRow(uuid, row);
     }
 
     @Override
@@ -891,12 +883,12 @@ public class DefaultOvsdbClient implements OvsdbProviderService, OvsdbClientServ
     public void processResult(JsonNode response) {
         log.debug("Handle result");
         String requestId = response.get("id").asText();
-        SettableFuture sf = requestResult.get(requestId);
+        SettableFuture sf = requestResult.remove(requestId);
         if (sf == null) {
             log.debug("No such future to process");
             return;
         }
-        String methodName = requestMethod.get(requestId);
+        String methodName = requestMethod.remove(requestId);
         sf.set(FromJsonUtil.jsonResultParser(response, methodName));
     }
 
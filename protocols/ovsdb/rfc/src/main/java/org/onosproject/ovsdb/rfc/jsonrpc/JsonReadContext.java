@@ -15,13 +15,13 @@
  */
 package org.onosproject.ovsdb.rfc.jsonrpc;
 
-import java.util.Stack;
-
 /**
  * Context for decode parameters.
  */
 public class JsonReadContext {
-    private Stack<Byte> bufStack;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
     private boolean isStartMatch;
     private int lastReadBytes;
 
@@ -31,25 +31,66 @@ public class JsonReadContext {
      * entity.
      */
     public JsonReadContext() {
-        bufStack = new Stack<Byte>();
+        reset();
+    }
+
+    /**
+     * Resets the context once a record is decoded.
+     */
+    public void reset() {
+        depth = 0;
+        inString = false;
+        escaped = false;
         isStartMatch = false;
         lastReadBytes = 0;
     }
 
     /**
-     * Return bufStack.
-     * @return bufStack
+     * Return depth.
+     * @return nesting depth of the braces matched so far
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Set depth, used for match the braces.
+     * @param depth nesting depth of the braces matched so far
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Return inString.
+     * @return whether the last byte read is inside a string
+     */
+    public boolean isInString() {
+        return inString;
+    }
+
+    /**
+     * Set inString, used for match the double quotes.
+     * @param inString whether the last byte read is inside a string
+     */
+    public void setInString(boolean inString) {
+        this.inString = inString;
+    }
+
+    /**
+     * Return escaped.
+     * @return whether the last byte read is an escaping backslash
      */
-    public Stack<Byte> getBufStack() {
-        return bufStack;
+    public boolean isEscaped() {
+        return escaped;
     }
 
     /**
-     * Set bufStack, used for match the braces and double quotes.
-     * @param bufStack Stack of Byte
+     * Set escaped.
+     * @param escaped whether the last byte read is an escaping backslash
      */
-    public void setBufStack(Stack<Byte> bufStack) {
-        this.bufStack = bufStack;
+    public void setEscaped(boolean escaped) {
+        this.escaped = escaped;
     }
 
     /**
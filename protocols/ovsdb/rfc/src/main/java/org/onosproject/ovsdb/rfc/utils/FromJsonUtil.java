@@ -53,6 +53,10 @@ public final class FromJsonUtil {
 
     private static final Logger log = LoggerFactory.getLogger(FromJsonUtil.class);
 
+    // mappers are thread-safe once configured, and costly to create per message
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMapperUtil.getObjectMapper();
+    private static final ObjectMapper OPERATION_RESULT_MAPPER = ObjectMapperUtil.getObjectMapper(false);
+
     /**
      * Constructs a FromJsonUtil object. Utility classes should not have a
      * public or default constructor, otherwise IDE will compile unsuccessfully.
@@ -158,13 +162,12 @@ public final class FromJsonUtil {
      * @return Object
      */
     public static Object jsonResultParser(JsonNode jsonNode, String methodName) {
-        ObjectMapper objectMapper = ObjectMapperUtil.getObjectMapper();
         JsonNode error = jsonNode.get("error");
         if (error != null && !error.isNull()) {
             log.error("jsonRpcResponse error : {}", error.toString());
         }
         JsonNode resultJsonNode = jsonNode.get("result");
-        Object result = convertResultType(resultJsonNode, methodName, objectMapper);
+        Object result = convertResultType(resultJsonNode, methodName, OBJECT_MAPPER);
         return result;
     }
 
@@ -176,13 +179,12 @@ public final class FromJsonUtil {
      * @throws UnsupportedException this is an unsupported exception
      */
     public static void jsonCallbackRequestParser(JsonNode jsonNode, Callback callback) {
-        ObjectMapper objectMapper = ObjectMapperUtil.getObjectMapper();
         JsonNode params = jsonNode.get("params");
         Object param = null;
         String methodName = jsonNode.get("method").asText();
         switch (methodName) {
         case "update":
-            param = objectMapper.convertValue(params, UpdateNotification.class);
+            param = OBJECT_MAPPER.convertValue(params, UpdateNotification.class);
             callback.update((UpdateNotification) param);
             break;
         default:
@@ -196,12 +198,11 @@ public final class FromJsonUtil {
      * @return JsonRpcResponse String
      */
     public static String getEchoRequestStr(JsonNode jsonNode) {
-        ObjectMapper objectMapper = ObjectMapperUtil.getObjectMapper();
         String str = null;
         if (jsonNode.get("method").asText().equals("echo")) {
             JsonRpcResponse response = new JsonRpcResponse(jsonNode.get("id").asText());
             try {
-                str = objectMapper.writeValueAsString(response);
+                str = OBJECT_MAPPER.writeValueAsString(response);
             } catch (JsonProcessingException e) {
                 log.error("JsonProcessingException while converting JsonNode into string: ", e);
             }
@@ -217,14 +218,13 @@ public final class FromJsonUtil {
      */
     public static List<OperationResult> jsonNodeToOperationResult(List<JsonNode> input,
                                                                   List<Operation> operations) {
-        ObjectMapper objectMapper = ObjectMapperUtil.getObjectMapper(false);
         List<OperationResult> operationResults = new ArrayList<OperationResult>();
         for (int i = 0; i < input.size(); i++) {
             JsonNode jsonNode = input.get(i);
             Operation operation = operations.get(i);
             if (jsonNode != null && jsonNode.size() > 0) {
                 if (i >= operations.size() || !operation.getOp().equals("select")) {
-                    OperationResult or = objectMapper.convertValue(jsonNode, OperationResult.class);
+                    OperationResult or = OPERATION_RESULT_MAPPER.convertValue(jsonNode, OperationResult.class);
                     operationResults.add(or);
                 } else {
                     List<Row> rows = createRows(operation.getTableSchema(), jsonNode);
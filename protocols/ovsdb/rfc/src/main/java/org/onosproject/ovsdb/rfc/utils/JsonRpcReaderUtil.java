@@ -20,25 +20,27 @@ import io.netty.buffer.ByteBufInputStream;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.Stack;
 
+import org.onosproject.ovsdb.rfc.exception.AbnormalJsonNodeException;
 import org.onosproject.ovsdb.rfc.exception.UnsupportedException;
 import org.onosproject.ovsdb.rfc.jsonrpc.JsonReadContext;
 
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.io.IOContext;
 import com.fasterxml.jackson.core.json.ByteSourceJsonBootstrapper;
 import com.fasterxml.jackson.core.util.BufferRecycler;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Decoder utility class.
  */
 public final class JsonRpcReaderUtil {
 
+    // thread-safe once configured, and shared by all the channels
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     /**
      * Constructs a JsonRpcReaderUtil object. Utility classes should not have a
      * public or default constructor, otherwise IDE will compile unsuccessfully.
@@ -48,7 +50,9 @@ public final class JsonRpcReaderUtil {
     }
 
     /**
-     * Decode the bytes to Json object.
+     * Decode the bytes to Json object. The boundaries of the records are
+     * found incrementally, resuming from where the last decoding of an
+     * incomplete record stopped, and every complete record is decoded.
      * @param in input of bytes
      * @param out ouput of Json object list
      * @param jrContext context for the last decoding process
@@ -57,64 +61,78 @@ public final class JsonRpcReaderUtil {
      */
     public static void readToJsonNode(ByteBuf in, List<Object> out, JsonReadContext jrContext)
             throws JsonParseException, IOException {
-        int lastReadBytes = jrContext.getLastReadBytes();
-        if (lastReadBytes == 0) {
-            if (in.readableBytes() < 4) {
+        while (true) {
+            if (jrContext.getLastReadBytes() == 0) {
+                fliterCharaters(in);
+                if (in.readableBytes() < 4) {
+                    return;
+                }
+                checkEncoding(in);
+            }
+
+            int end = findRecordEnd(in, jrContext);
+            if (end < 0) {
+                jrContext.setLastReadBytes(in.readableBytes());
                 return;
             }
-            checkEncoding(in);
+            ByteBuf buf = in.readSlice(end - in.readerIndex() + 1);
+            JsonNode jsonNode = MAPPER.readTree(new ByteBufInputStream(buf));
+            out.add(jsonNode);
+            jrContext.reset();
         }
+    }
 
-        int i = lastReadBytes + in.readerIndex();
-        Stack<Byte> bufStack = jrContext.getBufStack();
-        for (; i < in.writerIndex(); i++) {
+    /**
+     * Scans the bytes not scanned yet for the end of the current record,
+     * matching braces outside of strings.
+     * @param in input of bytes
+     * @param jrContext context for the last decoding process
+     * @return index of the closing brace of the record, or -1 if the record
+     *         is not complete yet
+     * @throws AbnormalJsonNodeException if a brace is closed without being opened
+     */
+    private static int findRecordEnd(ByteBuf in, JsonReadContext jrContext) {
+        int depth = jrContext.getDepth();
+        boolean inString = jrContext.isInString();
+        boolean escaped = jrContext.isEscaped();
+        boolean startMatch = jrContext.isStartMatch();
+        int end = -1;
+        int writerIndex = in.writerIndex();
+        for (int i = in.readerIndex() + jrContext.getLastReadBytes(); i < writerIndex; i++) {
             byte b = in.getByte(i);
-            switch (b) {
-            case '{':
-                if (!isDoubleQuote(bufStack)) {
-                    bufStack.push(b);
-                    jrContext.setStartMatch(true);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
                 }
-                break;
-            case '}':
-                if (!isDoubleQuote(bufStack)) {
-                    bufStack.pop();
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{') {
+                depth++;
+                startMatch = true;
+            } else if (b == '}') {
+                if (--depth < 0) {
+                    throw new AbnormalJsonNodeException("Unbalanced braces in JSON-RPC record");
                 }
-                break;
-            case '"':
-                if (in.getByte(i - 1) != '\\') {
-                    if (!bufStack.isEmpty() && bufStack.peek() != '"') {
-                        bufStack.push(b);
-                    } else {
-                        bufStack.pop();
-                    }
+                if (startMatch && depth == 0) {
+                    end = i;
+                    break;
                 }
-                break;
-            default:
-                break;
-            }
-
-            if (jrContext.isStartMatch() && bufStack.isEmpty()) {
-                ByteBuf buf = in.readSlice(i - in.readerIndex() + 1);
-                JsonParser jf = new MappingJsonFactory().createParser(new ByteBufInputStream(buf));
-                JsonNode jsonNode = jf.readValueAsTree();
-                out.add(jsonNode);
-                lastReadBytes = 0;
-                jrContext.setLastReadBytes(lastReadBytes);
-                break;
             }
         }
-
-        if (i >= in.writerIndex()) {
-            lastReadBytes = in.readableBytes();
-            jrContext.setLastReadBytes(lastReadBytes);
-        }
+        jrContext.setDepth(depth);
+        jrContext.setInString(inString);
+        jrContext.setEscaped(escaped);
+        jrContext.setStartMatch(startMatch);
+        return end;
     }
 
     /**
      * Filter the invalid characters before decoding.
      * @param in input of bytes
-     * @param lastReadBytes the bytes for last decoding incomplete record
      */
     private static void fliterCharaters(ByteBuf in) {
         while (in.isReadable()) {
@@ -127,18 +145,6 @@ public final class JsonRpcReaderUtil {
         }
     }
 
-    /**
-     * Check whether the peek of the stack element is double quote.
-     * @param jrContext context for the last decoding process
-     * @return boolean
-     */
-    private static boolean isDoubleQuote(Stack<Byte> bufStack) {
-        if (!bufStack.isEmpty() && bufStack.peek() == '"') {
-            return true;
-        }
-        return false;
-    }
-
     /**
      * Check whether the encoding is valid.
      * @param in input of bytes
@@ -148,7 +154,6 @@ public final class JsonRpcReaderUtil {
     private static void checkEncoding(ByteBuf in) throws IOException {
         int inputStart = 0;
         int inputLength = 4;
-        fliterCharaters(in);
         byte[] buff = new byte[4];
         in.getBytes(in.readerIndex(), buff);
         ByteSourceJsonBootstrapper strapper = new ByteSourceJsonBootstrapper(new IOContext(new BufferRecycler(),
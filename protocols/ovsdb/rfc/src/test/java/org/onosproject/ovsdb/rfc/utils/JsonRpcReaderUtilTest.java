@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.ovsdb.rfc.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.onosproject.ovsdb.rfc.exception.AbnormalJsonNodeException;
+import org.onosproject.ovsdb.rfc.jsonrpc.JsonReadContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for the decoding of JSON-RPC records.
+ */
+public class JsonRpcReaderUtilTest {
+
+    private static final String ECHO = "{\"id\":\"echo\",\"method\":\"echo\",\"params\":[]}";
+    private static final String TRICKY = "{\"id\":\"1\",\"result\":{\"name\":\"br-int}\",\"comment\":"
+            + "\"a \\\"{quoted}\\\" brace\",\"path\":\"c:\\\\\"},\"error\":null}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Tests decoding records received in pieces of any size, with braces,
+     * quotes and backslashes inside their strings.
+     *
+     * @throws IOException on decoding errors
+     */
+    @Test
+    public void testSplitRecords() throws IOException {
+        String stream = ECHO + "\n" + TRICKY + "  " + ECHO;
+        for (int piece = 1; piece <= stream.length(); piece++) {
+            List<Object> records = decode(stream.getBytes(UTF_8), piece);
+            assertEquals(3, records.size());
+            assertEquals(mapper.readTree(ECHO), records.get(0));
+            assertEquals(mapper.readTree(TRICKY), records.get(1));
+            assertEquals(mapper.readTree(ECHO), records.get(2));
+        }
+    }
+
+    /**
+     * Tests that a record closing a brace it never opened is rejected.
+     *
+     * @throws IOException on decoding errors
+     */
+    @Test(expected = AbnormalJsonNodeException.class)
+    public void testUnbalancedRecord() throws IOException {
+        JsonRpcReaderUtil.readToJsonNode(Unpooled.wrappedBuffer("{\"id\":1}}}  ".getBytes(UTF_8)),
+                                         new ArrayList<>(), new JsonReadContext());
+    }
+
+    private static List<Object> decode(byte[] bytes, int piece) throws IOException {
+        List<Object> records = new ArrayList<>();
+        JsonReadContext context = new JsonReadContext();
+        ByteBuf cumulation = Unpooled.buffer();
+        for (int i = 0; i < bytes.length; i += piece) {
+            cumulation.writeBytes(bytes, i, Math.min(piece, bytes.length - i));
+            JsonRpcReaderUtil.readToJsonNode(cumulation, records, context);
+            cumulation.discardReadBytes();
+        }
+        return records;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra shortest-path graph search algorithm, capable of finding all
+ * shortest paths between the source and destinations, which keeps its
+ * per-vertex state in primitive arrays indexed as in a {@link CompactGraph}.
+ * <p>
+ * Graphs which are not compact are copied into one prior to the search.
+ * </p>
+ */
+public class CompactDijkstraGraphSearch<V extends Vertex, E extends Edge<V>>
+        extends AbstractGraphPathSearch<V, E> {
+
+    @Override
+    public Result<V, E> search(Graph<V, E> graph, V src, V dst,
+                               EdgeWeight<V, E> weight, int maxPaths) {
+        checkArguments(graph, src, dst);
+        CompactGraph<V, E> g = CompactGraph.copyOf(graph);
+        Tree tree = tree(g, g.indexOf(src), dst == null ? -1 : g.indexOf(dst), weight, maxPaths);
+
+        DefaultResult result = new DefaultResult(src, dst, maxPaths);
+        tree.export(g, result);
+        result.buildPaths();
+        return result;
+    }
+
+    /**
+     * Computes the tree of shortest paths from the source vertex, stopping
+     * once the destination vertex, if any, is reached.
+     *
+     * @param g        compact graph
+     * @param src      source vertex index
+     * @param dst      destination vertex index; -1 for all destinations
+     * @param weight   optional edge weight
+     * @param maxPaths limit on the number of parent edges of each vertex;
+     *                 {@link GraphPathSearch#ALL_PATHS} if no limit
+     * @return shortest-path tree
+     */
+    Tree tree(CompactGraph<V, E> g, int src, int dst, EdgeWeight<V, E> weight, int maxPaths) {
+        Tree tree = new Tree(g.vertexCount(), g.edgeCount());
+        tree.costs[src] = 0.0;
+
+        boolean[] settled = new boolean[g.vertexCount()];
+        IndexedHeap queue = new IndexedHeap(g.vertexCount());
+        queue.offer(src, 0.0);
+        while (!queue.isEmpty()) {
+            int nearest = queue.poll();
+            settled[nearest] = true;
+            if (nearest == dst) {
+                break;
+            }
+
+            // Relax all egress edges of the nearest vertex.
+            double cost = tree.costs[nearest];
+            for (int i = g.egressStart[nearest]; i < g.egressStart[nearest + 1]; i++) {
+                int edge = g.egressEdges[i];
+                double hopCost = weight == null ? 1.0 : weight.weight(g.edge(edge));
+                if (hopCost < 0) {
+                    continue;
+                }
+
+                int next = g.edgeDst[edge];
+                double oldCost = tree.costs[next];
+                double newCost = cost + hopCost;
+                boolean relaxed = newCost < oldCost;
+                boolean same = Math.abs(newCost - oldCost) <= samenessThreshold();
+                if (same || relaxed) {
+                    tree.costs[next] = newCost;
+                    tree.addParent(next, edge, !same, maxPaths);
+                    if (relaxed && !settled[next]) {
+                        queue.offer(next, newCost);
+                    }
+                }
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Costs and parent edges of the vertexes reached by a search.
+     */
+    static final class Tree {
+        final double[] costs;
+        // Parent edges of each vertex, as linked lists threaded through the
+        // edge indexes; each edge is the parent of its destination at most once.
+        final int[] firstParent;
+        final int[] nextParent;
+        final int[] parentCount;
+
+        private Tree(int vertexCount, int edgeCount) {
+            costs = new double[vertexCount];
+            firstParent = new int[vertexCount];
+            nextParent = new int[edgeCount];
+            parentCount = new int[vertexCount];
+            Arrays.fill(costs, Double.MAX_VALUE);
+            Arrays.fill(firstParent, -1);
+        }
+
+        /**
+         * Indicates whether the vertex was reached.
+         *
+         * @param vertex vertex index
+         * @return true if the vertex has a cost
+         */
+        boolean isReached(int vertex) {
+            return costs[vertex] < Double.MAX_VALUE;
+        }
+
+        private void addParent(int vertex, int edge, boolean replace, int maxPaths) {
+            if (replace) {
+                firstParent[vertex] = -1;
+                parentCount[vertex] = 0;
+            }
+            if (maxPaths == ALL_PATHS || parentCount[vertex] < maxPaths) {
+                nextParent[edge] = firstParent[vertex];
+                firstParent[vertex] = edge;
+                parentCount[vertex]++;
+            }
+        }
+
+        // Copies the costs and parent edges of the reached vertexes into
+        // the given search result.
+        private <V extends Vertex, E extends Edge<V>> void export(
+                CompactGraph<V, E> g, AbstractGraphPathSearch<V, E>.DefaultResult result) {
+            for (int v = 0; v < costs.length; v++) {
+                if (isReached(v)) {
+                    result.updateVertex(g.vertex(v), null, costs[v], false);
+                    for (int e = firstParent[v]; e >= 0; e = nextParent[e]) {
+                        result.updateVertex(g.vertex(v), g.edge(e), costs[v], false);
+                    }
+                }
+            }
+        }
+    }
+}
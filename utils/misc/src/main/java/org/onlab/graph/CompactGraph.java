@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable graph implemented using compressed sparse row arrays.
+ * <p>
+ * Vertexes and edges are interned to dense integer indexes, in the order in
+ * which they are given, and the egress and ingress edges of each vertex are
+ * kept as contiguous runs of edge indexes. Searches aware of this layout,
+ * such as {@link CompactDijkstraGraphSearch}, can then keep their per-vertex
+ * state in primitive arrays rather than in maps.
+ * </p>
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public class CompactGraph<V extends Vertex, E extends Edge<V>>
+        implements Graph<V, E> {
+
+    private final Set<V> vertexes;
+    private final Set<E> edges;
+    private final Map<V, Integer> indexes;
+
+    private final Object[] vertexArray;
+    private final Object[] edgeArray;
+
+    // Source and destination vertex index of each edge
+    final int[] edgeSrc;
+    final int[] edgeDst;
+
+    // Edges leading out of vertex i are egressEdges[egressStart[i]] through
+    // egressEdges[egressStart[i + 1] - 1]; likewise for ingress edges.
+    final int[] egressStart;
+    final int[] egressEdges;
+    final int[] ingressStart;
+    final int[] ingressEdges;
+
+    /**
+     * Creates a graph comprising of the specified vertexes and edges.
+     *
+     * @param vertexes set of graph vertexes
+     * @param edges    set of graph edges
+     */
+    public CompactGraph(Set<V> vertexes, Set<E> edges) {
+        checkNotNull(vertexes, "Vertex set cannot be null");
+        checkNotNull(edges, "Edge set cannot be null");
+
+        // Make sure that all edge end-points are added as vertexes.
+        ImmutableSet.Builder<V> actualVertexes = ImmutableSet.builder();
+        actualVertexes.addAll(vertexes);
+        for (E edge : edges) {
+            actualVertexes.add(edge.src());
+            actualVertexes.add(edge.dst());
+        }
+        this.vertexes = actualVertexes.build();
+        this.edges = ImmutableSet.copyOf(edges);
+
+        int vertexCount = this.vertexes.size();
+        int edgeCount = this.edges.size();
+        this.vertexArray = this.vertexes.toArray();
+        this.edgeArray = this.edges.toArray();
+        this.indexes = Maps.newHashMapWithExpectedSize(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            indexes.put(vertex(i), i);
+        }
+
+        this.edgeSrc = new int[edgeCount];
+        this.edgeDst = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            E edge = edge(i);
+            edgeSrc[i] = indexes.get(edge.src());
+            edgeDst[i] = indexes.get(edge.dst());
+        }
+
+        this.egressStart = new int[vertexCount + 1];
+        this.egressEdges = new int[edgeCount];
+        this.ingressStart = new int[vertexCount + 1];
+        this.ingressEdges = new int[edgeCount];
+        index(edgeSrc, egressStart, egressEdges);
+        index(edgeDst, ingressStart, ingressEdges);
+    }
+
+    // Groups the edges by the given end-point using a counting sort, which
+    // preserves the original order of the edges within each group.
+    private static void index(int[] endpoints, int[] start, int[] grouped) {
+        for (int endpoint : endpoints) {
+            start[endpoint + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] next = new int[start.length - 1];
+        System.arraycopy(start, 0, next, 0, next.length);
+        for (int i = 0; i < endpoints.length; i++) {
+            grouped[next[endpoints[i]]++] = i;
+        }
+    }
+
+    /**
+     * Returns a compact graph with the same vertexes and edges as the given
+     * graph, which is returned as-is if already compact.
+     *
+     * @param graph graph to copy
+     * @param <V>   vertex type
+     * @param <E>   edge type
+     * @return compact graph
+     */
+    public static <V extends Vertex, E extends Edge<V>> CompactGraph<V, E> copyOf(Graph<V, E> graph) {
+        checkNotNull(graph, "Graph cannot be null");
+        if (graph instanceof CompactGraph) {
+            return (CompactGraph<V, E>) graph;
+        }
+        return new CompactGraph<>(graph.getVertexes(), graph.getEdges());
+    }
+
+    /**
+     * Returns the number of vertexes in the graph.
+     *
+     * @return vertex count
+     */
+    public int vertexCount() {
+        return vertexArray.length;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return edge count
+     */
+    public int edgeCount() {
+        return edgeArray.length;
+    }
+
+    /**
+     * Returns the index of the specified vertex.
+     *
+     * @param vertex graph vertex
+     * @return vertex index; -1 if the vertex is not part of the graph
+     */
+    public int indexOf(V vertex) {
+        Integer index = indexes.get(vertex);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the vertex with the specified index.
+     *
+     * @param index vertex index
+     * @return graph vertex
+     */
+    @SuppressWarnings("unchecked")
+    public V vertex(int index) {
+        return (V) vertexArray[index];
+    }
+
+    /**
+     * Returns the edge with the specified index.
+     *
+     * @param index edge index
+     * @return graph edge
+     */
+    @SuppressWarnings("unchecked")
+    public E edge(int index) {
+        return (E) edgeArray[index];
+    }
+
+    @Override
+    public Set<V> getVertexes() {
+        return vertexes;
+    }
+
+    @Override
+    public Set<E> getEdges() {
+        return edges;
+    }
+
+    @Override
+    public Set<E> getEdgesFrom(V src) {
+        int index = indexOf(src);
+        return index < 0 ? ImmutableSet.of() :
+                new EdgeRun(egressEdges, egressStart[index], egressStart[index + 1]);
+    }
+
+    @Override
+    public Set<E> getEdgesTo(V dst) {
+        int index = indexOf(dst);
+        return index < 0 ? ImmutableSet.of() :
+                new EdgeRun(ingressEdges, ingressStart[index], ingressStart[index + 1]);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof CompactGraph) {
+            CompactGraph that = (CompactGraph) obj;
+            return this.getClass() == that.getClass() &&
+                    Objects.equals(this.vertexes, that.vertexes) &&
+                    Objects.equals(this.edges, that.edges);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vertexes, edges);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("vertexes", vertexes)
+                .add("edges", edges)
+                .toString();
+    }
+
+    // Read-only view of a run of edge indexes.
+    private final class EdgeRun extends AbstractSet<E> {
+        private final int[] run;
+        private final int start;
+        private final int end;
+
+        private EdgeRun(int[] run, int start, int end) {
+            this.run = run;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int next = start;
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                public E next() {
+                    if (next >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    return edge(run[next++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            for (int i = start; i < end; i++) {
+                if (edge(run[i]).equals(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.onlab.graph.TarjanGraphSearch.SccResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tarjan algorithm for searching a graph and producing results describing
+ * the graph SCC (strongly-connected components), which keeps its per-vertex
+ * state in primitive arrays indexed as in a {@link CompactGraph}.
+ * <p>
+ * Unlike {@link TarjanGraphSearch}, the search does not recurse, so its
+ * depth is not bound by the thread stack size. Clusters are found in the
+ * same order as by {@link TarjanGraphSearch} for graphs iterating their
+ * vertexes and edges in the same order. Graphs which are not compact are
+ * copied into one prior to the search.
+ * </p>
+ */
+public class CompactTarjanGraphSearch<V extends Vertex, E extends Edge<V>>
+        implements GraphSearch<V, E> {
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation produces results augmented with information on
+     * SCCs within the graph.
+     * </p>
+     * <p>
+     * To prevent traversal of an edge, the {@link EdgeWeight#weight} should
+     * return a negative value as an edge weight.
+     * </p>
+     */
+    @Override
+    public SccResult<V, E> search(Graph<V, E> graph, EdgeWeight<V, E> weight) {
+        CompactGraph<V, E> g = CompactGraph.copyOf(graph);
+        int n = g.vertexCount();
+
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        int[] cluster = new int[n];
+        Arrays.fill(index, -1);
+
+        // Vertexes visited but not yet assigned to a cluster, and the path
+        // of vertexes being scanned along with their next egress edge.
+        int[] stack = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] path = new int[n];
+        int[] nextEdge = new int[n];
+        int stackSize = 0;
+        int clusterCount = 0;
+        int counter = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            path[depth++] = root;
+            index[root] = counter++;
+            lowLink[root] = index[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            nextEdge[root] = g.egressStart[root];
+
+            while (depth > 0) {
+                int vertex = path[depth - 1];
+                if (nextEdge[vertex] < g.egressStart[vertex + 1]) {
+                    int edge = g.egressEdges[nextEdge[vertex]++];
+
+                    // If edge weight is negative, skip it.
+                    if (weight != null && weight.weight(g.edge(edge)) < 0) {
+                        continue;
+                    }
+
+                    int next = g.edgeDst[edge];
+                    if (index[next] < 0) {
+                        // Next vertex has not been visited yet, so do this now.
+                        path[depth++] = next;
+                        index[next] = counter++;
+                        lowLink[next] = index[next];
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        nextEdge[next] = g.egressStart[next];
+
+                    } else if (onStack[next]) {
+                        // Next vertex is in the same cluster as this one.
+                        lowLink[vertex] = Math.min(lowLink[vertex], index[next]);
+                    }
+                    continue;
+                }
+
+                // All egress edges were scanned; close the cluster rooted
+                // here, if any, and return to the previous vertex.
+                depth--;
+                if (lowLink[vertex] == index[vertex]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        cluster[member] = clusterCount;
+                    } while (member != vertex);
+                    clusterCount++;
+                }
+                if (depth > 0) {
+                    int previous = path[depth - 1];
+                    lowLink[previous] = Math.min(lowLink[previous], lowLink[vertex]);
+                }
+            }
+        }
+
+        // Collect the vertexes and edges of each cluster.
+        List<Set<V>> clusterVertexes = new ArrayList<>(clusterCount);
+        List<Set<E>> clusterEdges = new ArrayList<>(clusterCount);
+        for (int i = 0; i < clusterCount; i++) {
+            clusterVertexes.add(new HashSet<>());
+            clusterEdges.add(new HashSet<>());
+        }
+        for (int v = 0; v < n; v++) {
+            clusterVertexes.get(cluster[v]).add(g.vertex(v));
+        }
+        for (int e = 0; e < g.edgeCount(); e++) {
+            if (cluster[g.edgeSrc[e]] == cluster[g.edgeDst[e]]) {
+                clusterEdges.get(cluster[g.edgeSrc[e]]).add(g.edge(e));
+            }
+        }
+        for (int i = 0; i < clusterCount; i++) {
+            clusterVertexes.set(i, Collections.unmodifiableSet(clusterVertexes.get(i)));
+            clusterEdges.set(i, Collections.unmodifiableSet(clusterEdges.get(i)));
+        }
+        return SccResult.of(g, clusterVertexes, clusterEdges);
+    }
+
+}
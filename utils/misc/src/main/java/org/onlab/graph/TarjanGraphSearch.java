@@ -189,6 +189,17 @@ public class TarjanGraphSearch<V extends Vertex, E extends Edge<V>>
             return Collections.unmodifiableSet(edges);
         }
 
+        // Creates results from the given clusters and their edges, as found
+        // by another implementation of the search.
+        static <V extends Vertex, E extends Edge<V>> SccResult<V, E> of(Graph<V, E> graph,
+                                                                        List<Set<V>> clusterVertexes,
+                                                                        List<Set<E>> clusterEdges) {
+            SccResult<V, E> result = new SccResult<>(graph);
+            result.clusterVertexes.addAll(clusterVertexes);
+            result.clusterEdges.addAll(clusterEdges);
+            return result.build();
+        }
+
         public SccResult<V, E> build() {
             clusterVertexes = Collections.unmodifiableList(clusterVertexes);
             clusterEdges = Collections.unmodifiableList(clusterEdges);
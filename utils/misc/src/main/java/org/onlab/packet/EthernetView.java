@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import com.google.common.base.MoreObjects;
+
+import static org.onlab.packet.Ethernet.DATALAYER_ADDRESS_LENGTH;
+import static org.onlab.packet.Ethernet.ETHERNET_HEADER_LENGTH;
+import static org.onlab.packet.Ethernet.TYPE_VLAN;
+import static org.onlab.packet.Ethernet.VLAN_HEADER_LENGTH;
+import static org.onlab.packet.Ethernet.VLAN_UNTAGGED;
+import static org.onlab.packet.PacketUtils.checkHeaderLength;
+import static org.onlab.packet.PacketUtils.checkInput;
+
+/**
+ * Read-only view over the header of an ethernet frame held in a byte array.
+ * <p>
+ * Unlike {@link Ethernet#deserializer()}, wrapping a frame neither copies it
+ * nor decodes its payload: MAC addresses are only materialized when first
+ * requested, and the full {@link Ethernet} object tree is only built by
+ * {@link #parse()}. The wrapped array must not be modified while the view
+ * is in use.
+ * </p>
+ */
+public final class EthernetView {
+
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    private final short etherType;
+    private final short vlanId;
+    private final byte priorityCode;
+    private final int payloadOffset;
+
+    private volatile MacAddress destinationMac;
+    private volatile MacAddress sourceMac;
+
+    private EthernetView(byte[] data, int offset, int length) throws DeserializationException {
+        checkInput(data, offset, length, ETHERNET_HEADER_LENGTH);
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+
+        int typeOffset = offset + 2 * DATALAYER_ADDRESS_LENGTH;
+        short type = getShort(typeOffset);
+        if (type == TYPE_VLAN) {
+            checkHeaderLength(length, ETHERNET_HEADER_LENGTH + VLAN_HEADER_LENGTH);
+            short tci = getShort(typeOffset + 2);
+            this.priorityCode = (byte) (tci >> 13 & 0x07);
+            this.vlanId = (short) (tci & 0x0fff);
+            this.etherType = getShort(typeOffset + VLAN_HEADER_LENGTH);
+            this.payloadOffset = offset + ETHERNET_HEADER_LENGTH + VLAN_HEADER_LENGTH;
+        } else {
+            this.priorityCode = 0;
+            this.vlanId = VLAN_UNTAGGED;
+            this.etherType = type;
+            this.payloadOffset = offset + ETHERNET_HEADER_LENGTH;
+        }
+    }
+
+    /**
+     * Creates a view over the ethernet frame held in the given array.
+     *
+     * @param data frame bytes
+     * @return ethernet view
+     * @throws DeserializationException if the array is too short to hold an
+     * ethernet header
+     */
+    public static EthernetView wrap(byte[] data) throws DeserializationException {
+        return new EthernetView(data, 0, data == null ? 0 : data.length);
+    }
+
+    /**
+     * Creates a view over the ethernet frame held in the given array region.
+     *
+     * @param data   array holding the frame
+     * @param offset offset of the frame within the array
+     * @param length length of the frame
+     * @return ethernet view
+     * @throws DeserializationException if the region is too short to hold an
+     * ethernet header
+     */
+    public static EthernetView wrap(byte[] data, int offset, int length)
+            throws DeserializationException {
+        return new EthernetView(data, offset, length);
+    }
+
+    /**
+     * Returns the destination MAC address.
+     *
+     * @return destination MAC address
+     */
+    public MacAddress getDestinationMAC() {
+        MacAddress mac = destinationMac;
+        if (mac == null) {
+            mac = macAddress(offset);
+            destinationMac = mac;
+        }
+        return mac;
+    }
+
+    /**
+     * Returns the source MAC address.
+     *
+     * @return source MAC address
+     */
+    public MacAddress getSourceMAC() {
+        MacAddress mac = sourceMac;
+        if (mac == null) {
+            mac = macAddress(offset + DATALAYER_ADDRESS_LENGTH);
+            sourceMac = mac;
+        }
+        return mac;
+    }
+
+    /**
+     * Returns the ethernet type of the payload, following a VLAN tag if
+     * present.
+     *
+     * @return ethernet type
+     */
+    public short getEtherType() {
+        return etherType;
+    }
+
+    /**
+     * Returns the VLAN ID.
+     *
+     * @return VLAN ID; {@link Ethernet#VLAN_UNTAGGED} if the frame is untagged
+     */
+    public short getVlanID() {
+        return vlanId;
+    }
+
+    /**
+     * Returns the priority code point of the VLAN tag.
+     *
+     * @return priority code; 0 if the frame is untagged
+     */
+    public byte getPriorityCode() {
+        return priorityCode;
+    }
+
+    /**
+     * Indicates whether the destination is the broadcast address.
+     *
+     * @return true if the frame is broadcast
+     */
+    public boolean isBroadcast() {
+        for (int i = 0; i < DATALAYER_ADDRESS_LENGTH; i++) {
+            if (data[offset + i] != (byte) 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether the destination is a multicast, non-broadcast
+     * address.
+     *
+     * @return true if the frame is multicast
+     */
+    public boolean isMulticast() {
+        return (data[offset] & 0x01) != 0 && !isBroadcast();
+    }
+
+    /**
+     * Returns the offset of the payload within the wrapped array.
+     *
+     * @return payload offset
+     */
+    public int payloadOffset() {
+        return payloadOffset;
+    }
+
+    /**
+     * Returns the length of the payload.
+     *
+     * @return payload length
+     */
+    public int payloadLength() {
+        return offset + length - payloadOffset;
+    }
+
+    /**
+     * Decodes the whole frame, including its payload.
+     *
+     * @return parsed ethernet frame
+     * @throws DeserializationException if the frame cannot be decoded
+     */
+    public Ethernet parse() throws DeserializationException {
+        return Ethernet.deserializer().deserialize(data, offset, length);
+    }
+
+    private short getShort(int index) {
+        return (short) ((data[index] & 0xff) << 8 | data[index + 1] & 0xff);
+    }
+
+    private MacAddress macAddress(int index) {
+        byte[] address = new byte[DATALAYER_ADDRESS_LENGTH];
+        System.arraycopy(data, index, address, 0, DATALAYER_ADDRESS_LENGTH);
+        return MacAddress.valueOf(address);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("dst", getDestinationMAC())
+                .add("src", getSourceMAC())
+                .add("vlan", vlanId)
+                .add("etherType", String.format("0x%04x", etherType & 0xffff))
+                .add("payloadLength", payloadLength())
+                .toString();
+    }
+}
@@ -55,6 +55,13 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
     public static final int DEFAULT_BUFFER_SIZE = 4096;
     public static final int MAX_BUFFER_SIZE = 100 * 1000 * 1000;
 
+    /**
+     * Largest serialization buffer kept by a thread for reuse. Buffers grown
+     * past this size by a large object are dropped after use, so that the
+     * many pooled threads never pin more than this much heap each.
+     */
+    public static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
     /**
      * ID to use if this KryoNamespace does not define registration id.
      */
@@ -69,7 +76,9 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
 
     private static final Logger log = getLogger(KryoNamespace.class);
 
-
+    // serialization buffer of each thread, taken out while in use so that
+    // nested serializations get a buffer of their own
+    private static final ThreadLocal<Output> OUTPUTS = new ThreadLocal<>();
 
     private final KryoPool pool = new KryoPool.Builder(this)
                                         .softReferences()
@@ -255,6 +264,9 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
     /**
      * Serializes given object to byte array using Kryo instance in pool.
      * <p>
+     * The object is written into a buffer reused by the calling thread, so
+     * the only allocation is that of the returned array.
+     * </p>
      * Note: Serialized bytes must be smaller than {@link #MAX_BUFFER_SIZE}.
      *
      * @param obj Object to serialize
@@ -272,12 +284,16 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
      * @return serialized bytes
      */
     public byte[] serialize(final Object obj, final int bufferSize) {
-        Output out = new Output(bufferSize, MAX_BUFFER_SIZE);
-        return pool.run(kryo -> {
-            kryo.writeClassAndObject(out, obj);
-            out.flush();
-            return out.toBytes();
-        });
+        Output out = borrowOutput(bufferSize);
+        try {
+            return pool.run(kryo -> {
+                kryo.writeClassAndObject(out, obj);
+                out.flush();
+                return out.toBytes();
+            });
+        } finally {
+            releaseOutput(out);
+        }
     }
 
     /**
@@ -315,13 +331,44 @@ public final class KryoNamespace implements KryoFactory, KryoPool {
      * @param bufferSize size of the buffer in front of the stream
      */
     public void serialize(final Object obj, final OutputStream stream, final int bufferSize) {
-        ByteBufferOutput out = new ByteBufferOutput(stream, bufferSize);
+        Output out = borrowOutput(bufferSize);
+        out.setOutputStream(stream);
         Kryo kryo = borrow();
         try {
             kryo.writeClassAndObject(out, obj);
             out.flush();
         } finally {
             release(kryo);
+            releaseOutput(out);
+        }
+    }
+
+    /**
+     * Takes the serialization buffer of the calling thread, or creates one
+     * if it is in use.
+     *
+     * @param bufferSize initial size of a new buffer
+     * @return output over an empty buffer
+     */
+    private static Output borrowOutput(int bufferSize) {
+        Output out = OUTPUTS.get();
+        if (out == null) {
+            return new Output(bufferSize, MAX_BUFFER_SIZE);
+        }
+        OUTPUTS.set(null);
+        return out;
+    }
+
+    /**
+     * Hands a serialization buffer back to the calling thread for reuse.
+     *
+     * @param out output taken with {@link #borrowOutput(int)}
+     */
+    private static void releaseOutput(Output out) {
+        if (out.getBuffer().length <= MAX_POOLED_BUFFER_SIZE) {
+            out.setOutputStream(null);
+            out.clear();
+            OUTPUTS.set(out);
         }
     }
 
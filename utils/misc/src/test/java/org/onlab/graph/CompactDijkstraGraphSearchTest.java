@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+
+/**
+ * Test of the Dijkstra algorithm over compact graphs.
+ */
+public class CompactDijkstraGraphSearchTest extends DijkstraGraphSearchTest {
+
+    @Override
+    protected AbstractGraphPathSearch<TestVertex, TestEdge> graphSearch() {
+        return new CompactDijkstraGraphSearch<>();
+    }
+
+    @Test
+    public void sameAsDijkstra() {
+        Random random = new Random(11);
+        for (int run = 0; run < 20; run++) {
+            Graph<TestVertex, TestEdge> graph = CompactGraphTest.randomGraph(random, 30, 90);
+            for (TestVertex src : graph.getVertexes()) {
+                GraphPathSearch.Result<TestVertex, TestEdge> expected =
+                        new DijkstraGraphSearch<TestVertex, TestEdge>().search(graph, src, null, weight, ALL_PATHS);
+                GraphPathSearch.Result<TestVertex, TestEdge> result =
+                        graphSearch().search(graph, src, null, weight, ALL_PATHS);
+                assertEquals("incorrect costs", expected.costs(), result.costs());
+                assertEquals("incorrect parents", expected.parents(), result.parents());
+                assertEquals("incorrect paths", expected.paths(), result.paths());
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the compact graph implementation.
+ */
+public class CompactGraphTest {
+
+    private static final TestVertex A = new TestVertex("A");
+    private static final TestVertex B = new TestVertex("B");
+    private static final TestVertex C = new TestVertex("C");
+    private static final TestVertex D = new TestVertex("D");
+    private static final TestVertex E = new TestVertex("E");
+    private static final TestVertex F = new TestVertex("F");
+    private static final TestVertex G = new TestVertex("G");
+
+    private final Set<TestEdge> edges =
+            ImmutableSet.of(new TestEdge(A, B, 1), new TestEdge(B, C, 1),
+                            new TestEdge(C, D, 1), new TestEdge(D, A, 1),
+                            new TestEdge(B, D, 1));
+
+    @Test
+    public void equality() {
+        Set<TestVertex> vertexes = ImmutableSet.of(A, B, C, D, E, F);
+        Set<TestVertex> vertexes2 = ImmutableSet.of(A, B, C, D, E, F, G);
+
+        CompactGraph<TestVertex, TestEdge> graph = new CompactGraph<>(vertexes, edges);
+        CompactGraph<TestVertex, TestEdge> same = new CompactGraph<>(vertexes, edges);
+        CompactGraph<TestVertex, TestEdge> different = new CompactGraph<>(vertexes2, edges);
+
+        new EqualsTester()
+                .addEqualityGroup(graph, same)
+                .addEqualityGroup(different)
+                .testEquals();
+    }
+
+    @Test
+    public void basics() {
+        Set<TestVertex> vertexes = ImmutableSet.of(A, B, C, D, E, F);
+        CompactGraph<TestVertex, TestEdge> graph = new CompactGraph<>(vertexes, edges);
+        assertEquals("incorrect vertex count", 6, graph.getVertexes().size());
+        assertEquals("incorrect edge count", 5, graph.getEdges().size());
+        assertEquals("incorrect vertex count", 6, graph.vertexCount());
+        assertEquals("incorrect edge count", 5, graph.edgeCount());
+
+        assertEquals("incorrect egress edge count", 1, graph.getEdgesFrom(A).size());
+        assertEquals("incorrect ingress edge count", 1, graph.getEdgesTo(A).size());
+        assertEquals("incorrect ingress edge count", 1, graph.getEdgesTo(C).size());
+        assertEquals("incorrect egress edge count", 2, graph.getEdgesFrom(B).size());
+        assertEquals("incorrect ingress edge count", 2, graph.getEdgesTo(D).size());
+        assertTrue("edge not found", graph.getEdgesFrom(B).contains(new TestEdge(B, D, 1)));
+        assertFalse("unexpected edge", graph.getEdgesFrom(B).contains(new TestEdge(B, A, 1)));
+        assertTrue("unexpected edges", graph.getEdgesFrom(E).isEmpty());
+        assertTrue("unexpected edges", graph.getEdgesFrom(G).isEmpty());
+    }
+
+    @Test
+    public void indexes() {
+        CompactGraph<TestVertex, TestEdge> graph =
+                new CompactGraph<>(ImmutableSet.of(E, A), edges);
+        assertEquals("incorrect vertex index", 0, graph.indexOf(E));
+        assertEquals("incorrect vertex index", 1, graph.indexOf(A));
+        assertEquals("incorrect vertex index", 2, graph.indexOf(B));
+        assertEquals("incorrect vertex index", -1, graph.indexOf(G));
+        assertEquals("incorrect vertex", B, graph.vertex(2));
+        assertEquals("incorrect edge", new TestEdge(A, B, 1), graph.edge(0));
+        assertEquals("incorrect vertex count", 5, graph.getVertexes().size());
+    }
+
+    @Test
+    public void sameAsAdjacencyLists() {
+        Graph<TestVertex, TestEdge> lists = randomGraph(new Random(7), 50, 200);
+        CompactGraph<TestVertex, TestEdge> graph = CompactGraph.copyOf(lists);
+        assertSame("graph copied twice", graph, CompactGraph.copyOf(graph));
+        assertEquals("incorrect vertexes", lists.getVertexes(), graph.getVertexes());
+        assertEquals("incorrect edges", lists.getEdges(), graph.getEdges());
+        for (TestVertex vertex : lists.getVertexes()) {
+            assertEquals("incorrect egress edges",
+                         ImmutableList.copyOf(lists.getEdgesFrom(vertex)),
+                         ImmutableList.copyOf(graph.getEdgesFrom(vertex)));
+            assertEquals("incorrect ingress edges",
+                         ImmutableList.copyOf(lists.getEdgesTo(vertex)),
+                         ImmutableList.copyOf(graph.getEdgesTo(vertex)));
+        }
+    }
+
+    /**
+     * Creates a random graph with the given number of vertexes and edges.
+     *
+     * @param random    random source
+     * @param vertexes  vertex count
+     * @param edgeCount approximate edge count
+     * @return random adjacency lists graph
+     */
+    static Graph<TestVertex, TestEdge> randomGraph(Random random, int vertexes, int edgeCount) {
+        TestVertex[] v = new TestVertex[vertexes];
+        for (int i = 0; i < vertexes; i++) {
+            v[i] = new TestVertex(Integer.toString(i));
+        }
+        Set<TestEdge> edges = Sets.newLinkedHashSet();
+        for (int i = 0; i < edgeCount; i++) {
+            edges.add(new TestEdge(v[random.nextInt(vertexes)], v[random.nextInt(vertexes)],
+                                   1 + random.nextInt(5)));
+        }
+        return new AdjacencyListsGraph<>(ImmutableSet.copyOf(v), edges);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.onlab.graph.TarjanGraphSearch.SccResult;
+
+/**
+ * Tarjan graph search tests over compact graphs.
+ */
+public class CompactTarjanGraphSearchTest extends GraphTest {
+
+    private final CompactTarjanGraphSearch<TestVertex, TestEdge> gs = new CompactTarjanGraphSearch<>();
+
+    private void validate(SccResult<TestVertex, TestEdge> result,
+                          int i, int vc, int ec) {
+        assertEquals("incorrect cluster count", vc, result.clusterVertexes().get(i).size());
+        assertEquals("incorrect edge count", ec, result.clusterEdges().get(i).size());
+    }
+
+    @Test
+    public void basic() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        assertEquals("incorrect cluster count", 6, gs.search(graph, null).clusterCount());
+    }
+
+    @Test
+    public void twoClustersConnectedWithIgnoredEdges() {
+        graph = new AdjacencyListsGraph<>(vertexes(),
+                                          of(new TestEdge(A, B, 1),
+                                             new TestEdge(B, C, 1),
+                                             new TestEdge(C, D, 1),
+                                             new TestEdge(D, A, 1),
+                                             new TestEdge(E, F, 1),
+                                             new TestEdge(F, G, 1),
+                                             new TestEdge(G, H, 1),
+                                             new TestEdge(H, E, 1),
+                                             new TestEdge(B, E, -1),
+                                             new TestEdge(E, B, -1)));
+        SccResult<TestVertex, TestEdge> result = gs.search(graph, weight);
+        assertEquals("incorrect cluster count", 2, result.clusterCount());
+        validate(result, 0, 4, 4);
+        validate(result, 1, 4, 4);
+    }
+
+    @Test
+    public void sameAsTarjan() {
+        Random random = new Random(5);
+        TarjanGraphSearch<TestVertex, TestEdge> tarjan = new TarjanGraphSearch<>();
+        for (int run = 0; run < 50; run++) {
+            graph = CompactGraphTest.randomGraph(random, 40, 20 + random.nextInt(60));
+            SccResult<TestVertex, TestEdge> expected = tarjan.search(graph, null);
+            SccResult<TestVertex, TestEdge> result = gs.search(graph, null);
+            assertEquals("incorrect clusters", expected.clusterVertexes(), result.clusterVertexes());
+            assertEquals("incorrect cluster edges", expected.clusterEdges(), result.clusterEdges());
+        }
+    }
+
+    @Test
+    public void deepGraph() {
+        // Long enough a cycle to overflow the stack of a recursive search.
+        int size = 100000;
+        TestVertex[] vertexes = new TestVertex[size];
+        for (int i = 0; i < size; i++) {
+            vertexes[i] = new TestVertex(Integer.toString(i));
+        }
+        ImmutableSet.Builder<TestEdge> edges = ImmutableSet.builder();
+        for (int i = 0; i < size; i++) {
+            edges.add(new TestEdge(vertexes[i], vertexes[(i + 1) % size], 1));
+        }
+        Set<TestVertex> all = ImmutableSet.copyOf(vertexes);
+        SccResult<TestVertex, TestEdge> result = gs.search(new CompactGraph<>(all, edges.build()), null);
+        assertEquals("incorrect cluster count", 1, result.clusterCount());
+        validate(result, 0, size, size);
+    }
+}
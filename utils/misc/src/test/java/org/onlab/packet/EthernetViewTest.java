@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the EthernetView class.
+ */
+public class EthernetViewTest {
+
+    private static final MacAddress DST = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress SRC = MacAddress.valueOf("00:00:00:00:00:02");
+
+    private static byte[] frame(short vlan) {
+        ARP arp = new ARP();
+        arp.setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) Ethernet.DATALAYER_ADDRESS_LENGTH)
+                .setProtocolAddressLength((byte) Ip4Address.BYTE_LENGTH)
+                .setOpCode(ARP.OP_REQUEST)
+                .setSenderHardwareAddress(SRC.toBytes())
+                .setSenderProtocolAddress(Ip4Address.valueOf("10.0.0.2").toOctets())
+                .setTargetHardwareAddress(MacAddress.ZERO.toBytes())
+                .setTargetProtocolAddress(Ip4Address.valueOf("10.0.0.1").toOctets());
+        Ethernet eth = new Ethernet();
+        eth.setDestinationMACAddress(DST)
+                .setSourceMACAddress(SRC)
+                .setVlanID(vlan)
+                .setEtherType(Ethernet.TYPE_ARP)
+                .setPayload(arp);
+        return eth.serialize();
+    }
+
+    @Test
+    public void testUntagged() throws Exception {
+        byte[] data = frame(Ethernet.VLAN_UNTAGGED);
+        EthernetView view = EthernetView.wrap(data);
+
+        assertEquals(DST, view.getDestinationMAC());
+        assertSame(view.getDestinationMAC(), view.getDestinationMAC());
+        assertEquals(SRC, view.getSourceMAC());
+        assertEquals(Ethernet.TYPE_ARP, view.getEtherType());
+        assertEquals(Ethernet.VLAN_UNTAGGED, view.getVlanID());
+        assertEquals(Ethernet.ETHERNET_HEADER_LENGTH, view.payloadOffset());
+        assertEquals(data.length - Ethernet.ETHERNET_HEADER_LENGTH, view.payloadLength());
+        assertFalse(view.isBroadcast());
+        assertFalse(view.isMulticast());
+
+        Ethernet eth = view.parse();
+        assertEquals(Ethernet.deserializer().deserialize(data, 0, data.length), eth);
+    }
+
+    @Test
+    public void testTagged() throws Exception {
+        byte[] data = frame((short) 100);
+        EthernetView view = EthernetView.wrap(data);
+
+        assertEquals(Ethernet.TYPE_ARP, view.getEtherType());
+        assertEquals(100, view.getVlanID());
+        assertEquals(Ethernet.ETHERNET_HEADER_LENGTH + Ethernet.VLAN_HEADER_LENGTH,
+                     view.payloadOffset());
+        assertEquals(100, view.parse().getVlanID());
+    }
+
+    @Test
+    public void testOffset() throws Exception {
+        byte[] frame = frame(Ethernet.VLAN_UNTAGGED);
+        byte[] data = new byte[frame.length + 4];
+        System.arraycopy(frame, 0, data, 2, frame.length);
+        data[2] = (byte) 0xff;
+        EthernetView view = EthernetView.wrap(data, 2, frame.length);
+
+        assertEquals(SRC, view.getSourceMAC());
+        assertEquals(Ethernet.TYPE_ARP, view.getEtherType());
+        assertEquals(frame.length - Ethernet.ETHERNET_HEADER_LENGTH, view.payloadLength());
+        assertTrue(view.isMulticast());
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        byte[] data = frame(Ethernet.VLAN_UNTAGGED);
+        System.arraycopy(MacAddress.BROADCAST.toBytes(), 0, data, 0, Ethernet.DATALAYER_ADDRESS_LENGTH);
+        EthernetView view = EthernetView.wrap(data);
+
+        assertTrue(view.isBroadcast());
+        assertFalse(view.isMulticast());
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void testTruncated() throws Exception {
+        EthernetView.wrap(new byte[Ethernet.ETHERNET_HEADER_LENGTH - 1]);
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void testTruncatedVlan() throws Exception {
+        byte[] data = frame((short) 100);
+        EthernetView.wrap(data, 0, Ethernet.ETHERNET_HEADER_LENGTH);
+    }
+}
@@ -27,12 +27,14 @@ import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowEntry.FlowEntryState;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleService;
 import org.onosproject.rest.AbstractWebResource;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -47,7 +49,11 @@ import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static org.onlab.util.Tools.nullIsNotFound;
@@ -68,31 +74,103 @@ public class FlowsWebResource extends AbstractWebResource {
     private static final String FLOWS = "flows";
     private static final String DEVICE_ID = "deviceId";
     private static final String FLOW_ID = "flowId";
+    private static final String CURSOR_SEPARATOR = "/";
+
+    // order of the flows when paging through them
+    private static final Comparator<DeviceId> DEVICE_ORDER = Comparator.comparing(DeviceId::toString);
+    private static final Comparator<FlowEntry> FLOW_ORDER = Comparator.comparingLong(f -> f.id().value());
 
     private final FlowRuleService service = get(FlowRuleService.class);
     private final ObjectNode root = mapper().createObjectNode();
     private final ArrayNode flowsNode = root.putArray(FLOWS);
 
     /**
-     * Gets all flow entries. Returns array of all flow rules in the system.
+     * Gets all flow entries. Returns array of all flow rules in the system,
+     * optionally filtered and a page at a time. The response is streamed
+     * from the flow rule service as it is encoded.
+     * <p>
+     * When paging, flows are ordered by device and flow identifier, and the
+     * response carries the cursor of the next page in its "next" field as
+     * long as there are more flows.
+     * </p>
      *
+     * @param deviceId (optional) device identifier
+     * @param appId    (optional) application identifier
+     * @param state    (optional) flow entry state
+     * @param limit    (optional) maximum number of flows to return
+     * @param after    (optional) cursor of the page to return
      * @return 200 OK with a collection of flows
      * @onos.rsModel FlowEntries
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getFlows() {
-        final Iterable<Device> devices = get(DeviceService.class).getDevices();
-        for (final Device device : devices) {
-            final Iterable<FlowEntry> flowEntries = service.getFlowEntries(device.id());
-            if (flowEntries != null) {
-                for (final FlowEntry entry : flowEntries) {
-                    flowsNode.add(codec(FlowEntry.class).encode(entry, this));
-                }
-            }
+    public Response getFlows(@QueryParam("device") String deviceId,
+                             @QueryParam("appId") String appId,
+                             @QueryParam("state") String state,
+                             @QueryParam("limit") @DefaultValue("0") int limit,
+                             @QueryParam("after") String after) {
+        final boolean paged = limit > 0 || after != null;
+        final String afterDevice = after != null ? cursorDevice(after) : null;
+        final long afterFlow = after != null ? cursorFlow(after) : 0;
+
+        Stream<DeviceId> deviceIds = deviceId != null ? Stream.of(DeviceId.deviceId(deviceId)) :
+                StreamSupport.stream(get(DeviceService.class).getDevices().spliterator(), false)
+                        .map(Device::id);
+        if (paged) {
+            deviceIds = deviceIds.sorted(DEVICE_ORDER);
+        }
+        if (afterDevice != null) {
+            deviceIds = deviceIds.filter(id -> id.toString().compareTo(afterDevice) >= 0);
         }
 
-        return ok(root).build();
+        final Predicate<FlowEntry> filter = flowFilter(appId, state);
+        final Iterator<FlowEntry> flows = deviceIds
+                .flatMap(id -> {
+                    Stream<FlowEntry> entries = flowEntries(id).filter(filter);
+                    if (id.toString().equals(afterDevice)) {
+                        entries = entries.filter(f -> f.id().value() > afterFlow);
+                    }
+                    if (paged) {
+                        // no page spans more flows of a device than its limit
+                        entries = page(entries, FLOW_ORDER, limit).stream();
+                    }
+                    return entries;
+                })
+                .iterator();
+        return ok(encodeArrayStream(FlowEntry.class, FLOWS, flows, limit,
+                                    f -> f.deviceId() + CURSOR_SEPARATOR + f.id().value())).build();
+    }
+
+    private Stream<FlowEntry> flowEntries(DeviceId deviceId) {
+        final Iterable<FlowEntry> flowEntries = service.getFlowEntries(deviceId);
+        return flowEntries != null ?
+                StreamSupport.stream(flowEntries.spliterator(), false) : Stream.empty();
+    }
+
+    private Predicate<FlowEntry> flowFilter(String appId, String state) {
+        Predicate<FlowEntry> filter = f -> true;
+        if (appId != null) {
+            final ApplicationService appService = get(ApplicationService.class);
+            final short id = nullIsNotFound(appService.getId(appId), APP_ID_NOT_FOUND).id();
+            filter = filter.and(f -> f.appId() == id);
+        }
+        if (state != null) {
+            final FlowEntryState flowState = FlowEntryState.valueOf(state.toUpperCase());
+            filter = filter.and(f -> f.state() == flowState);
+        }
+        return filter;
+    }
+
+    private static String cursorDevice(String cursor) {
+        int index = cursor.lastIndexOf(CURSOR_SEPARATOR);
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+        return cursor.substring(0, index);
+    }
+
+    private static long cursorFlow(String cursor) {
+        return Long.parseLong(cursor.substring(cursor.lastIndexOf(CURSOR_SEPARATOR) + 1));
     }
 
     /**
@@ -36,11 +36,13 @@ import org.onosproject.net.provider.ProviderId;
 import org.onosproject.rest.AbstractWebResource;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -49,12 +51,16 @@ import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.onlab.util.Tools.nullIsNotFound;
+import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.net.HostId.hostId;
 
 /**
@@ -70,17 +76,34 @@ public class HostsWebResource extends AbstractWebResource {
 
     /**
      * Get all end-station hosts.
-     * Returns array of all known end-station hosts.
+     * Returns array of all known end-station hosts, or those connected to
+     * the specified device, optionally a page at a time ordered by host
+     * identifier. The response carries the cursor of the next page in its
+     * "next" field as long as there are more hosts.
      *
+     * @param deviceId (optional) device identifier
+     * @param limit    (optional) maximum number of hosts to return
+     * @param after    (optional) cursor of the page to return
      * @return 200 OK with array of all known end-station hosts.
      * @onos.rsModel Hosts
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getHosts() {
-        final Iterable<Host> hosts = get(HostService.class).getHosts();
-        final ObjectNode root = encodeArray(Host.class, "hosts", hosts);
-        return ok(root).build();
+    public Response getHosts(@QueryParam("device") String deviceId,
+                             @QueryParam("limit") @DefaultValue("0") int limit,
+                             @QueryParam("after") String after) {
+        final HostService service = get(HostService.class);
+        final Iterable<Host> hosts = deviceId != null ?
+                service.getConnectedHosts(deviceId(deviceId)) : service.getHosts();
+        Stream<Host> stream = StreamSupport.stream(hosts.spliterator(), false);
+        if (after != null) {
+            stream = stream.filter(host -> host.id().toString().compareTo(after) > 0);
+        }
+        final Iterator<Host> items = limit > 0 || after != null ?
+                page(stream, Comparator.comparing(host -> host.id().toString()), limit).iterator() :
+                stream.iterator();
+        return ok(encodeArrayStream(Host.class, "hosts", items, limit,
+                                    host -> host.id().toString())).build();
     }
 
     /**
@@ -33,11 +33,13 @@ import org.slf4j.Logger;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -45,9 +47,13 @@ import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.onlab.util.Tools.nullIsNotFound;
 import static org.onosproject.net.intent.IntentState.FAILED;
@@ -69,17 +75,41 @@ public class IntentsWebResource extends AbstractWebResource {
 
     /**
      * Gets all intents.
-     * Returns array containing all the intents in the system.
+     * Returns array containing all the intents in the system, optionally
+     * filtered by application and state, and a page at a time ordered by
+     * intent identifier. The response carries the cursor of the next page in
+     * its "next" field as long as there are more intents.
      *
+     * @param appId (optional) application name
+     * @param state (optional) intent state
+     * @param limit (optional) maximum number of intents to return
+     * @param after (optional) cursor of the page to return
      * @return 200 OK with array of all the intents in the system
      * @onos.rsModel Intents
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getIntents() {
-        final Iterable<Intent> intents = get(IntentService.class).getIntents();
-        final ObjectNode root = encodeArray(Intent.class, "intents", intents);
-        return ok(root).build();
+    public Response getIntents(@QueryParam("appId") String appId,
+                               @QueryParam("state") String state,
+                               @QueryParam("limit") @DefaultValue("0") int limit,
+                               @QueryParam("after") String after) {
+        final IntentService service = get(IntentService.class);
+        Stream<Intent> intents = StreamSupport.stream(service.getIntents().spliterator(), false);
+        if (appId != null) {
+            intents = intents.filter(intent -> intent.appId().name().equals(appId));
+        }
+        if (state != null) {
+            final IntentState intentState = IntentState.valueOf(state.toUpperCase());
+            intents = intents.filter(intent -> service.getIntentState(intent.key()) == intentState);
+        }
+        if (after != null) {
+            intents = intents.filter(intent -> intent.id().toString().compareTo(after) > 0);
+        }
+        final Iterator<Intent> items = limit > 0 || after != null ?
+                page(intents, Comparator.comparing(intent -> intent.id().toString()), limit).iterator() :
+                intents.iterator();
+        return ok(encodeArrayStream(Intent.class, "intents", items, limit,
+                                    intent -> intent.id().toString())).build();
     }
 
     /**
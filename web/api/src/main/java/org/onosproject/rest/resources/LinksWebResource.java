@@ -22,12 +22,17 @@ import org.onosproject.net.Link;
 import org.onosproject.net.link.LinkService;
 import org.onosproject.rest.AbstractWebResource;
 
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.net.PortNumber.portNumber;
@@ -40,18 +45,25 @@ public class LinksWebResource extends AbstractWebResource {
 
     /**
      * Gets infrastructure links.
-     * Returns array of all links, or links for the specified device or port.
+     * Returns array of all links, or links for the specified device or port,
+     * optionally a page at a time ordered by source and destination. The
+     * response carries the cursor of the next page in its "next" field as
+     * long as there are more links.
      * @onos.rsModel LinksGet
      * @param deviceId  (optional) device identifier
      * @param port      (optional) port number
      * @param direction (optional) direction qualifier
+     * @param limit     (optional) maximum number of links to return
+     * @param after     (optional) cursor of the page to return
      * @return 200 OK with array of all links, or links for the specified device or port
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getLinks(@QueryParam("device") String deviceId,
                              @QueryParam("port") String port,
-                             @QueryParam("direction") String direction) {
+                             @QueryParam("direction") String direction,
+                             @QueryParam("limit") @DefaultValue("0") int limit,
+                             @QueryParam("after") String after) {
         LinkService service = get(LinkService.class);
         Iterable<Link> links;
 
@@ -64,7 +76,20 @@ public class LinksWebResource extends AbstractWebResource {
         } else {
             links = service.getLinks();
         }
-        return ok(encodeArray(Link.class, "links", links)).build();
+
+        Stream<Link> stream = StreamSupport.stream(links.spliterator(), false);
+        if (after != null) {
+            stream = stream.filter(link -> cursor(link).compareTo(after) > 0);
+        }
+        final Iterator<Link> items = limit > 0 || after != null ?
+                page(stream, Comparator.comparing(LinksWebResource::cursor), limit).iterator() :
+                stream.iterator();
+        return ok(encodeArrayStream(Link.class, "links", items, limit,
+                                    LinksWebResource::cursor)).build();
+    }
+
+    private static String cursor(Link link) {
+        return link.src() + "-" + link.dst();
     }
 
     private Iterable<Link> getConnectPointLinks(ConnectPoint point,
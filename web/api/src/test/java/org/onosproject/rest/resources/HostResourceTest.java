@@ -64,6 +64,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.onlab.packet.MacAddress.valueOf;
@@ -292,6 +293,69 @@ public class HostResourceTest extends ResourceTest {
         assertThat(hosts, hasHost(host2));
     }
 
+    private static Host host(int index) {
+        final MacAddress mac = MacAddress.valueOf("00:00:11:00:00:0" + index);
+        return new DefaultHost(new ProviderId("of", "foo"), HostId.hostId(mac), mac,
+                               vlanId((short) index),
+                               new HostLocation(DeviceId.deviceId(Integer.toString(index % 2)),
+                                                portNumber(index), 1),
+                               ImmutableSet.of(IpAddress.valueOf("10.0.0." + index)));
+    }
+
+    /**
+     * Tests paging through the hosts with the rest api GET.
+     */
+    @Test
+    public void testHostsPaged() {
+        replay(mockHostService);
+        final Host host1 = host(1);
+        final Host host2 = host(2);
+        final Host host3 = host(3);
+        hosts.add(host3);
+        hosts.add(host1);
+        hosts.add(host2);
+        final WebTarget wt = target();
+
+        String response = wt.path("hosts").queryParam("limit", 2)
+                .request().get(String.class);
+        JsonObject result = Json.parse(response).asObject();
+        JsonArray jsonHosts = result.get("hosts").asArray();
+        assertThat(jsonHosts.size(), is(2));
+        assertThat(jsonHosts, hasHost(host1));
+        assertThat(jsonHosts, hasHost(host2));
+        final String next = result.get("next").asString();
+        assertThat(next, is(host2.id().toString()));
+
+        response = wt.path("hosts").queryParam("limit", 2).queryParam("after", next)
+                .request().get(String.class);
+        result = Json.parse(response).asObject();
+        jsonHosts = result.get("hosts").asArray();
+        assertThat(jsonHosts.size(), is(1));
+        assertThat(jsonHosts, hasHost(host3));
+        assertThat(result.get("next"), nullValue());
+    }
+
+    /**
+     * Tests the result of the rest api GET of the hosts connected to a
+     * device.
+     */
+    @Test
+    public void testHostsByDevice() {
+        final Host host1 = host(1);
+        final Host host3 = host(3);
+        expect(mockHostService.getConnectedHosts(DeviceId.deviceId("1")))
+                .andReturn(ImmutableSet.of(host1, host3));
+        replay(mockHostService);
+        final WebTarget wt = target();
+
+        final String response = wt.path("hosts").queryParam("device", "1")
+                .request().get(String.class);
+        final JsonArray jsonHosts = Json.parse(response).asObject().get("hosts").asArray();
+        assertThat(jsonHosts.size(), is(2));
+        assertThat(jsonHosts, hasHost(host1));
+        assertThat(jsonHosts, hasHost(host3));
+    }
+
     /**
      * Tests fetch of one host by Id.
      */
@@ -63,6 +63,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.onosproject.net.intent.IntentTestsMocks.MockIntent;
@@ -312,6 +313,67 @@ public class IntentsResourceTest extends ResourceTest {
         assertThat(jsonIntents, hasIntent(intent2));
     }
 
+    /**
+     * Tests paging through the intents with the rest api GET.
+     */
+    @Test
+    public void testIntentsPaged() {
+        replay(mockIntentService);
+
+        final Intent intent1 = new MockIntent(1L, Collections.emptyList());
+        final Intent intent2 = new MockIntent(2L, Collections.emptyList());
+        final Intent intent3 = new MockIntent(3L, Collections.emptyList());
+        intents.add(intent3);
+        intents.add(intent1);
+        intents.add(intent2);
+        final WebTarget wt = target();
+
+        String response = wt.path("intents").queryParam("limit", 2)
+                .request().get(String.class);
+        JsonObject result = Json.parse(response).asObject();
+        JsonArray jsonIntents = result.get("intents").asArray();
+        assertThat(jsonIntents.size(), is(2));
+        assertThat(jsonIntents, hasIntent(intent1));
+        assertThat(jsonIntents, hasIntent(intent2));
+        final String next = result.get("next").asString();
+        assertThat(next, is(intent2.id().toString()));
+
+        response = wt.path("intents").queryParam("limit", 2).queryParam("after", next)
+                .request().get(String.class);
+        result = Json.parse(response).asObject();
+        jsonIntents = result.get("intents").asArray();
+        assertThat(jsonIntents.size(), is(1));
+        assertThat(jsonIntents, hasIntent(intent3));
+        assertThat(result.get("next"), nullValue());
+    }
+
+    /**
+     * Tests filtering the intents by application and state with the rest
+     * api GET.
+     */
+    @Test
+    public void testIntentsFiltered() {
+        replay(mockIntentService);
+
+        final Intent intent = new MockIntent(1L, Collections.emptyList());
+        intents.add(intent);
+        final WebTarget wt = target();
+
+        String response = wt.path("intents").queryParam("appId", intent.appId().name())
+                .queryParam("state", "installed").request().get(String.class);
+        JsonArray jsonIntents = Json.parse(response).asObject().get("intents").asArray();
+        assertThat(jsonIntents.size(), is(1));
+        assertThat(jsonIntents, hasIntent(intent));
+
+        response = wt.path("intents").queryParam("appId", "other")
+                .request().get(String.class);
+        assertThat(response, is("{\"intents\":[]}"));
+
+        response = wt.path("intents").queryParam("state", "failed")
+                .request().get(String.class);
+        assertThat(response, is("{\"intents\":[]}"));
+    }
+
     /**
      * Tests the result of a rest api GET for a single intent.
      */
@@ -46,6 +46,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.onosproject.net.NetTestTools.link;
 
@@ -216,6 +217,37 @@ public class LinksResourceTest extends ResourceTest {
         assertThat(jsonLinks, hasLink(link3));
     }
 
+    /**
+     * Tests paging through the links with the rest api GET.
+     */
+    @Test
+    public void testLinksPaged() {
+        expect(mockLinkService.getLinks())
+                .andReturn(ImmutableList.of(link3, link1, link2))
+                .anyTimes();
+
+        replay(mockLinkService);
+
+        WebTarget wt = target();
+        String response = wt.path("links").queryParam("limit", 2)
+                .request().get(String.class);
+        JsonObject result = Json.parse(response).asObject();
+        JsonArray jsonLinks = result.get("links").asArray();
+        assertThat(jsonLinks.size(), is(2));
+        assertThat(jsonLinks, hasLink(link1));
+        assertThat(jsonLinks, hasLink(link2));
+        final String next = result.get("next").asString();
+        assertThat(next, is(link2.src() + "-" + link2.dst()));
+
+        response = wt.path("links").queryParam("limit", 2).queryParam("after", next)
+                .request().get(String.class);
+        result = Json.parse(response).asObject();
+        jsonLinks = result.get("links").asArray();
+        assertThat(jsonLinks.size(), is(1));
+        assertThat(jsonLinks, hasLink(link3));
+        assertThat(result.get("next"), nullValue());
+    }
+
     /**
      * Tests the result of the rest api GET of links for a specific device.
      */